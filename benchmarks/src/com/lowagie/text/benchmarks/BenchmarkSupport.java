@@ -0,0 +1,144 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.TextField;
+
+/**
+ * The documents and the text shared by the benchmarks. Everything is made in
+ * memory, so that the results don't depend on the disk.
+ */
+public class BenchmarkSupport {
+
+    /** A paragraph of filler text. */
+    public static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, "
+        + "sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim "
+        + "veniam, quis nostrud exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat. "
+        + "Duis aute irure dolor in reprehenderit in voluptate velit esse cillum dolore eu fugiat "
+        + "nulla pariatur.";
+
+    /** An <CODE>OutputStream</CODE> that only counts the bytes written to it. */
+    public static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        public void write(int b) {
+            ++count;
+        }
+
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Creates a document with some paragraphs on each page.
+     * @param pages the number of pages
+     * @return the PDF
+     * @throws Exception on error
+     */
+    public static byte[] createDocument(int pages) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+        for (int k = 0; k < pages; ++k) {
+            if (k > 0)
+                document.newPage();
+            document.add(new Paragraph("Page " + (k + 1)));
+            for (int p = 0; p < 5; ++p)
+                document.add(new Paragraph(TEXT));
+        }
+        document.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a document with a form of text fields.
+     * @param fields the number of fields
+     * @return the PDF
+     * @throws Exception on error
+     */
+    public static byte[] createForm(int fields) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+        float top = document.top();
+        for (int k = 0; k < fields; ++k) {
+            int row = k % 25;
+            if (k > 0 && row == 0)
+                document.newPage();
+            float y = top - row * 28;
+            TextField field = new TextField(writer, new Rectangle(100, y - 20, 400, y), getFieldName(k));
+            writer.addAnnotation(field.getTextField());
+        }
+        document.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Gets the name of a field made by <CODE>createForm</CODE>.
+     * @param k the index of the field
+     * @return the name of the field
+     */
+    public static String getFieldName(int k) {
+        return "field" + k;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the results of a JMH run, written with <CODE>-rf csv</CODE>, to a
+ * baseline in the same format. Exits with 1 if a benchmark is slower than its
+ * baseline by more than the tolerance:
+ * <pre>
+ * java com.lowagie.text.benchmarks.CompareBaseline build/results.csv baselines/baseline.csv 0.15
+ * </pre>
+ * Only the benchmarks measured as an average time are compared; the ones
+ * missing from either file are listed and skipped. A slowdown only counts when
+ * it is also larger than the score errors of both runs added together, and the
+ * baseline scores with an error wider than the tolerance are listed, as the
+ * comparison can't tell a regression of that size from noise.
+ */
+public class CompareBaseline {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CompareBaseline <results.csv> <baseline.csv> [tolerance]");
+            System.exit(1);
+        }
+        Map results = read(args[0]);
+        Map baseline = read(args[1]);
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.15;
+        int regressions = 0;
+        for (Iterator it = results.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry)it.next();
+            String name = (String)entry.getKey();
+            double result[] = (double[])entry.getValue();
+            double score = result[0];
+            double base[] = (double[])baseline.get(name);
+            if (base == null) {
+                System.out.println("NEW        " + name + " " + format(score));
+                continue;
+            }
+            double change = score / base[0] - 1;
+            String status = "ok        ";
+            if (change > tolerance && score - base[0] > result[1] + base[1]) {
+                status = "REGRESSION";
+                ++regressions;
+            }
+            else if (change < -tolerance && base[0] - score > result[1] + base[1])
+                status = "faster    ";
+            System.out.println(status + " " + name + " " + format(base[0]) + " -> "
+                + format(score) + " (" + (change >= 0 ? "+" : "") + Math.round(change * 100) + "%)");
+        }
+        for (Iterator it = baseline.entrySet().iterator(); it.hasNext();) {
+            Map.Entry entry = (Map.Entry)it.next();
+            double base[] = (double[])entry.getValue();
+            if (base[1] > base[0] * tolerance)
+                System.out.println("NOISY      " + entry.getKey() + " error +-"
+                    + Math.round(base[1] / base[0] * 100) + "% in the baseline");
+        }
+        for (Iterator it = baseline.keySet().iterator(); it.hasNext();) {
+            String name = (String)it.next();
+            if (!results.containsKey(name))
+                System.out.println("MISSING    " + name);
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) slower than the baseline by more than "
+                + Math.round(tolerance * 100) + "%");
+            System.exit(1);
+        }
+    }
+
+    private static String format(double score) {
+        return String.valueOf(Math.round(score * 1000) / 1000.0);
+    }
+
+    /**
+     * Reads the average time scores of a JMH csv file.
+     * @param file the csv file
+     * @return the score and its error by benchmark name and parameters
+     * @throws IOException on error
+     */
+    static Map read(String file) throws IOException {
+        Map scores = new LinkedHashMap();
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+            String header[] = split(in.readLine());
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.length() == 0)
+                    continue;
+                String values[] = split(line);
+                if (!"avgt".equals(values[1]))
+                    continue;
+                StringBuffer name = new StringBuffer(values[0]);
+                for (int k = 7; k < values.length && k < header.length; ++k) {
+                    if (values[k].length() > 0)
+                        name.append(' ').append(header[k].substring("Param: ".length())).append('=').append(values[k]);
+                }
+                double error = values[5].length() == 0 || "NaN".equals(values[5]) ? 0 : Double.parseDouble(values[5]);
+                scores.put(name.toString(), new double[]{Double.parseDouble(values[4]), error});
+            }
+        }
+        finally {
+            in.close();
+        }
+        return scores;
+    }
+
+    /** Splits a line of quoted and unquoted csv values. */
+    private static String[] split(String line) {
+        ArrayList values = new ArrayList();
+        StringBuffer value = new StringBuffer();
+        boolean quoted = false;
+        for (int k = 0; k < line.length(); ++k) {
+            char c = line.charAt(k);
+            if (c == '"')
+                quoted = !quoted;
+            else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            }
+            else
+                value.append(c);
+        }
+        values.add(value.toString());
+        return (String[])values.toArray(new String[values.size()]);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Runs one benchmark method in a plain loop, in the same JVM and without the
+ * JMH harness, so that a profiler can be attached to it or started with it:
+ * <pre>
+ * java -XX:+UnlockDiagnosticVMOptions -XX:+DebugNonSafepoints \
+ *     -XX:StartFlightRecording=filename=merge.jfr \
+ *     com.lowagie.text.benchmarks.ProfileRunner MergeBenchmark merge 60 smart=true
+ * </pre>
+ * The arguments are the benchmark class, with or without its package, the
+ * method, the number of seconds to run and the values of the parameters. The
+ * parameters not given take the first value of their <CODE>@Param</CODE>.
+ */
+public class ProfileRunner {
+
+    /** Keeps the results alive so that the benchmark isn't optimized away. */
+    public static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: ProfileRunner <class> <method> [seconds] [param=value...]");
+            System.exit(1);
+        }
+        String className = args[0];
+        if (className.indexOf('.') < 0)
+            className = ProfileRunner.class.getPackage().getName() + "." + className;
+        Class cls = Class.forName(className);
+        Method benchmark = cls.getMethod(args[1], new Class[0]);
+        if (benchmark.getAnnotation(Benchmark.class) == null)
+            throw new IllegalArgumentException(args[1] + " is not a benchmark method.");
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        Object state = cls.newInstance();
+        Field fields[] = cls.getFields();
+        for (int k = 0; k < fields.length; ++k) {
+            Param param = (Param)fields[k].getAnnotation(Param.class);
+            if (param != null && param.value().length > 0)
+                setField(state, fields[k], param.value()[0]);
+        }
+        for (int k = 3; k < args.length; ++k) {
+            int eq = args[k].indexOf('=');
+            if (eq < 0)
+                throw new IllegalArgumentException("Not a parameter: " + args[k]);
+            setField(state, cls.getField(args[k].substring(0, eq)), args[k].substring(eq + 1));
+        }
+        invokeAnnotated(state, Setup.class);
+        long end = System.currentTimeMillis() + seconds * 1000;
+        long count = 0;
+        long start = System.nanoTime();
+        while (System.currentTimeMillis() < end) {
+            sink = benchmark.invoke(state, new Object[0]);
+            ++count;
+        }
+        long elapsed = System.nanoTime() - start;
+        invokeAnnotated(state, TearDown.class);
+        System.out.println(cls.getName() + "." + benchmark.getName() + ": " + count + " calls, "
+            + (elapsed / count / 1000) + " us/call");
+    }
+
+    private static void setField(Object state, Field field, String value) throws Exception {
+        Class type = field.getType();
+        if (type == int.class)
+            field.setInt(state, Integer.parseInt(value));
+        else if (type == long.class)
+            field.setLong(state, Long.parseLong(value));
+        else if (type == boolean.class)
+            field.setBoolean(state, Boolean.valueOf(value).booleanValue());
+        else if (type == float.class)
+            field.setFloat(state, Float.parseFloat(value));
+        else
+            field.set(state, value);
+    }
+
+    private static void invokeAnnotated(Object state, Class annotation) throws Exception {
+        Method methods[] = state.getClass().getMethods();
+        for (int k = 0; k < methods.length; ++k) {
+            if (methods[k].getAnnotation(annotation) != null)
+                methods[k].invoke(state, new Object[0]);
+        }
+    }
+}
@@ -74,6 +74,7 @@ import com.lowagie.text.pdf.PdfTemplate;
 import com.lowagie.text.pdf.PdfWriter;
 import com.lowagie.text.pdf.RandomAccessFileOrArray;
 import com.lowagie.text.pdf.codec.BmpImage;
+import com.lowagie.text.pdf.codec.BufferedImageConverter;
 import com.lowagie.text.pdf.codec.CCITTG4Encoder;
 import com.lowagie.text.pdf.codec.GifImage;
 import com.lowagie.text.pdf.codec.PngImage;
@@ -547,6 +548,9 @@ public abstract class Image extends Rectangle {
 			if(bi.getType()==BufferedImage.TYPE_BYTE_BINARY) {
 				forceBW=true;
 			}
+			Image img = BufferedImageConverter.getImage(bi, color, forceBW);
+			if (img != null)
+				return img;
 		}
 		
 		java.awt.image.PixelGrabber pg = new java.awt.image.PixelGrabber(image,
@@ -749,19 +753,28 @@ public abstract class Image extends Rectangle {
      * @throws IOException
      */
     public static Image getInstance(PdfContentByte cb, java.awt.Image awtImage, float quality) throws BadElementException, IOException {
-        java.awt.image.PixelGrabber pg = new java.awt.image.PixelGrabber(awtImage,
-                0, 0, -1, -1, true);
-        try {
-            pg.grabPixels();
-        } catch (InterruptedException e) {
-            throw new IOException(
-                    "java.awt.Image Interrupted waiting for pixels!");
+        int w;
+        int h;
+        if (awtImage instanceof BufferedImage) {
+            // the size is known, there is no need to grab the pixels
+            w = ((BufferedImage)awtImage).getWidth();
+            h = ((BufferedImage)awtImage).getHeight();
         }
-        if ((pg.getStatus() & java.awt.image.ImageObserver.ABORT) != 0) {
-            throw new IOException("java.awt.Image fetch aborted or errored");
+        else {
+            java.awt.image.PixelGrabber pg = new java.awt.image.PixelGrabber(awtImage,
+                    0, 0, -1, -1, true);
+            try {
+                pg.grabPixels();
+            } catch (InterruptedException e) {
+                throw new IOException(
+                        "java.awt.Image Interrupted waiting for pixels!");
+            }
+            if ((pg.getStatus() & java.awt.image.ImageObserver.ABORT) != 0) {
+                throw new IOException("java.awt.Image fetch aborted or errored");
+            }
+            w = pg.getWidth();
+            h = pg.getHeight();
         }
-        int w = pg.getWidth();
-        int h = pg.getHeight();
         PdfTemplate tp = cb.createTemplate(w, h);
         Graphics2D g2d = tp.createGraphics(w, h, true, quality);
         g2d.drawImage(awtImage, 0, 0, null);
@@ -267,9 +267,19 @@ public abstract class BaseFont {
  */
     protected boolean fontSpecific = true;
     
-/** cache for the fonts already used. */
+/**
+ * cache for the fonts already used.
+ * @deprecated the fonts are kept in a <CODE>FontCache</CODE>, see {@link #getFontCache()};
+ * this map is no longer read or filled by <CODE>createFont</CODE>
+ */
     protected static HashMap fontCache = new HashMap();
     
+/** cache for the fonts already used. */
+    private static volatile FontCache sharedFontCache = new FontCache();
+    
+/** cache for the widths of the texts measured with this font. */
+    protected final WidthCache widthCache = new WidthCache();
+    
 /** list of the 14 built in fonts. */
     protected static final HashMap BuiltinFonts14 = new HashMap();
     
@@ -331,7 +341,7 @@ public abstract class BaseFont {
                 for (int k = 0; k < lengths.length; ++k) {
                     put(new PdfName("Length" + (k + 1)), new PdfNumber(lengths[k]));
                 }
-                flateCompress();
+                flateCompress(PdfCompression.FONT);
             }
             catch (Exception e) {
                 throw new DocumentException(e);
@@ -350,7 +360,7 @@ public abstract class BaseFont {
                 put(PdfName.LENGTH, new PdfNumber(bytes.length));
                 if (subType != null)
                     put(PdfName.SUBTYPE, new PdfName(subType));
-                flateCompress();
+                flateCompress(PdfCompression.FONT);
             }
             catch (Exception e) {
                 throw new DocumentException(e);
@@ -522,6 +532,10 @@ public abstract class BaseFont {
      * @throws IOException the font file could not be read
      */
     public static BaseFont createFont(String name, String encoding, boolean embedded, boolean cached, byte ttfAfm[], byte pfb[], boolean noThrow) throws DocumentException, IOException {
+        return createFont(name, encoding, embedded, cached, ttfAfm, pfb, noThrow, sharedFontCache);
+    }
+    
+    static BaseFont createFont(String name, String encoding, boolean embedded, boolean cached, byte ttfAfm[], byte pfb[], boolean noThrow, FontCache cache) throws DocumentException, IOException {
         String nameBase = getBaseName(name);
         encoding = normalizeEncoding(encoding);
         boolean isBuiltinFonts14 = BuiltinFonts14.containsKey(name);
@@ -534,9 +548,7 @@ public abstract class BaseFont {
         BaseFont fontBuilt = null;
         String key = name + "\n" + encoding + "\n" + embedded;
         if (cached) {
-            synchronized (fontCache) {
-                fontFound = (BaseFont)fontCache.get(key);
-            }
+            fontFound = cache.get(key);
             if (fontFound != null)
                 return fontFound;
         }
@@ -558,17 +570,58 @@ public abstract class BaseFont {
             return null;
         else
             throw new DocumentException("Font '" + name + "' with '" + encoding + "' is not recognized.");
-        if (cached) {
-            synchronized (fontCache) {
-                fontFound = (BaseFont)fontCache.get(key);
-                if (fontFound != null)
-                    return fontFound;
-                fontCache.put(key, fontBuilt);
-            }
-        }
+        if (cached)
+            return cache.put(key, fontBuilt);
         return fontBuilt;
     }
     
+    /**
+     * Gets the key of a font in the font cache. The encoding and the embedding
+     * are changed the same way <CODE>createFont</CODE> does.
+     * @param name the name of the font or its location on file
+     * @param encoding the encoding of the font
+     * @param embedded true if the font is embedded
+     * @return the key
+     */
+    static String getCacheKey(String name, String encoding, boolean embedded) {
+        String nameBase = getBaseName(name);
+        encoding = normalizeEncoding(encoding);
+        if (BuiltinFonts14.containsKey(name) || CJKFont.isCJKFont(nameBase, encoding))
+            embedded = false;
+        else if (encoding.equals(IDENTITY_H) || encoding.equals(IDENTITY_V))
+            embedded = true;
+        return name + "\n" + encoding + "\n" + embedded;
+    }
+    
+    /**
+     * Gets the cache used by <CODE>createFont</CODE> for the fonts created
+     * with <CODE>cached</CODE> set to <CODE>true</CODE>.
+     * @return the font cache
+     */
+    public static FontCache getFontCache() {
+        return sharedFontCache;
+    }
+    
+    /**
+     * Replaces the cache used by <CODE>createFont</CODE>.
+     * @param cache the new font cache
+     */
+    public static void setFontCache(FontCache cache) {
+        if (cache == null)
+            throw new NullPointerException("The font cache can't be null.");
+        sharedFontCache = cache;
+    }
+    
+    /**
+     * Gets a rough estimate of the memory used by this font, used to
+     * limit the size of the font cache.
+     * @return the estimated size in bytes
+     */
+    protected long getEstimatedSize() {
+        // widths, differences, unicodeDifferences and charBBoxes
+        return 256 * (4 + 4 + 2 + 4) + 4096;
+    }
+    
     /**
      * Creates a font based on an existing document font. The created font font may not
      * behave as expected, depending on the encoding or subset.
@@ -830,16 +883,55 @@ public abstract class BaseFont {
      * @return the width in points
      */
     public float getWidthPointKerned(String text, float fontSize) {
-        float size = (float)getWidth(text) * 0.001f * fontSize;
-        if (!hasKernPairs())
+        int width;
+        int kern;
+        if (widthCache.isCacheable(text)) {
+            int entry[] = getCachedWidth(text);
+            if (entry[1] == WidthCache.NO_KERNING)
+                entry[1] = getTextKerning(text);
+            width = entry[0];
+            kern = entry[1];
+        }
+        else {
+            width = getWidth(text);
+            kern = getTextKerning(text);
+        }
+        float size = (float)width * 0.001f * fontSize;
+        if (kern == 0)
             return size;
+        return size + kern * 0.001f * fontSize;
+    }
+    
+    /**
+     * Gets the sum of the kerning between the chars of a <CODE>String</CODE>.
+     * @param text the <CODE>String</CODE>
+     * @return the kerning in normalized 1000 units
+     */
+    private int getTextKerning(String text) {
+        if (!hasKernPairs())
+            return 0;
         int len = text.length() - 1;
         int kern = 0;
         char c[] = text.toCharArray();
         for (int k = 0; k < len; ++k) {
             kern += getKerning(c[k], c[k + 1]);
         }
-        return size + kern * 0.001f * fontSize;
+        return kern;
+    }
+    
+    /**
+     * Gets the width and the kerning of a <CODE>String</CODE> from the width
+     * cache, measuring the width if it's not there yet.
+     * @param text the <CODE>String</CODE>
+     * @return the {width, kerning} of the text, the kerning may be not computed yet
+     */
+    private int[] getCachedWidth(String text) {
+        int entry[] = widthCache.get(text);
+        if (entry == null) {
+            entry = new int[]{getWidth(text), WidthCache.NO_KERNING};
+            widthCache.put(text, entry);
+        }
+        return entry;
     }
     
     /**
@@ -849,9 +941,21 @@ public abstract class BaseFont {
      * @return the width in points
      */
     public float getWidthPoint(String text, float fontSize) {
+        if (widthCache.isCacheable(text))
+            return (float)getCachedWidth(text)[0] * 0.001f * fontSize;
         return (float)getWidth(text) * 0.001f * fontSize;
     }
     
+    /**
+     * Gets the cache of the widths of the texts measured with this font by
+     * <CODE>getWidthPoint(String, float)</CODE> and
+     * <CODE>getWidthPointKerned(String, float)</CODE>.
+     * @return the width cache
+     */
+    public WidthCache getWidthCache() {
+        return widthCache;
+    }
+    
     /**
      * Gets the width of a <CODE>char</CODE> in points.
      * @param char1 the <CODE>char</CODE> to get the witdth of
@@ -1245,6 +1349,7 @@ public abstract class BaseFont {
         if (b.length == 0)
             return false;
         widths[0xff & b[0]] = advance;
+        widthCache.clear();
         return true;
     }
     
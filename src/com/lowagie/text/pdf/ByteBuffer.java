@@ -54,6 +54,7 @@ import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.Locale;
 
 import com.lowagie.text.DocWriter;
@@ -61,6 +62,14 @@ import com.lowagie.text.DocWriter;
 /**
  * Acts like a <CODE>StringBuffer</CODE> but works with <CODE>byte</CODE> arrays.
  * Floating point is converted to a format suitable to the PDF.
+ * <p>
+ * The arrays of the temporary buffers of the writer can be reused through
+ * <CODE>obtain()</CODE> and <CODE>recycle()</CODE>. This is done for the object
+ * streams, the cross-reference stream, the objects serialized for the compression
+ * executor, the page content of <CODE>PdfStamper</CODE> and <CODE>PdfCopy</CODE>
+ * and the object keys of <CODE>PdfSmartCopy</CODE>. The content of a
+ * <CODE>PdfContentByte</CODE> and the serialization of a <CODE>PdfDictionary</CODE>
+ * still use buffers of their own.
  * @author Paulo Soares (psoares@consiste.pt)
  */
 
@@ -84,6 +93,21 @@ public class ByteBuffer extends OutputStream {
     public static boolean HIGH_PRECISION = false;
     private static final DecimalFormatSymbols dfs = new DecimalFormatSymbols(Locale.US);
     
+    private static final byte EMPTY[] = new byte[0];
+    
+    /** The maximum number of arrays kept by the pool of each thread. */
+    private static int poolCapacity = 8;
+    
+    /** The largest array kept by the pools. */
+    private static int poolMaxArraySize = 0x80000;
+    
+    /** The arrays given back with <CODE>recycle()</CODE>, one list per thread. */
+    private static final ThreadLocal pool = new ThreadLocal() {
+        protected Object initialValue() {
+            return new ArrayList();
+        }
+    };
+    
     /** Creates new ByteBuffer with capacity 128 */
     public ByteBuffer() {
         this(128);
@@ -99,6 +123,78 @@ public class ByteBuffer extends OutputStream {
         buf = new byte[size];
     }
     
+    private ByteBuffer(byte buf[]) {
+        this.buf = buf;
+    }
+    
+    /**
+     * Gets a byte buffer that reuses an array given back to the pool of the
+     * current thread, if there is one, instead of allocating a new one.
+     * The buffer should be given back with <CODE>recycle()</CODE> when
+     * it is no longer needed.
+     * @return an empty byte buffer
+     */
+    public static ByteBuffer obtain() {
+        return obtain(128);
+    }
+    
+    /**
+     * Gets a byte buffer with at least a certain capacity that reuses an array
+     * given back to the pool of the current thread, if there is one.
+     * The buffer should be given back with <CODE>recycle()</CODE> when
+     * it is no longer needed.
+     * @param size the minimum capacity
+     * @return an empty byte buffer
+     */
+    public static ByteBuffer obtain(int size) {
+        ArrayList arrays = (ArrayList)pool.get();
+        for (int k = arrays.size() - 1; k >= 0; --k) {
+            byte b[] = (byte[])arrays.get(k);
+            if (b.length >= size) {
+                arrays.remove(k);
+                return new ByteBuffer(b);
+            }
+        }
+        return new ByteBuffer(size);
+    }
+    
+    /**
+     * Gives the array of this buffer back to the pool of the current thread.
+     * The buffer is left empty and can still be used, but the arrays returned
+     * by <CODE>getBuffer()</CODE> before this call must no longer be used.
+     */
+    public void recycle() {
+        byte b[] = buf;
+        buf = EMPTY;
+        count = 0;
+        if (b.length == 0 || b.length > poolMaxArraySize || poolCapacity == 0)
+            return;
+        ArrayList arrays = (ArrayList)pool.get();
+        if (arrays.size() < poolCapacity)
+            arrays.add(b);
+        else {
+            // keep the largest arrays
+            int small = 0;
+            for (int k = 1; k < arrays.size(); ++k) {
+                if (((byte[])arrays.get(k)).length < ((byte[])arrays.get(small)).length)
+                    small = k;
+            }
+            if (((byte[])arrays.get(small)).length < b.length)
+                arrays.set(small, b);
+        }
+    }
+    
+    /**
+     * Sets the limits of the pools used by <CODE>obtain()</CODE> and <CODE>recycle()</CODE>.
+     * A capacity of 0 disables the pools.
+     * @param capacity the maximum number of arrays kept by each thread
+     * @param maxArraySize the largest array that is kept
+     */
+    public static void setPoolSize(int capacity, int maxArraySize) {
+        poolCapacity = Math.max(0, capacity);
+        poolMaxArraySize = Math.max(0, maxArraySize);
+    }
+    
     /**
      * Sets the cache size.
      * <P>
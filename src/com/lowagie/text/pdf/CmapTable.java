@@ -0,0 +1,221 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+/**
+ * The mapping of a table 'cmap' of a TrueType font from character codes to
+ * glyph indexes and widths.
+ * <P>
+ * The codes are kept in pages of 256 consecutive codes, each page holding the
+ * glyph and the width of its codes next to each other in an <CODE>int</CODE>
+ * array. Only the pages with at least one code are allocated, so that the
+ * table stays small for a font with a few scattered ranges, and a lookup is
+ * two array accesses without any allocation.
+ */
+public class CmapTable {
+
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    /** The glyph of a code that isn't in the table. */
+    private static final int NO_GLYPH = -1;
+
+    /** the pages indexed by code / 256, each with a glyph and a width per code */
+    private int pages[][] = new int[1][];
+    private int size;
+
+    /**
+     * Gets the page of a code and the position of the code in it.
+     * @return the page or <CODE>null</CODE> if it was never allocated
+     */
+    private int[] getPage(int code) {
+        int p = code >>> PAGE_BITS;
+        if (p >= pages.length)
+            return null;
+        return pages[p];
+    }
+
+    /**
+     * Adds a code or replaces it.
+     * @param code the character code
+     * @param glyph the glyph index
+     * @param width the glyph width normalized to 1000 units
+     */
+    public void put(int code, int glyph, int width) {
+        if (code < 0)
+            throw new IllegalArgumentException("Invalid character code: " + code);
+        int p = code >>> PAGE_BITS;
+        if (p >= pages.length) {
+            int newPages[][] = new int[Math.max(p + 1, pages.length * 2)][];
+            System.arraycopy(pages, 0, newPages, 0, pages.length);
+            pages = newPages;
+        }
+        int page[] = pages[p];
+        if (page == null) {
+            page = new int[PAGE_SIZE * 2];
+            for (int k = 0; k < page.length; k += 2)
+                page[k] = NO_GLYPH;
+            pages[p] = page;
+        }
+        int idx = (code & PAGE_MASK) * 2;
+        if (page[idx] == NO_GLYPH)
+            ++size;
+        page[idx] = glyph;
+        page[idx + 1] = width;
+    }
+
+    /**
+     * Checks if a code is in the table.
+     * @param code the character code
+     * @return <CODE>true</CODE> if the code has a glyph
+     */
+    public boolean containsKey(int code) {
+        return getGlyph(code) != NO_GLYPH;
+    }
+
+    /**
+     * Gets the glyph index of a code.
+     * @param code the character code
+     * @return the glyph index or -1 if the code isn't in the table
+     */
+    public int getGlyph(int code) {
+        int page[] = getPage(code);
+        if (page == null)
+            return NO_GLYPH;
+        return page[(code & PAGE_MASK) * 2];
+    }
+
+    /**
+     * Gets the width of a code.
+     * @param code the character code
+     * @return the width normalized to 1000 units or 0 if the code isn't in the table
+     */
+    public int getWidth(int code) {
+        int page[] = getPage(code);
+        if (page == null)
+            return 0;
+        int idx = (code & PAGE_MASK) * 2;
+        if (page[idx] == NO_GLYPH)
+            return 0;
+        return page[idx + 1];
+    }
+
+    /**
+     * Changes the width of a code.
+     * @param code the character code
+     * @param width the width normalized to 1000 units
+     * @return <CODE>false</CODE> if the code isn't in the table
+     */
+    public boolean setWidth(int code, int width) {
+        int page[] = getPage(code);
+        if (page == null)
+            return false;
+        int idx = (code & PAGE_MASK) * 2;
+        if (page[idx] == NO_GLYPH)
+            return false;
+        page[idx + 1] = width;
+        return true;
+    }
+
+    /**
+     * Gets the glyph index and the width of a code in a new array.
+     * @param code the character code
+     * @return an <CODE>int</CODE> array with {glyph index, width} or
+     * <CODE>null</CODE> if the code isn't in the table
+     */
+    public int[] get(int code) {
+        int page[] = getPage(code);
+        if (page == null)
+            return null;
+        int idx = (code & PAGE_MASK) * 2;
+        if (page[idx] == NO_GLYPH)
+            return null;
+        return new int[]{page[idx], page[idx + 1]};
+    }
+
+    /**
+     * Gets the number of codes in the table.
+     * @return the number of codes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets all the codes of the table.
+     * @return the codes in increasing order
+     */
+    public int[] getCodes() {
+        int codes[] = new int[size];
+        int n = 0;
+        for (int p = 0; p < pages.length; ++p) {
+            int page[] = pages[p];
+            if (page == null)
+                continue;
+            for (int k = 0; k < PAGE_SIZE; ++k) {
+                if (page[k * 2] != NO_GLYPH)
+                    codes[n++] = (p << PAGE_BITS) | k;
+            }
+        }
+        return codes;
+    }
+
+    /**
+     * Gets a rough estimate of the memory used by the table.
+     * @return the estimated size in bytes
+     */
+    long getEstimatedSize() {
+        long est = 16 + 4L * pages.length;
+        for (int p = 0; p < pages.length; ++p) {
+            if (pages[p] != null)
+                est += 16 + 8L * PAGE_SIZE;
+        }
+        return est;
+    }
+}
@@ -1256,13 +1256,14 @@ public class ColumnText {
                 if (yLine < minY || yLine > maxY)
                     return NO_MORE_COLUMN;
                 PdfPTable table = (PdfPTable)element;
-                if (table.size() <= table.getHeaderRows()) {
+                if (!table.hasRowsToWrite()) {
                     compositeElements.removeFirst();
                     continue;
                 }
                 float yTemp = yLine;
                 float yLineWrite = yLine;
-                if (!firstPass && listIdx == 0) {
+                // the rows of a flushed table continue the ones already written
+                if (!firstPass && listIdx == 0 && !table.isFlushed()) {
                     yTemp -= table.spacingBefore();
                     yLineWrite = yTemp;
                 }
@@ -1279,8 +1280,17 @@ public class ColumnText {
                     tableWidth = rectangularWidth * table.getWidthPercentage() / 100f;
                     table.setTotalWidth(tableWidth);
                 }
+                switch (table.getHorizontalAlignment()) {
+                    case Element.ALIGN_LEFT:
+                        break;
+                    case Element.ALIGN_RIGHT:
+                        x1 += rectangularWidth - tableWidth;
+                        break;
+                    default:
+                        x1 += (rectangularWidth - tableWidth) / 2f;
+                }
                 int k;
-                boolean skipHeader = (!firstPass && table.isSkipFirstHeader() && listIdx <= table.getHeaderRows());
+                boolean skipHeader = (!firstPass && (table.isSkipFirstHeader() || table.isFlushed()) && listIdx <= table.getHeaderRows());
                 if (!skipHeader) {
                     yTemp -= table.getHeaderHeight();
                     if (yTemp < minY || yTemp > maxY) {
@@ -1291,6 +1301,8 @@ public class ColumnText {
                         return NO_MORE_COLUMN;
                     }
                 }
+                else if (table.isFlushed())
+                    yTemp -= table.getFooterHeight();
                 if (listIdx < table.getHeaderRows())
                     listIdx = table.getHeaderRows();
                 for (k = listIdx; k < table.size(); ++k) {
@@ -1312,8 +1324,11 @@ public class ColumnText {
                         float h = yTemp - minY;
                         PdfPRow newRow = table.getRow(k).splitRow(h);
                         if (newRow == null) {
-                            if (k == listIdx)
+                            if (k == listIdx) {
+                                if (skipHeader && table.isFlushed() && !simulate)
+                                    writeFlushedFooter(table, x1, yLineWrite);
                                 return NO_MORE_COLUMN;
+                            }
                         }
                         else {
                             yTemp = minY;
@@ -1326,25 +1341,23 @@ public class ColumnText {
                         continue;
                     }
                     else if (k == listIdx && !firstPass && (!table.isSplitRows() || table.isSplitLate())) {
+                            if (skipHeader && table.isFlushed() && !simulate)
+                                writeFlushedFooter(table, x1, yLineWrite);
                             return NO_MORE_COLUMN;
                     }
                 }
                 firstPass = false;
+                // an incomplete table only gets its footer and its last row
+                // extended where it breaks
+                boolean showFooter = k < table.size() || table.isComplete();
                 if (!simulate) {
-                    switch (table.getHorizontalAlignment()) {
-                        case Element.ALIGN_LEFT:
-                            break;
-                        case Element.ALIGN_RIGHT:
-                            x1 += rectangularWidth - tableWidth;
-                            break;
-                        default:
-                            x1 += (rectangularWidth - tableWidth) / 2f;
-                    }
                     int realHeaderRows = table.getHeaderRows();
                     int footerRows = table.getFooterRows();
                     if (footerRows > realHeaderRows)
                         footerRows = realHeaderRows;
                     realHeaderRows -= footerRows;
+                    if (!showFooter)
+                        footerRows = 0;
                     PdfPTable nt = PdfPTable.shallowCopy(table);
                     ArrayList rows = table.getRows();
                     ArrayList sub = nt.getRows();
@@ -1359,7 +1372,8 @@ public class ColumnText {
                     for (int j = 0; j < footerRows; ++j)
                         sub.add(rows.get(j + realHeaderRows));
                     float rowHeight = 0;
-                    if (table.isExtendLastRow()) {
+                    boolean extendLastRow = table.isExtendLastRow() && showFooter && k > listIdx;
+                    if (extendLastRow) {
                         PdfPRow last = (PdfPRow)sub.get(sub.size() - 1 - footerRows);
                         rowHeight = last.getMaxHeights();
                         last.setMaxHeights(yTemp - minY + rowHeight);
@@ -1369,16 +1383,19 @@ public class ColumnText {
                         nt.writeSelectedRows(0, -1, x1, yLineWrite, canvases);
                     else
                         nt.writeSelectedRows(0, -1, x1, yLineWrite, canvas);
-                    if (table.isExtendLastRow()) {
+                    if (extendLastRow) {
                         PdfPRow last = (PdfPRow)sub.get(sub.size() - 1 - footerRows);
                         last.setMaxHeights(rowHeight);
                     }
                 }
-                else if (table.isExtendLastRow() && minY > PdfPRow.BOTTOM_LIMIT)
+                else if (table.isExtendLastRow() && showFooter && minY > PdfPRow.BOTTOM_LIMIT)
                     yTemp = minY;
+                if (!showFooter)
+                    yTemp += table.getFooterHeight();
                 yLine = yTemp;
                 if (k >= table.size()) {
-                    yLine -= table.spacingAfter();
+                    if (table.isComplete())
+                        yLine -= table.spacingAfter();
                     compositeElements.removeFirst();
                     splittedRow = false;
                     listIdx = 0;
@@ -1398,6 +1415,34 @@ public class ColumnText {
         }
     }
     
+    /**
+     * Writes the footer of a flushed table right below its rows already
+     * written on this page. It is called when none of the rows added since
+     * then fit on the page, where the table added in one go would break.
+     * @param table the flushed table
+     * @param x1 the left position of the table
+     * @param yLineWrite the bottom of the rows already written
+     */
+    private void writeFlushedFooter(PdfPTable table, float x1, float yLineWrite) {
+        int realHeaderRows = table.getHeaderRows();
+        int footerRows = table.getFooterRows();
+        if (footerRows > realHeaderRows)
+            footerRows = realHeaderRows;
+        if (footerRows == 0)
+            return;
+        realHeaderRows -= footerRows;
+        PdfPTable nt = PdfPTable.shallowCopy(table);
+        nt.setHeaderRows(footerRows);
+        ArrayList rows = table.getRows();
+        ArrayList sub = nt.getRows();
+        for (int j = 0; j < footerRows; ++j)
+            sub.add(rows.get(j + realHeaderRows));
+        if (canvases != null)
+            nt.writeSelectedRows(0, -1, x1, yLineWrite, canvases);
+        else
+            nt.writeSelectedRows(0, -1, x1, yLineWrite, canvas);
+    }
+    
     /**
      * Gets the canvas.
      * @return a PdfContentByte.
@@ -0,0 +1,318 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.lowagie.text.DocumentException;
+
+/**
+ * The cache of the fonts created by <CODE>BaseFont.createFont</CODE>.
+ * <P>
+ * Looking up a font doesn't lock the cache. The cache is bounded by the
+ * estimated memory size of the fonts it holds: when the limit is exceeded the
+ * fonts that were used least recently are removed, unless they are pinned.
+ * A removed font can still be used, it is created again the next time it is
+ * asked for.
+ * <P>
+ * The shared instance is returned by <CODE>BaseFont.getFontCache()</CODE>:
+ * <pre>
+ * FontCache cache = BaseFont.getFontCache();
+ * cache.setMaxSize(16 * 1024 * 1024);
+ * cache.preload("c:\\windows\\fonts\\arial.ttf", BaseFont.WINANSI, true, true);
+ * </pre>
+ */
+public class FontCache {
+
+    /** The default maximum size of the cache, 64 MB. */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    /** A font in the cache. */
+    static class Entry {
+        final BaseFont font;
+        final long size;
+        volatile long lastAccess;
+        volatile boolean pinned;
+
+        Entry(BaseFont font, long size) {
+            this.font = font;
+            this.size = size;
+        }
+    }
+
+    private final ConcurrentHashMap entries = new ConcurrentHashMap();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long maxSize;
+
+    /**
+     * Creates a cache with the default maximum size.
+     */
+    public FontCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache.
+     * @param maxSize the maximum estimated memory size of the fonts in bytes
+     */
+    public FontCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets a font from the cache.
+     * @param key the key made by <CODE>BaseFont.getCacheKey</CODE>
+     * @return the font or <CODE>null</CODE> if it is not in the cache
+     */
+    BaseFont get(String key) {
+        Entry entry = (Entry)entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.lastAccess = clock.incrementAndGet();
+        return entry.font;
+    }
+
+    /**
+     * Adds a font to the cache unless there is already one with the same key.
+     * @param key the key made by <CODE>BaseFont.getCacheKey</CODE>
+     * @param font the font to add
+     * @return the font in the cache, <CODE>font</CODE> if it was added
+     */
+    BaseFont put(String key, BaseFont font) {
+        Entry entry = new Entry(font, font.getEstimatedSize());
+        entry.lastAccess = clock.incrementAndGet();
+        Entry found = (Entry)entries.putIfAbsent(key, entry);
+        if (found != null)
+            return found.font;
+        if (size.addAndGet(entry.size) > maxSize)
+            evict(entry);
+        return font;
+    }
+
+    /**
+     * Removes the least recently used fonts that are not pinned until the
+     * size of the cache is below its maximum.
+     * @param keep an entry that is not removed, may be <CODE>null</CODE>
+     */
+    private synchronized void evict(Entry keep) {
+        while (size.get() > maxSize) {
+            Map.Entry oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Iterator it = entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry e = (Map.Entry)it.next();
+                Entry entry = (Entry)e.getValue();
+                if (entry != keep && !entry.pinned && entry.lastAccess < oldestAccess) {
+                    oldest = e;
+                    oldestAccess = entry.lastAccess;
+                }
+            }
+            if (oldest == null)
+                return;
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                size.addAndGet(-((Entry)oldest.getValue()).size);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Creates a font and adds it to the cache, if it is not there already.
+     * @param name the name of the font or its location on file
+     * @param encoding the encoding to be applied to this font
+     * @param embedded true if the font is to be embedded in the PDF
+     * @param pinned true if the font must never be removed from the cache
+     * @return the font
+     * @throws DocumentException the font is invalid
+     * @throws IOException the font file could not be read
+     * @see BaseFont#createFont(String, String, boolean)
+     */
+    public BaseFont preload(String name, String encoding, boolean embedded, boolean pinned) throws DocumentException, IOException {
+        BaseFont font = BaseFont.createFont(name, encoding, embedded, true, null, null, false, this);
+        if (pinned)
+            pin(name, encoding, embedded);
+        return font;
+    }
+
+    /**
+     * Keeps a font in the cache until it is unpinned or invalidated.
+     * @param name the name of the font or its location on file
+     * @param encoding the encoding of the font
+     * @param embedded true if the font is embedded
+     * @return <CODE>true</CODE> if the font is in the cache
+     */
+    public boolean pin(String name, String encoding, boolean embedded) {
+        return setPinned(BaseFont.getCacheKey(name, encoding, embedded), true);
+    }
+
+    /**
+     * Lets a pinned font be removed from the cache when it is full.
+     * @param name the name of the font or its location on file
+     * @param encoding the encoding of the font
+     * @param embedded true if the font is embedded
+     * @return <CODE>true</CODE> if the font is in the cache
+     */
+    public boolean unpin(String name, String encoding, boolean embedded) {
+        return setPinned(BaseFont.getCacheKey(name, encoding, embedded), false);
+    }
+
+    private boolean setPinned(String key, boolean pinned) {
+        Entry entry = (Entry)entries.get(key);
+        if (entry == null)
+            return false;
+        entry.pinned = pinned;
+        if (!pinned && size.get() > maxSize)
+            evict(null);
+        return true;
+    }
+
+    /**
+     * Removes a font from the cache, even if it is pinned.
+     * @param name the name of the font or its location on file
+     * @param encoding the encoding of the font
+     * @param embedded true if the font is embedded
+     * @return <CODE>true</CODE> if the font was in the cache
+     */
+    public boolean invalidate(String name, String encoding, boolean embedded) {
+        Entry entry = (Entry)entries.remove(BaseFont.getCacheKey(name, encoding, embedded));
+        if (entry == null)
+            return false;
+        size.addAndGet(-entry.size);
+        return true;
+    }
+
+    /**
+     * Removes all the fonts from the cache, including the pinned ones.
+     */
+    public void invalidateAll() {
+        for (Iterator it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = (Entry)it.next();
+            it.remove();
+            size.addAndGet(-entry.size);
+        }
+    }
+
+    /**
+     * Gets the maximum estimated memory size of the fonts in the cache.
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum estimated memory size of the fonts in the cache. If the
+     * cache is larger the least recently used fonts are removed at once.
+     * @param maxSize the maximum size in bytes
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        if (size.get() > maxSize)
+            evict(null);
+    }
+
+    /**
+     * Gets the estimated memory size of the fonts in the cache.
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of fonts in the cache.
+     * @return the number of fonts
+     */
+    public int getFontCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of times a font was found in the cache.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of times a font was not found in the cache.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of fonts removed because the cache was full.
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts to zero.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
@@ -150,7 +150,7 @@ class FontDetails {
      * @param text the text to convert
      * @return the conversion
      */    
-    byte[] convertToBytes(String text) {
+    synchronized byte[] convertToBytes(String text) {
         byte b[] = null;
         switch (fontType) {
             case BaseFont.FONT_TYPE_T3:
@@ -177,30 +177,32 @@ class FontDetails {
             case BaseFont.FONT_TYPE_TTUNI: {
                 try {
                     int len = text.length();
-                    int metrics[] = null;
+                    CmapTable cmap = ttu.getMetricsCmap();
                     char glyph[] = new char[len];
                     int i = 0;
-                    if (symbolic) {
+                    if (cmap == null) {
+                        // the font has no cmap, no glyph is shown
+                    }
+                    else if (symbolic) {
                         b = PdfEncodings.convertToBytes(text, "symboltt");
                         len = b.length;
                         for (int k = 0; k < len; ++k) {
-                            metrics = ttu.getMetricsTT(b[k] & 0xff);
-                            if (metrics == null)
+                            int m0 = cmap.getGlyph(b[k] & 0xff);
+                            if (m0 < 0)
                                 continue;
-                            longTag.put(Integer.valueOf(metrics[0]), new int[]{metrics[0], metrics[1], ttu.getUnicodeDifferences(b[k] & 0xff)});
-                            glyph[i++] = (char)metrics[0];
+                            longTag.put(Integer.valueOf(m0), new int[]{m0, cmap.getWidth(b[k] & 0xff), ttu.getUnicodeDifferences(b[k] & 0xff)});
+                            glyph[i++] = (char)m0;
                         }
                     }
                     else {
                         for (int k = 0; k < len; ++k) {
                             char c = text.charAt(k);
-                            metrics = ttu.getMetricsTT(c);
-                            if (metrics == null)
+                            int m0 = cmap.getGlyph(c);
+                            if (m0 < 0)
                                 continue;
-                            int m0 = metrics[0];
                             Integer gl = Integer.valueOf(m0);
                             if (!longTag.containsKey(gl))
-                                longTag.put(gl, new int[]{m0, metrics[1], c});
+                                longTag.put(gl, new int[]{m0, cmap.getWidth(c), c});
                             glyph[i++] = (char)m0;
                         }
                     }
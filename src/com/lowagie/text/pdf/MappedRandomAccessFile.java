@@ -51,8 +51,8 @@ package com.lowagie.text.pdf;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.nio.BufferUnderflowException;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.AccessController;
@@ -60,14 +60,41 @@ import java.security.PrivilegedAction;
 
 /**
  * A {@link java.nio.MappedByteBuffer} wrapped as a {@link java.io.RandomAccessFile}
+ * <P>
+ * The file is mapped in segments, each one only when it is first read, and
+ * at most a few segments stay mapped at the same time: the least recently
+ * used one is released when another must be mapped. Files of any size can be
+ * read this way and only the parts that are actually read are paged in.
  *
  * @author Joakim Sandstroem
  * Created on 6.9.2006
  */
 public class MappedRandomAccessFile {
     
-    private MappedByteBuffer mappedByteBuffer = null;
+    /** The default size of a mapped segment, 64 MB. */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 26;
+    
+    /** The default number of segments that can be mapped at the same time. */
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+    
     private FileChannel channel = null;
+    private FileChannel.MapMode mapMode;
+    private long size;
+    private long position;
+    private int segmentSize;
+    private int maxSegments;
+    
+    /** the mapped segments, indexed by position / segmentSize */
+    private MappedByteBuffer segments[];
+    /** the last time each segment was used */
+    private long lastUse[];
+    private int mappedCount;
+    private long useCount;
+    
+    /** the segment of the last read and its bounds in the file */
+    private MappedByteBuffer current;
+    private long currentStart;
+    private long currentEnd;
     
     /**
      * Constructs a new MappedRandomAccessFile instance
@@ -78,7 +105,24 @@ public class MappedRandomAccessFile {
      */
     public MappedRandomAccessFile(String filename, String mode)
     throws FileNotFoundException, IOException {
+        this(filename, mode, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS);
+    }
         
+    /**
+     * Constructs a new MappedRandomAccessFile instance
+     * @param filename String
+     * @param mode String r, w or rw
+     * @param segmentSize the size of each mapped segment
+     * @param maxSegments the number of segments that can be mapped at the same time
+     * @throws FileNotFoundException
+     * @throws IOException
+     */
+    public MappedRandomAccessFile(String filename, String mode, int segmentSize, int maxSegments)
+    throws FileNotFoundException, IOException {
+        if (segmentSize < 1 || maxSegments < 1)
+            throw new IllegalArgumentException("The segment size and the number of segments must be positive.");
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
         if (mode.equals("rw"))
             init(
                     new java.io.RandomAccessFile(filename, mode).getChannel(),
@@ -91,7 +135,7 @@ public class MappedRandomAccessFile {
     }
     
     /**
-     * initializes the channel and mapped bytebuffer
+     * initializes the channel; the segments are mapped when they are read
      * @param channel FileChannel
      * @param mapMode FileChannel.MapMode
      * @throws IOException
@@ -100,23 +144,87 @@ public class MappedRandomAccessFile {
     throws IOException {
         
         this.channel = channel;
-        this.mappedByteBuffer = channel.map(mapMode, 0L, channel.size());
-        mappedByteBuffer.load();
+        this.mapMode = mapMode;
+        this.size = channel.size();
+        int n = (int)((size + segmentSize - 1) / segmentSize);
+        segments = new MappedByteBuffer[n];
+        lastUse = new long[n];
+    }
+    
+    /**
+     * Makes the segment holding the current position the current segment,
+     * mapping it if needed.
+     * @return false if the position is at or beyond the end of the file
+     */
+    private boolean selectSegment() throws IOException {
+        if (position >= size || position < 0)
+            return false;
+        int idx = (int)(position / segmentSize);
+        MappedByteBuffer segment = segments[idx];
+        if (segment == null) {
+            if (mappedCount >= maxSegments)
+                releaseOldestSegment();
+            long start = (long)idx * segmentSize;
+            segment = channel.map(mapMode, start, Math.min(segmentSize, size - start));
+            segments[idx] = segment;
+            ++mappedCount;
+        }
+        lastUse[idx] = ++useCount;
+        current = segment;
+        currentStart = (long)idx * segmentSize;
+        currentEnd = currentStart + segment.capacity();
+        return true;
+    }
+    
+    private void releaseOldestSegment() {
+        int oldest = -1;
+        for (int k = 0; k < segments.length; ++k) {
+            if (segments[k] != null && (oldest < 0 || lastUse[k] < lastUse[oldest]))
+                oldest = k;
+        }
+        if (oldest < 0)
+            return;
+        if (segments[oldest] == current)
+            current = null;
+        clean(segments[oldest]);
+        segments[oldest] = null;
+        --mappedCount;
+    }
+    
+    /**
+     * Gets the segment holding the current position, mapping it if needed,
+     * for a caller that reads the bytes directly. The segment can be released
+     * when another one is mapped or when the file is closed, it must not be
+     * kept after that.
+     * @return the segment or <CODE>null</CODE> at the end of the file
+     * @throws IOException on error
+     */
+    java.nio.ByteBuffer getSegment() throws IOException {
+        if (current == null || position < currentStart || position >= currentEnd) {
+            if (!selectSegment())
+                return null;
+        }
+        return current;
+    }
+    
+    /**
+     * Gets the position in the file of the segment returned by <CODE>getSegment()</CODE>.
+     * @return the position of the first byte of the segment
+     */
+    long getSegmentStart() {
+        return currentStart;
     }
     
     /**
      * @see java.io.RandomAccessFile#read()
      * @return int next integer or -1 on EOF
      */
-    public int read() {
-        try {
-            byte b = mappedByteBuffer.get();
-            int n = b & 0xff;
-            
-            return n;
-        } catch (BufferUnderflowException e) {
-            return -1; // EOF
+    public int read() throws IOException {
+        if (current == null || position < currentStart || position >= currentEnd) {
+            if (!selectSegment())
+                return -1; // EOF
         }
+        return current.get((int)(position++ - currentStart)) & 0xff;
     }
     
     /**
@@ -126,25 +234,50 @@ public class MappedRandomAccessFile {
      * @param len int length
      * @return int bytes read or -1 on EOF
      */
-    public int read(byte bytes[], int off, int len) {
-        int pos = mappedByteBuffer.position();
-        int limit = mappedByteBuffer.limit();
-        if (pos == limit)
+    public int read(byte bytes[], int off, int len) throws IOException {
+        if (position >= size || position < 0)
             return -1; // EOF
-        int newlimit = pos + len - off;
-        if (newlimit > limit) {
-            len = limit - pos; // don't read beyond EOF
+        if (len > size - position)
+            len = (int)(size - position); // don't read beyond EOF
+        int n = 0;
+        while (n < len) {
+            if (current == null || position < currentStart || position >= currentEnd)
+                selectSegment();
+            int chunk = (int)Math.min(len - n, currentEnd - position);
+            current.position((int)(position - currentStart));
+            current.get(bytes, off + n, chunk);
+            position += chunk;
+            n += chunk;
         }
-        mappedByteBuffer.get(bytes, off, len);
         return len;
     }
     
+    /**
+     * Reads bytes at a position and leaves the file pointer where it was.
+     * Calls to this method from several threads are serialized.
+     * @param pos long position
+     * @param bytes byte[]
+     * @param off int offset
+     * @param len int length
+     * @return int bytes read or -1 on EOF
+     */
+    public synchronized int read(long pos, byte bytes[], int off, int len) throws IOException {
+        long saved = position;
+        try {
+            position = pos;
+            return read(bytes, off, len);
+        }
+        finally {
+            position = saved;
+        }
+    }
+    
     /**
      * @see java.io.RandomAccessFile#getFilePointer()
      * @return long
      */
     public long getFilePointer() {
-        return mappedByteBuffer.position();
+        return position;
     }
     
     /**
@@ -152,7 +285,7 @@ public class MappedRandomAccessFile {
      * @param pos long position
      */
     public void seek(long pos) {
-        mappedByteBuffer.position((int) pos);
+        position = pos;
     }
     
     /**
@@ -160,16 +293,22 @@ public class MappedRandomAccessFile {
      * @return long length
      */
     public long length() {
-        return mappedByteBuffer.limit();
+        return size;
     }
     
     /**
      * @see java.io.RandomAccessFile#close()
-     * Cleans the mapped bytebuffer and closes the channel
+     * Cleans the mapped segments and closes the channel
      */
     public void close() throws IOException {
-        clean(mappedByteBuffer);
-        mappedByteBuffer = null;
+        if (segments != null) {
+            for (int k = 0; k < segments.length; ++k) {
+                clean(segments[k]);
+                segments[k] = null;
+            }
+        }
+        mappedCount = 0;
+        current = null;
         if (channel != null)
             channel.close();
         channel = null;
@@ -204,8 +343,17 @@ public class MappedRandomAccessFile {
                     clean.invoke(cleaner, null);
                     success = Boolean.TRUE;
                 } catch (Exception e) {
-                    // This really is a show stopper on windows
-                    //e.printStackTrace();
+                    // Java 9 and later hide the cleaner, the buffer is released with Unsafe
+                    try {
+                        Class unsafeClass = Class.forName("sun.misc.Unsafe");
+                        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                        theUnsafe.setAccessible(true);
+                        Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", new Class[]{java.nio.ByteBuffer.class});
+                        invokeCleaner.invoke(theUnsafe.get(null), new Object[]{buffer});
+                        success = Boolean.TRUE;
+                    } catch (Exception e2) {
+                        // This really is a show stopper on windows
+                    }
                 }
                 return success;
             }
@@ -61,7 +61,7 @@ import com.lowagie.text.ExceptionConverter;
 public class PRStream extends PdfStream {
     
     protected PdfReader reader;
-    protected int offset;
+    protected long offset;
     protected int length;
     
     //added by ujihara for decryption
@@ -88,7 +88,7 @@ public class PRStream extends PdfStream {
         this.reader = reader;
     }
 
-    public PRStream(PdfReader reader, int offset) {
+    public PRStream(PdfReader reader, long offset) {
         this.reader = reader;
         this.offset = offset;
     }
@@ -143,7 +143,7 @@ public class PRStream extends PdfStream {
         put(PdfName.LENGTH, new PdfNumber(length));
     }
     
-    public int getOffset() {
+    public long getOffset() {
         return offset;
     }
     
@@ -177,13 +177,22 @@ public class PRStream extends PdfStream {
         PdfEncryption crypto = null;
         if (writer != null)
             crypto = writer.getEncryption();
-        PdfObject objLen = get(PdfName.LENGTH);
         int nn = b.length;
         if (crypto != null)
             nn = crypto.calculateStreamSize(nn);
-        put(PdfName.LENGTH, new PdfNumber(nn));
-        superToPdf(writer, os);
-        put(PdfName.LENGTH, objLen);
+        if (reader.isShared()) {
+            // other threads may be writing this stream, it can't be changed
+            PdfDictionary dic = new PdfDictionary();
+            dic.putAll(this);
+            dic.put(PdfName.LENGTH, new PdfNumber(nn));
+            dic.toPdf(writer, os);
+        }
+        else {
+            PdfObject objLen = get(PdfName.LENGTH);
+            put(PdfName.LENGTH, new PdfNumber(nn));
+            superToPdf(writer, os);
+            put(PdfName.LENGTH, objLen);
+        }
         os.write(STARTSTREAM);
         if (length > 0) {
             if (crypto != null)
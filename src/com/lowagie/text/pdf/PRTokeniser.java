@@ -103,6 +103,26 @@ public class PRTokeniser {
     protected int reference;
     protected int generation;
     protected boolean hexString;
+    
+    /** The data scanned directly during <CODE>nextToken</CODE>, <CODE>null</CODE>
+     * if the bytes are read from the file one at a time. */
+    private java.nio.ByteBuffer window;
+    /** The file position of the first byte of the window. */
+    private long windowOffset;
+    private int windowPos;
+    private int windowLimit;
+    
+    /** The value of the current token is a slice of this buffer, or of
+     * <CODE>scratch</CODE> if it is <CODE>null</CODE>. */
+    private java.nio.ByteBuffer tokenWindow;
+    private int tokenStart = -1;
+    private int tokenLength;
+    private long tokenOffset;
+    private boolean tokenInScratch;
+    /** <CODE>true</CODE> while the bytes of a slice token are read. */
+    private boolean inToken;
+    private byte scratch[] = new byte[64];
+    private int scratchLength;
        
     public PRTokeniser(String filename) throws IOException {
         file = new RandomAccessFileOrArray(filename);
@@ -112,6 +132,16 @@ public class PRTokeniser {
         file = new RandomAccessFileOrArray(pdfIn);
     }
     
+    /**
+     * Creates a tokeniser that reads a buffer, a heap buffer or a file mapped
+     * in memory. The bytes from the position to the limit of the buffer are
+     * read, they are not copied.
+     * @param buffer the data
+     */
+    public PRTokeniser(java.nio.ByteBuffer buffer) {
+        file = new RandomAccessFileOrArray(buffer);
+    }
+    
     public PRTokeniser(RandomAccessFileOrArray file) {
         this.file = file;
     }
@@ -120,7 +150,11 @@ public class PRTokeniser {
         file.seek(pos);
     }
     
-    public int getFilePointer() throws IOException {
+    public void seek(long pos) throws IOException {
+        file.seek(pos);
+    }
+    
+    public long getFilePointer() throws IOException {
         return file.getFilePointer();
     }
 
@@ -128,7 +162,7 @@ public class PRTokeniser {
         file.close();
     }
     
-    public int length() throws IOException {
+    public long length() throws IOException {
         return file.length();
     }
 
@@ -172,10 +206,38 @@ public class PRTokeniser {
         return type;
     }
     
+    /**
+     * Gets the value of the current token. The <CODE>String</CODE> is only
+     * created when it is asked for, the tokens are kept as slices of the data.
+     * @return the value of the token
+     */
     public String getStringValue() {
+        if (stringValue == null) {
+            if (type == TK_NAME)
+                stringValue = decodeName();
+            else {
+                char c[] = new char[tokenLength];
+                for (int k = 0; k < tokenLength; ++k)
+                    c[k] = (char)(getTokenByte(k) & 0xff);
+                stringValue = new String(c);
+            }
+        }
         return stringValue;
     }
     
+    private String decodeName() {
+        StringBuffer buf = new StringBuffer(tokenLength);
+        for (int k = 0; k < tokenLength; ++k) {
+            int ch = getTokenByte(k) & 0xff;
+            if (ch == '#' && k + 2 < tokenLength) {
+                ch = (getHex(getTokenByte(k + 1)) << 4) + getHex(getTokenByte(k + 2));
+                k += 2;
+            }
+            buf.append((char)ch);
+        }
+        return buf.toString();
+    }
+    
     public int getReference() {
         return reference;
     }
@@ -190,6 +252,7 @@ public class PRTokeniser {
     }
     
     public void throwError(String error) throws IOException {
+        closeWindow();
         throw new IOException(error + " at file pointer " + file.getFilePointer());
     }
     
@@ -212,9 +275,9 @@ public class PRTokeniser {
         file.setStartOffset(idx);
     }
 
-    public int getStartxref() throws IOException {
-        int size = Math.min(1024, file.length());
-        int pos = file.length() - size;
+    public long getStartxref() throws IOException {
+        int size = (int)Math.min(1024, file.length());
+        long pos = file.length() - size;
         file.seek(pos);
         String str = readString(1024);
         int idx = str.lastIndexOf("startxref");
@@ -235,9 +298,11 @@ public class PRTokeniser {
     
     public void nextValidToken() throws IOException {
         int level = 0;
-        String n1 = null;
-        String n2 = null;
-        int ptr = 0;
+        long start = 0;
+        int n1 = 0;
+        boolean isInt1 = false;
+        int n2 = 0;
+        boolean isInt2 = false;
         while (nextToken()) {
             if (type == TK_COMMENT)
                 continue;
@@ -246,34 +311,47 @@ public class PRTokeniser {
                 {
                     if (type != TK_NUMBER)
                         return;
-                    ptr = file.getFilePointer();
-                    n1 = stringValue;
+                    start = tokenOffset;
+                    try {
+                        n1 = intValue();
+                        isInt1 = true;
+                    }
+                    catch (NumberFormatException e) {
+                        isInt1 = false;
+                    }
                     ++level;
                     break;
                 }
                 case 1:
                 {
                     if (type != TK_NUMBER) {
-                        file.seek(ptr);
-                        type = TK_NUMBER;
-                        stringValue = n1;
+                        // the first number is read again, it is the token
+                        file.seek(start);
+                        nextToken();
                         return;
                     }
-                    n2 = stringValue;
+                    try {
+                        n2 = intValue();
+                        isInt2 = true;
+                    }
+                    catch (NumberFormatException e) {
+                        isInt2 = false;
+                    }
                     ++level;
                     break;
                 }
                 default:
                 {
-                    if (type != TK_OTHER || !stringValue.equals("R")) {
-                        file.seek(ptr);
-                        type = TK_NUMBER;
-                        stringValue = n1;
+                    if (type != TK_OTHER || !tokenEquals("R")) {
+                        file.seek(start);
+                        nextToken();
                         return;
                     }
+                    if (!isInt1 || !isInt2)
+                        throw new NumberFormatException("Invalid reference at file pointer " + start);
                     type = TK_REF;
-                    reference = Integer.parseInt(n1);
-                    generation = Integer.parseInt(n2);
+                    reference = n1;
+                    generation = n2;
                     return;
                 }
             }
@@ -282,14 +360,148 @@ public class PRTokeniser {
     }
     
     public boolean nextToken() throws IOException {
-        StringBuffer outBuf = null;
         stringValue = EMPTY;
+        openWindow();
+        try {
+            return scanToken();
+        }
+        finally {
+            closeWindow();
+            if (tokenWindow != null && file.windowMapped) {
+                // a mapped segment can be released, the token is kept in the scratch buffer
+                scratchLength = 0;
+                for (int k = 0; k < tokenLength; ++k)
+                    appendScratch(tokenWindow.get(tokenStart + k));
+                tokenWindow = null;
+                tokenStart = 0;
+            }
+        }
+    }
+    
+    /**
+     * Gets the window of the data at the file pointer, if the file has one.
+     */
+    private void openWindow() throws IOException {
+        inToken = false;
+        window = file.getWindow();
+        if (window != null) {
+            windowOffset = file.windowOffset;
+            long pos = file.getFilePointer() - windowOffset;
+            windowPos = (int)pos;
+            windowLimit = window.limit();
+            if (pos < 0 || pos > windowLimit)
+                window = null;
+        }
+    }
+    
+    /**
+     * Moves the file pointer to the position reached in the window.
+     */
+    private void closeWindow() throws IOException {
+        if (window != null) {
+            file.seek(windowOffset + windowPos);
+            window = null;
+        }
+    }
+    
+    /**
+     * Reads the next byte, from the window when there is one.
+     */
+    private int next() throws IOException {
+        if (window != null) {
+            if (windowPos < windowLimit)
+                return window.get(windowPos++) & 0xff;
+            return nextWindow();
+        }
+        return file.read();
+    }
+    
+    /**
+     * Moves the window past its end. A token being read is copied so far to
+     * the scratch buffer, its bytes will be added there.
+     */
+    private int nextWindow() throws IOException {
+        if (inToken && !tokenInScratch) {
+            scratchLength = 0;
+            for (int k = tokenStart; k < windowLimit; ++k)
+                appendScratch(window.get(k));
+            tokenInScratch = true;
+        }
+        file.seek(windowOffset + windowPos);
+        window = file.getWindow();
+        if (window == null)
+            return file.read();
+        windowOffset = file.windowOffset;
+        windowPos = (int)(file.getFilePointer() - windowOffset);
+        windowLimit = window.limit();
+        if (windowPos >= windowLimit)
+            return -1;
+        return window.get(windowPos++) & 0xff;
+    }
+    
+    private void back(int ch) {
+        if (ch == -1)
+            return;
+        if (window != null)
+            --windowPos;
+        else
+            file.pushBack((byte)ch);
+    }
+    
+    /**
+     * Starts a token whose value is a slice of the data. Without a window the
+     * bytes are collected in the scratch buffer.
+     */
+    private void startToken(int ch) {
+        inToken = true;
+        if (window != null) {
+            tokenStart = windowPos - 1;
+            tokenInScratch = false;
+        }
+        else {
+            scratchLength = 0;
+            appendScratch((byte)ch);
+            tokenStart = -1;
+            tokenInScratch = true;
+        }
+        stringValue = null;
+    }
+    
+    /**
+     * Ends the token started by <CODE>startToken</CODE> before the delimiter
+     * <CODE>ch</CODE> that was read after it.
+     */
+    private void endToken(int ch) {
+        inToken = false;
+        if (!tokenInScratch)
+            tokenLength = (ch == -1 ? windowPos : windowPos - 1) - tokenStart;
+        else
+            tokenLength = scratchLength;
+        tokenWindow = tokenInScratch ? null : window;
+        tokenStart = tokenInScratch ? 0 : tokenStart;
+        back(ch);
+    }
+    
+    private void appendScratch(byte b) {
+        if (scratchLength == scratch.length) {
+            byte n[] = new byte[scratch.length * 2];
+            System.arraycopy(scratch, 0, n, 0, scratchLength);
+            scratch = n;
+        }
+        scratch[scratchLength++] = b;
+    }
+    
+    private boolean scanToken() throws IOException {
+        tokenStart = -1;
+        tokenLength = 0;
+        tokenWindow = null;
         int ch = 0;
         do {
-            ch = file.read();
+            ch = next();
         } while (ch != -1 && isWhitespace(ch));
         if (ch == -1)
             return false;
+        tokenOffset = (window != null ? windowOffset + windowPos : file.getFilePointer()) - 1;
         switch (ch) {
             case '[':
                 type = TK_START_ARRAY;
@@ -299,78 +511,88 @@ public class PRTokeniser {
                 break;
             case '/':
             {
-                outBuf = new StringBuffer();
                 type = TK_NAME;
+                ch = next();
+                startToken(ch);
+                if (delims[ch + 1]) {
+                    // the empty name
+                    inToken = false;
+                    tokenLength = 0;
+                    tokenInScratch = true;
+                    scratchLength = 0;
+                    tokenWindow = null;
+                    back(ch);
+                    break;
+                }
                 while (true) {
-                    ch = file.read();
+                    ch = next();
                     if (delims[ch + 1])
                         break;
-                    if (ch == '#') {
-                        ch = (getHex(file.read()) << 4) + getHex(file.read());
-                    }
-                    outBuf.append((char)ch);
+                    if (tokenInScratch)
+                        appendScratch((byte)ch);
                 }
-                backOnePosition(ch);
+                endToken(ch);
                 break;
             }
             case '>':
-                ch = file.read();
+                ch = next();
                 if (ch != '>')
                     throwError("'>' not expected");
                 type = TK_END_DIC;
                 break;
             case '<':
             {
-                int v1 = file.read();
+                int v1 = next();
                 if (v1 == '<') {
                     type = TK_START_DIC;
                     break;
                 }
-                outBuf = new StringBuffer();
                 type = TK_STRING;
                 hexString = true;
+                scratchLength = 0;
                 int v2 = 0;
                 while (true) {
                     while (isWhitespace(v1))
-                        v1 = file.read();
+                        v1 = next();
                     if (v1 == '>')
                         break;
                     v1 = getHex(v1);
                     if (v1 < 0)
                         break;
-                    v2 = file.read();
+                    v2 = next();
                     while (isWhitespace(v2))
-                        v2 = file.read();
+                        v2 = next();
                     if (v2 == '>') {
                         ch = v1 << 4;
-                        outBuf.append((char)ch);
+                        appendScratch((byte)ch);
                         break;
                     }
                     v2 = getHex(v2);
                     if (v2 < 0)
                         break;
                     ch = (v1 << 4) + v2;
-                    outBuf.append((char)ch);
-                    v1 = file.read();
+                    appendScratch((byte)ch);
+                    v1 = next();
                 }
                 if (v1 < 0 || v2 < 0)
                     throwError("Error reading string");
+                setScratchToken();
                 break;
             }
             case '%':
                 type = TK_COMMENT;
                 do {
-                    ch = file.read();
+                    ch = next();
                 } while (ch != -1 && ch != '\r' && ch != '\n');
                 break;
             case '(':
             {
-                outBuf = new StringBuffer();
                 type = TK_STRING;
                 hexString = false;
+                scratchLength = 0;
                 int nesting = 0;
                 while (true) {
-                    ch = file.read();
+                    ch = next();
                     if (ch == -1)
                         break;
                     if (ch == '(') {
@@ -381,7 +603,7 @@ public class PRTokeniser {
                     }
                     else if (ch == '\\') {
                         boolean lineBreak = false;
-                        ch = file.read();
+                        ch = next();
                         switch (ch) {
                             case 'n':
                                 ch = '\n';
@@ -404,9 +626,9 @@ public class PRTokeniser {
                                 break;
                             case '\r':
                                 lineBreak = true;
-                                ch = file.read();
+                                ch = next();
                                 if (ch != '\n')
-                                    backOnePosition(ch);
+                                    back(ch);
                                 break;
                             case '\n':
                                 lineBreak = true;
@@ -417,16 +639,16 @@ public class PRTokeniser {
                                     break;
                                 }
                                 int octal = ch - '0';
-                                ch = file.read();
+                                ch = next();
                                 if (ch < '0' || ch > '7') {
-                                    backOnePosition(ch);
+                                    back(ch);
                                     ch = octal;
                                     break;
                                 }
                                 octal = (octal << 3) + ch - '0';
-                                ch = file.read();
+                                ch = next();
                                 if (ch < '0' || ch > '7') {
-                                    backOnePosition(ch);
+                                    back(ch);
                                     ch = octal;
                                     break;
                                 }
@@ -441,53 +663,217 @@ public class PRTokeniser {
                             break;
                     }
                     else if (ch == '\r') {
-                        ch = file.read();
+                        ch = next();
                         if (ch < 0)
                             break;
                         if (ch != '\n') {
-                            backOnePosition(ch);
+                            back(ch);
                             ch = '\n';
                         }
                     }
                     if (nesting == -1)
                         break;
-                    outBuf.append((char)ch);
+                    appendScratch((byte)ch);
                 }
                 if (ch == -1)
                     throwError("Error reading string");
+                setScratchToken();
                 break;
             }
             default:
             {
-                outBuf = new StringBuffer();
+                startToken(ch);
                 if (ch == '-' || ch == '+' || ch == '.' || (ch >= '0' && ch <= '9')) {
                     type = TK_NUMBER;
-                    do {
-                        outBuf.append((char)ch);
-                        ch = file.read();
-                    } while (ch != -1 && ((ch >= '0' && ch <= '9') || ch == '.'));
+                    while (true) {
+                        ch = next();
+                        if (ch == -1 || !((ch >= '0' && ch <= '9') || ch == '.'))
+                            break;
+                        if (tokenInScratch)
+                            appendScratch((byte)ch);
+                    }
                 }
                 else {
                     type = TK_OTHER;
-                    do {
-                        outBuf.append((char)ch);
-                        ch = file.read();
-                    } while (!delims[ch + 1]);
+                    while (true) {
+                        ch = next();
+                        if (delims[ch + 1])
+                            break;
+                        if (tokenInScratch)
+                            appendScratch((byte)ch);
+                    }
                 }
-                backOnePosition(ch);
+                endToken(ch);
                 break;
             }
         }
-        if (outBuf != null)
-            stringValue = outBuf.toString();
+        return true;
+    }
+    
+    /**
+     * Makes the decoded string in the scratch buffer the value of the token.
+     */
+    private void setScratchToken() {
+        tokenWindow = null;
+        tokenStart = 0;
+        tokenLength = scratchLength;
+        tokenInScratch = true;
+        stringValue = null;
+    }
+    
+    /**
+     * Gets the byte at a position of the value of the current token.
+     * @param idx the position, from 0 to <CODE>getTokenLength() - 1</CODE>
+     * @return the byte
+     */
+    public byte getTokenByte(int idx) {
+        return tokenWindow == null ? scratch[idx] : tokenWindow.get(tokenStart + idx);
+    }
+    
+    /**
+     * Gets the number of bytes of the value of the current token. For a name
+     * it is the name without the slash and with the <CODE>#</CODE> escapes
+     * as they are; for a string it is the decoded string.
+     * @return the length of the value in bytes
+     */
+    public int getTokenLength() {
+        return tokenLength;
+    }
+    
+    /**
+     * Gets the position of the first byte of the current token.
+     * @return the position in the file
+     */
+    public long getTokenOffset() {
+        return tokenOffset;
+    }
+    
+    /**
+     * Copies the bytes of the value of the current token.
+     * @param b the destination
+     * @param off the position of the first byte in <CODE>b</CODE>
+     */
+    public void getTokenBytes(byte b[], int off) {
+        if (tokenWindow == null)
+            System.arraycopy(scratch, 0, b, off, tokenLength);
+        else {
+            for (int k = 0; k < tokenLength; ++k)
+                b[off + k] = tokenWindow.get(tokenStart + k);
+        }
+    }
+    
+    /**
+     * Checks if the value of the current token is a given string, without
+     * creating a <CODE>String</CODE> for the token.
+     * @param value the string, made of characters up to 255
+     * @return <CODE>true</CODE> if the value of the token is <CODE>value</CODE>
+     */
+    public boolean tokenEquals(String value) {
+        if (stringValue != null)
+            return stringValue.equals(value);
+        if (value.length() != tokenLength)
+            return false;
+        for (int k = 0; k < tokenLength; ++k) {
+            if ((getTokenByte(k) & 0xff) != value.charAt(k))
+                return false;
+        }
         return true;
     }
     
     public int intValue() {
-        return Integer.parseInt(stringValue);
+        if (stringValue == null && tokenLength > 0 && tokenLength < 10) {
+            int k = 0;
+            boolean negative = false;
+            byte b = getTokenByte(0);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                k = 1;
+            }
+            if (k < tokenLength) {
+                int n = 0;
+                for (; k < tokenLength; ++k) {
+                    b = getTokenByte(k);
+                    if (b < '0' || b > '9')
+                        break;
+                    n = n * 10 + (b - '0');
+                }
+                if (k == tokenLength)
+                    return negative ? -n : n;
+            }
+        }
+        return Integer.parseInt(getStringValue());
+    }
+    
+    /**
+     * Gets the value of the current token as a number. The numbers of the
+     * PDF syntax, a sign, digits and a decimal point, are read from the
+     * bytes of the token without creating a <CODE>String</CODE>.
+     * @return the value of the token
+     * @throws NumberFormatException if the token is not a number
+     */
+    public float floatValue() {
+        if (stringValue == null && tokenLength > 0 && tokenLength < 19) {
+            int k = 0;
+            boolean negative = false;
+            byte b = getTokenByte(0);
+            if (b == '-' || b == '+') {
+                negative = b == '-';
+                k = 1;
+            }
+            long n = 0;
+            int digits = 0;
+            int point = -1;
+            for (; k < tokenLength; ++k) {
+                b = getTokenByte(k);
+                if (b == '.' && point < 0)
+                    point = digits;
+                else if (b >= '0' && b <= '9') {
+                    n = n * 10 + (b - '0');
+                    ++digits;
+                }
+                else
+                    break;
+            }
+            if (k == tokenLength && digits > 0) {
+                double d = negative ? -n : n;
+                if (point >= 0 && point < digits)
+                    d /= POWERS_OF_TEN[digits - point];
+                return (float)d;
+            }
+        }
+        return Float.parseFloat(getStringValue());
+    }
+    
+    private static final double POWERS_OF_TEN[] = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+        1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+    
+    public long longValue() {
+        if (stringValue == null && tokenLength > 0 && tokenLength < 19) {
+            long n = 0;
+            int k = 0;
+            for (; k < tokenLength; ++k) {
+                byte b = getTokenByte(k);
+                if (b < '0' || b > '9')
+                    break;
+                n = n * 10 + (b - '0');
+            }
+            if (k == tokenLength)
+                return n;
+        }
+        return Long.parseLong(getStringValue());
     }
     
     public boolean readLineSegment(byte input[]) throws IOException {
+        openWindow();
+        try {
+            return scanLineSegment(input);
+        }
+        finally {
+            closeWindow();
+        }
+    }
+    
+    private boolean scanLineSegment(byte input[]) throws IOException {
         int c = -1;
         boolean eol = false;
         int ptr = 0;
@@ -496,7 +882,7 @@ public class PRTokeniser {
 	// skip initial whitespace; added this because PdfReader.rebuildXref()
 	// assumes that line provided by readLineSegment does not have init. whitespace;
 	if ( ptr < len ) {
-	    while ( isWhitespace( (c = read()) ) );
+	    while ( isWhitespace( (c = next()) ) );
 	}
 	while ( !eol && ptr < len ) {
 	    switch (c) {
@@ -506,10 +892,9 @@ public class PRTokeniser {
                     break;
                 case '\r':
                     eol = true;
-                    int cur = getFilePointer();
-                    if ((read()) != '\n') {
-                        seek(cur);
-                    }
+                    int c2 = next();
+                    if (c2 != '\n')
+                        back(c2);
                     break;
                 default:
                     input[ptr++] = (byte)c;
@@ -521,23 +906,22 @@ public class PRTokeniser {
 		break;
 	    }
 	    else {
-		c = read();
+		c = next();
 	    }
         }
         if (ptr >= len) {
             eol = false;
             while (!eol) {
-                switch (c = read()) {
+                switch (c = next()) {
                     case -1:
                     case '\n':
                         eol = true;
                         break;
                     case '\r':
                         eol = true;
-                        int cur = getFilePointer();
-                        if ((read()) != '\n') {
-                            seek(cur);
-                        }
+                        int c2 = next();
+                        if (c2 != '\n')
+                            back(c2);
                         break;
                 }
             }
@@ -566,7 +950,7 @@ public class PRTokeniser {
             gen = tk.intValue();
             if (!tk.nextToken())
                 return null;
-            if (!tk.getStringValue().equals("obj"))
+            if (!tk.tokenEquals("obj"))
                 return null;
             return new int[]{num, gen};
         }
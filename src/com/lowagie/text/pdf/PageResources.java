@@ -165,6 +165,21 @@ class PageResources {
         return name;
     }
 
+    /**
+     * Adds the resources of a page composed apart. Their names are the ones
+     * given by the writer and are kept as they are.
+     * @param other the resources to add
+     */
+    void merge(PageResources other) {
+        fontDictionary.putAll(other.fontDictionary);
+        xObjectDictionary.putAll(other.xObjectDictionary);
+        colorDictionary.putAll(other.colorDictionary);
+        patternDictionary.putAll(other.patternDictionary);
+        shadingDictionary.putAll(other.shadingDictionary);
+        extGStateDictionary.putAll(other.extGStateDictionary);
+        propertyDictionary.putAll(other.propertyDictionary);
+    }
+
     PdfDictionary getResources() {
        PdfResources resources = new PdfResources();
         if (originalResources != null)
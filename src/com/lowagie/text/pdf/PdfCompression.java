@@ -0,0 +1,285 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.util.zip.Deflater;
+
+/**
+ * The settings used by a <CODE>PdfWriter</CODE> to deflate its streams.
+ * <P>
+ * A level, a strategy and a buffer size apply to all the streams and each
+ * of them can be changed for a class of streams: page content, images, fonts,
+ * object streams, XMP metadata and streams read from an <CODE>InputStream</CODE>. The level <CODE>STORE</CODE> writes the
+ * stream data as it is, without the FlateDecode filter, and is useful for data
+ * that is already well compressed or when speed matters more than size.
+ * <P>
+ * XMP metadata is stored by default, as it was always written uncompressed,
+ * and the streams read from an <CODE>InputStream</CODE> are deflated with
+ * <CODE>Deflater.BEST_COMPRESSION</CODE>, as they always were.
+ * For example:
+ * <pre>
+ * PdfCompression compression = new PdfCompression(Deflater.BEST_SPEED);
+ * compression.setLevel(PdfCompression.IMAGE, PdfCompression.STORE);
+ * writer.setCompression(compression);
+ * </pre>
+ */
+public class PdfCompression {
+
+    /** The content streams of the pages. */
+    public static final int PAGE_CONTENT = 0;
+    /** The image XObjects. */
+    public static final int IMAGE = 1;
+    /** The embedded font programs and their ToUnicode cmaps. */
+    public static final int FONT = 2;
+    /** The object streams and the cross-reference stream. */
+    public static final int OBJECT_STREAM = 3;
+    /** The XMP metadata streams. */
+    public static final int XMP = 4;
+    /** Any other stream. */
+    public static final int OTHER = 5;
+    /** The streams read from an <CODE>InputStream</CODE>, such as embedded files. */
+    public static final int INPUT_STREAM = 6;
+
+    private static final int CATEGORIES = 7;
+
+    /** A compression level meaning that the data is written without compression. */
+    public static final int STORE = -2;
+
+    /** The default buffer size of the deflating streams. */
+    public static final int DEFAULT_BUFFER_SIZE = 512;
+
+    private static final int INHERIT = Integer.MIN_VALUE;
+
+    private int level;
+    private int strategy;
+    private int bufferSize;
+    private int levels[] = new int[CATEGORIES];
+    private int strategies[] = new int[CATEGORIES];
+    private int bufferSizes[] = new int[CATEGORIES];
+
+    /**
+     * Creates the settings with the default level, the default strategy
+     * and the default buffer size.
+     */
+    public PdfCompression() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates the settings with a compression level for all the streams.
+     * @param level a level from 0 to 9, <CODE>Deflater.DEFAULT_COMPRESSION</CODE> or <CODE>STORE</CODE>
+     */
+    public PdfCompression(int level) {
+        this(level, Deflater.DEFAULT_STRATEGY, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates the settings for all the streams.
+     * @param level a level from 0 to 9, <CODE>Deflater.DEFAULT_COMPRESSION</CODE> or <CODE>STORE</CODE>
+     * @param strategy one of <CODE>Deflater.DEFAULT_STRATEGY</CODE>, <CODE>Deflater.FILTERED</CODE>
+     * or <CODE>Deflater.HUFFMAN_ONLY</CODE>
+     * @param bufferSize the buffer size of the deflating stream
+     */
+    public PdfCompression(int level, int strategy, int bufferSize) {
+        setLevel(level);
+        setStrategy(strategy);
+        setBufferSize(bufferSize);
+        for (int k = 0; k < CATEGORIES; ++k) {
+            levels[k] = INHERIT;
+            strategies[k] = INHERIT;
+            bufferSizes[k] = INHERIT;
+        }
+        levels[XMP] = STORE;
+        levels[INPUT_STREAM] = Deflater.BEST_COMPRESSION;
+        bufferSizes[INPUT_STREAM] = 0x8000;
+    }
+
+    /**
+     * Gets the compression level of the streams without a level of their own.
+     * @return the compression level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the compression level of the streams without a level of their own.
+     * @param level a level from 0 to 9, <CODE>Deflater.DEFAULT_COMPRESSION</CODE> or <CODE>STORE</CODE>
+     */
+    public void setLevel(int level) {
+        this.level = checkLevel(level);
+    }
+
+    /**
+     * Gets the compression level of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @return the compression level
+     */
+    public int getLevel(int category) {
+        return levels[category] == INHERIT ? level : levels[category];
+    }
+
+    /**
+     * Sets the compression level of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @param level a level from 0 to 9, <CODE>Deflater.DEFAULT_COMPRESSION</CODE> or <CODE>STORE</CODE>
+     */
+    public void setLevel(int category, int level) {
+        levels[category] = checkLevel(level);
+    }
+
+    /**
+     * Gets the deflater strategy of the streams without a strategy of their own.
+     * @return the deflater strategy
+     */
+    public int getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Sets the deflater strategy of the streams without a strategy of their own.
+     * @param strategy one of <CODE>Deflater.DEFAULT_STRATEGY</CODE>, <CODE>Deflater.FILTERED</CODE>
+     * or <CODE>Deflater.HUFFMAN_ONLY</CODE>
+     */
+    public void setStrategy(int strategy) {
+        this.strategy = checkStrategy(strategy);
+    }
+
+    /**
+     * Gets the deflater strategy of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @return the deflater strategy
+     */
+    public int getStrategy(int category) {
+        return strategies[category] == INHERIT ? strategy : strategies[category];
+    }
+
+    /**
+     * Sets the deflater strategy of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @param strategy one of <CODE>Deflater.DEFAULT_STRATEGY</CODE>, <CODE>Deflater.FILTERED</CODE>
+     * or <CODE>Deflater.HUFFMAN_ONLY</CODE>
+     */
+    public void setStrategy(int category, int strategy) {
+        strategies[category] = checkStrategy(strategy);
+    }
+
+    /**
+     * Gets the buffer size of the streams without a buffer size of their own.
+     * @return the buffer size
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the buffer size of the streams without a buffer size of their own.
+     * @param bufferSize the buffer size of the deflating stream
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = checkBufferSize(bufferSize);
+    }
+
+    /**
+     * Gets the buffer size of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @return the buffer size
+     */
+    public int getBufferSize(int category) {
+        return bufferSizes[category] == INHERIT ? bufferSize : bufferSizes[category];
+    }
+
+    /**
+     * Sets the buffer size of a class of streams.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @param bufferSize the buffer size of the deflating stream
+     */
+    public void setBufferSize(int category, int bufferSize) {
+        bufferSizes[category] = checkBufferSize(bufferSize);
+    }
+
+    /**
+     * Checks if a class of streams is written without compression.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @return <CODE>true</CODE> if the level of the class is <CODE>STORE</CODE>
+     */
+    public boolean isStored(int category) {
+        return getLevel(category) == STORE;
+    }
+
+    /**
+     * Creates a <CODE>Deflater</CODE> for a class of streams. It must be ended
+     * by the caller.
+     * @param category the class of streams, for example <CODE>PAGE_CONTENT</CODE>
+     * @return a new <CODE>Deflater</CODE>
+     */
+    public Deflater createDeflater(int category) {
+        Deflater deflater = new Deflater(getLevel(category));
+        deflater.setStrategy(getStrategy(category));
+        return deflater;
+    }
+
+    private static int checkLevel(int level) {
+        if (level != STORE && (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        return level;
+    }
+
+    private static int checkStrategy(int strategy) {
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED && strategy != Deflater.HUFFMAN_ONLY)
+            throw new IllegalArgumentException("Invalid compression strategy: " + strategy);
+        return strategy;
+    }
+
+    private static int checkBufferSize(int bufferSize) {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("The buffer size must be greater than 0.");
+        return bufferSize;
+    }
+}
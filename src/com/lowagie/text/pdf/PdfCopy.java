@@ -92,6 +92,8 @@ public class PdfCopy extends PdfWriter {
     protected int[] namePtr = {0};
     /** Holds value of property rotateContents. */
     private boolean rotateContents = true;
+    /** Holds value of property streaming. */
+    private boolean streaming = false;
     protected PdfArray fieldArray;
     protected HashMap fieldTemplates;
     
@@ -154,6 +156,26 @@ public class PdfCopy extends PdfWriter {
         this.rotateContents = rotateContents;
     }
 
+    /** Getter for property streaming.
+     * @return Value of property streaming.
+     */
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    /** Setter for property streaming.
+     * <P>
+     * In streaming mode a reader is freed as soon as a page of another reader is
+     * imported: its pending objects are written and the map of its objects is
+     * dropped, so that the memory used doesn't grow with the number of documents
+     * merged. The pages of each reader must then be added in one run, a reader
+     * that comes back is copied again as a new document.
+     * @param streaming New value of property streaming.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * Grabs a page from the input document
      * @param reader the reader of the document
@@ -163,12 +185,23 @@ public class PdfCopy extends PdfWriter {
     public PdfImportedPage getImportedPage(PdfReader reader, int pageNumber) {
         if (currentPdfReaderInstance != null) {
             if (currentPdfReaderInstance.getReader() != reader) {
-                try {
-                    currentPdfReaderInstance.getReader().close();
-                    currentPdfReaderInstance.getReaderFile().close();
+                if (streaming) {
+                    try {
+                        freeReader(currentPdfReaderInstance.getReader());
+                    }
+                    catch (IOException ioe) {
+                        throw new ExceptionConverter(ioe);
+                    }
                 }
-                catch (IOException ioe) {
-                    // empty on purpose
+                else {
+                    try {
+                        if (!currentPdfReaderInstance.getReader().isShared())
+                            currentPdfReaderInstance.getReader().close();
+                        currentPdfReaderInstance.getReaderFile().close();
+                    }
+                    catch (IOException ioe) {
+                        // empty on purpose
+                    }
                 }
                 currentPdfReaderInstance = reader.getPdfReaderInstance(this);
             }
@@ -366,6 +399,19 @@ public class PdfCopy extends PdfWriter {
         ++currentPageNumber;
     }
     
+    /**
+     * Adds all the pages of a document to our output and frees the reader.
+     * The AcroForm is not copied, see <CODE>copyAcroForm()</CODE>.
+     * @param reader the reader of the document
+     * @throws IOException, BadPdfFormatException
+     */
+    public void addDocument(PdfReader reader) throws IOException, BadPdfFormatException {
+        int n = reader.getNumberOfPages();
+        for (int k = 1; k <= n; ++k)
+            addPage(getImportedPage(reader, k));
+        freeReader(reader);
+    }
+    
     /**
      * Copy the acroform for an input document. Note that you can only have one,
      * we make no effort to merge them.
@@ -475,7 +521,8 @@ public class PdfCopy extends PdfWriter {
             super.close();
             if (ri != null) {
                 try {
-                    ri.getReader().close();
+                    if (!ri.getReader().isShared())
+                        ri.getReader().close();
                     ri.getReaderFile().close();
                 }
                 catch (IOException ioe) {
@@ -488,12 +535,24 @@ public class PdfCopy extends PdfWriter {
     public void addAnnotation(PdfAnnotation annot) {  }
     PdfIndirectReference add(PdfPage page, PdfContents contents) throws PdfException { return null; }
 
+    /**
+     * Writes the objects of a reader that are still waiting and drops the map of
+     * its objects. The reader is closed and must not be used again with this writer.
+     * @param reader the reader to free
+     * @throws IOException on error
+     */
     public void freeReader(PdfReader reader) throws IOException {
         indirectMap.remove(reader);
+        if (this.reader == reader) {
+            this.reader = null;
+            indirects = null;
+        }
+        body.flushPending();
         if (currentPdfReaderInstance != null) {
             if (currentPdfReaderInstance.getReader() == reader) {
                 try {
-                    currentPdfReaderInstance.getReader().close();
+                    if (!currentPdfReaderInstance.getReader().isShared())
+                        currentPdfReaderInstance.getReader().close();
                     currentPdfReaderInstance.getReaderFile().close();
                 }
                 catch (IOException ioe) {
@@ -591,7 +650,7 @@ public class PdfCopy extends PdfWriter {
                 ar = new PdfArray();
                 pageN.put(PdfName.CONTENTS, ar);
             }
-            ByteBuffer out = new ByteBuffer();
+            ByteBuffer out = ByteBuffer.obtain();
             if (under != null) {
                 out.append(PdfContents.SAVESTATE);
                 applyRotation(pageN, out);
@@ -601,7 +660,7 @@ public class PdfCopy extends PdfWriter {
             if (over != null)
                 out.append(PdfContents.SAVESTATE);
             PdfStream stream = new PdfStream(out.toByteArray());
-            stream.flateCompress();
+            stream.flateCompress(PdfCompression.PAGE_CONTENT);
             PdfIndirectReference ref1 = cstp.addToBody(stream).getIndirectReference();
             ar.addFirst(ref1);
             out.reset();
@@ -613,9 +672,10 @@ public class PdfCopy extends PdfWriter {
                 out.append(over.getInternalBuffer());
                 out.append(PdfContents.RESTORESTATE);
                 stream = new PdfStream(out.toByteArray());
-                stream.flateCompress();
+                stream.flateCompress(PdfCompression.PAGE_CONTENT);
                 ar.add(cstp.addToBody(stream).getIndirectReference());
             }
+            out.recycle();
             pageN.put(PdfName.RESOURCES, pageResources.getResources());
         }
         
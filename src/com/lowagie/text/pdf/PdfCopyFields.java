@@ -207,6 +207,15 @@ public class PdfCopyFields
     public void setFullCompression() {
         fc.setFullCompression();
     }
+    
+    /**
+     * Sets the document's compression to the new 1.5 mode with object streams and xref
+     * streams, with the given size and grouping of the object streams.
+     * @param settings the full compression settings
+     */
+    public void setFullCompression(PdfFullCompression settings) {
+        fc.setFullCompression(settings);
+    }
 
 	/**
 	 * @see com.lowagie.text.pdf.interfaces.PdfEncryptionSettings#setEncryption(byte[], byte[], int, int)
@@ -392,7 +392,15 @@ class PdfCopyFieldsImp extends PdfWriter {
                 file.reOpen();
                 IntHashtable t = (IntHashtable) entry.getValue();
                 int keys[] = t.toOrderedKeys();
+                IntHashtable objectPages = getObjectPages(reader);
+                if (objectPages != null)
+                    sortByPage(keys, objectPages);
+                int group = 0;
                 for (int k = 0; k < keys.length; ++k) {
+                    if (objectPages != null && objectPages.get(keys[k]) != group) {
+                        body.endObjStmGroup();
+                        group = objectPages.get(keys[k]);
+                    }
                     PRIndirectReference ref = new PRIndirectReference(reader, keys[k]);
                     addToBody(PdfReader.getPdfObjectRelease(ref), t.get(keys[k]));
                 }
@@ -635,7 +635,7 @@ class PdfDocument extends Document {
                 }
                 case Element.PTABLE: {
                     PdfPTable ptable = (PdfPTable)element;
-                    if (ptable.size() <= ptable.getHeaderRows())
+                    if (!ptable.hasRowsToWrite())
                         break; //nothing to do
 
                     // before every table, we add a new line and flush all lines
@@ -644,7 +644,9 @@ class PdfDocument extends Document {
                     
                     addPTable(ptable);
                     pageEmpty = false;
-                    newLine();
+                    // the next rows of an incomplete table continue right below
+                    if (ptable.isComplete())
+                        newLine();
                     break;
                 }
                 case Element.MULTI_COLUMN_TEXT: {
@@ -873,6 +875,7 @@ class PdfDocument extends Document {
                     ar.add(PdfName.CRYPT);
                     xmp.put(PdfName.FILTER, ar);
                 }
+                xmp.flateCompress(PdfCompression.XMP);
             	page.put(PdfName.METADATA, writer.addToBody(xmp).getIndirectReference());
             }
         	
@@ -1436,9 +1439,9 @@ class PdfDocument extends Document {
                         Object obj[] = (Object[])chunk.getAttribute(Chunk.REMOTEGOTO);
                         String filename = (String)obj[0];
                         if (obj[1] instanceof String)
-                            remoteGoto(filename, (String)obj[1], xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
+                            text.remoteGoto(filename, (String)obj[1], xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
                         else
-                            remoteGoto(filename, ((Integer)obj[1]).intValue(), xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
+                            text.remoteGoto(filename, ((Integer)obj[1]).intValue(), xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
                     }
                     if (chunk.isAttribute(Chunk.LOCALGOTO)) {
                         float subtract = lastBaseFactor;
@@ -1446,7 +1449,7 @@ class PdfDocument extends Document {
                             subtract = 0;
                         if (nextChunk == null)
                             subtract += hangingCorrection;
-                        localGoto((String)chunk.getAttribute(Chunk.LOCALGOTO), xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
+                        text.localGoto((String)chunk.getAttribute(Chunk.LOCALGOTO), xMarker, yMarker, xMarker + width - subtract, yMarker + chunk.font().size());
                     }
                     if (chunk.isAttribute(Chunk.LOCALDESTINATION)) {
                         float subtract = lastBaseFactor;
@@ -1454,7 +1457,7 @@ class PdfDocument extends Document {
                             subtract = 0;
                         if (nextChunk == null)
                             subtract += hangingCorrection;
-                        localDestination((String)chunk.getAttribute(Chunk.LOCALDESTINATION), new PdfDestination(PdfDestination.XYZ, xMarker, yMarker + chunk.font().size(), 0));
+                        text.localDestination((String)chunk.getAttribute(Chunk.LOCALDESTINATION), new PdfDestination(PdfDestination.XYZ, xMarker, yMarker + chunk.font().size(), 0));
                     }
                     if (chunk.isAttribute(Chunk.GENERICTAG)) {
                         float subtract = lastBaseFactor;
@@ -2365,7 +2368,7 @@ class PdfDocument extends Document {
             ct.addElement(p);
             // if the table prefers to be on a single page, and it wouldn't
 	        //fit on the current page, start a new page.
-	        if (ptable.getKeepTogether() && !fitsPage(ptable, 0f))  {
+	        if (ptable.getKeepTogether() && !ptable.isFlushed() && !fitsPage(ptable, 0f))  {
 	        	newPage();
 	        }
         }
@@ -2392,6 +2395,9 @@ class PdfDocument extends Document {
             newPage();
         }
         ptable.setHeadersInEvent(he);
+        // the rows of an incomplete table are released once they are written
+        if (!ptable.isComplete())
+            ptable.flushContent();
     }
     
     /**
@@ -47,6 +47,7 @@
 
 package com.lowagie.text.pdf;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -379,23 +380,51 @@ public class PdfEncodings {
      */    
     public static String convertCmap(String name, byte seq[], int start, int length) {
         try {
-            char planes[][] = null;
-            synchronized (cmaps) {
-                planes = (char[][])cmaps.get(name);
-            }
-            if (planes == null) {
-                planes = readCmap(name, (byte[][])null);
-                synchronized (cmaps) {
-                    cmaps.put(name, planes);
-                }
-            }
-            return decodeSequence(seq, start, length, planes);
+            return decodeSequence(seq, start, length, getCmapPlanes(name));
         }
         catch (IOException e) {
             throw new ExceptionConverter(e);
         }        
     }
     
+    /** Gets a CJK cmap as the tables used to decode its byte sequences.
+     * There is a table of 256 entries for each byte of a sequence. An entry
+     * with the bit 0x8000 set has the index of the table of the next byte in
+     * the other bits, any other entry is the CID of the sequence. The tables
+     * are read once and shared, they must not be changed.
+     * @param name the CJK encoding name
+     * @throws IOException if the cmap can't be read
+     * @return the tables, the first one for the first byte
+     */    
+    public static char[][] getCmapPlanes(String name) throws IOException {
+        char planes[][] = null;
+        synchronized (cmaps) {
+            planes = (char[][])cmaps.get(name);
+        }
+        if (planes == null) {
+            planes = readCmap(name, (byte[][])null);
+            synchronized (cmaps) {
+                cmaps.put(name, planes);
+            }
+        }
+        return planes;
+    }
+    
+    /** Reads the <CODE>cidrange</CODE> and <CODE>cidchar</CODE> mappings of
+     * a cmap stream, an embedded encoding of a Type 0 font for example. A
+     * <CODE>usecmap</CODE> is read from the CJK cmaps.
+     * @param cmap the bytes of the cmap
+     * @throws IOException if the cmap can't be read
+     * @return the tables in the format of <CODE>getCmapPlanes</CODE>
+     */    
+    public static char[][] readCmapPlanes(byte cmap[]) throws IOException {
+        ArrayList planes = new ArrayList();
+        planes.add(new char[256]);
+        encodeStream(new ByteArrayInputStream(cmap), planes);
+        char ret[][] = new char[planes.size()][];
+        return (char[][])planes.toArray(ret);
+    }
+    
     static String decodeSequence(byte seq[], int start, int length, char planes[][]) {
         StringBuffer buf = new StringBuffer();
         int end = start + length;
@@ -0,0 +1,152 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+/**
+ * The settings of the PDF 1.5 full compression of a <CODE>PdfWriter</CODE>,
+ * where the objects that are not streams are written in object streams and
+ * the cross-reference table is a stream.
+ * <P>
+ * An object stream is closed when it has <CODE>objectsPerStream</CODE> objects
+ * or when its objects take more than <CODE>maxStreamSize</CODE> bytes. Smaller
+ * streams make a document a bit larger but a reader that fetches the document
+ * by byte ranges, over HTTP for example, has less data to get and to inflate to
+ * reach an object. When the objects are grouped by page the objects of each page
+ * are in object streams of their own, so that a page can be displayed without
+ * reading the object streams of the other pages.
+ * <P>
+ * The compression level of the object streams and of the cross-reference
+ * stream is the one of <CODE>PdfCompression.OBJECT_STREAM</CODE>. For example:
+ * <pre>
+ * PdfFullCompression fullCompression = new PdfFullCompression(50);
+ * fullCompression.setGroupByPage(true);
+ * writer.setFullCompression(fullCompression);
+ * writer.getCompression().setLevel(PdfCompression.OBJECT_STREAM, Deflater.BEST_COMPRESSION);
+ * </pre>
+ */
+public class PdfFullCompression {
+
+    /** The default number of objects in an object stream. */
+    public static final int DEFAULT_OBJECTS_PER_STREAM = 200;
+
+    private int objectsPerStream;
+    private int maxStreamSize;
+    private boolean groupByPage;
+
+    /**
+     * Creates the settings with the default number of objects per stream, no
+     * size limit and no grouping by page.
+     */
+    public PdfFullCompression() {
+        this(DEFAULT_OBJECTS_PER_STREAM);
+    }
+
+    /**
+     * Creates the settings with no size limit and no grouping by page.
+     * @param objectsPerStream the maximum number of objects in an object stream
+     */
+    public PdfFullCompression(int objectsPerStream) {
+        setObjectsPerStream(objectsPerStream);
+    }
+
+    /**
+     * Gets the maximum number of objects in an object stream.
+     * @return the maximum number of objects
+     */
+    public int getObjectsPerStream() {
+        return objectsPerStream;
+    }
+
+    /**
+     * Sets the maximum number of objects in an object stream.
+     * @param objectsPerStream the maximum number of objects
+     */
+    public void setObjectsPerStream(int objectsPerStream) {
+        if (objectsPerStream < 1)
+            throw new IllegalArgumentException("The number of objects per stream must be greater than 0.");
+        this.objectsPerStream = objectsPerStream;
+    }
+
+    /**
+     * Gets the size of the objects, before compression, above which an object
+     * stream is closed.
+     * @return the size in bytes, 0 if there is no limit
+     */
+    public int getMaxStreamSize() {
+        return maxStreamSize;
+    }
+
+    /**
+     * Sets the size of the objects, before compression, above which an object
+     * stream is closed. The object that goes over the limit is still in the stream.
+     * @param maxStreamSize the size in bytes, 0 for no limit
+     */
+    public void setMaxStreamSize(int maxStreamSize) {
+        if (maxStreamSize < 0)
+            throw new IllegalArgumentException("The maximum stream size can't be negative.");
+        this.maxStreamSize = maxStreamSize;
+    }
+
+    /**
+     * Checks if the objects of each page are in object streams of their own.
+     * @return <CODE>true</CODE> if the objects are grouped by page
+     */
+    public boolean isGroupByPage() {
+        return groupByPage;
+    }
+
+    /**
+     * Sets if the objects of each page are in object streams of their own. An
+     * object used by several pages is with the objects of the first one.
+     * @param groupByPage <CODE>true</CODE> to group the objects by page
+     */
+    public void setGroupByPage(boolean groupByPage) {
+        this.groupByPage = groupByPage;
+    }
+}
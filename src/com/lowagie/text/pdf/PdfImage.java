@@ -86,16 +86,9 @@ public class PdfImage extends PdfStream {
         put(PdfName.SUBTYPE, PdfName.IMAGE);
         put(PdfName.WIDTH, new PdfNumber(image.getWidth()));
         put(PdfName.HEIGHT, new PdfNumber(image.getHeight()));
-        if (image.getLayer() != null)
-            put(PdfName.OC, image.getLayer().getRef());
+        putReferences(image, maskRef);
         if (image.isMask() && (image.getBpc() == 1 || image.getBpc() > 0xff))
             put(PdfName.IMAGEMASK, PdfBoolean.PDFTRUE);
-        if (maskRef != null) {
-            if (image.isSmask())
-                put(PdfName.SMASK, maskRef);
-            else
-                put(PdfName.MASK, maskRef);
-        }
         if (image.isMask() && image.isInverted())
             put(PdfName.DECODE, new PdfLiteral("[1 0]"));
         if (image.isInterpolation())
@@ -107,14 +100,6 @@ public class PdfImage extends PdfStream {
             if (image.isImgRaw()) {
                 // will also have the CCITT parameters
                 int colorspace = image.getColorspace();
-                int transparency[] = image.getTransparency();
-                if (transparency != null && !image.isMask() && maskRef == null) {
-                    String s = "[";
-                    for (int k = 0; k < transparency.length; ++k)
-                        s += transparency[k] + " ";
-                    s += "]";
-                    put(PdfName.MASK, new PdfLiteral(s));
-                }
                 bytes = image.getRawData();
                 put(PdfName.LENGTH, new PdfNumber(bytes.length));
                 int bpc = image.getBpc();
@@ -166,7 +151,7 @@ public class PdfImage extends PdfStream {
                     if (image.isDeflated())
                         put(PdfName.FILTER, PdfName.FLATEDECODE);
                     else {
-                        flateCompress();
+                        flateCompress(PdfCompression.IMAGE);
                     }
                 }
                 return;
@@ -250,6 +235,49 @@ public class PdfImage extends PdfStream {
         }
     }
     
+    /**
+     * Constructs a <CODE>PdfImage</CODE>-object with the dictionary and the
+     * encoded data kept by a <CODE>PdfImageCache</CODE>.
+     *
+     * @param dictionary the image dictionary, without the references
+     * @param data the encoded data
+     * @param image the <CODE>Image</CODE>-object
+     * @param name the <CODE>PdfName</CODE> for this image
+     * @param maskRef the reference to the mask of the image, may be <CODE>null</CODE>
+     */
+    
+    PdfImage(PdfDictionary dictionary, byte data[], Image image, String name, PdfIndirectReference maskRef) {
+        super(data);
+        this.name = new PdfName(name);
+        putAll(dictionary);
+        compressed = true;
+        putReferences(image, maskRef);
+    }
+    
+    /**
+     * Adds the references of the image to its layer and to its mask. A raw
+     * image without a mask image gets its color key mask instead.
+     */
+    
+    private void putReferences(Image image, PdfIndirectReference maskRef) {
+        if (image.getLayer() != null)
+            put(PdfName.OC, image.getLayer().getRef());
+        if (maskRef != null) {
+            if (image.isSmask())
+                put(PdfName.SMASK, maskRef);
+            else
+                put(PdfName.MASK, maskRef);
+        }
+        else if (image.isImgRaw() && image.getTransparency() != null && !image.isMask()) {
+            int transparency[] = image.getTransparency();
+            String s = "[";
+            for (int k = 0; k < transparency.length; ++k)
+                s += transparency[k] + " ";
+            s += "]";
+            put(PdfName.MASK, new PdfLiteral(s));
+        }
+    }
+    
     /**
      * Returns the <CODE>PdfName</CODE> of the image.
      *
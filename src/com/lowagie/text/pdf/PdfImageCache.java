@@ -0,0 +1,387 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Image;
+
+/**
+ * A cache of encoded images that can be shared by all the writers of a
+ * process. When a writer with a cache adds an image, the image dictionary
+ * and the compressed data are kept, keyed by a digest of the image data, of
+ * its properties and of the image compression of the writer. Another writer
+ * adding the same image, even from another <CODE>Image</CODE> object, writes
+ * the cached data without encoding and compressing it again.
+ * <P>
+ * Only the images with their data in memory are cached, not those read from
+ * a URL when they are written. The references of an image to other objects,
+ * its mask, layer and ICC profile, are added by each writer.
+ * <P>
+ * Looking up an image doesn't lock the cache. The cache is bounded by the
+ * size of the data it holds: when the limit is exceeded the images that were
+ * used least recently are removed.
+ * <pre>
+ * PdfWriter writer = PdfWriter.getInstance(document, out);
+ * writer.setImageCache(PdfImageCache.getSharedCache());
+ * </pre>
+ */
+public class PdfImageCache {
+
+    /** The default maximum size of the cache, 32 MB. */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+    /** The estimated size of an image dictionary. */
+    private static final int DICTIONARY_SIZE = 512;
+
+    private static final PdfImageCache sharedCache = new PdfImageCache();
+
+    /** An image in the cache. */
+    static class Entry {
+        final PdfDictionary dictionary;
+        final byte data[];
+        final long size;
+        volatile long lastAccess;
+
+        Entry(PdfDictionary dictionary, byte data[]) {
+            this.dictionary = dictionary;
+            this.data = data;
+            this.size = data.length + DICTIONARY_SIZE;
+        }
+    }
+
+    private final ConcurrentHashMap entries = new ConcurrentHashMap();
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong size = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long maxSize;
+
+    /**
+     * Creates a cache with the default maximum size.
+     */
+    public PdfImageCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache.
+     * @param maxSize the maximum size of the cached data in bytes
+     */
+    public PdfImageCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Gets the cache shared by the whole process.
+     * @return the shared cache
+     */
+    public static PdfImageCache getSharedCache() {
+        return sharedCache;
+    }
+
+    /**
+     * Gets the key of an image written by a writer.
+     * @param image the image
+     * @param writer the writer with the compression settings
+     * @return the key or <CODE>null</CODE> if the image can't be cached
+     */
+    String getKey(Image image, PdfWriter writer) {
+        byte data[] = image.getRawData();
+        PdfDictionary additional = image.getAdditional();
+        if (data == null || (additional != null && hasReference(additional)))
+            return null;
+        try {
+            ByteArrayOutputStream bout = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bout);
+            out.writeInt(image.type());
+            out.writeFloat(image.getWidth());
+            out.writeFloat(image.getHeight());
+            out.writeInt(image.getBpc());
+            out.writeInt(image.getColorspace());
+            int transparency[] = image.getTransparency();
+            out.writeInt(transparency == null ? -1 : transparency.length);
+            if (transparency != null) {
+                for (int k = 0; k < transparency.length; ++k)
+                    out.writeInt(transparency[k]);
+            }
+            out.writeBoolean(image.isMask());
+            out.writeBoolean(image.isInverted());
+            out.writeBoolean(image.isInterpolation());
+            out.writeBoolean(image.isDeflated());
+            out.writeBoolean(Document.compress);
+            PdfCompression compression = writer.getCompression();
+            out.writeInt(compression.getLevel(PdfCompression.IMAGE));
+            out.writeInt(compression.getStrategy(PdfCompression.IMAGE));
+            if (additional != null)
+                additional.toPdf(null, out);
+            out.flush();
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(bout.toByteArray());
+            md.update(data);
+            byte digest[] = md.digest();
+            StringBuffer key = new StringBuffer(digest.length * 2);
+            for (int k = 0; k < digest.length; ++k) {
+                int b = digest[k] & 0xff;
+                if (b < 16)
+                    key.append('0');
+                key.append(Integer.toHexString(b));
+            }
+            return key.toString();
+        }
+        catch (IOException ioe) {
+            throw new ExceptionConverter(ioe);
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            throw new ExceptionConverter(nsae);
+        }
+    }
+
+    private static boolean hasReference(PdfObject obj) {
+        if (obj == null)
+            return false;
+        if (obj.isIndirect())
+            return true;
+        if (obj.isDictionary()) {
+            PdfDictionary dic = (PdfDictionary)obj;
+            for (Iterator it = dic.getKeys().iterator(); it.hasNext();) {
+                if (hasReference(dic.get((PdfName)it.next())))
+                    return true;
+            }
+        }
+        else if (obj.isArray()) {
+            ArrayList list = ((PdfArray)obj).getArrayList();
+            for (int k = 0; k < list.size(); ++k) {
+                if (hasReference((PdfObject)list.get(k)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates an image with the cached dictionary and data.
+     * @param key the key made by <CODE>getKey</CODE>
+     * @param image the image being added
+     * @param name the name of the image in the document
+     * @param maskRef the reference to the mask of the image, may be <CODE>null</CODE>
+     * @return the image or <CODE>null</CODE> if it is not in the cache
+     */
+    PdfImage get(String key, Image image, String name, PdfIndirectReference maskRef) {
+        Entry entry = (Entry)entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        entry.lastAccess = clock.incrementAndGet();
+        return new PdfImage(copy(entry.dictionary), entry.data, image, name, maskRef);
+    }
+
+    /**
+     * Compresses an image and adds its dictionary and data to the cache,
+     * unless there is already an image with the same key.
+     * @param key the key made by <CODE>getKey</CODE>
+     * @param pdfImage the image, not yet written
+     * @param writer the writer with the compression settings
+     */
+    void put(String key, PdfImage pdfImage, PdfWriter writer) {
+        try {
+            pdfImage.awaitDeflate(writer);
+        }
+        catch (IOException ioe) {
+            throw new ExceptionConverter(ioe);
+        }
+        if (pdfImage.inputStream != null)
+            return;
+        byte data[] = pdfImage.streamBytes != null ? pdfImage.streamBytes.toByteArray() : pdfImage.bytes;
+        PdfDictionary dictionary = copy(pdfImage);
+        // the references and the color key mask depend on the writer, they
+        // are put again when the image is reused
+        dictionary.remove(PdfName.OC);
+        dictionary.remove(PdfName.SMASK);
+        dictionary.remove(PdfName.MASK);
+        Entry entry = new Entry(dictionary, data);
+        entry.lastAccess = clock.incrementAndGet();
+        if (entries.putIfAbsent(key, entry) == null && size.addAndGet(entry.size) > maxSize)
+            evict(entry);
+    }
+
+    /**
+     * Copies a dictionary and its arrays, which the writers may change.
+     */
+    private static PdfDictionary copy(PdfDictionary dictionary) {
+        PdfDictionary dic = new PdfDictionary();
+        for (Iterator it = dictionary.getKeys().iterator(); it.hasNext();) {
+            PdfName key = (PdfName)it.next();
+            PdfObject value = dictionary.get(key);
+            if (value.isArray())
+                value = new PdfArray((PdfArray)value);
+            dic.put(key, value);
+        }
+        return dic;
+    }
+
+    /**
+     * Removes the least recently used images until the size of the cache is
+     * below its maximum.
+     * @param keep an entry that is not removed, may be <CODE>null</CODE>
+     */
+    private synchronized void evict(Entry keep) {
+        while (size.get() > maxSize) {
+            Map.Entry oldest = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Iterator it = entries.entrySet().iterator(); it.hasNext();) {
+                Map.Entry e = (Map.Entry)it.next();
+                Entry entry = (Entry)e.getValue();
+                if (entry != keep && entry.lastAccess < oldestAccess) {
+                    oldest = e;
+                    oldestAccess = entry.lastAccess;
+                }
+            }
+            if (oldest == null)
+                return;
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                size.addAndGet(-((Entry)oldest.getValue()).size);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all the images from the cache.
+     */
+    public void invalidateAll() {
+        for (Iterator it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = (Entry)it.next();
+            it.remove();
+            size.addAndGet(-entry.size);
+        }
+    }
+
+    /**
+     * Gets the maximum size of the cached data.
+     * @return the maximum size in bytes
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Sets the maximum size of the cached data. If the cache is larger the
+     * least recently used images are removed at once.
+     * @param maxSize the maximum size in bytes
+     */
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        if (size.get() > maxSize)
+            evict(null);
+    }
+
+    /**
+     * Gets the size of the cached data.
+     * @return the size in bytes
+     */
+    public long getSize() {
+        return size.get();
+    }
+
+    /**
+     * Gets the number of images in the cache.
+     * @return the number of images
+     */
+    public int getImageCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the number of times an image was found in the cache.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of times an image was not found in the cache.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the number of images removed because the cache was full.
+     * @return the number of evictions
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Sets the hit, miss and eviction counts to zero.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
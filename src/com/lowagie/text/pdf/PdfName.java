@@ -50,6 +50,12 @@
 
 package com.lowagie.text.pdf;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.lowagie.text.ExceptionConverter;
+
 /**
  * <CODE>PdfName</CODE> is an object that can be used as a name in a PDF-file.
  * <P>
@@ -61,6 +67,9 @@ package com.lowagie.text.pdf;
  * This object is described in the 'Portable Document Format Reference Manual version 1.7'
  * section 3.2.4 (page 56-58).
  * <P>
+ * The names parsed by <CODE>PdfReader</CODE> and <CODE>PdfContentParser</CODE> are
+ * canonical: a standard name is always the static constant of this class and the
+ * other names are shared through a bounded cache, see {@link #intern(PdfName)}.
  *
  * @see		PdfObject
  * @see		PdfDictionary
@@ -1094,6 +1103,54 @@ public class PdfName extends PdfObject implements Comparable{
     
     private int hash = 0;
     
+    /** The number of names kept by the intern cache. */
+    public static final int INTERN_CACHE_SIZE = 4096;
+    
+    /** The standard names of this class in an open addressing table. */
+    private static final PdfName staticNames[];
+    
+    /** The interned names that are not standard, indexed by their hash code.
+     * A name replaces the one that was in its slot. */
+    private static final AtomicReferenceArray internCache = new AtomicReferenceArray(INTERN_CACHE_SIZE);
+    
+    /** <CODE>true</CODE> for the bytes that are written as they are in a name. */
+    private static final boolean plainChars[] = new boolean[256];
+    
+    static {
+        for (int k = 33; k < 127; ++k)
+            plainChars[k] = true;
+        String escaped = "%()<>[]{}/#";
+        for (int k = 0; k < escaped.length(); ++k)
+            plainChars[escaped.charAt(k)] = false;
+        Field fields[] = PdfName.class.getDeclaredFields();
+        int count = 0;
+        for (int k = 0; k < fields.length; ++k) {
+            if (fields[k].getType() == PdfName.class)
+                ++count;
+        }
+        int size = 1;
+        while (size < count * 2)
+            size <<= 1;
+        staticNames = new PdfName[size];
+        try {
+            for (int k = 0; k < fields.length; ++k) {
+                int modifiers = fields[k].getModifiers();
+                if (fields[k].getType() == PdfName.class && Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)) {
+                    PdfName name = (PdfName)fields[k].get(null);
+                    int h = name.hashCode();
+                    int idx = mix(h) & (size - 1);
+                    while (staticNames[idx] != null && !staticNames[idx].equals(name))
+                        idx = (idx + 1) & (size - 1);
+                    if (staticNames[idx] == null)
+                        staticNames[idx] = name;
+                }
+            }
+        }
+        catch (IllegalAccessException e) {
+            throw new ExceptionConverter(e);
+        }
+    }
+    
     // constructors
     
 
@@ -1210,7 +1267,7 @@ public class PdfName extends PdfObject implements Comparable{
         if (this == obj)
             return true;
         if (obj instanceof PdfName)
-            return compareTo(obj) == 0;
+            return hashCode() == obj.hashCode() && compareTo(obj) == 0;
         return false;
     }
     
@@ -1234,6 +1291,87 @@ public class PdfName extends PdfObject implements Comparable{
         return h;
     }
     
+    /**
+     * Gets the canonical instance of a name: the standard name with the same
+     * bytes if there is one, otherwise the name kept by the intern cache.
+     * The intern cache holds at most {@link #INTERN_CACHE_SIZE} names and can be
+     * used by several threads at the same time.
+     * @param name the name
+     * @return the canonical instance, <CODE>name</CODE> itself if it was not known
+     */
+    public static PdfName intern(PdfName name) {
+        int h = name.hashCode();
+        int mask = staticNames.length - 1;
+        for (int idx = mix(h) & mask; staticNames[idx] != null; idx = (idx + 1) & mask) {
+            if (staticNames[idx].hashCode() == h && staticNames[idx].compareTo(name) == 0)
+                return staticNames[idx];
+        }
+        int slot = mix(h) & (INTERN_CACHE_SIZE - 1);
+        PdfName found = (PdfName)internCache.get(slot);
+        if (found != null && found.hashCode() == h && found.compareTo(name) == 0)
+            return found;
+        internCache.set(slot, name);
+        return name;
+    }
+    
+    /**
+     * Gets the canonical instance of a name.
+     * @param name the name
+     * @return the canonical instance
+     * @see #intern(PdfName)
+     */
+    public static PdfName intern(String name) {
+        return intern(new PdfName(name));
+    }
+    
+    /**
+     * Gets the canonical instance of the name that is the current token of a
+     * tokeniser. Unless the name has escaped characters it is looked up from
+     * the bytes of the token, without creating a new name if it is known.
+     * @param tokens the tokeniser, the current token is a name
+     * @return the canonical instance
+     */
+    public static PdfName intern(PRTokeniser tokens) {
+        int len = tokens.getTokenLength();
+        int h = '/';
+        for (int k = 0; k < len; ++k) {
+            int b = tokens.getTokenByte(k) & 0xff;
+            if (!plainChars[b])
+                return intern(new PdfName(tokens.getStringValue(), false));
+            h = 31 * h + b;
+        }
+        int mask = staticNames.length - 1;
+        for (int idx = mix(h) & mask; staticNames[idx] != null; idx = (idx + 1) & mask) {
+            if (staticNames[idx].hashCode() == h && staticNames[idx].tokenEquals(tokens, len))
+                return staticNames[idx];
+        }
+        int slot = mix(h) & (INTERN_CACHE_SIZE - 1);
+        PdfName found = (PdfName)internCache.get(slot);
+        if (found != null && found.hashCode() == h && found.tokenEquals(tokens, len))
+            return found;
+        byte b[] = new byte[len + 1];
+        b[0] = '/';
+        tokens.getTokenBytes(b, 1);
+        PdfName name = new PdfName(b);
+        internCache.set(slot, name);
+        return name;
+    }
+    
+    private boolean tokenEquals(PRTokeniser tokens, int len) {
+        if (bytes.length != len + 1)
+            return false;
+        for (int k = 0; k < len; ++k) {
+            if (bytes[k + 1] != tokens.getTokenByte(k))
+                return false;
+        }
+        return true;
+    }
+    
+    private static int mix(int h) {
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return h ^ (h >>> 7) ^ (h >>> 4);
+    }
+    
     /** Decodes an escaped name in the form "/AB#20CD" into "AB CD".
      * @param name the name to decode
      * @return the decoded name
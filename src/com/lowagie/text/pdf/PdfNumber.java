@@ -98,6 +98,19 @@ public class PdfNumber extends PdfObject {
         setContent(String.valueOf(value));
     }
     
+/**
+ * Constructs a new INTEGER <CODE>PdfNumber</CODE>-object holding a <CODE>long</CODE>,
+ * as used for byte offsets beyond 2 GB.
+ *
+ * @param		value				value of the new <CODE>PdfNumber</CODE>-object
+ */
+    
+    public PdfNumber(long value) {
+        super(NUMBER);
+        this.value = value;
+        setContent(String.valueOf(value));
+    }
+    
 /**
  * Constructs a new REAL <CODE>PdfNumber</CODE>-object.
  *
@@ -132,6 +145,16 @@ public class PdfNumber extends PdfObject {
         return (int) value;
     }
     
+/**
+ * Returns the primitive <CODE>long</CODE> value of this object.
+ *
+ * @return		a value
+ */
+    
+    public long longValue() {
+        return (long) value;
+    }
+    
 /**
  * Returns the primitive <CODE>double</CODE> value of this object.
  *
@@ -153,6 +153,17 @@ public class PdfPTable implements Element{
      */
     private int footerRows;
     
+    /**
+     * Holds value of property complete.
+     */
+    private boolean complete = true;
+    
+    /**
+     * <CODE>true</CODE> if body rows of this table were already written
+     * to the document and removed by <CODE>flushContent()</CODE>.
+     */
+    private boolean flushed;
+    
     protected PdfPTable() {
     }
     
@@ -246,6 +257,8 @@ public class PdfPTable implements Element{
         skipFirstHeader = sourceTable.skipFirstHeader;
         horizontalAlignment = sourceTable.horizontalAlignment;
         keepTogether = sourceTable.keepTogether;
+        complete = sourceTable.complete;
+        flushed = sourceTable.flushed;
     }
 
     /** Sets the relative widths of the table.
@@ -674,6 +687,22 @@ public class PdfPTable implements Element{
         return total;
     }
     
+    /** Gets the height of the rows that constitute the footer as defined by
+     * <CODE>setFooterRows()</CODE>.
+     * @return the height of the rows that constitute the footer
+     */    
+    public float getFooterHeight() {
+        float total = 0;
+        int start = Math.max(0, headerRows - footerRows);
+        int size = Math.min(rows.size(), headerRows);
+        for (int k = start; k < size; ++k) {
+            PdfPRow row = (PdfPRow)rows.get(k);
+            if (row != null)
+                total += row.getMaxHeights();
+        }
+        return total;
+    }
+    
     /** Deletes a row from the table.
      * @param rowNumber the row to be deleted
      * @return <CODE>true</CODE> if the row was deleted
@@ -1079,6 +1108,76 @@ public class PdfPTable implements Element{
         this.footerRows = footerRows;
     }
     
+    /**
+     * Checks if the table is complete.
+     * @return <CODE>false</CODE> if more rows will be added to the table
+     * after it was added to the document
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+    
+    /**
+     * Sets the table as complete or incomplete. An incomplete table can be
+     * added to the document many times while it is being built: each time
+     * the rows added since the last time are laid out, written and removed
+     * from the table, only the header and footer rows are kept. The footer is
+     * only written where the table breaks across pages and, once the table is
+     * set as complete and added for the last time, at its end. For example:
+     * <p>
+     * <PRE>
+     * table.setHeaderRows(1);
+     * table.setComplete(false);
+     * for (int k = 0; k &lt; 100000; ++k) {
+     *     table.addCell(...);
+     *     if (k % 500 == 0)
+     *         document.add(table);
+     * }
+     * table.setComplete(true);
+     * document.add(table);
+     * </PRE>
+     * <p>
+     * The memory used by the table depends on the number of rows added
+     * between two calls and not on the size of the table. The pages are the
+     * same as with the table added in one go, except that a part ending with
+     * the last row of a page doesn't get that row extended by
+     * <CODE>setExtendLastRow</CODE>. When an incomplete
+     * table is written with a <CODE>ColumnText</CODE> it is up to the caller
+     * to call <CODE>flushContent()</CODE> once it is written.
+     * @param complete <CODE>false</CODE> if more rows will be added to the
+     * table after it is added to the document
+     */
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+    
+    /**
+     * Removes the body rows that were written to the document and keeps the
+     * header and footer rows. The rows added later are written below the
+     * ones that were removed, without repeating the header on the same page.
+     */
+    public void flushContent() {
+        deleteBodyRows();
+        flushed = true;
+    }
+    
+    /**
+     * Checks if body rows of this table were already written and removed.
+     * @return <CODE>true</CODE> if <CODE>flushContent()</CODE> was called
+     */
+    boolean isFlushed() {
+        return flushed;
+    }
+    
+    /**
+     * Checks if there is something to write: body rows or, for a flushed
+     * table that is now complete, the footer that closes it.
+     * @return <CODE>true</CODE> if the table has something to write
+     */
+    boolean hasRowsToWrite() {
+        return rows.size() > headerRows || (flushed && complete);
+    }
+    
     /**
      * Completes the current row with the default cell. An incomplete row will be dropped
      * but calling this method will make sure that it will be present in the table.
@@ -0,0 +1,352 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.ExceptionConverter;
+
+/**
+ * Composes the pages of a document on worker threads and writes them in order.
+ * <P>
+ * Each page added is given to a <CODE>PageContent</CODE> that draws it on a
+ * canvas of its own, for example with a <CODE>ColumnText</CODE> per page, on
+ * the executor. The thread that adds the pages stays the only one that writes
+ * them: the canvases are added to the direct content of the document in the
+ * order of the pages, each one followed by a new page, so the page events,
+ * headers and footers work as usual. A page is written even if its canvas
+ * is empty.
+ * <P>
+ * The fonts, images, templates, patterns and graphic states used by a canvas are
+ * added to the writer as they are used, the writer methods that register them
+ * are synchronized. The links, destinations and outlines made on a canvas are
+ * kept until its page is written, as are the marked content sequences of the
+ * structure elements, which only get their marked content ids then. A generic
+ * tag event is fired on the thread composing the page.
+ * <pre>
+ * PdfPageComposer composer = new PdfPageComposer(document, writer, executor);
+ * for (int k = 0; k &lt; pages; ++k) {
+ *     composer.addPage(new PdfPageComposer.PageContent() {
+ *         public void compose(PdfContentByte canvas) throws DocumentException {
+ *             ColumnText ct = new ColumnText(canvas);
+ *             ...
+ *             ct.go();
+ *         }
+ *     });
+ * }
+ * composer.flush();
+ * </pre>
+ * The pages still waiting are only written by <CODE>flush()</CODE>, it must be
+ * called before the document is closed.
+ */
+public class PdfPageComposer {
+
+    /** Draws the content of a page. */
+    public interface PageContent {
+        /**
+         * Draws the content of a page. It is called on a thread of the executor.
+         * @param canvas the canvas of the page, drawn over the text of the document
+         * @throws DocumentException on error
+         */
+        void compose(PdfContentByte canvas) throws DocumentException;
+    }
+
+    /** The default number of pages that can be composed ahead of the one being written. */
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    private Document document;
+    private PdfWriter writer;
+    private Executor executor;
+    private int queueSize = DEFAULT_QUEUE_SIZE;
+    private LinkedList pending = new LinkedList();
+
+    /**
+     * Creates a composer for a document.
+     * @param document the open document
+     * @param writer the writer of the document
+     * @param executor the executor composing the pages or <CODE>null</CODE>
+     * to compose them on the calling thread
+     */
+    public PdfPageComposer(Document document, PdfWriter writer, Executor executor) {
+        this.document = document;
+        this.writer = writer;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a page to the document. Its content is composed on the executor and
+     * it is written once the pages before it are written. When more pages than
+     * the queue size wait, the oldest one is written first, waiting for its
+     * composition if needed.
+     * @param content the content of the page
+     * @throws DocumentException on error
+     */
+    public void addPage(final PageContent content) throws DocumentException {
+        final PageCanvas canvas = new PageCanvas(writer);
+        FutureTask task = new FutureTask(new Callable() {
+            public Object call() throws Exception {
+                content.compose(canvas);
+                return canvas;
+            }
+        });
+        pending.add(task);
+        if (executor == null)
+            task.run();
+        else
+            executor.execute(task);
+        while (pending.size() > queueSize)
+            writePage((FutureTask)pending.removeFirst());
+    }
+
+    /**
+     * Writes all the pages added, waiting for their composition.
+     * @throws DocumentException on error
+     */
+    public void flush() throws DocumentException {
+        while (!pending.isEmpty())
+            writePage((FutureTask)pending.removeFirst());
+    }
+
+    /**
+     * Cancels the pages not yet written. Those being composed are interrupted.
+     */
+    private void cancel() {
+        while (!pending.isEmpty())
+            ((FutureTask)pending.removeFirst()).cancel(true);
+    }
+
+    /**
+     * Gets the number of pages that can be composed ahead of the one being written.
+     * @return the queue size
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * Sets the number of pages that can be composed ahead of the one being
+     * written. It limits the memory used by the pages waiting to be written.
+     * @param queueSize the queue size
+     */
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    private void writePage(FutureTask task) throws DocumentException {
+        PageCanvas canvas;
+        try {
+            canvas = (PageCanvas)task.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            cancel();
+            throw new ExceptionConverter(e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DocumentException)
+                throw (DocumentException)cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException)cause;
+            if (cause instanceof Error)
+                throw (Error)cause;
+            throw new ExceptionConverter((Exception)cause);
+        }
+        canvas.addToPage(writer.getDirectContent());
+        writer.setPageEmpty(false);
+        document.newPage();
+    }
+
+    /**
+     * The canvas a page is composed on. It has its own resources and keeps the
+     * links, destinations and outlines until the page is written.
+     */
+    static class PageCanvas extends PdfContentByte {
+
+        private PageResources pageResources;
+        /** the links, destinations and outlines to add with the page */
+        private ArrayList deferred;
+        /** the positions in the content of the marked content sequences of structure elements */
+        private ArrayList markPositions = new ArrayList();
+        /** the structure elements of the marked content sequences */
+        private ArrayList marks = new ArrayList();
+
+        PageCanvas(PdfWriter wr) {
+            super(wr);
+            pageResources = new PageResources();
+            deferred = new ArrayList();
+        }
+
+        PageResources getPageResources() {
+            return pageResources;
+        }
+
+        public PdfContentByte getDuplicate() {
+            PageCanvas canvas = new PageCanvas(writer);
+            canvas.pageResources = pageResources;
+            canvas.deferred = deferred;
+            canvas.separator = separator;
+            return canvas;
+        }
+
+        void addAnnotation(final PdfAnnotation annot) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    writer.addAnnotation(annot);
+                }
+            });
+        }
+
+        public void setAction(final PdfAction action, final float llx, final float lly, final float urx, final float ury) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.setAction(action, llx, lly, urx, ury);
+                }
+            });
+        }
+
+        public void localGoto(final String name, final float llx, final float lly, final float urx, final float ury) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.localGoto(name, llx, lly, urx, ury);
+                }
+            });
+        }
+
+        /**
+         * The destination is added when the page is written.
+         * @return always <CODE>true</CODE>
+         */
+        public boolean localDestination(final String name, final PdfDestination destination) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.localDestination(name, destination);
+                }
+            });
+            return true;
+        }
+
+        public void remoteGoto(final String filename, final String name, final float llx, final float lly, final float urx, final float ury) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.remoteGoto(filename, name, llx, lly, urx, ury);
+                }
+            });
+        }
+
+        public void remoteGoto(final String filename, final int page, final float llx, final float lly, final float urx, final float ury) {
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.remoteGoto(filename, page, llx, lly, urx, ury);
+                }
+            });
+        }
+
+        public void addOutline(final PdfOutline outline, final String name) {
+            checkWriter();
+            deferred.add(new Runnable() {
+                public void run() {
+                    pdf.addOutline(outline, name);
+                }
+            });
+        }
+
+        /**
+         * The marked content sequence is begun when the page is written, the
+         * marked content id depends on the page.
+         */
+        public void beginMarkedContentSequence(PdfStructureElement struc) {
+            markPositions.add(Integer.valueOf(content.size()));
+            marks.add(struc);
+        }
+
+        public void add(PdfContentByte other) {
+            if (other instanceof PageCanvas) {
+                PageCanvas canvas = (PageCanvas)other;
+                int offset = content.size();
+                for (int k = 0; k < canvas.marks.size(); ++k) {
+                    markPositions.add(Integer.valueOf(offset + ((Integer)canvas.markPositions.get(k)).intValue()));
+                    marks.add(canvas.marks.get(k));
+                }
+            }
+            super.add(other);
+        }
+
+        /**
+         * Adds the content of this canvas to the page being written, with its
+         * resources, links and destinations.
+         * @param page the direct content of the page
+         */
+        void addToPage(PdfContentByte page) {
+            page.getPageResources().merge(pageResources);
+            page.saveState();
+            byte bytes[] = content.getBuffer();
+            int start = 0;
+            for (int k = 0; k < marks.size(); ++k) {
+                int position = ((Integer)markPositions.get(k)).intValue();
+                page.getInternalBuffer().append(bytes, start, position - start);
+                page.beginMarkedContentSequence((PdfStructureElement)marks.get(k));
+                start = position;
+            }
+            page.getInternalBuffer().append(bytes, start, content.size() - start);
+            page.restoreState();
+            for (Iterator it = deferred.iterator(); it.hasNext();)
+                ((Runnable)it.next()).run();
+        }
+    }
+}
@@ -93,6 +93,7 @@ public class PdfPages {
             page.put(PdfName.PARENT, parent);
             PdfIndirectReference current = writer.getCurrentPage();
             writer.addToBody(page, current);
+            writer.body.endObjStmGroup();
             pages.add(current);
         }
         catch (Exception e) {
@@ -61,6 +61,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -90,15 +91,21 @@ public class PdfReader implements PdfViewerPreferences {
     };
    
     static final byte endstream[] = PdfEncodings.convertToBytes("endstream", null);
+    
+    /** The default number of objects kept by a reader opened in lazy mode. */
+    public static final int DEFAULT_OBJECT_CACHE_SIZE = 1000;
+    
+    /** The number of decoded object streams kept by a reader opened in lazy mode. */
+    private static final int OBJSTM_CACHE_SIZE = 16;
     static final byte endobj[] = PdfEncodings.convertToBytes("endobj", null);
     protected PRTokeniser tokens;
     // Each xref pair is a position
     // type 0 -> -1, 0
     // type 1 -> offset, 0
     // type 2 -> index, obj num
-    protected int xref[];
+    protected long xref[];
     protected HashMap objStmMark;
-    protected IntHashtable objStmToOffset;
+    protected LongHashtable objStmToOffset;
     protected boolean newXrefType;
     private ArrayList xrefObj;
     PdfDictionary rootPages;
@@ -111,8 +118,8 @@ public class PdfReader implements PdfViewerPreferences {
     protected boolean rebuilt = false;
     protected int freeXref;
     protected boolean tampered = false;
-    protected int lastXref;
-    protected int eofPos;
+    protected long lastXref;
+    protected long eofPos;
     protected char pdfVersion;
     protected PdfEncryption decrypt;
     protected byte password[] = null; //added by ujihara for decryption
@@ -127,10 +134,17 @@ public class PdfReader implements PdfViewerPreferences {
     protected int pValue;
     private int objNum;
     private int objGen;
-    private int fileLength;
+    private long fileLength;
     private boolean hybridXref;
     private int lastXrefPartial = -1;
     private boolean partial;
+    private boolean shared;
+    private RandomAccessFileOrArray sharedFile;
+    /** The objects read in lazy mode, <CODE>null</CODE> in the other modes. */
+    private LinkedHashMap objectCache;
+    private int objectCacheSize;
+    /** The decoded object streams read in lazy mode. */
+    private LinkedHashMap objStmCache;
     private PRIndirectReference cryptoRef;
 	private PdfViewerPreferencesImp viewerPreferences = new PdfViewerPreferencesImp();
 
@@ -253,6 +267,37 @@ public class PdfReader implements PdfViewerPreferences {
         readPdfPartial();
     }
 
+    /**
+     * Reads a pdf document in lazy mode. As in partial mode only the xref is read
+     * when the reader is created and the pages are looked up in the page tree
+     * only when they are asked for. The objects read from the file are also kept
+     * in a cache of at most <CODE>cacheSize</CODE> objects: the least recently
+     * used ones are dropped and read again when they are needed, so opening a
+     * large document to read a few pages or the form fields is fast and the
+     * memory used doesn't depend on the size of the document.
+     * <P>
+     * The catalog, the root of the page tree and the pages that weren't released
+     * are kept until the reader is closed. The other objects may be read again
+     * and must not be changed. A reader in lazy mode can't be used by
+     * <CODE>PdfStamper</CODE>.
+     * @param raf the document location
+     * @param ownerPassword the password or <CODE>null</CODE> for no password
+     * @param cacheSize the maximum number of objects kept in memory
+     * @throws IOException on error
+     * @see #DEFAULT_OBJECT_CACHE_SIZE
+     */
+    public PdfReader(RandomAccessFileOrArray raf, byte ownerPassword[], int cacheSize) throws IOException {
+        if (cacheSize < 1)
+            throw new IllegalArgumentException("The object cache size must be positive.");
+        password = ownerPassword;
+        partial = true;
+        objectCacheSize = cacheSize;
+        objectCache = createCache(cacheSize);
+        objStmCache = createCache(OBJSTM_CACHE_SIZE);
+        tokens = new PRTokeniser(raf);
+        readPdfPartial();
+    }
+
     /** Creates an independent duplicate.
      * @param reader the <CODE>PdfReader</CODE> to duplicate
      */
@@ -283,6 +328,11 @@ public class PdfReader implements PdfViewerPreferences {
         this.rootPages = (PdfDictionary)getPdfObject(catalog.get(PdfName.PAGES));
         this.fileLength = reader.fileLength;
         this.partial = reader.partial;
+        if (reader.objectCache != null) {
+            this.objectCacheSize = reader.objectCacheSize;
+            this.objectCache = createCache(objectCacheSize);
+            this.objStmCache = createCache(OBJSTM_CACHE_SIZE);
+        }
         this.hybridXref = reader.hybridXref;
         this.objStmToOffset = reader.objStmToOffset;
         this.xref = reader.xref;
@@ -894,6 +944,13 @@ public class PdfReader implements PdfViewerPreferences {
                 return obj;
             if (idx * 2 >= xref.length)
                 return null;
+            if (objectCache != null) {
+                if (xref[idx * 2] < 0)
+                    return null;
+                obj = (PdfObject)objectCache.get(Integer.valueOf(idx));
+                if (obj != null)
+                    return obj;
+            }
             obj = readSingleObject(idx);
             lastXrefPartial = -1;
             if (obj != null)
@@ -956,9 +1013,47 @@ public class PdfReader implements PdfViewerPreferences {
     protected void readPages() throws IOException {
         catalog = (PdfDictionary)getPdfObject(trailer.get(PdfName.ROOT));
         rootPages = (PdfDictionary)getPdfObject(catalog.get(PdfName.PAGES));
+        if (objectCache != null) {
+            keepObject(trailer.get(PdfName.ROOT), catalog);
+            keepObject(catalog.get(PdfName.PAGES), rootPages);
+        }
         pageRefs = new PageRefs(this);
     }
 
+    /**
+     * Keeps an object of a reader in lazy mode out of the object cache.
+     */
+    private void keepObject(PdfObject ref, PdfObject obj) {
+        if (ref != null && ref.isIndirect())
+            setXrefPartialObject(((PRIndirectReference)ref).getNumber(), obj);
+    }
+
+    private static LinkedHashMap createCache(final int maxSize) {
+        return new LinkedHashMap(16, 0.75f, true) {
+            private static final long serialVersionUID = 7290419316432184529L;
+
+            protected boolean removeEldestEntry(Map.Entry eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Checks if the reader was opened in lazy mode.
+     * @return <CODE>true</CODE> if the objects are kept in a cache of limited size
+     */
+    public boolean isLazy() {
+        return objectCache != null;
+    }
+
+    /**
+     * Gets the number of objects in the cache of a reader in lazy mode.
+     * @return the number of objects in the cache, 0 if the reader isn't in lazy mode
+     */
+    public int getObjectCacheCount() {
+        return objectCache == null ? 0 : objectCache.size();
+    }
+
     protected void readDocObjPartial() throws IOException {
         xrefObj = new ArrayList(xref.length / 2);
         xrefObj.addAll(Collections.nCopies(xref.length / 2, null));
@@ -976,13 +1071,39 @@ public class PdfReader implements PdfViewerPreferences {
     protected PdfObject readSingleObject(int k) throws IOException {
         strings.clear();
         int k2 = k * 2;
-        int pos = xref[k2];
+        long pos = xref[k2];
         if (pos < 0)
             return null;
-        if (xref[k2 + 1] > 0)
-            pos = objStmToOffset.get(xref[k2 + 1]);
+        if (xref[k2 + 1] > 0) {
+            if (objStmCache != null) {
+                PdfObject obj = readCachedObjStm((int)xref[k2 + 1], (int)xref[k2]);
+                if (obj != null)
+                    objectCache.put(Integer.valueOf(k), obj);
+                return obj;
+            }
+            pos = objStmToOffset.get((int)xref[k2 + 1]);
+        }
         if (pos == 0)
             return null;
+        PdfObject obj = readObjectAt(pos);
+        if (xref[k2 + 1] > 0) {
+            obj = readOneObjStm((PRStream)obj, (int)xref[k2]);
+        }
+        if (objectCache != null) {
+            if (obj != null)
+                objectCache.put(Integer.valueOf(k), obj);
+        }
+        else
+            xrefObj.set(k, obj);
+        return obj;
+    }
+
+    /**
+     * Reads the indirect object that starts at a position of the file.
+     * @param pos the position of the object header
+     * @return the object or <CODE>null</CODE> if it is invalid
+     */
+    private PdfObject readObjectAt(long pos) throws IOException {
         tokens.seek(pos);
         tokens.nextValidToken();
         if (tokens.getTokenType() != PRTokeniser.TK_NUMBER)
@@ -993,7 +1114,7 @@ public class PdfReader implements PdfViewerPreferences {
             tokens.throwError("Invalid generation number.");
         objGen = tokens.intValue();
         tokens.nextValidToken();
-        if (!tokens.getStringValue().equals("obj"))
+        if (!tokens.tokenEquals("obj"))
             tokens.throwError("Token 'obj' expected.");
         PdfObject obj;
         try {
@@ -1009,13 +1130,65 @@ public class PdfReader implements PdfViewerPreferences {
         catch (Exception e) {
             obj = null;
         }
-        if (xref[k2 + 1] > 0) {
-            obj = readOneObjStm((PRStream)obj, xref[k2]);
-        }
-        xrefObj.set(k, obj);
         return obj;
     }
 
+    /** An object stream decoded in lazy mode. */
+    private static class ObjStm {
+        byte data[];
+        int offsets[];
+        int objNum;
+        int objGen;
+    }
+
+    /**
+     * Reads an object from an object stream, decoding the stream only if it
+     * isn't in the object stream cache.
+     * @param stream the object number of the object stream
+     * @param idx the index of the object in the stream
+     * @return the object or <CODE>null</CODE> if the stream isn't there
+     */
+    private PdfObject readCachedObjStm(int stream, int idx) throws IOException {
+        Integer key = Integer.valueOf(stream);
+        ObjStm objStm = (ObjStm)objStmCache.get(key);
+        if (objStm == null) {
+            long pos = objStmToOffset.get(stream);
+            if (pos == 0)
+                return null;
+            PRStream str = (PRStream)readObjectAt(pos);
+            if (str == null)
+                return null;
+            objStm = new ObjStm();
+            objStm.objNum = objNum;
+            objStm.objGen = objGen;
+            int first = ((PdfNumber)getPdfObject(str.get(PdfName.FIRST))).intValue();
+            int n = ((PdfNumber)getPdfObject(str.get(PdfName.N))).intValue();
+            objStm.data = getStreamBytes(str, tokens.getFile());
+            objStm.offsets = new int[n];
+            PRTokeniser tk = new PRTokeniser(objStm.data);
+            for (int k = 0; k < n; ++k) {
+                if (!tk.nextToken() || tk.getTokenType() != PRTokeniser.TK_NUMBER
+                    || !tk.nextToken() || tk.getTokenType() != PRTokeniser.TK_NUMBER)
+                    throw new IOException("Error reading ObjStm");
+                objStm.offsets[k] = tk.intValue() + first;
+            }
+            objStmCache.put(key, objStm);
+        }
+        if (idx < 0 || idx >= objStm.offsets.length)
+            throw new IOException("Error reading ObjStm");
+        objNum = objStm.objNum;
+        objGen = objStm.objGen;
+        PRTokeniser saveTokens = tokens;
+        tokens = new PRTokeniser(objStm.data);
+        try {
+            tokens.seek(objStm.offsets[idx]);
+            return readPRObject();
+        }
+        finally {
+            tokens = saveTokens;
+        }
+    }
+
     protected PdfObject readOneObjStm(PRStream stream, int idx) throws IOException {
         int first = ((PdfNumber)getPdfObject(stream.get(PdfName.FIRST))).intValue();
         byte b[] = getStreamBytes(stream, tokens.getFile());
@@ -1069,7 +1242,7 @@ public class PdfReader implements PdfViewerPreferences {
         xrefObj = new ArrayList(xref.length / 2);
         xrefObj.addAll(Collections.nCopies(xref.length / 2, null));
         for (int k = 2; k < xref.length; k += 2) {
-            int pos = xref[k];
+            long pos = xref[k];
             if (pos <= 0 || xref[k + 1] > 0)
                 continue;
             tokens.seek(pos);
@@ -1082,7 +1255,7 @@ public class PdfReader implements PdfViewerPreferences {
                 tokens.throwError("Invalid generation number.");
             objGen = tokens.intValue();
             tokens.nextValidToken();
-            if (!tokens.getStringValue().equals("obj"))
+            if (!tokens.tokenEquals("obj"))
                 tokens.throwError("Token 'obj' expected.");
             PdfObject obj;
             try {
@@ -1114,8 +1287,8 @@ public class PdfReader implements PdfViewerPreferences {
     }
 
     private void checkPRStreamLength(PRStream stream) throws IOException {
-        int fileLength = tokens.length();
-        int start = stream.getOffset();
+        long fileLength = tokens.length();
+        long start = stream.getOffset();
         boolean calc = false;
         int streamLength = 0;
         PdfObject obj = getPdfObjectRelease(stream.get(PdfName.LENGTH));
@@ -1139,11 +1312,11 @@ public class PdfReader implements PdfViewerPreferences {
             byte tline[] = new byte[16];
             tokens.seek(start);
             while (true) {
-                int pos = tokens.getFilePointer();
+                long pos = tokens.getFilePointer();
                 if (!tokens.readLineSegment(tline))
                     break;
                 if (equalsn(tline, endstream)) {
-                    streamLength = pos - start;
+                    streamLength = (int)(pos - start);
                     break;
                 }
                 if (equalsn(tline, endobj)) {
@@ -1152,7 +1325,7 @@ public class PdfReader implements PdfViewerPreferences {
                     int index = s.indexOf("endstream");
                     if (index >= 0)
                         pos = pos - 16 + index;
-                    streamLength = pos - start;
+                    streamLength = (int)(pos - start);
                     break;
                 }
             }
@@ -1228,10 +1401,10 @@ public class PdfReader implements PdfViewerPreferences {
         if (size == 0)
             return;
         if (xref == null)
-            xref = new int[size];
+            xref = new long[size];
         else {
             if (xref.length < size) {
-                int xref2[] = new int[size];
+                long xref2[] = new long[size];
                 System.arraycopy(xref, 0, xref2, 0, xref.length);
                 xref = xref2;
             }
@@ -1243,12 +1416,12 @@ public class PdfReader implements PdfViewerPreferences {
         newXrefType = false;
         tokens.seek(tokens.getStartxref());
         tokens.nextToken();
-        if (!tokens.getStringValue().equals("startxref"))
+        if (!tokens.tokenEquals("startxref"))
             throw new IOException("startxref not found.");
         tokens.nextToken();
         if (tokens.getTokenType() != PRTokeniser.TK_NUMBER)
             throw new IOException("startxref is not followed by a number.");
-        int startxref = tokens.intValue();
+        long startxref = tokens.longValue();
         lastXref = startxref;
         eofPos = tokens.getFilePointer();
         try {
@@ -1266,22 +1439,22 @@ public class PdfReader implements PdfViewerPreferences {
             PdfNumber prev = (PdfNumber)trailer2.get(PdfName.PREV);
             if (prev == null)
                 break;
-            tokens.seek(prev.intValue());
+            tokens.seek(prev.longValue());
             trailer2 = readXrefSection();
         }
     }
 
     protected PdfDictionary readXrefSection() throws IOException {
         tokens.nextValidToken();
-        if (!tokens.getStringValue().equals("xref"))
+        if (!tokens.tokenEquals("xref"))
             tokens.throwError("xref subsection not found");
         int start = 0;
         int end = 0;
-        int pos = 0;
+        long pos = 0;
         int gen = 0;
         while (true) {
             tokens.nextValidToken();
-            if (tokens.getStringValue().equals("trailer"))
+            if (tokens.tokenEquals("trailer"))
                 break;
             if (tokens.getTokenType() != PRTokeniser.TK_NUMBER)
                 tokens.throwError("Object number of the first object in this xref subsection not found");
@@ -1291,9 +1464,9 @@ public class PdfReader implements PdfViewerPreferences {
                 tokens.throwError("Number of entries in this xref subsection not found");
             end = tokens.intValue() + start;
             if (start == 1) { // fix incorrect start number
-                int back = tokens.getFilePointer();
+                long back = tokens.getFilePointer();
                 tokens.nextValidToken();
-                pos = tokens.intValue();
+                pos = tokens.longValue();
                 tokens.nextValidToken();
                 gen = tokens.intValue();
                 if (pos == 0 && gen == 65535) {
@@ -1305,19 +1478,19 @@ public class PdfReader implements PdfViewerPreferences {
             ensureXrefSize(end * 2);
             for (int k = start; k < end; ++k) {
                 tokens.nextValidToken();
-                pos = tokens.intValue();
+                pos = tokens.longValue();
                 tokens.nextValidToken();
                 gen = tokens.intValue();
                 tokens.nextValidToken();
                 int p = k * 2;
-                if (tokens.getStringValue().equals("n")) {
+                if (tokens.tokenEquals("n")) {
                     if (xref[p] == 0 && xref[p + 1] == 0) {
 //                        if (pos == 0)
 //                            tokens.throwError("File position 0 cross-reference entry in this xref subsection");
                         xref[p] = pos;
                     }
                 }
-                else if (tokens.getStringValue().equals("f")) {
+                else if (tokens.tokenEquals("f")) {
                     if (xref[p] == 0 && xref[p + 1] == 0)
                         xref[p] = -1;
                 }
@@ -1330,7 +1503,7 @@ public class PdfReader implements PdfViewerPreferences {
         ensureXrefSize(xrefSize.intValue() * 2);
         PdfObject xrs = trailer.get(PdfName.XREFSTM);
         if (xrs != null && xrs.isNumber()) {
-            int loc = ((PdfNumber)xrs).intValue();
+            long loc = ((PdfNumber)xrs).longValue();
             try {
                 readXRefStream(loc);
                 newXrefType = true;
@@ -1344,7 +1517,7 @@ public class PdfReader implements PdfViewerPreferences {
         return trailer;
     }
 
-    protected boolean readXRefStream(int ptr) throws IOException {
+    protected boolean readXRefStream(long ptr) throws IOException {
         tokens.seek(ptr);
         int thisStream = 0;
         if (!tokens.nextToken())
@@ -1354,7 +1527,7 @@ public class PdfReader implements PdfViewerPreferences {
         thisStream = tokens.intValue();
         if (!tokens.nextToken() || tokens.getTokenType() != PRTokeniser.TK_NUMBER)
             return false;
-        if (!tokens.nextToken() || !tokens.getStringValue().equals("obj"))
+        if (!tokens.nextToken() || !tokens.tokenEquals("obj"))
             return false;
         PdfObject object = readPRObject();
         PRStream stm = null;
@@ -1380,10 +1553,10 @@ public class PdfReader implements PdfViewerPreferences {
         else
             index = (PdfArray)obj;
         PdfArray w = (PdfArray)stm.get(PdfName.W);
-        int prev = -1;
+        long prev = -1;
         obj = stm.get(PdfName.PREV);
         if (obj != null)
-            prev = ((PdfNumber)obj).intValue();
+            prev = ((PdfNumber)obj).longValue();
         // Each xref pair is a position
         // type 0 -> -1, 0
         // type 1 -> offset, 0
@@ -1392,7 +1565,7 @@ public class PdfReader implements PdfViewerPreferences {
         if (objStmMark == null && !partial)
             objStmMark = new HashMap();
         if (objStmToOffset == null && partial)
-            objStmToOffset = new IntHashtable();
+            objStmToOffset = new LongHashtable();
         byte b[] = getStreamBytes(stm, tokens.getFile());
         int bptr = 0;
         ArrayList wa = w.getArrayList();
@@ -1411,7 +1584,7 @@ public class PdfReader implements PdfViewerPreferences {
                     for (int k = 0; k < wc[0]; ++k)
                         type = (type << 8) + (b[bptr++] & 0xff);
                 }
-                int field2 = 0;
+                long field2 = 0;
                 for (int k = 0; k < wc[1]; ++k)
                     field2 = (field2 << 8) + (b[bptr++] & 0xff);
                 int field3 = 0;
@@ -1430,10 +1603,10 @@ public class PdfReader implements PdfViewerPreferences {
                             xref[base] = field3;
                             xref[base + 1] = field2;
                             if (partial) {
-                                objStmToOffset.put(field2, 0);
+                                objStmToOffset.put((int)field2, 0);
                             }
                             else {
-                                Integer on = Integer.valueOf(field2);
+                                Integer on = Integer.valueOf((int)field2);
                                 IntHashtable seq = (IntHashtable)objStmMark.get(on);
                                 if (seq == null) {
                                     seq = new IntHashtable();
@@ -1462,12 +1635,12 @@ public class PdfReader implements PdfViewerPreferences {
         hybridXref = false;
         newXrefType = false;
         tokens.seek(0);
-        int xr[][] = new int[1024][];
+        long xr[][] = new long[1024][];
         int top = 0;
         trailer = null;
         byte line[] = new byte[64];
         for (;;) {
-            int pos = tokens.getFilePointer();
+            long pos = tokens.getFilePointer();
             if (!tokens.readLineSegment(line))
                 break;
             if (line[0] == 't') {
@@ -1495,23 +1668,22 @@ public class PdfReader implements PdfViewerPreferences {
                 int gen = obj[1];
                 if (num >= xr.length) {
                     int newLength = num * 2;
-                    int xr2[][] = new int[newLength][];
+                    long xr2[][] = new long[newLength][];
                     System.arraycopy(xr, 0, xr2, 0, top);
                     xr = xr2;
                 }
                 if (num >= top)
                     top = num + 1;
                 if (xr[num] == null || gen >= xr[num][1]) {
-                    obj[0] = pos;
-                    xr[num] = obj;
+                    xr[num] = new long[]{pos, gen};
                 }
             }
         }
         if (trailer == null)
             throw new IOException("trailer not found.");
-        xref = new int[top * 2];
+        xref = new long[top * 2];
         for (int k = 0; k < top; ++k) {
-            int obj[] = xr[k];
+            long obj[] = xr[k];
             if (obj != null)
                 xref[k * 2] = obj[0];
         }
@@ -1525,7 +1697,7 @@ public class PdfReader implements PdfViewerPreferences {
                 break;
             if (tokens.getTokenType() != PRTokeniser.TK_NAME)
                 tokens.throwError("Dictionary key is not a name.");
-            PdfName name = new PdfName(tokens.getStringValue(), false);
+            PdfName name = PdfName.intern(tokens);
             PdfObject obj = readPRObject();
             int type = obj.type();
             if (-type == PRTokeniser.TK_END_DIC)
@@ -1557,9 +1729,9 @@ public class PdfReader implements PdfViewerPreferences {
         switch (type) {
             case PRTokeniser.TK_START_DIC: {
                 PdfDictionary dic = readDictionary();
-                int pos = tokens.getFilePointer();
+                long pos = tokens.getFilePointer();
                 // be careful in the trailer. May not be a "next" token.
-                if (tokens.nextToken() && tokens.getStringValue().equals("stream")) {
+                if (tokens.nextToken() && tokens.tokenEquals("stream")) {
                     int ch = tokens.read();
                     if (ch != '\n')
                         ch = tokens.read();
@@ -1586,18 +1758,17 @@ public class PdfReader implements PdfViewerPreferences {
                     strings.add(str);
                 return str;
             case PRTokeniser.TK_NAME:
-                return new PdfName(tokens.getStringValue(), false);
+                return PdfName.intern(tokens);
             case PRTokeniser.TK_REF:
                 int num = tokens.getReference();
                 PRIndirectReference ref = new PRIndirectReference(this, num, tokens.getGeneration());
                 return ref;
             default:
-                String sv = tokens.getStringValue();
-                if ("null".equals(sv))
+                if (tokens.tokenEquals("null"))
                     return PdfNull.PDFNULL;
-                else if ("true".equals(sv))
+                else if (tokens.tokenEquals("true"))
                     return PdfBoolean.PDFTRUE;
-                else if ("false".equals(sv))
+                else if (tokens.tokenEquals("false"))
                     return PdfBoolean.PDFFALSE;
                 return new PdfLiteral(-type, tokens.getStringValue());
         }
@@ -1946,6 +2117,8 @@ public class PdfReader implements PdfViewerPreferences {
      * @return the content
      */
     public byte[] getPageContent(int pageNum) throws IOException{
+        if (shared)
+            return getPageContent(pageNum, null);
         RandomAccessFileOrArray rf = getSafeFile();
         try {
             rf.reOpen();
@@ -2069,6 +2242,8 @@ public class PdfReader implements PdfViewerPreferences {
      * @return the stream content
      */
     public static byte[] getStreamBytes(PRStream stream) throws IOException {
+        if (stream.getReader().shared)
+            return getStreamBytes(stream, null);
         RandomAccessFileOrArray rf = stream.getReader().getSafeFile();
         try {
             rf.reOpen();
@@ -2081,7 +2256,7 @@ public class PdfReader implements PdfViewerPreferences {
 
     /** Get the content from a stream as it is without applying any filter.
      * @param stream the stream
-     * @param file the location where the stream is
+     * @param file the location where the stream is, not used if the reader is shared
      * @throws IOException on error
      * @return the stream content
      */
@@ -2092,9 +2267,17 @@ public class PdfReader implements PdfViewerPreferences {
             b = stream.getBytes();
         else {
             b = new byte[stream.getLength()];
-            file.seek(stream.getOffset());
-            file.readFully(b);
             PdfEncryption decrypt = reader.getDecrypt();
+            if (reader.shared) {
+                reader.sharedFile.readFully(stream.getOffset(), b, 0, b.length);
+                // the decryption keeps state, each thread needs its own
+                if (decrypt != null)
+                    decrypt = new PdfEncryption(decrypt);
+            }
+            else {
+                file.seek(stream.getOffset());
+                file.readFully(b);
+            }
             if (decrypt != null) {
                 PdfObject filter = getPdfObjectRelease(stream.get(PdfName.FILTER));
                 ArrayList filters = new ArrayList();
@@ -2127,6 +2310,8 @@ public class PdfReader implements PdfViewerPreferences {
      * @return the stream content
      */
     public static byte[] getStreamBytesRaw(PRStream stream) throws IOException {
+        if (stream.getReader().shared)
+            return getStreamBytesRaw(stream, null);
         RandomAccessFileOrArray rf = stream.getReader().getSafeFile();
         try {
             rf.reOpen();
@@ -2234,7 +2419,7 @@ public class PdfReader implements PdfViewerPreferences {
      * Gets the byte address of the last xref table.
      * @return the byte address of the last xref table
      */
-    public int getLastXref() {
+    public long getLastXref() {
         return lastXref;
     }
 
@@ -2250,7 +2435,7 @@ public class PdfReader implements PdfViewerPreferences {
      * Gets the byte address of the %%EOF marker.
      * @return the byte address of the %%EOF marker
      */
-    public int getEofPos() {
+    public long getEofPos() {
         return eofPos;
     }
 
@@ -2718,9 +2903,14 @@ public class PdfReader implements PdfViewerPreferences {
      * Closes the reader
      */
     public void close() {
-        if (!partial)
-            return;
         try {
+            if (sharedFile != null) {
+                shared = false;
+                sharedFile.close();
+                sharedFile = null;
+            }
+            if (!partial)
+                return;
             tokens.close();
         }
         catch (IOException e) {
@@ -2728,6 +2918,36 @@ public class PdfReader implements PdfViewerPreferences {
         }
     }
 
+    /**
+     * Lets several threads use this reader at the same time, for example to
+     * import its pages with <CODE>PdfWriter.getImportedPage</CODE> into many
+     * documents at once. The parsed objects are shared and the stream data is
+     * read at its position in a single open file, without a file pointer.
+     * <P>
+     * The reader can't have been opened in partial mode and must not be
+     * changed after this call. It stays open until <CODE>close()</CODE> is
+     * called, the writers that import its pages don't close it.
+     * @throws IOException on error
+     */
+    public void makeShared() throws IOException {
+        if (partial)
+            throw new UnsupportedOperationException("A PdfReader opened in partial mode can't be shared.");
+        if (shared)
+            return;
+        RandomAccessFileOrArray file = getSafeFile();
+        file.reOpen();
+        sharedFile = file;
+        shared = true;
+    }
+
+    /**
+     * Checks if this reader can be used by several threads at the same time.
+     * @return <CODE>true</CODE> if <CODE>makeShared()</CODE> was called
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
     protected void removeUnusedNode(PdfObject obj, boolean hits[]) {
         Stack state = new Stack();
         state.push(obj);
@@ -2992,7 +3212,7 @@ public class PdfReader implements PdfViewerPreferences {
      * Getter for property fileLength.
      * @return Value of property fileLength.
      */
-    public int getFileLength() {
+    public long getFileLength() {
         return fileLength;
     }
 
@@ -3264,6 +3484,11 @@ public class PdfReader implements PdfViewerPreferences {
                     if (n < base + acn) {
                         if (count == null) {
                             dic.mergeDifferent(acc);
+                            if (reader.objectCache != null) {
+                                // the inherited attributes are only in this copy, it's kept until released
+                                reader.xrefObj.set(ref.getNumber(), dic);
+                                reader.lastXrefPartial = ref.getNumber();
+                            }
                             return ref;
                         }
                         reader.releaseLastXrefPartial();
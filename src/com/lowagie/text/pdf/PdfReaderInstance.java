@@ -164,7 +164,8 @@ class PdfReaderInstance {
     
     void writeAllPages() throws IOException {
         try {
-            file.reOpen();
+            if (!reader.isShared())
+                file.reOpen();
             for (Iterator it = importedPages.values().iterator(); it.hasNext();) {
                 PdfImportedPage ip = (PdfImportedPage)it.next();
                 writer.addToBody(ip.getFormXObject(), ip.getIndirectReference());
@@ -173,7 +174,8 @@ class PdfReaderInstance {
         }
         finally {
             try {
-                reader.close();
+                if (!reader.isShared())
+                    reader.close();
                 file.close();
             }
             catch (Exception e) {
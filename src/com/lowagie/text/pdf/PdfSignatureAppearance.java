@@ -877,6 +877,8 @@ public class PdfSignatureAppearance {
         if (preClosed)
             throw new DocumentException("Document already pre closed.");
         preClosed = true;
+        // the byte range needs the real file positions of the reserved literals
+        writer.setCompressionExecutor(null);
         AcroFields af = writer.getAcroFields();
         String name = getFieldName();
         boolean fieldExists = !(isInvisible() || isNewField());
@@ -973,12 +975,12 @@ public class PdfSignatureAppearance {
         writer.close(stamper.getMoreInfo());
         
         range = new int[exclusionLocations.size() * 2];
-        int byteRangePosition = ((PdfLiteral)exclusionLocations.get(PdfName.BYTERANGE)).getPosition();
+        int byteRangePosition = (int)((PdfLiteral)exclusionLocations.get(PdfName.BYTERANGE)).getPosition();
         exclusionLocations.remove(PdfName.BYTERANGE);
         int idx = 1;
         for (Iterator it = exclusionLocations.values().iterator(); it.hasNext();) {
             PdfLiteral lit = (PdfLiteral)it.next();
-            int n = lit.getPosition();
+            int n = (int)lit.getPosition();
             range[idx++] = n;
             range[idx++] = lit.getPosLength() + n;
         }
@@ -1045,7 +1047,7 @@ public class PdfSignatureAppearance {
                 if (bf.size() > lit.getPosLength())
                     throw new IllegalArgumentException("The key " + key.toString() + " is too big. Is " + bf.size() + ", reserved " + lit.getPosLength());
                 if (tempFile == null)
-                    System.arraycopy(bf.getBuffer(), 0, bout, lit.getPosition(), bf.size());
+                    System.arraycopy(bf.getBuffer(), 0, bout, (int)lit.getPosition(), bf.size());
                 else {
                     raf.seek(lit.getPosition());
                     raf.write(bf.getBuffer(), 0, bf.size());
@@ -53,11 +53,14 @@ package com.lowagie.text.pdf;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import com.lowagie.text.Document;
 import com.lowagie.text.DocumentException;
-import java.util.Arrays;
+import com.lowagie.text.ExceptionConverter;
 
 /**
  * PdfSmartCopy has the same functionality as PdfCopy,
@@ -66,24 +69,60 @@ import java.util.Arrays;
  * in a cache, so that they can be reused.
  * This requires more memory, but reduces the file size
  * of the resulting PDF document.
+ * <P>
+ * Streams, dictionaries and arrays are compared by an MD5 digest of their
+ * content, with the keys sorted and with the objects they refer to already
+ * replaced by their copies. Only the digests are kept in the cache unless
+ * the full compare is set, then the content is compared byte by byte too.
+ * Pages and objects that are part of a loop of references are never shared.
  */
 
 public class PdfSmartCopy extends PdfCopy {
 
 	/** the cache with the streams and references. */
     private HashMap streamMap = null;
+    
+    /** the digest of the objects */
+    private MessageDigest md5;
+    
+    /** Holds value of property fullCompare. */
+    private boolean fullCompare = false;
 
     /** Creates a PdfSmartCopy instance. */
     public PdfSmartCopy(Document document, OutputStream os) throws DocumentException {
         super(document, os);
         this.streamMap = new HashMap();
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        }
+        catch (Exception e) {
+            throw new ExceptionConverter(e);
+        }
     }
+    
+    /** Getter for property fullCompare.
+     * @return Value of property fullCompare.
+     */
+    public boolean isFullCompare() {
+        return fullCompare;
+    }
+    
+    /** Setter for property fullCompare. If <CODE>true</CODE> the content of the
+     * objects is kept in the cache and the objects with the same digest are
+     * compared byte by byte before being shared. It's only needed if an MD5
+     * collision must be ruled out, at the cost of much more memory.
+     * @param fullCompare New value of property fullCompare.
+     */
+    public void setFullCompare(boolean fullCompare) {
+        this.fullCompare = fullCompare;
+    }
+    
     /**
      * Translate a PRIndirectReference to a PdfIndirectReference
      * In addition, translates the object numbers, and copies the
      * referenced object to the output file if it wasn't available
      * in the cache yet. If it's in the cache, the reference to
-     * the already used stream is returned.
+     * the already used object is returned.
      * 
      * NB: PRIndirectReferences (and PRIndirectObjects) really need to know what
      * file they came from, because each file has its own namespace. The translation
@@ -91,57 +130,127 @@ public class PdfSmartCopy extends PdfCopy {
      * fail under some circumstances.
      */
     protected PdfIndirectReference copyIndirect(PRIndirectReference in) throws IOException, BadPdfFormatException {
-        PdfObject srcObj = PdfReader.getPdfObjectRelease(in);
-        ByteStore streamKey = null;
-        boolean validStream = false;
-        if (srcObj.isStream() && !((PRStream)srcObj).contains(PdfName.BBOX)) {
-            validStream = true;
-            // Only the content and the key names is compared, probably the key values should also be compared
-            streamKey = new ByteStore((PRStream)srcObj);
-            PdfIndirectReference streamRef = (PdfIndirectReference) streamMap.get(streamKey);
-            if (streamRef != null) {
-                return streamRef;
-            }
-        }
-
-        PdfIndirectReference theRef;
         RefKey key = new RefKey(in);
         IndirectReferences iRef = (IndirectReferences) indirects.get(key);
         if (iRef != null) {
-            theRef = iRef.getRef();
+            if (iRef.getRef() == null) {
+                // the object is being copied and refers to itself, it can't be shared
+                iRef.theRef = body.getPdfIndirectReference();
+            }
             if (iRef.getCopied()) {
-                return theRef;
+                return iRef.getRef();
             }
-        } else {
-            theRef = body.getPdfIndirectReference();
-            iRef = new IndirectReferences(theRef);
+        }
+        PdfObject srcObj = PdfReader.getPdfObjectRelease(in);
+        boolean shareable = iRef == null && srcObj != null
+            && (srcObj.isStream() || srcObj.isDictionary() || srcObj.isArray());
+        if (srcObj != null && srcObj.isDictionary()) {
+            PdfObject type = PdfReader.getPdfObjectRelease(((PdfDictionary)srcObj).get(PdfName.TYPE));
+            if (type != null && (PdfName.PAGE.equals(type) || PdfName.PAGES.equals(type))) {
+                if (PdfName.PAGE.equals(type)) {
+                    if (iRef == null) {
+                        iRef = new IndirectReferences(body.getPdfIndirectReference());
+                        indirects.put(key, iRef);
+                    }
+                    return iRef.getRef();
+                }
+                shareable = false;
+            }
+        }
+        if (iRef == null) {
+            // the reference is only made when it's known that the object isn't shared
+            iRef = new IndirectReferences(shareable ? null : body.getPdfIndirectReference());
             indirects.put(key, iRef);
         }
         iRef.setCopied();
-
-        if (validStream) {
-            streamMap.put(streamKey, theRef);
-        }
-
+        
         PdfObject obj = copyObject(srcObj);
-        addToBody(obj, theRef);
-        return theRef;
+        if (shareable && iRef.getRef() == null) {
+            ByteStore objKey = new ByteStore(obj);
+            PdfIndirectReference objRef = (PdfIndirectReference) streamMap.get(objKey);
+            if (objRef != null) {
+                iRef.theRef = objRef;
+                return objRef;
+            }
+            iRef.theRef = body.getPdfIndirectReference();
+            streamMap.put(objKey, iRef.getRef());
+        }
+        addToBody(obj, iRef.getRef());
+        return iRef.getRef();
+    }
+    
+    /**
+     * Writes the canonical form of a copied object: the keys of the dictionaries
+     * are sorted, the references are the ones of the output and the content of a
+     * stream is left out.
+     */
+    private static void serObject(PdfObject obj, ByteBuffer bb) {
+        if (obj == null) {
+            bb.append("$Lnull ");
+            return;
+        }
+        switch (obj.type()) {
+            case PdfObject.INDIRECT:
+                bb.append("$R").append(((PdfIndirectReference)obj).getNumber()).append(' ');
+                break;
+            case PdfObject.STREAM:
+            case PdfObject.DICTIONARY: {
+                PdfDictionary dic = (PdfDictionary)obj;
+                bb.append(obj.isStream() ? "$T" : "$D");
+                Object[] keys = dic.getKeys().toArray();
+                Arrays.sort(keys);
+                for (int k = 0; k < keys.length; ++k) {
+                    // the length of a stream is given by its content
+                    if (obj.isStream() && PdfName.LENGTH.equals(keys[k]))
+                        continue;
+                    bb.append(((PdfName)keys[k]).getBytes()).append(' ');
+                    serObject(dic.get((PdfName)keys[k]), bb);
+                }
+                bb.append("$d");
+                break;
+            }
+            case PdfObject.ARRAY:
+                bb.append("$A");
+                for (Iterator it = ((PdfArray)obj).getArrayList().iterator(); it.hasNext();) {
+                    serObject((PdfObject)it.next(), bb);
+                }
+                bb.append("$a");
+                break;
+            case PdfObject.STRING: {
+                byte[] b = obj.getBytes();
+                bb.append(((PdfString)obj).isHexWriting() ? "$H" : "$S").append(b.length).append(' ').append(b);
+                break;
+            }
+            default:
+                bb.append("$L").append(obj.getBytes()).append(' ');
+        }
     }
 
-    static class ByteStore {
+    /** The MD5 digest of the canonical form of a copied object. */
+    class ByteStore {
+        private byte[] digest;
         private byte[] b;
         private int hash;
         
-        ByteStore(PRStream str) throws IOException {
-            byte[] streamContent = PdfReader.getStreamBytesRaw(str);
-            Object[] keys = str.getKeys().toArray();
-            Arrays.sort(keys);
-            ByteBuffer bb = new ByteBuffer();
-            for (int k = 0; k < keys.length; ++k) {
-                bb.append(keys[k].toString());
+        ByteStore(PdfObject obj) throws IOException {
+            ByteBuffer bb = ByteBuffer.obtain();
+            serObject(obj, bb);
+            byte[] content = null;
+            if (obj.isStream()) {
+                PdfStream stream = (PdfStream)obj;
+                content = stream instanceof PRStream ? PdfReader.getStreamBytesRaw((PRStream)stream) : stream.getBytes();
             }
-            bb.append(streamContent);
-            this.b = bb.toByteArray();
+            md5.reset();
+            md5.update(bb.getBuffer(), 0, bb.size());
+            if (content != null)
+                md5.update(content);
+            digest = md5.digest();
+            if (fullCompare) {
+                if (content != null)
+                    bb.append(content);
+                b = bb.toByteArray();
+            }
+            bb.recycle();
         }
 
         public boolean equals(Object obj) {
@@ -149,17 +258,19 @@ public class PdfSmartCopy extends PdfCopy {
                 return false;
             if (hashCode() != obj.hashCode())
                 return false;
-            return Arrays.equals(b, ((ByteStore)obj).b);
+            ByteStore other = (ByteStore)obj;
+            if (!Arrays.equals(digest, other.digest))
+                return false;
+            return b == null || other.b == null || Arrays.equals(b, other.b);
         }
 
         public int hashCode() {
             if (hash == 0) {
-                int len = b.length;
-                for (int k = 0; k < len; ++k) {
-                    hash = hash * 31 + (b[k] & 0xff);
+                for (int k = 0; k < 4; ++k) {
+                    hash = (hash << 8) | (digest[k] & 0xff);
                 }
             }
             return hash;
         }
     }
-}
\ No newline at end of file
+}
@@ -541,6 +541,21 @@ public class PdfStamper
         stamper.setFullCompression();
     }
 
+    /**
+     * Sets the document's compression to the new 1.5 mode with object streams and xref
+     * streams, with the given size and grouping of the object streams. In append mode
+     * the xref of the update must be of the same kind as the one of the original
+     * document: only the settings are changed and they apply if the original document
+     * has xref streams.
+     * @param settings the full compression settings
+     */
+    public void setFullCompression(PdfFullCompression settings) {
+        if (stamper.isAppend())
+            stamper.setFullCompressionSettings(settings);
+        else
+            stamper.setFullCompression(settings);
+    }
+
     /**
      * Sets the open and close page additional action.
      * @param actionType the action type. It can be <CODE>PdfWriter.PAGE_OPEN</CODE>
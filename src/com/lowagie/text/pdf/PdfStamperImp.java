@@ -103,6 +103,8 @@ class PdfStamperImp extends PdfWriter {
             throw new IllegalArgumentException("PdfReader not opened with owner password");
         if (reader.isTampered())
             throw new DocumentException("The original document was reused. Read it again from file.");
+        if (reader.isLazy())
+            throw new UnsupportedOperationException("A PdfReader opened in lazy mode can't be changed.");
         reader.setTampered(true);
         this.reader = reader;
         file = reader.getSafeFile();
@@ -194,6 +196,7 @@ class PdfStamperImp extends PdfWriter {
                 ar.add(PdfName.CRYPT);
                 xmp.put(PdfName.FILTER, ar);
             }
+            xmp.flateCompress(PdfCompression.XMP);
         	catalog.put(PdfName.METADATA, body.add(xmp).getIndirectReference());
         	markUsed(catalog);
         }
@@ -206,10 +209,18 @@ class PdfStamperImp extends PdfWriter {
             if (iInfo != null)
                 skip = iInfo.getNumber();
             int rootN = ((PRIndirectReference)reader.trailer.get(PdfName.ROOT)).getNumber();
+            IntHashtable objectPages = getObjectPages(reader);
+            int group = 0;
             if (append) {
                 int keys[] = marked.getKeys();
+                if (objectPages != null)
+                    sortByPage(keys, objectPages);
                 for (int k = 0; k < keys.length; ++k) {
                     int j = keys[k];
+                    if (objectPages != null && objectPages.get(j) != group) {
+                        body.endObjStmGroup();
+                        group = objectPages.get(j);
+                    }
                     PdfObject obj = reader.getPdfObjectRelease(j);
                     if (obj != null && skip != j && j < initialXrefSize) {
                         addToBody(obj, j, j != rootN);
@@ -223,7 +234,17 @@ class PdfStamperImp extends PdfWriter {
                 }
             }
             else {
-                for (int k = 1; k < reader.getXrefSize(); ++k) {
+                int keys[] = new int[reader.getXrefSize() - 1];
+                for (int k = 0; k < keys.length; ++k)
+                    keys[k] = k + 1;
+                if (objectPages != null)
+                    sortByPage(keys, objectPages);
+                for (int i = 0; i < keys.length; ++i) {
+                    int k = keys[i];
+                    if (objectPages != null && objectPages.get(k) != group) {
+                        body.endObjStmGroup();
+                        group = objectPages.get(k);
+                    }
                     PdfObject obj = reader.getPdfObjectRelease(k);
                     if (obj != null && skip != k) {
                         addToBody(obj, getNewObjectNumber(reader, k, 0), k != rootN);
@@ -360,7 +381,7 @@ class PdfStamperImp extends PdfWriter {
                 ar = new PdfArray();
                 pageN.put(PdfName.CONTENTS, ar);
             }
-            ByteBuffer out = new ByteBuffer();
+            ByteBuffer out = ByteBuffer.obtain();
             if (ps.under != null) {
                 out.append(PdfContents.SAVESTATE);
                 applyRotation(pageN, out);
@@ -370,7 +391,7 @@ class PdfStamperImp extends PdfWriter {
             if (ps.over != null)
                 out.append(PdfContents.SAVESTATE);
             PdfStream stream = new PdfStream(out.toByteArray());
-            stream.flateCompress();
+            stream.flateCompress(PdfCompression.PAGE_CONTENT);
             ar.addFirst(addToBody(stream).getIndirectReference());
             out.reset();
             if (ps.over != null) {
@@ -381,9 +402,10 @@ class PdfStamperImp extends PdfWriter {
                 out.append(ps.over.getInternalBuffer());
                 out.append(PdfContents.RESTORESTATE);
                 stream = new PdfStream(out.toByteArray());
-                stream.flateCompress();
+                stream.flateCompress(PdfCompression.PAGE_CONTENT);
                 ar.add(addToBody(stream).getIndirectReference());
             }
+            out.recycle();
             alterResources(ps);
         }
     }
@@ -53,7 +53,13 @@ package com.lowagie.text.pdf;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -93,9 +99,24 @@ public class PdfStream extends PdfDictionary {
     protected ByteArrayOutputStream streamBytes = null;
     protected InputStream inputStream;
     protected PdfIndirectReference ref;
-    protected int inputStreamLength = -1;
+    protected long inputStreamLength = -1;
     protected PdfWriter writer;
     protected int rawLength;
+    
+/** is the stream marked as compressed while its data is still waiting to be deflated? */
+    protected boolean deflatePending = false;
+    
+/** the deflation running on a compression executor, if any */
+    private FutureTask deflateTask;
+    
+/** the class of this stream in the writer's <CODE>PdfCompression</CODE> */
+    protected int compressionCategory = PdfCompression.OTHER;
+    
+/** the pooled buffer holding the data until it is deflated or written */
+    private ByteBuffer pooledBytes;
+    
+/** the filter the stream had before <CODE>flateCompress</CODE> was called */
+    private PdfObject originalFilter;
         
     static final byte STARTSTREAM[] = DocWriter.getISOBytes("stream\n");
     static final byte ENDSTREAM[] = DocWriter.getISOBytes("\nendstream");
@@ -116,6 +137,20 @@ public class PdfStream extends PdfDictionary {
         rawLength = bytes.length;
         put(PdfName.LENGTH, new PdfNumber(bytes.length));
     }
+    
+    /**
+     * Constructs a stream that takes over a pooled byte buffer. The data is
+     * deflated from the buffer, also on the compression executor, and the
+     * buffer is recycled by the thread that writes the stream.
+     * @param buf the content of the stream, it must not be used by the caller any more
+     */
+    PdfStream(ByteBuffer buf) {
+        super();
+        type = STREAM;
+        pooledBytes = buf;
+        rawLength = buf.size();
+        put(PdfName.LENGTH, new PdfNumber(rawLength));
+    }
   
     /**
      * Creates an efficient stream. No temporary array is ever created. The <CODE>InputStream</CODE>
@@ -137,6 +172,7 @@ public class PdfStream extends PdfDictionary {
         type = STREAM;
         this.inputStream = inputStream;
         this.writer = writer;
+        compressionCategory = PdfCompression.INPUT_STREAM;
         ref = writer.getPdfIndirectReference();
         put(PdfName.LENGTH, ref);
     }
@@ -179,18 +215,38 @@ public class PdfStream extends PdfDictionary {
      */
     
     public void flateCompress() {
+        flateCompress(inputStream == null ? PdfCompression.OTHER : PdfCompression.INPUT_STREAM, false);
+    }
+    
+    /**
+     * Compresses the stream with the settings the writer has for a class
+     * of streams. The stream dictionary is updated at once but the data is
+     * only deflated when the stream is written, or earlier on the writer's
+     * compression executor. If the class is stored the stream is written
+     * without compression.
+     * @param category the class of the stream, for example <CODE>PdfCompression.PAGE_CONTENT</CODE>
+     * @see PdfWriter#setCompression(PdfCompression)
+     * @see PdfWriter#setCompressionExecutor(Executor)
+     */
+    public void flateCompress(int category) {
+        flateCompress(category, true);
+    }
+    
+    private void flateCompress(int category, boolean deferred) {
         if (!Document.compress)
             return;
         // check if the flateCompress-method has already been
         if (compressed) {
             return;
         }
+        compressionCategory = category;
         if (inputStream != null) {
             compressed = true;
             return;
         }
         // check if a filter already exists
-        PdfObject filter = PdfReader.getPdfObject(get(PdfName.FILTER));
+        originalFilter = get(PdfName.FILTER);
+        PdfObject filter = PdfReader.getPdfObject(originalFilter);
         if (filter != null) {
             if (filter.isName()) {
                 if (PdfName.FLATEDECODE.equals(filter))
@@ -204,32 +260,157 @@ public class PdfStream extends PdfDictionary {
                 throw new RuntimeException("Stream could not be compressed: filter is not a name or array.");
             }
         }
+        if (filter == null) {
+            put(PdfName.FILTER, PdfName.FLATEDECODE);
+        }
+        else {
+            PdfArray filters = new PdfArray(filter);
+            filters.add(PdfName.FLATEDECODE);
+            put(PdfName.FILTER, filters);
+        }
+        compressed = true;
+        if (deferred) {
+            deflatePending = true;
+            return;
+        }
         try {
-            // compress
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            DeflaterOutputStream zip = new DeflaterOutputStream(stream);
+            setDeflated(deflate(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, PdfCompression.DEFAULT_BUFFER_SIZE));
+        }
+        catch(IOException ioe) {
+            throw new ExceptionConverter(ioe);
+        }
+    }
+    
+    /**
+     * Deflates the data of this stream. The stream itself is not changed, so
+     * this method can run on a thread other than the one writing the document.
+     * @param level the compression level
+     * @param strategy the deflater strategy
+     * @param bufferSize the buffer size of the deflating stream
+     * @return the compressed data
+     * @throws IOException on error
+     */
+    private ByteArrayOutputStream deflate(int level, int strategy, int bufferSize) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setStrategy(strategy);
+            DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater, bufferSize);
             if (streamBytes != null)
                 streamBytes.writeTo(zip);
+            else if (pooledBytes != null)
+                zip.write(pooledBytes.getBuffer(), 0, pooledBytes.size());
             else
                 zip.write(bytes);
             zip.close();
-            // update the object
-            streamBytes = stream;
-            bytes = null;
-            put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
-            if (filter == null) {
-                put(PdfName.FILTER, PdfName.FLATEDECODE);
+        }
+        finally {
+            deflater.end();
+        }
+        return stream;
+    }
+    
+    private void setDeflated(ByteArrayOutputStream stream) {
+        streamBytes = stream;
+        bytes = null;
+        if (pooledBytes != null) {
+            pooledBytes.recycle();
+            pooledBytes = null;
+        }
+        put(PdfName.LENGTH, new PdfNumber(streamBytes.size()));
+    }
+    
+    /**
+     * Undoes a deferred compression: the stream gets its original filter back
+     * and keeps its data as it is.
+     */
+    private void setStored() {
+        if (originalFilter == null)
+            remove(PdfName.FILTER);
+        else
+            put(PdfName.FILTER, originalFilter);
+        compressed = false;
+        deflatePending = false;
+    }
+    
+    private static PdfCompression getCompression(PdfWriter writer) {
+        return writer == null ? null : writer.getCompression();
+    }
+    
+    /**
+     * Starts the deflation of a stream compressed with <CODE>flateCompress(int)</CODE>
+     * on the writer's compression executor. If the executor refuses the task the data will be
+     * deflated when the stream is written.
+     * @param writer the writer with the compression settings and the executor
+     */
+    void startDeflate(PdfWriter writer) {
+        if (!deflatePending || deflateTask != null)
+            return;
+        PdfCompression compression = getCompression(writer);
+        if (compression != null && compression.isStored(compressionCategory)) {
+            setStored();
+            return;
+        }
+        Executor executor = writer == null ? null : writer.getCompressionExecutor();
+        if (executor == null)
+            return;
+        final int level = compression == null ? Deflater.DEFAULT_COMPRESSION : compression.getLevel(compressionCategory);
+        final int strategy = compression == null ? Deflater.DEFAULT_STRATEGY : compression.getStrategy(compressionCategory);
+        final int bufferSize = compression == null ? PdfCompression.DEFAULT_BUFFER_SIZE : compression.getBufferSize(compressionCategory);
+        FutureTask task = new FutureTask(new Callable() {
+            public Object call() throws Exception {
+                return deflate(level, strategy, bufferSize);
             }
-            else {
-                PdfArray filters = new PdfArray(filter);
-                filters.add(PdfName.FLATEDECODE);
-                put(PdfName.FILTER, filters);
+        });
+        try {
+            executor.execute(task);
+            deflateTask = task;
+        }
+        catch (RejectedExecutionException ree) {
+            // deflated on the calling thread when written
+        }
+    }
+    
+    /**
+     * Waits for a pending deflation to finish, or does it right away if it
+     * was never started, and stores the compressed data in this stream.
+     * @param writer the writer with the compression settings, may be <CODE>null</CODE>
+     * @throws IOException on error
+     */
+    void awaitDeflate(PdfWriter writer) throws IOException {
+        if (!deflatePending)
+            return;
+        if (deflateTask == null) {
+            PdfCompression compression = getCompression(writer);
+            if (compression == null)
+                setDeflated(deflate(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, PdfCompression.DEFAULT_BUFFER_SIZE));
+            else if (compression.isStored(compressionCategory)) {
+                setStored();
+                return;
             }
-            compressed = true;
+            else
+                setDeflated(deflate(compression.getLevel(compressionCategory),
+                    compression.getStrategy(compressionCategory), compression.getBufferSize(compressionCategory)));
         }
-        catch(IOException ioe) {
-            throw new ExceptionConverter(ioe);
+        else {
+            try {
+                setDeflated((ByteArrayOutputStream)deflateTask.get());
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the stream compression.");
+            }
+            catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException)cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                throw new ExceptionConverter(ee);
+            }
+            deflateTask = null;
         }
+        deflatePending = false;
     }
 
 //    public int getStreamLength(PdfWriter writer) {
@@ -249,6 +430,16 @@ public class PdfStream extends PdfDictionary {
      * @see com.lowagie.text.pdf.PdfDictionary#toPdf(com.lowagie.text.pdf.PdfWriter, java.io.OutputStream)
      */
     public void toPdf(PdfWriter writer, OutputStream os) throws IOException {
+        awaitDeflate(writer);
+        if (pooledBytes != null) {
+            // written as it is
+            bytes = pooledBytes.toByteArray();
+            pooledBytes.recycle();
+            pooledBytes = null;
+        }
+        PdfCompression compression = getCompression(writer);
+        if (inputStream != null && compressed && compression != null && compression.isStored(compressionCategory))
+            compressed = false;
         if (inputStream != null && compressed)
             put(PdfName.FILTER, PdfName.FLATEDECODE);
         PdfEncryption crypto = null;
@@ -284,8 +475,17 @@ public class PdfStream extends PdfDictionary {
             OutputStream fout = osc;
             if (crypto != null)
                 fout = ose = crypto.getEncryptionStream(fout);
-            if (compressed)    
-                fout = def = new DeflaterOutputStream(fout, new Deflater(Deflater.BEST_COMPRESSION), 0x8000);
+            Deflater deflater = null;
+            if (compressed) {
+                if (compression == null) {
+                    deflater = new Deflater(Deflater.BEST_COMPRESSION);
+                    fout = def = new DeflaterOutputStream(fout, deflater, 0x8000);
+                }
+                else {
+                    deflater = compression.createDeflater(compressionCategory);
+                    fout = def = new DeflaterOutputStream(fout, deflater, compression.getBufferSize(compressionCategory));
+                }
+            }
             
             byte buf[] = new byte[4192];
             while (true) {
@@ -295,8 +495,10 @@ public class PdfStream extends PdfDictionary {
                 fout.write(buf, 0, n);
                 rawLength += n;
             }
-            if (def != null)
+            if (def != null) {
                 def.finish();
+                deflater.end();
+            }
             if (ose != null)
                 ose.finish();
             inputStreamLength = osc.getCounter();
@@ -328,8 +530,11 @@ public class PdfStream extends PdfDictionary {
      * @throws IOException on error
      */    
     public void writeContent(OutputStream os) throws IOException {
+        awaitDeflate(writer);
         if (streamBytes != null)
             streamBytes.writeTo(os);
+        else if (pooledBytes != null)
+            pooledBytes.writeTo(os);
         else if (bytes != null)
             os.write(bytes);
     }
@@ -54,12 +54,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import java.security.cert.Certificate;
 
 import com.lowagie.text.DocListener;
@@ -131,7 +133,7 @@ public class PdfWriter extends DocWriter implements
             private int type;
             
             /**	Byte offset in the PDF file. */
-            private int offset;
+            private long offset;
             
             private int refnum;
             /**	generation of the object. */
@@ -145,7 +147,7 @@ public class PdfWriter extends DocWriter implements
              * @param	generation	generationnumber of the object
              */
             
-            PdfCrossReference(int refnum, int offset, int generation) {
+            PdfCrossReference(int refnum, long offset, int generation) {
                 type = 0;
                 this.offset = offset;
                 this.refnum = refnum;
@@ -158,14 +160,14 @@ public class PdfWriter extends DocWriter implements
              * @param	offset		byte offset of the object
              */
             
-            PdfCrossReference(int refnum, int offset) {
+            PdfCrossReference(int refnum, long offset) {
                 type = 1;
                 this.offset = offset;
                 this.refnum = refnum;
                 this.generation = 0;
             }
             
-            PdfCrossReference(int type, int refnum, int offset, int generation) {
+            PdfCrossReference(int type, int refnum, long offset, int generation) {
                 this.type = type;
                 this.offset = offset;
                 this.refnum = refnum;
@@ -176,6 +178,10 @@ public class PdfWriter extends DocWriter implements
                 return refnum;
             }
             
+            long getOffset() {
+                return offset;
+            }
+            
             /**
              * Returns the PDF representation of this <CODE>PdfObject</CODE>.
              * @param os
@@ -183,13 +189,23 @@ public class PdfWriter extends DocWriter implements
              */
             
             public void toPdf(OutputStream os) throws IOException {
-                StringBuffer off = new StringBuffer("0000000000").append(offset);
-                off.delete(0, off.length() - 10);
-                StringBuffer gen = new StringBuffer("00000").append(generation);
-                gen.delete(0, gen.length() - 5);
-
-                off.append(' ').append(gen).append(generation == 65535 ? " f \n" : " n \n");
-                os.write(getISOBytes(off.toString()));
+                byte line[] = new byte[20];
+                long off = offset;
+                for (int k = 9; k >= 0; --k) {
+                    line[k] = (byte)('0' + off % 10);
+                    off /= 10;
+                }
+                line[10] = ' ';
+                int gen = generation;
+                for (int k = 15; k >= 11; --k) {
+                    line[k] = (byte)('0' + gen % 10);
+                    gen /= 10;
+                }
+                line[16] = ' ';
+                line[17] = (byte)(generation == 65535 ? 'f' : 'n');
+                line[18] = ' ';
+                line[19] = '\n';
+                os.write(line);
             }
             
             /**
@@ -235,7 +251,28 @@ public class PdfWriter extends DocWriter implements
 
         }
 
-        private static final int OBJSINSTREAM = 200;
+        /**
+         * An object waiting to be written because a stream before it, or the object
+         * itself, is still being compressed on the writer's compression executor.
+         */
+        static class PendingObject {
+            
+            int refnum;
+            /** a stream whose deflation is running */
+            PdfIndirectObject indirect;
+            /** the already serialized bytes of any other object */
+            ByteBuffer bytes;
+            
+            PendingObject(PdfIndirectObject indirect) {
+                this.refnum = indirect.number;
+                this.indirect = indirect;
+            }
+            
+            PendingObject(int refnum, ByteBuffer bytes) {
+                this.refnum = refnum;
+                this.bytes = bytes;
+            }
+        }
         
         // membervariables
         
@@ -243,12 +280,14 @@ public class PdfWriter extends DocWriter implements
         private TreeSet xrefs;
         private int refnum;
         /** the current byteposition in the body. */
-        private int position;
+        private long position;
         private PdfWriter writer;
         private ByteBuffer index;
         private ByteBuffer streamObjects;
         private int currentObjNum;
         private int numObj = 0;
+        /** the objects not yet written, in output order */
+        private ArrayList pending = new ArrayList();
         
         // constructors
         
@@ -271,11 +310,13 @@ public class PdfWriter extends DocWriter implements
         }
         
         private PdfWriter.PdfBody.PdfCrossReference addToObjStm(PdfObject obj, int nObj) throws IOException {
-            if (numObj >= OBJSINSTREAM)
+            PdfFullCompression settings = writer.getFullCompression();
+            if (numObj >= settings.getObjectsPerStream()
+                || (settings.getMaxStreamSize() > 0 && streamObjects != null && streamObjects.size() >= settings.getMaxStreamSize()))
                 flushObjStm();
             if (index == null) {
-                index = new ByteBuffer();
-                streamObjects = new ByteBuffer();
+                index = ByteBuffer.obtain();
+                streamObjects = ByteBuffer.obtain();
                 currentObjNum = getIndirectReferenceNumber();
                 numObj = 0;
             }
@@ -295,8 +336,10 @@ public class PdfWriter extends DocWriter implements
                 return;
             int first = index.size();
             index.append(streamObjects);
-            PdfStream stream = new PdfStream(index.toByteArray());
-            stream.flateCompress();
+            streamObjects.recycle();
+            // the stream recycles the index once it is deflated and written
+            PdfStream stream = new PdfStream(index);
+            stream.flateCompress(PdfCompression.OBJECT_STREAM);
             stream.put(PdfName.TYPE, PdfName.OBJSTM);
             stream.put(PdfName.N, new PdfNumber(numObj));
             stream.put(PdfName.FIRST, new PdfNumber(first));
@@ -306,6 +349,16 @@ public class PdfWriter extends DocWriter implements
             numObj = 0;
         }
         
+        /**
+         * Closes the current object stream if the objects are grouped by page,
+         * so that the objects that follow are in another one.
+         * @throws IOException on error
+         */
+        synchronized void endObjStmGroup() throws IOException {
+            if (writer.isFullCompression() && writer.getFullCompression().isGroupByPage())
+                flushObjStm();
+        }
+        
         /**
          * Adds a <CODE>PdfObject</CODE> to the body.
          * <P>
@@ -337,7 +390,7 @@ public class PdfWriter extends DocWriter implements
             return new PdfIndirectReference(0, getIndirectReferenceNumber());
         }
         
-        int getIndirectReferenceNumber() {
+        synchronized int getIndirectReferenceNumber() {
             int n = refnum++;
             xrefs.add(new PdfCrossReference(n, 0, 65536));
             return n;
@@ -371,7 +424,7 @@ public class PdfWriter extends DocWriter implements
             return add(object, refNumber, true); // to false
         }
         
-        PdfIndirectObject add(PdfObject object, int refNumber, boolean inObjStm) throws IOException {
+        synchronized PdfIndirectObject add(PdfObject object, int refNumber, boolean inObjStm) throws IOException {
             if (inObjStm && object.canBeInObjStm() && writer.isFullCompression()) {
                 PdfCrossReference pxref = addToObjStm(object, refNumber);
                 PdfIndirectObject indirect = new PdfIndirectObject(refNumber, object, writer);
@@ -383,6 +436,8 @@ public class PdfWriter extends DocWriter implements
             }
             else {
                 PdfIndirectObject indirect = new PdfIndirectObject(refNumber, object, writer);
+                if (addPending(indirect))
+                    return indirect;
                 PdfCrossReference pxref = new PdfCrossReference(refNumber, position);
                 if (!xrefs.add(pxref)) {
                     xrefs.remove(pxref);
@@ -394,13 +449,75 @@ public class PdfWriter extends DocWriter implements
             }
         }
         
+        /**
+         * Queues an object if it can't be written right away. A stream waiting
+         * for compression is queued and its deflation is started on the
+         * compression executor; any object that follows it is serialized at once
+         * and queued behind it, so that the output order never changes.
+         * @param indirect the object to write
+         * @return <CODE>true</CODE> if the object was queued
+         * @throws IOException on error
+         */
+        private boolean addPending(PdfIndirectObject indirect) throws IOException {
+            Executor executor = writer.getCompressionExecutor();
+            PdfObject object = indirect.object;
+            boolean deflating = executor != null && object.isStream() && ((PdfStream)object).deflatePending;
+            if (!deflating && pending.isEmpty())
+                return false;
+            if (executor == null || (object.isStream() && ((PdfStream)object).inputStream != null)) {
+                // the length of an InputStream stream must be known as soon as it is added
+                flushPending();
+                return false;
+            }
+            if (deflating) {
+                ((PdfStream)object).startDeflate(writer);
+                pending.add(new PendingObject(indirect));
+            }
+            else {
+                ByteBuffer buf = ByteBuffer.obtain();
+                indirect.writeTo(buf);
+                pending.add(new PendingObject(indirect.number, buf));
+            }
+            while (pending.size() > writer.getCompressionQueueSize())
+                writePending((PendingObject)pending.remove(0));
+            return true;
+        }
+        
+        private void writePending(PendingObject p) throws IOException {
+            PdfCrossReference pxref = new PdfCrossReference(p.refnum, position);
+            if (!xrefs.add(pxref)) {
+                xrefs.remove(pxref);
+                xrefs.add(pxref);
+            }
+            if (p.bytes != null) {
+                p.bytes.writeTo(writer.getOs());
+                p.bytes.recycle();
+            }
+            else {
+                if (writer.crypto != null)
+                    writer.crypto.setHashKey(p.indirect.number, p.indirect.generation);
+                p.indirect.writeTo(writer.getOs());
+            }
+            position = writer.getOs().getCounter();
+        }
+        
+        /**
+         * Writes all the queued objects, waiting for their compression if needed.
+         * @throws IOException on error
+         */
+        synchronized void flushPending() throws IOException {
+            for (int k = 0; k < pending.size(); ++k)
+                writePending((PendingObject)pending.get(k));
+            pending.clear();
+        }
+        
         /**
          * Returns the offset of the Cross-Reference table.
          *
          * @return		an offset
          */
         
-        int offset() {
+        long offset() {
             return position;
         }
         
@@ -425,13 +542,16 @@ public class PdfWriter extends DocWriter implements
          * @throws IOException
          */
         
-        void writeCrossReferenceTable(OutputStream os, PdfIndirectReference root, PdfIndirectReference info, PdfIndirectReference encryption, PdfObject fileID, int prevxref) throws IOException {
+        void writeCrossReferenceTable(OutputStream os, PdfIndirectReference root, PdfIndirectReference info, PdfIndirectReference encryption, PdfObject fileID, long prevxref) throws IOException {
             int refNumber = 0;
             if (writer.isFullCompression()) {
                 flushObjStm();
+                flushPending();
                 refNumber = getIndirectReferenceNumber();
                 xrefs.add(new PdfCrossReference(refNumber, position));
             }
+            else
+                flushPending();
             PdfCrossReference entry = (PdfCrossReference)xrefs.first();
             int first = entry.getRefnum();
             int len = 0;
@@ -450,22 +570,22 @@ public class PdfWriter extends DocWriter implements
             sections.add(Integer.valueOf(first));
             sections.add(Integer.valueOf(len));
             if (writer.isFullCompression()) {
-                int mid = 4;
-                int mask = 0xff000000;
-                for (; mid > 1; --mid) {
-                    if ((mask & position) != 0)
-                        break;
-                    mask >>>= 8;
-                }
-                ByteBuffer buf = new ByteBuffer();
+                // the field width is taken from the largest offset actually written
+                long maxOffset = 0;
+                for (Iterator i = xrefs.iterator(); i.hasNext(); )
+                    maxOffset = Math.max(maxOffset, ((PdfCrossReference)i.next()).getOffset());
+                int mid = 1;
+                while (mid < 8 && (maxOffset >>> (8 * mid)) != 0)
+                    ++mid;
+                ByteBuffer buf = ByteBuffer.obtain(xrefs.size() * (mid + 3));
                 
                 for (Iterator i = xrefs.iterator(); i.hasNext(); ) {
                     entry = (PdfCrossReference) i.next();
                     entry.toPdf(mid, buf);
                 }
-                PdfStream xr = new PdfStream(buf.toByteArray());
+                PdfStream xr = new PdfStream(buf);
                 buf = null;
-                xr.flateCompress();
+                xr.flateCompress(PdfCompression.OBJECT_STREAM);
                 xr.put(PdfName.SIZE, new PdfNumber(size()));
                 xr.put(PdfName.ROOT, root);
                 if (info != null) {
@@ -519,7 +639,7 @@ public class PdfWriter extends DocWriter implements
         
         // membervariables
         
-        int offset;
+        long offset;
         
         // constructors
         
@@ -535,7 +655,7 @@ public class PdfWriter extends DocWriter implements
          * @param prevxref
          */
         
-        PdfTrailer(int size, int offset, PdfIndirectReference root, PdfIndirectReference info, PdfIndirectReference encryption, PdfObject fileID, int prevxref) {
+        PdfTrailer(int size, long offset, PdfIndirectReference root, PdfIndirectReference info, PdfIndirectReference encryption, PdfObject fileID, long prevxref) {
             this.offset = offset;
             put(PdfName.SIZE, new PdfNumber(size));
             put(PdfName.ROOT, root);
@@ -1067,7 +1187,7 @@ public class PdfWriter extends DocWriter implements
 //	Open en Close method + method that create the PDF
 
     /** A number refering to the previous Cross-Reference Table. */
-    protected int prevxref = 0;
+    protected long prevxref = 0;
     
     /**
      * Signals that the <CODE>Document</CODE> has been opened and that
@@ -1129,6 +1249,7 @@ public class PdfWriter extends DocWriter implements
                         ar.add(PdfName.CRYPT);
                         xmp.put(PdfName.FILTER, ar);
                     }
+                    xmp.flateCompress(PdfCompression.XMP);
                 	catalog.put(PdfName.METADATA, body.add(xmp).getIndirectReference());
                 }
                 // [C10] make pdfx conformant
@@ -1909,6 +2030,199 @@ public class PdfWriter extends DocWriter implements
         setAtLeastPdfVersion(VERSION_1_5);
     }
     
+    /** Holds value of property fullCompressionSettings. */
+    protected PdfFullCompression fullCompressionSettings = new PdfFullCompression();
+    
+    /**
+     * Use this method to get the settings of the object streams written in
+     * full compression. The returned settings can be changed directly.
+     * @return the full compression settings
+     */
+    public PdfFullCompression getFullCompression() {
+        return fullCompressionSettings;
+    }
+    
+    /**
+     * Use this method to set the document's compression to the PDF 1.5 mode
+     * with object streams and xref streams, with the given size and grouping
+     * of the object streams.
+     * @param settings the full compression settings
+     * @see #setFullCompression()
+     */
+    public void setFullCompression(PdfFullCompression settings) {
+        setFullCompressionSettings(settings);
+        setFullCompression();
+    }
+    
+    /**
+     * Sets the settings of the object streams without turning the full
+     * compression on.
+     * @param settings the full compression settings
+     */
+    void setFullCompressionSettings(PdfFullCompression settings) {
+        if (settings == null)
+            throw new NullPointerException("The full compression settings can't be null.");
+        this.fullCompressionSettings = settings;
+    }
+    
+    /**
+     * Gets the pages that use the objects of a reader, to write them grouped
+     * by page. The pages are gone through in order, following the references
+     * of each one except the ones to its parent and to other pages, and an
+     * object is given the first page that reaches it.
+     * @param reader the reader
+     * @return the page numbers keyed by object number or <CODE>null</CODE>
+     * if the objects are not grouped by page
+     */
+    IntHashtable getObjectPages(PdfReader reader) {
+        if (!fullCompression || !fullCompressionSettings.isGroupByPage())
+            return null;
+        IntHashtable objectPages = new IntHashtable();
+        ArrayList stack = new ArrayList();
+        int n = reader.getNumberOfPages();
+        for (int p = 1; p <= n; ++p) {
+            PRIndirectReference pageRef = reader.getPageOrigRef(p);
+            PdfDictionary page = reader.getPageNRelease(p);
+            if (pageRef == null || page == null || objectPages.containsKey(pageRef.getNumber()))
+                continue;
+            objectPages.put(pageRef.getNumber(), p);
+            for (Iterator it = page.getKeys().iterator(); it.hasNext();) {
+                PdfName key = (PdfName)it.next();
+                if (!PdfName.PARENT.equals(key))
+                    stack.add(page.get(key));
+            }
+            while (!stack.isEmpty()) {
+                PdfObject obj = (PdfObject)stack.remove(stack.size() - 1);
+                if (obj == null)
+                    continue;
+                if (obj.isIndirect()) {
+                    if (!(obj instanceof PRIndirectReference))
+                        continue;
+                    int num = ((PRIndirectReference)obj).getNumber();
+                    if (objectPages.containsKey(num))
+                        continue;
+                    PdfObject target = PdfReader.getPdfObjectRelease(obj);
+                    if (target == null)
+                        continue;
+                    if (target instanceof PdfDictionary) {
+                        PdfObject type = ((PdfDictionary)target).get(PdfName.TYPE);
+                        if (PdfName.PAGE.equals(type) || PdfName.PAGES.equals(type))
+                            continue;
+                    }
+                    objectPages.put(num, p);
+                    obj = target;
+                }
+                if (obj instanceof PdfDictionary) {
+                    PdfDictionary dic = (PdfDictionary)obj;
+                    for (Iterator it = dic.getKeys().iterator(); it.hasNext();)
+                        stack.add(dic.get((PdfName)it.next()));
+                }
+                else if (obj.isArray())
+                    stack.addAll(((PdfArray)obj).getArrayList());
+            }
+        }
+        return objectPages;
+    }
+    
+    /**
+     * Sorts object numbers by the page that uses them, the objects without
+     * a page last, and by number in the same page.
+     * @param numbers the object numbers, sorted in place
+     * @param objectPages the pages keyed by object number
+     */
+    static void sortByPage(int numbers[], IntHashtable objectPages) {
+        long keys[] = new long[numbers.length];
+        for (int k = 0; k < numbers.length; ++k) {
+            int page = objectPages.get(numbers[k]);
+            if (page == 0)
+                page = Integer.MAX_VALUE;
+            keys[k] = ((long)page << 32) | numbers[k];
+        }
+        Arrays.sort(keys);
+        for (int k = 0; k < numbers.length; ++k)
+            numbers[k] = (int)keys[k];
+    }
+    
+    /** Holds value of property compressionExecutor. */
+    protected Executor compressionExecutor;
+    
+    /** Holds value of property compressionQueueSize. */
+    protected int compressionQueueSize = 32;
+    
+    /**
+     * Use this method to get the executor that deflates the streams of this document.
+     * @return the compression executor or <CODE>null</CODE> if the streams
+     * are compressed on the thread writing the document
+     */
+    public Executor getCompressionExecutor() {
+        return compressionExecutor;
+    }
+    
+    /**
+     * Use this method to deflate the page contents, images, embedded fonts and object
+     * streams on worker threads. The streams are still written in the order they were
+     * added, the output is the same as without an executor: objects that follow a
+     * stream being compressed are kept in memory until it is done.
+     * <p>
+     * Setting the executor to <CODE>null</CODE> writes out everything that is still
+     * waiting. The executor is not shut down by the writer.
+     * @param compressionExecutor the executor or <CODE>null</CODE> to compress on
+     * the calling thread
+     */
+    public void setCompressionExecutor(Executor compressionExecutor) {
+        this.compressionExecutor = compressionExecutor;
+        if (compressionExecutor == null && body != null) {
+            try {
+                body.flushPending();
+            }
+            catch (IOException ioe) {
+                throw new ExceptionConverter(ioe);
+            }
+        }
+    }
+    
+    /**
+     * Use this method to get the number of objects that can wait for a stream compression.
+     * @return the maximum number of queued objects
+     */
+    public int getCompressionQueueSize() {
+        return compressionQueueSize;
+    }
+    
+    /**
+     * Use this method to limit the number of objects kept in memory while streams
+     * are being compressed on the compression executor. When the limit is reached
+     * the oldest object is written, waiting for its compression if needed.
+     * @param compressionQueueSize the maximum number of queued objects
+     */
+    public void setCompressionQueueSize(int compressionQueueSize) {
+        this.compressionQueueSize = Math.max(1, compressionQueueSize);
+    }
+    
+    /** Holds value of property compression. */
+    protected PdfCompression compression = new PdfCompression();
+    
+    /**
+     * Use this method to get the level, strategy and buffer size used to deflate
+     * the streams of this document. The returned settings can be changed directly.
+     * @return the compression settings
+     */
+    public PdfCompression getCompression() {
+        return compression;
+    }
+    
+    /**
+     * Use this method to change the level, strategy and buffer size used to deflate
+     * the streams, for all of them or for a class of streams such as the images.
+     * The settings apply to the streams that are written after this call.
+     * @param compression the compression settings
+     */
+    public void setCompression(PdfCompression compression) {
+        if (compression == null)
+            throw new NullPointerException("The compression settings can't be null.");
+        this.compression = compression;
+    }
+    
 //	[F3] adding fonts
     
     /** The fonts of this document */
@@ -1925,7 +2239,7 @@ public class PdfWriter extends DocWriter implements
      * and position 1 is an <CODE>PdfIndirectReference</CODE>
      */
     
-    FontDetails addSimple(BaseFont bf) {
+    synchronized FontDetails addSimple(BaseFont bf) {
         if (bf.getFontType() == BaseFont.FONT_TYPE_DOCUMENT) {
             return new FontDetails(new PdfName("F" + (fontNumber++)), ((DocumentFont)bf).getIndirectReference(), bf);
         }
@@ -1962,7 +2276,7 @@ public class PdfWriter extends DocWriter implements
      * @return the <CODE>PdfName</CODE> for this template
      */
     
-    PdfName addDirectTemplateSimple(PdfTemplate template, PdfName forcedName) {
+    synchronized PdfName addDirectTemplateSimple(PdfTemplate template, PdfName forcedName) {
         PdfIndirectReference ref = template.getIndirectReference();
         Object obj[] = (Object[])formXObjects.get(ref);
         PdfName name = null;
@@ -2058,7 +2372,7 @@ public class PdfWriter extends DocWriter implements
      * the current size is needed.
      * @return the approximate size without fonts or templates
      */    
-    public int getCurrentDocumentSize() {
+    public long getCurrentDocumentSize() {
         return body.offset() + body.size() * 20 + 0x48;
     }
     
@@ -2080,7 +2394,7 @@ public class PdfWriter extends DocWriter implements
     /** The color number counter for the colors in the document. */
     protected int colorNumber = 1;
     
-    PdfName getColorspaceName() {
+    synchronized PdfName getColorspaceName() {
         return new PdfName("CS" + (colorNumber++));
     }
     
@@ -2090,7 +2404,7 @@ public class PdfWriter extends DocWriter implements
      * @return an <CODE>Object[]</CODE> where position 0 is a <CODE>PdfName</CODE>
      * and position 1 is an <CODE>PdfIndirectReference</CODE>
      */    
-    ColorDetails addSimple(PdfSpotColor spc) {
+    synchronized ColorDetails addSimple(PdfSpotColor spc) {
         ColorDetails ret = (ColorDetails)documentColors.get(spc);
         if (ret == null) {
             ret = new ColorDetails(getColorspaceName(), body.getPdfIndirectReference(), spc);
@@ -2107,7 +2421,7 @@ public class PdfWriter extends DocWriter implements
     /** The patten number counter for the colors in the document. */
     protected int patternNumber = 1;
     
-    PdfName addSimplePattern(PdfPatternPainter painter) {
+    synchronized PdfName addSimplePattern(PdfPatternPainter painter) {
         PdfName name = (PdfName)documentPatterns.get(painter);
         try {
             if ( name == null ) {
@@ -2125,7 +2439,7 @@ public class PdfWriter extends DocWriter implements
     
     protected HashMap documentShadingPatterns = new HashMap();
     
-    void addSimpleShadingPattern(PdfShadingPattern shading) {
+    synchronized void addSimpleShadingPattern(PdfShadingPattern shading) {
         if (!documentShadingPatterns.containsKey(shading)) {
             shading.setName(patternNumber);
             ++patternNumber;
@@ -2138,7 +2452,7 @@ public class PdfWriter extends DocWriter implements
     
     protected HashMap documentShadings = new HashMap();
     
-    void addSimpleShading(PdfShading shading) {
+    synchronized void addSimpleShading(PdfShading shading) {
         if (!documentShadings.containsKey(shading)) {
             documentShadings.put(shading, null);
             shading.setName(documentShadings.size());
@@ -2149,7 +2463,7 @@ public class PdfWriter extends DocWriter implements
 
     protected HashMap documentExtGState = new HashMap();
     
-    PdfObject[] addSimpleExtGState(PdfDictionary gstate) {
+    synchronized PdfObject[] addSimpleExtGState(PdfDictionary gstate) {
         if (!documentExtGState.containsKey(gstate)) {
         	PdfXConformanceImp.checkPDFXConformance(this, PdfXConformanceImp.PDFXKEY_GSTATE, gstate);
             documentExtGState.put(gstate, new PdfObject[]{new PdfName("GS" + (documentExtGState.size() + 1)), getPdfIndirectReference()});
@@ -2160,7 +2474,7 @@ public class PdfWriter extends DocWriter implements
 //	[F11] adding properties (OCG, marked content)
 
     protected HashMap documentProperties = new HashMap();
-    PdfObject[] addSimpleProperty(Object prop, PdfIndirectReference refi) {
+    synchronized PdfObject[] addSimpleProperty(Object prop, PdfIndirectReference refi) {
         if (!documentProperties.containsKey(prop)) {
             if (prop instanceof PdfOCG)
             	PdfXConformanceImp.checkPDFXConformance(this, PdfXConformanceImp.PDFXKEY_LAYER, null);
@@ -2169,7 +2483,7 @@ public class PdfWriter extends DocWriter implements
         return (PdfObject[])documentProperties.get(prop);
     }
 
-    boolean propertyExists(Object prop) {
+    synchronized boolean propertyExists(Object prop) {
         return documentProperties.containsKey(prop);
     }
 
@@ -2603,7 +2917,7 @@ public class PdfWriter extends DocWriter implements
     protected ColorDetails patternColorspaceGRAY;
     protected ColorDetails patternColorspaceCMYK;
    
-    ColorDetails addSimplePatternColorspace(Color color) {
+    synchronized ColorDetails addSimplePatternColorspace(Color color) {
         int type = ExtendedColor.getType(color);
         if (type == ExtendedColor.TYPE_PATTERN || type == ExtendedColor.TYPE_SHADING)
             throw new RuntimeException("An uncolored tile pattern can not have another pattern or shading as color.");
@@ -2688,6 +3002,28 @@ public class PdfWriter extends DocWriter implements
     /** This is the list with all the images in the document. */
     private HashMap images = new HashMap();
     
+    /** The cache of the encoded images, shared with other writers. */
+    protected PdfImageCache imageCache;
+    
+    /**
+     * Gets the cache of the encoded images.
+     * @return the cache or <CODE>null</CODE> if the images are not cached
+     */
+    public PdfImageCache getImageCache() {
+        return imageCache;
+    }
+    
+    /**
+     * Use this method to keep the encoded images in a cache shared with
+     * other writers, such as <CODE>PdfImageCache.getSharedCache()</CODE>.
+     * An image already added by a writer using the same cache is then
+     * written without being encoded and compressed again.
+     * @param imageCache the cache or <CODE>null</CODE> to not cache the images
+     */
+    public void setImageCache(PdfImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+    
     /**
      * Use this method to adds an image to the document
      * but not to the page resources. It is used with
@@ -2713,7 +3049,7 @@ public class PdfWriter extends DocWriter implements
      * @throws PdfException on error
      * @throws DocumentException on error
      */
-    public PdfName addDirectImageSimple(Image image, PdfIndirectReference fixedRef) throws PdfException, DocumentException {
+    public synchronized PdfName addDirectImageSimple(Image image, PdfIndirectReference fixedRef) throws PdfException, DocumentException {
         PdfName name;
         // if the images is already added, just retrieve the name
         if (images.containsKey(image.getMySerialId())) {
@@ -2747,7 +3083,18 @@ public class PdfWriter extends DocWriter implements
                     PdfName mname = (PdfName)images.get(maskImage.getMySerialId());
                     maskRef = getImageReference(mname);
                 }
-                PdfImage i = new PdfImage(image, "img" + images.size(), maskRef);
+                PdfImage i = null;
+                String cacheKey = null;
+                if (imageCache != null) {
+                    cacheKey = imageCache.getKey(image, this);
+                    if (cacheKey != null)
+                        i = imageCache.get(cacheKey, image, "img" + images.size(), maskRef);
+                }
+                if (i == null) {
+                    i = new PdfImage(image, "img" + images.size(), maskRef);
+                    if (cacheKey != null)
+                        imageCache.put(cacheKey, i, this);
+                }
                 if (image.hasICCProfile()) {
                     PdfICCBased icc = new PdfICCBased(image.getICCProfile());
                     PdfIndirectReference iccRef = add(icc);
@@ -2810,7 +3157,7 @@ public class PdfWriter extends DocWriter implements
      * @return a <CODE>PdfIndirectReference</CODE>
      */
     
-    PdfIndirectReference getImageReference(PdfName name) {
+    synchronized PdfIndirectReference getImageReference(PdfName name) {
         return (PdfIndirectReference) imageDictionary.get(name);
     }
     
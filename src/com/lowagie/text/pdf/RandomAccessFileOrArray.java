@@ -76,6 +76,15 @@ public class RandomAccessFileOrArray implements DataInput {
     int arrayInPtr;
     byte back;
     boolean isBack = false;
+    /** The data when it is given as a buffer, read at <CODE>arrayInPtr</CODE>. */
+    java.nio.ByteBuffer byteBuffer;
+    /** <CODE>arrayIn</CODE> wrapped for <CODE>getWindow()</CODE>. */
+    private java.nio.ByteBuffer arrayWindow;
+    /** The file position of the first byte of the buffer returned by <CODE>getWindow()</CODE>. */
+    long windowOffset;
+    /** <CODE>true</CODE> if the buffer returned by <CODE>getWindow()</CODE> is a
+     * mapped segment that can be released. */
+    boolean windowMapped;
     
     /** Holds value of property startOffset. */
     private int startOffset = 0;
@@ -159,9 +168,20 @@ public class RandomAccessFileOrArray implements DataInput {
         this.arrayIn = arrayIn;
     }
     
+    /**
+     * Reads the data of a buffer, for example a file mapped in memory. The
+     * bytes from the position to the limit of the buffer are the data, they
+     * are not copied.
+     * @param buffer the data
+     */
+    public RandomAccessFileOrArray(java.nio.ByteBuffer buffer) {
+        this.byteBuffer = buffer.slice();
+    }
+    
     public RandomAccessFileOrArray(RandomAccessFileOrArray file) {
         filename = file.filename;
         arrayIn = file.arrayIn;
+        byteBuffer = file.byteBuffer;
         startOffset = file.startOffset;
         plainRandomAccess = file.plainRandomAccess;
     }
@@ -176,8 +196,14 @@ public class RandomAccessFileOrArray implements DataInput {
             isBack = false;
             return back & 0xff;
         }
-        if (arrayIn == null)
+        if (arrayIn == null) {
+            if (byteBuffer != null) {
+                if (arrayInPtr >= byteBuffer.limit())
+                    return -1;
+                return byteBuffer.get(arrayInPtr++) & 0xff;
+            }
             return plainRandomAccess ? trf.read() : rf.read();
+        }
         else {
             if (arrayInPtr >= arrayIn.length)
                 return -1;
@@ -185,6 +211,41 @@ public class RandomAccessFileOrArray implements DataInput {
         }
     }
     
+    /**
+     * Gets the data around the file pointer as a buffer, for a caller that
+     * reads the bytes directly instead of one <CODE>read()</CODE> at a time.
+     * The file position of the first byte of the buffer is put in
+     * <CODE>windowOffset</CODE>. A mapped file gives the segment holding the
+     * file pointer, which must not be kept after another part of the file is
+     * read. The file pointer isn't moved.
+     * @return the buffer or <CODE>null</CODE> if the data must be read with <CODE>read()</CODE>
+     * @throws IOException on error
+     */
+    java.nio.ByteBuffer getWindow() throws IOException {
+        if (isBack)
+            return null;
+        windowMapped = false;
+        if (arrayIn != null) {
+            if (arrayWindow == null)
+                arrayWindow = java.nio.ByteBuffer.wrap(arrayIn);
+            windowOffset = -startOffset;
+            return arrayWindow;
+        }
+        if (byteBuffer != null) {
+            windowOffset = -startOffset;
+            return byteBuffer;
+        }
+        if (plainRandomAccess)
+            return null;
+        insureOpen();
+        java.nio.ByteBuffer segment = rf.getSegment();
+        if (segment != null) {
+            windowOffset = rf.getSegmentStart() - startOffset;
+            windowMapped = true;
+        }
+        return segment;
+    }
+    
     public int read(byte[] b, int off, int len) throws IOException {
         if (len == 0)
             return 0;
@@ -202,6 +263,17 @@ public class RandomAccessFileOrArray implements DataInput {
             }
         }
         if (arrayIn == null) {
+            if (byteBuffer != null) {
+                if (arrayInPtr >= byteBuffer.limit())
+                    return n == 0 ? -1 : n;
+                if (arrayInPtr + len > byteBuffer.limit())
+                    len = byteBuffer.limit() - arrayInPtr;
+                java.nio.ByteBuffer src = byteBuffer.duplicate();
+                src.position(arrayInPtr);
+                src.get(b, off, len);
+                arrayInPtr += len;
+                return len + n;
+            }
             return (plainRandomAccess ? trf.read(b, off, len) : rf.read(b, off, len)) + n;
         }
         else {
@@ -234,10 +306,6 @@ public class RandomAccessFileOrArray implements DataInput {
     }
     
     public long skip(long n) throws IOException {
-        return skipBytes((int)n);
-    }
-    
-    public int skipBytes(int n) throws IOException {
         if (n <= 0) {
             return 0;
         }
@@ -252,9 +320,9 @@ public class RandomAccessFileOrArray implements DataInput {
                 adj = 1;
             }
         }
-        int pos;
-        int len;
-        int newpos;
+        long pos;
+        long len;
+        long newpos;
         
         pos = getFilePointer();
         len = length();
@@ -268,6 +336,10 @@ public class RandomAccessFileOrArray implements DataInput {
         return newpos - pos + adj;
     }
     
+    public int skipBytes(int n) throws IOException {
+        return (int)skip(n);
+    }
+    
     public void reOpen() throws IOException {
         if (filename != null && rf == null && trf == null) {
             if (plainRandomAccess)
@@ -291,12 +363,9 @@ public class RandomAccessFileOrArray implements DataInput {
     public void close() throws IOException {
         isBack = false;
         if (rf != null) {
+            // the file is mapped in segments when they are read, reopening it is cheap
             rf.close();
             rf = null;
-            // it's very expensive to open a memory mapped file and for the usage pattern of this class
-            // in iText it's faster the next re-openings to be done as a plain random access
-            // file
-            plainRandomAccess = true;
         }
         else if (trf != null) {
             trf.close();
@@ -304,19 +373,27 @@ public class RandomAccessFileOrArray implements DataInput {
         }
     }
     
-    public int length() throws IOException {
+    public long length() throws IOException {
+        if (byteBuffer != null)
+            return byteBuffer.limit() - startOffset;
         if (arrayIn == null) {
             insureOpen();
-            return (int)(plainRandomAccess ? trf.length() : rf.length()) - startOffset;
+            return (plainRandomAccess ? trf.length() : rf.length()) - startOffset;
         }
         else
             return arrayIn.length - startOffset;
     }
     
     public void seek(int pos) throws IOException {
+        seek((long)pos);
+    }
+    
+    public void seek(long pos) throws IOException {
         pos += startOffset;
         isBack = false;
-        if (arrayIn == null) {
+        if (byteBuffer != null)
+            arrayInPtr = (int)pos;
+        else if (arrayIn == null) {
             insureOpen();
             if (plainRandomAccess)
                 trf.seek(pos);
@@ -324,18 +401,58 @@ public class RandomAccessFileOrArray implements DataInput {
                 rf.seek(pos);
         }
         else
-            arrayInPtr = pos;
+            arrayInPtr = (int)pos;
     }
     
-    public void seek(long pos) throws IOException {
-        seek((int)pos);
+    /**
+     * Reads bytes at a position without using or moving the file pointer.
+     * Several threads can call this method at the same time once the file is
+     * open, as long as none of them uses the other read methods.
+     * @param pos the position to read from
+     * @param b the buffer into which the data is read
+     * @param off the start offset of the data
+     * @param len the number of bytes to read
+     * @throws IOException on error or if the end of the file is reached
+     */
+    public void readFully(long pos, byte b[], int off, int len) throws IOException {
+        pos += startOffset;
+        if (arrayIn != null) {
+            if (pos < 0 || pos + len > arrayIn.length)
+                throw new EOFException();
+            System.arraycopy(arrayIn, (int)pos, b, off, len);
+        }
+        else if (byteBuffer != null) {
+            if (pos < 0 || pos + len > byteBuffer.limit())
+                throw new EOFException();
+            java.nio.ByteBuffer src = byteBuffer.duplicate();
+            src.position((int)pos);
+            src.get(b, off, len);
+        }
+        else if (plainRandomAccess) {
+            java.nio.ByteBuffer buf = java.nio.ByteBuffer.wrap(b, off, len);
+            while (buf.hasRemaining()) {
+                int n = trf.getChannel().read(buf, pos);
+                if (n < 0)
+                    throw new EOFException();
+                pos += n;
+            }
+        }
+        else {
+            int n = 0;
+            while (n < len) {
+                int count = rf.read(pos + n, b, off + n, len - n);
+                if (count < 0)
+                    throw new EOFException();
+                n += count;
+            }
+        }
     }
     
-    public int getFilePointer() throws IOException {
+    public long getFilePointer() throws IOException {
         insureOpen();
         int n = isBack ? 1 : 0;
-        if (arrayIn == null) {
-            return (int)(plainRandomAccess ? trf.getFilePointer() : rf.getFilePointer()) - n - startOffset;
+        if (arrayIn == null && byteBuffer == null) {
+            return (plainRandomAccess ? trf.getFilePointer() : rf.getFilePointer()) - n - startOffset;
         }
         else
             return arrayInPtr - n - startOffset;
@@ -592,7 +709,7 @@ public class RandomAccessFileOrArray implements DataInput {
                     break;
                 case '\r':
                     eol = true;
-                    int cur = getFilePointer();
+                    long cur = getFilePointer();
                     if ((read()) != '\n') {
                         seek(cur);
                     }
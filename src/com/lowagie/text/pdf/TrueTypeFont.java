@@ -54,8 +54,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 
 import com.lowagie.text.DocumentException;
 import com.lowagie.text.ExceptionConverter;
@@ -179,19 +177,17 @@ class TrueTypeFont extends BaseFont {
     
     protected int bboxes[][];
     /** The map containing the code information for the table 'cmap', encoding 1.0.
-     * The key is the code and the value is an <CODE>int[2]</CODE> where position 0
-     * is the glyph number and position 1 is the glyph width normalized to 1000
+     * It gives for each code the glyph number and the glyph width normalized to 1000
      * units.
      */
-    protected HashMap cmap10;
+    protected CmapTable cmap10;
     /** The map containing the code information for the table 'cmap', encoding 3.1
      * in Unicode.
      * <P>
-     * The key is the code and the value is an <CODE>int</CODE>[2] where position 0
-     * is the glyph number and position 1 is the glyph width normalized to 1000
+     * It gives for each code the glyph number and the glyph width normalized to 1000
      * units.
      */
-    protected HashMap cmap31;
+    protected CmapTable cmap31;
     /** The map containing the kerning information. It represents the content of
      * table 'kern'. The key is an <CODE>Integer</CODE> where the top 16 bits
      * are the glyph number for the first character and the lower 16 bits are the
@@ -544,7 +540,7 @@ class TrueTypeFont extends BaseFont {
             int length = rf.readUnsignedShort();
             int offset = rf.readUnsignedShort();
             if (nameID == id) {
-                int pos = rf.getFilePointer();
+                int pos = (int)rf.getFilePointer();
                 rf.seek(table_location[0] + startOfStorage + offset);
                 String name;
                 if (platformID == 0 || platformID == 3 || (platformID == 2 && platformEncodingID == 1)){
@@ -805,28 +801,26 @@ class TrueTypeFont extends BaseFont {
     
     /** The information in the maps of the table 'cmap' is coded in several formats.
      *  Format 0 is the Apple standard character to glyph index mapping table.
-     * @return a <CODE>HashMap</CODE> representing this map
+     * @return a <CODE>CmapTable</CODE> representing this map
      * @throws IOException the font file could not be read
      */
-    HashMap readFormat0() throws IOException {
-        HashMap h = new HashMap();
+    CmapTable readFormat0() throws IOException {
+        CmapTable h = new CmapTable();
         rf.skipBytes(4);
         for (int k = 0; k < 256; ++k) {
-            int r[] = new int[2];
-            r[0] = rf.readUnsignedByte();
-            r[1] = getGlyphWidth(r[0]);
-            h.put(Integer.valueOf(k), r);
+            int glyph = rf.readUnsignedByte();
+            h.put(k, glyph, getGlyphWidth(glyph));
         }
         return h;
     }
     
     /** The information in the maps of the table 'cmap' is coded in several formats.
      *  Format 4 is the Microsoft standard character to glyph index mapping table.
-     * @return a <CODE>HashMap</CODE> representing this map
+     * @return a <CODE>CmapTable</CODE> representing this map
      * @throws IOException the font file could not be read
      */
-    HashMap readFormat4() throws IOException {
-        HashMap h = new HashMap();
+    CmapTable readFormat4() throws IOException {
+        CmapTable h = new CmapTable();
         int table_lenght = rf.readUnsignedShort();
         rf.skipBytes(2);
         int segCount = rf.readUnsignedShort() / 2;
@@ -864,10 +858,7 @@ class TrueTypeFont extends BaseFont {
                         continue;
                     glyph = (glyphId[idx] + idDelta[k]) & 0xFFFF;
                 }
-                int r[] = new int[2];
-                r[0] = glyph;
-                r[1] = getGlyphWidth(r[0]);
-                h.put(Integer.valueOf(fontSpecific ? ((j & 0xff00) == 0xf000 ? j & 0xff : j) : j), r);
+                h.put(fontSpecific ? ((j & 0xff00) == 0xf000 ? j & 0xff : j) : j, glyph, getGlyphWidth(glyph));
             }
         }
         return h;
@@ -876,19 +867,17 @@ class TrueTypeFont extends BaseFont {
     /** The information in the maps of the table 'cmap' is coded in several formats.
      *  Format 6 is a trimmed table mapping. It is similar to format 0 but can have
      *  less than 256 entries.
-     * @return a <CODE>HashMap</CODE> representing this map
+     * @return a <CODE>CmapTable</CODE> representing this map
      * @throws IOException the font file could not be read
      */
-    HashMap readFormat6() throws IOException {
-        HashMap h = new HashMap();
+    CmapTable readFormat6() throws IOException {
+        CmapTable h = new CmapTable();
         rf.skipBytes(4);
         int start_code = rf.readUnsignedShort();
         int code_count = rf.readUnsignedShort();
         for (int k = 0; k < code_count; ++k) {
-            int r[] = new int[2];
-            r[0] = rf.readUnsignedShort();
-            r[1] = getGlyphWidth(r[0]);
-            h.put(Integer.valueOf(k + start_code), r);
+            int glyph = rf.readUnsignedShort();
+            h.put(k + start_code, glyph, getGlyphWidth(glyph));
         }
         return h;
     }
@@ -929,14 +918,15 @@ class TrueTypeFont extends BaseFont {
      * @return the kerning to be applied
      */
     public int getKerning(char char1, char char2) {
-        int metrics[] = getMetricsTT(char1);
-        if (metrics == null)
+        CmapTable map = getMetricsCmap();
+        if (map == null)
+            return 0;
+        int c1 = map.getGlyph(char1);
+        if (c1 < 0)
             return 0;
-        int c1 = metrics[0];
-        metrics = getMetricsTT(char2);
-        if (metrics == null)
+        int c2 = map.getGlyph(char2);
+        if (c2 < 0)
             return 0;
-        int c2 = metrics[0];
         return kerning.get((c1 << 16) + c2);
     }
     
@@ -947,17 +937,14 @@ class TrueTypeFont extends BaseFont {
      * @return the width of the char
      */
     int getRawWidth(int c, String name) {
-        HashMap map = null;
+        CmapTable map = null;
         if (name == null || cmap31 == null)
             map = cmap10;
         else
             map = cmap31;
         if (map == null)
             return 0;
-        int metric[] = (int[])map.get(Integer.valueOf(c));
-        if (metric == null)
-            return 0;
-        return metric[1];
+        return map.getWidth(c);
     }
     
     /** Generates the font descriptor for this font.
@@ -1073,7 +1060,7 @@ class TrueTypeFont extends BaseFont {
         try {
             rf2 = new RandomAccessFileOrArray(rf);
             rf2.reOpen();
-            byte b[] = new byte[rf2.length()];
+            byte b[] = new byte[(int)rf2.length()];
             rf2.readFully(b);
             return b;
         } 
@@ -1114,22 +1101,13 @@ class TrueTypeFont extends BaseFont {
     protected void addRangeUni(HashMap longTag, boolean includeMetrics, boolean subsetp) {
         if (!subsetp && (subsetRanges != null || directoryOffset > 0)) {
             int[] rg = (subsetRanges == null && directoryOffset > 0) ? new int[]{0, 0xffff} : compactRanges(subsetRanges);
-            HashMap usemap;
-            if (!fontSpecific && cmap31 != null) 
-                usemap = cmap31;
-            else if (fontSpecific && cmap10 != null) 
-                usemap = cmap10;
-            else if (cmap31 != null) 
-                usemap = cmap31;
-            else 
-                usemap = cmap10;
-            for (Iterator it = usemap.entrySet().iterator(); it.hasNext();) {
-                Map.Entry e = (Map.Entry)it.next();
-                int[] v = (int[])e.getValue();
-                Integer gi = Integer.valueOf(v[0]);
+            CmapTable usemap = getMetricsCmap();
+            int codes[] = usemap.getCodes();
+            for (int j = 0; j < codes.length; ++j) {
+                int c = codes[j];
+                Integer gi = Integer.valueOf(usemap.getGlyph(c));
                 if (longTag.containsKey(gi))
                     continue;
-                int c = ((Integer)e.getKey()).intValue();
                 boolean skip = true;
                 for (int k = 0; k < rg.length; k += 2) {
                     if (c >= rg[k] && c <= rg[k + 1]) {
@@ -1138,7 +1116,7 @@ class TrueTypeFont extends BaseFont {
                     }
                 }
                 if (!skip)
-                    longTag.put(gi, includeMetrics ? new int[]{v[0], v[1], c} : null);
+                    longTag.put(gi, includeMetrics ? new int[]{gi.intValue(), usemap.getWidth(c), c} : null);
             }
         }
     }
@@ -1288,18 +1266,27 @@ class TrueTypeFont extends BaseFont {
     
     /** Gets the glyph index and metrics for a character.
      * @param c the character
-     * @return an <CODE>int</CODE> array with {glyph index, width}
+     * @return a new <CODE>int</CODE> array with {glyph index, width}
      */    
     public int[] getMetricsTT(int c) {
+        CmapTable map = getMetricsCmap();
+        if (map == null)
+            return null;
+        return map.get(c);
+    }
+    
+    /** Gets the table used by <CODE>getMetricsTT</CODE> to find the glyph index
+     * and metrics of a character.
+     * @return the table or <CODE>null</CODE> if the font has none
+     */
+    public CmapTable getMetricsCmap() {
         if (!fontSpecific && cmap31 != null) 
-            return (int[])cmap31.get(Integer.valueOf(c));
+            return cmap31;
         if (fontSpecific && cmap10 != null) 
-            return (int[])cmap10.get(Integer.valueOf(c));
+            return cmap10;
         if (cmap31 != null) 
-            return (int[])cmap31.get(Integer.valueOf(c));
-        if (cmap10 != null) 
-            return (int[])cmap10.get(Integer.valueOf(c));
-        return null;
+            return cmap31;
+        return cmap10;
     }
 
     /** Gets the postscript font name.
@@ -1380,29 +1367,53 @@ class TrueTypeFont extends BaseFont {
      * @return <code>true</code> if the kerning was applied, <code>false</code> otherwise
      */
     public boolean setKerning(char char1, char char2, int kern) {
-        int metrics[] = getMetricsTT(char1);
-        if (metrics == null)
+        CmapTable map = getMetricsCmap();
+        if (map == null)
             return false;
-        int c1 = metrics[0];
-        metrics = getMetricsTT(char2);
-        if (metrics == null)
+        int c1 = map.getGlyph(char1);
+        if (c1 < 0)
+            return false;
+        int c2 = map.getGlyph(char2);
+        if (c2 < 0)
             return false;
-        int c2 = metrics[0];
         kerning.put((c1 << 16) + c2, kern);
+        widthCache.clear();
         return true;
     }
     
     protected int[] getRawCharBBox(int c, String name) {
-        HashMap map = null;
+        CmapTable map = null;
         if (name == null || cmap31 == null)
             map = cmap10;
         else
             map = cmap31;
         if (map == null)
             return null;
-        int metric[] = (int[])map.get(Integer.valueOf(c));
-        if (metric == null || bboxes == null)
+        int glyph = map.getGlyph(c);
+        if (glyph < 0 || bboxes == null)
             return null;
-        return bboxes[metric[0]];
+        return bboxes[glyph];
+    }
+    
+    /**
+     * Gets a rough estimate of the memory used by this font, including
+     * the font program kept in memory to be embedded.
+     * @return the estimated size in bytes
+     */
+    protected long getEstimatedSize() {
+        long size = super.getEstimatedSize();
+        if (GlyphWidths != null)
+            size += 4L * GlyphWidths.length;
+        if (bboxes != null)
+            size += 32L * bboxes.length;
+        if (cmap10 != null)
+            size += cmap10.getEstimatedSize();
+        if (cmap31 != null)
+            size += cmap31.getEstimatedSize();
+        if (kerning != null)
+            size += 32L * kerning.size();
+        if (rf != null && rf.arrayIn != null)
+            size += rf.arrayIn.length;
+        return size;
     }
 }
\ No newline at end of file
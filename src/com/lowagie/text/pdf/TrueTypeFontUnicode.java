@@ -202,7 +202,7 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator{
         "end end\n");
         String s = buf.toString();
         PdfStream stream = new PdfStream(PdfEncodings.convertToBytes(s, null));
-        stream.flateCompress();
+        stream.flateCompress(PdfCompression.FONT);
         return stream;
     }
     
@@ -402,7 +402,7 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator{
      * <CODE>false</CODE> otherwise
      */
     public boolean charExists(char c) {
-        HashMap map = null;
+        CmapTable map = null;
         if (fontSpecific)
             map = cmap10;
         else
@@ -411,12 +411,12 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator{
             return false;
         if (fontSpecific) {
             if ((c & 0xff00) == 0 || (c & 0xff00) == 0xf000)
-                return map.get(Integer.valueOf(c & 0xff)) != null;
+                return map.containsKey(c & 0xff);
             else
                 return false;
         }
         else
-            return map.get(Integer.valueOf(c)) != null;
+            return map.containsKey(c);
     }
     
     /**
@@ -427,50 +427,49 @@ class TrueTypeFontUnicode extends TrueTypeFont implements Comparator{
      * <CODE>false</CODE> otherwise
      */
     public boolean setCharAdvance(char c, int advance) {
-        HashMap map = null;
+        CmapTable map = null;
         if (fontSpecific)
             map = cmap10;
         else
             map = cmap31;
         if (map == null)
             return false;
-        int m[] = null;
+        int code;
         if (fontSpecific) {
             if ((c & 0xff00) == 0 || (c & 0xff00) == 0xf000)
-                m = (int[])map.get(Integer.valueOf(c & 0xff));
+                code = c & 0xff;
             else
                 return false;
         }
         else
-            m = (int[])map.get(Integer.valueOf(c));
-        if (m == null)
+            code = c;
+        if (!map.setWidth(code, advance))
             return false;
-        else
-            m[1] = advance;
+        widthCache.clear();
         return true;
     }
     
     public int[] getCharBBox(char c) {
         if (bboxes == null)
             return null;
-        HashMap map = null;
+        CmapTable map = null;
         if (fontSpecific)
             map = cmap10;
         else
             map = cmap31;
         if (map == null)
             return null;
-        int m[] = null;
+        int glyph;
         if (fontSpecific) {
             if ((c & 0xff00) == 0 || (c & 0xff00) == 0xf000)
-                m = (int[])map.get(Integer.valueOf(c & 0xff));
+                glyph = map.getGlyph(c & 0xff);
             else
                 return null;
         }
         else
-            m = (int[])map.get(Integer.valueOf(c));
-        if (m == null)
+            glyph = map.getGlyph(c);
+        if (glyph < 0)
             return null;
-        return bboxes[m[0]];
+        return bboxes[glyph];
     }
 }
@@ -507,7 +507,7 @@ class Type1Font extends BaseFont
                 rf = new RandomAccessFileOrArray(filePfb);
             else
                 rf = new RandomAccessFileOrArray(pfb);
-            int fileLength = rf.length();
+            int fileLength = (int)rf.length();
             byte st[] = new byte[fileLength - 18];
             int lengths[] = new int[3];
             int bytePtr = 0;
@@ -774,6 +774,7 @@ class Type1Font extends BaseFont
         String second = GlyphList.unicodeToName((int)char2);
         if (second == null)
             return false;
+        widthCache.clear();
         Object obj[] = (Object[])KernPairs.get(first);
         if (obj == null) {
             obj = new Object[]{second, Integer.valueOf(kern)};
@@ -810,4 +811,17 @@ class Type1Font extends BaseFont
         return null;
     }
     
+    /**
+     * Gets a rough estimate of the memory used by this font, including
+     * the PFB kept in memory to be embedded.
+     * @return the estimated size in bytes
+     */
+    protected long getEstimatedSize() {
+        // the metrics are stored by code and by name
+        long size = super.getEstimatedSize() + 80L * CharMetrics.size() + 80L * KernPairs.size();
+        if (pfb != null)
+            size += pfb.length;
+        return size;
+    }
+    
 }
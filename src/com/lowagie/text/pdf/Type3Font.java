@@ -132,6 +132,8 @@ public class Type3Font extends BaseFont {
         if (glyph != null)
             return glyph;
         widths3.put(c, (int)wx);
+        // the texts measured before the glyph was defined have a wrong width
+        widthCache.clear();
         if (!colorized) {
             if (Float.isNaN(this.llx)) {
                 this.llx = llx;
@@ -232,7 +234,7 @@ public class Type3Font extends BaseFont {
             diffs.add(n);
             Type3Glyph glyph = (Type3Glyph)char2glyph.get(Integer.valueOf(c2));
             PdfStream stream = new PdfStream(glyph.toPdf(null));
-            stream.flateCompress();
+            stream.flateCompress(PdfCompression.FONT);
             PdfIndirectReference refp = writer.addToBody(stream).getIndirectReference();
             charprocs.put(n, refp);
         }
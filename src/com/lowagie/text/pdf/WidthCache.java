@@ -0,0 +1,207 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The cache of the widths of the texts measured with a font.
+ * <P>
+ * The layout measures the same words and chunks many times, for example when a
+ * line is broken again after it didn't fit. Each <CODE>BaseFont</CODE> keeps the
+ * widths it has computed in normalized 1000 units, with the kerning of the text
+ * next to it, so that they can be used for any font size. Only the texts up to
+ * a maximum length are kept and the cache is emptied when it's full.
+ * <P>
+ * The counts of hits and misses tell if the cache is large enough:
+ * <pre>
+ * WidthCache cache = font.getWidthCache();
+ * cache.setMaxEntries(4096);
+ * ...
+ * System.out.println(cache.getHitRate());
+ * </pre>
+ */
+public class WidthCache {
+
+    /** The default maximum number of texts in the cache. */
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    /** The default maximum length of a text kept in the cache. */
+    public static final int DEFAULT_MAX_LENGTH = 128;
+
+    /** The kerning of an entry that was not computed yet. */
+    static final int NO_KERNING = Integer.MIN_VALUE;
+
+    /** the texts and their {width, kerning} */
+    private final ConcurrentHashMap entries = new ConcurrentHashMap();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+    private volatile int maxLength = DEFAULT_MAX_LENGTH;
+
+    /**
+     * Checks if a text can be kept in the cache.
+     * @param text the text
+     * @return <CODE>true</CODE> if the text is not longer than the maximum length
+     */
+    boolean isCacheable(String text) {
+        return text.length() <= maxLength && maxEntries > 0;
+    }
+
+    /**
+     * Gets the width and the kerning of a text.
+     * @param text the text
+     * @return the {width, kerning} of the text or <CODE>null</CODE> if it's not in the cache
+     */
+    int[] get(String text) {
+        int entry[] = (int[])entries.get(text);
+        if (entry == null)
+            misses.incrementAndGet();
+        else
+            hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Adds the width and the kerning of a text, emptying the cache first if it's full.
+     * @param text the text
+     * @param entry the {width, kerning} of the text, the kerning may be <CODE>NO_KERNING</CODE>
+     */
+    void put(String text, int entry[]) {
+        if (entries.size() >= maxEntries)
+            entries.clear();
+        entries.put(text, entry);
+    }
+
+    /**
+     * Removes all the texts from the cache. It must be called when the
+     * widths or the kerning of the font change.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of texts in the cache.
+     * @return the number of texts
+     */
+    public int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * Gets the maximum number of texts in the cache.
+     * @return the maximum number of texts
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Sets the maximum number of texts in the cache. 0 disables the cache.
+     * @param maxEntries the maximum number of texts
+     */
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        if (entries.size() > maxEntries)
+            entries.clear();
+    }
+
+    /**
+     * Gets the maximum length of a text kept in the cache.
+     * @return the maximum length in chars
+     */
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Sets the maximum length of a text kept in the cache. The longer
+     * texts are measured every time.
+     * @param maxLength the maximum length in chars
+     */
+    public void setMaxLength(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Gets the number of times a width was found in the cache.
+     * @return the number of hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of times a width was not found in the cache.
+     * @return the number of misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Gets the fraction of the lookups that were found in the cache.
+     * @return the hit rate from 0 to 1, 0 if there was no lookup
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double)h / total;
+    }
+
+    /**
+     * Sets the hit and miss counts to zero.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.awt.Color;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfString;
+
+/**
+ * Converts a <CODE>BufferedImage</CODE> to an <CODE>Image</CODE> by reading
+ * its raster directly, without a <CODE>PixelGrabber</CODE> and its array of
+ * ARGB pixels. The rows are deflated as they are read, the colors and the alpha
+ * in two streams, and the <CODE>Image</CODE> only keeps the deflated data.
+ * <P>
+ * The images with 8 bit RGB or gray components, interleaved in bytes or packed
+ * in ints, and the indexed images are supported. For the other ones, such as
+ * the images with premultiplied alpha, 16 bit components or another color
+ * space, <CODE>getImage</CODE> returns <CODE>null</CODE> and the pixels must be
+ * grabbed.
+ */
+public class BufferedImageConverter {
+
+    private BufferedImageConverter() {
+    }
+
+    /**
+     * Converts a <CODE>BufferedImage</CODE> to an <CODE>Image</CODE>.
+     * @param image the <CODE>BufferedImage</CODE> to convert
+     * @param color if different from <CODE>null</CODE> the transparency pixels
+     * are replaced by this color
+     * @param forceBW if <CODE>true</CODE> the image is treated as black and white
+     * @return the <CODE>Image</CODE> or <CODE>null</CODE> if the layout of the
+     * <CODE>BufferedImage</CODE> is not supported
+     * @throws BadElementException on error
+     * @throws IOException on error
+     */
+    public static Image getImage(BufferedImage image, Color color, boolean forceBW) throws BadElementException, IOException {
+        ColorModel cm = image.getColorModel();
+        Raster raster = image.getRaster();
+        SampleModel sm = raster.getSampleModel();
+        DataBuffer db = raster.getDataBuffer();
+        if (cm.isAlphaPremultiplied())
+            return null;
+        if (cm instanceof IndexColorModel) {
+            if (!(db instanceof DataBufferByte))
+                return null;
+            return getIndexedImage(raster, (IndexColorModel)cm, color, forceBW);
+        }
+        if (forceBW)
+            return null;
+        ColorSpace cs = cm.getColorSpace();
+        int colors = cm.getNumColorComponents();
+        if (colors == 3 ? !cs.isCS_sRGB() : colors != 1 || cs.getType() != ColorSpace.TYPE_GRAY)
+            return null;
+        for (int k = 0; k < cm.getNumComponents(); ++k) {
+            if (cm.getComponentSize(k) != 8)
+                return null;
+        }
+        if (cm instanceof ComponentColorModel && sm instanceof ComponentSampleModel && db instanceof DataBufferByte)
+            return getComponentImage(raster, cm, color);
+        if (cm instanceof DirectColorModel && sm instanceof SinglePixelPackedSampleModel && db instanceof DataBufferInt)
+            return getPackedImage(raster, (DirectColorModel)cm, color);
+        return null;
+    }
+
+    /**
+     * Converts an image with a byte per component.
+     */
+    private static Image getComponentImage(Raster raster, ColorModel cm, Color color) throws BadElementException, IOException {
+        ComponentSampleModel csm = (ComponentSampleModel)raster.getSampleModel();
+        DataBufferByte db = (DataBufferByte)raster.getDataBuffer();
+        int colors = cm.getNumColorComponents();
+        boolean hasAlpha = cm.hasAlpha();
+        int bands = cm.getNumComponents();
+        if (csm.getNumBands() != bands || (hasAlpha && colors == 1 && color != null))
+            return null;
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        byte data[][] = new byte[bands][];
+        int offsets[] = new int[bands];
+        int banks[] = csm.getBankIndices();
+        for (int b = 0; b < bands; ++b) {
+            data[b] = db.getData(banks[b]);
+            offsets[b] = db.getOffsets()[banks[b]] + csm.getOffset(-tx, -ty, b);
+        }
+        int pixelStride = csm.getPixelStride();
+        int scanlineStride = csm.getScanlineStride();
+        byte gray[] = colors == 1 ? getGrayTable(cm) : null;
+        int rowLength = w * colors;
+        DeflatedImageStreams streams = new DeflatedImageStreams(rowLength, hasAlpha && color == null ? w : 0, true);
+        try {
+            byte row[] = streams.row;
+            for (int y = 0; y < h; ++y) {
+                for (int b = 0; b < colors; ++b) {
+                    byte src[] = data[b];
+                    int p = offsets[b] + y * scanlineStride;
+                    for (int x = b; x < rowLength; x += colors) {
+                        row[x] = src[p];
+                        p += pixelStride;
+                    }
+                }
+                if (gray != null) {
+                    for (int x = 0; x < rowLength; ++x)
+                        row[x] = gray[row[x] & 0xff];
+                }
+                if (hasAlpha) {
+                    byte src[] = data[colors];
+                    int p = offsets[colors] + y * scanlineStride;
+                    if (color != null) {
+                        for (int x = 0; x < rowLength; x += 3) {
+                            if ((src[p] & 0xff) < 250) {
+                                row[x] = (byte)color.getRed();
+                                row[x + 1] = (byte)color.getGreen();
+                                row[x + 2] = (byte)color.getBlue();
+                            }
+                            p += pixelStride;
+                        }
+                    }
+                    else {
+                        byte alphaRow[] = streams.alphaRow;
+                        for (int x = 0; x < w; ++x) {
+                            alphaRow[x] = src[p];
+                            p += pixelStride;
+                        }
+                    }
+                }
+                streams.writeRow();
+            }
+            return streams.getImage(w, h, colors, 8, null);
+        }
+        finally {
+            streams.end();
+        }
+    }
+
+    /**
+     * Converts an image with the components of a pixel packed in an int.
+     */
+    private static Image getPackedImage(Raster raster, DirectColorModel cm, Color color) throws BadElementException, IOException {
+        SinglePixelPackedSampleModel sppsm = (SinglePixelPackedSampleModel)raster.getSampleModel();
+        DataBufferInt db = (DataBufferInt)raster.getDataBuffer();
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        int data[] = db.getData();
+        int offset = db.getOffset() + sppsm.getOffset(-tx, -ty);
+        int scanlineStride = sppsm.getScanlineStride();
+        int redShift = getShift(cm.getRedMask());
+        int greenShift = getShift(cm.getGreenMask());
+        int blueShift = getShift(cm.getBlueMask());
+        boolean hasAlpha = cm.hasAlpha();
+        int alphaShift = hasAlpha ? getShift(cm.getAlphaMask()) : 0;
+        DeflatedImageStreams streams = new DeflatedImageStreams(w * 3, hasAlpha && color == null ? w : 0, true);
+        try {
+            byte row[] = streams.row;
+            byte alphaRow[] = streams.alphaRow;
+            for (int y = 0; y < h; ++y) {
+                int p = offset + y * scanlineStride;
+                for (int x = 0, i = 0; x < w; ++x) {
+                    int pixel = data[p++];
+                    if (hasAlpha) {
+                        int alpha = (pixel >>> alphaShift) & 0xff;
+                        if (color == null)
+                            alphaRow[x] = (byte)alpha;
+                        else if (alpha < 250) {
+                            row[i++] = (byte)color.getRed();
+                            row[i++] = (byte)color.getGreen();
+                            row[i++] = (byte)color.getBlue();
+                            continue;
+                        }
+                    }
+                    row[i++] = (byte)(pixel >>> redShift);
+                    row[i++] = (byte)(pixel >>> greenShift);
+                    row[i++] = (byte)(pixel >>> blueShift);
+                }
+                streams.writeRow();
+            }
+            return streams.getImage(w, h, 3, 8, null);
+        }
+        finally {
+            streams.end();
+        }
+    }
+
+    /**
+     * Converts an image with a palette. The pixels are copied as they are, the
+     * palette becomes an <CODE>/Indexed</CODE> color space.
+     */
+    private static Image getIndexedImage(Raster raster, IndexColorModel cm, Color color, boolean forceBW) throws BadElementException, IOException {
+        SampleModel sm = raster.getSampleModel();
+        DataBufferByte db = (DataBufferByte)raster.getDataBuffer();
+        int w = raster.getWidth();
+        int h = raster.getHeight();
+        int tx = raster.getSampleModelTranslateX();
+        int ty = raster.getSampleModelTranslateY();
+        byte data[];
+        int bits;
+        int offset;
+        int scanlineStride;
+        if (sm instanceof MultiPixelPackedSampleModel) {
+            MultiPixelPackedSampleModel mpsm = (MultiPixelPackedSampleModel)sm;
+            if (mpsm.getBitOffset(-tx) != 0)
+                return null;
+            data = db.getData();
+            bits = mpsm.getPixelBitStride();
+            offset = db.getOffset() + mpsm.getOffset(-tx, -ty);
+            scanlineStride = mpsm.getScanlineStride();
+        }
+        else if (sm instanceof ComponentSampleModel && sm.getNumBands() == 1 && ((ComponentSampleModel)sm).getPixelStride() == 1) {
+            ComponentSampleModel csm = (ComponentSampleModel)sm;
+            int bank = csm.getBankIndices()[0];
+            data = db.getData(bank);
+            bits = 8;
+            offset = db.getOffsets()[bank] + csm.getOffset(-tx, -ty, 0);
+            scanlineStride = csm.getScanlineStride();
+        }
+        else
+            return null;
+        if (bits != 1 && bits != 2 && bits != 4 && bits != 8)
+            return null;
+        int size = Math.min(cm.getMapSize(), 1 << bits);
+        int rgb[] = new int[size];
+        cm.getRGBs(rgb);
+        int rowBytes = (w * bits + 7) / 8;
+        if (forceBW) {
+            if (bits != 1 || size < 2)
+                return null;
+            return getBWImage(data, offset, scanlineStride, rowBytes, w, h, rgb, color);
+        }
+        int transparent = -1;
+        boolean shades = false;
+        byte alphas[] = new byte[1 << bits];
+        byte palette[] = new byte[size * 3];
+        for (int k = 0; k < alphas.length; ++k) {
+            alphas[k] = (byte)0xff;
+            if (k >= size)
+                continue;
+            int c = rgb[k];
+            int alpha = c >>> 24;
+            if (color != null) {
+                if (alpha < 250)
+                    c = color.getRGB();
+            }
+            else if (alpha == 0 && transparent < 0)
+                transparent = k;
+            else if (alpha != 0xff)
+                shades = true;
+            alphas[k] = (byte)alpha;
+            palette[k * 3] = (byte)(c >> 16);
+            palette[k * 3 + 1] = (byte)(c >> 8);
+            palette[k * 3 + 2] = (byte)c;
+        }
+        if (shades)
+            transparent = -1;
+        DeflatedImageStreams streams = new DeflatedImageStreams(rowBytes, shades ? w : 0);
+        try {
+            byte row[] = streams.row;
+            byte alphaRow[] = streams.alphaRow;
+            int pixelsPerByte = 8 / bits;
+            int pixelMask = (1 << bits) - 1;
+            for (int y = 0; y < h; ++y) {
+                System.arraycopy(data, offset + y * scanlineStride, row, 0, rowBytes);
+                if (shades) {
+                    for (int x = 0; x < w; ++x) {
+                        int shift = 8 - bits * (x % pixelsPerByte + 1);
+                        alphaRow[x] = alphas[(row[x / pixelsPerByte] >> shift) & pixelMask];
+                    }
+                }
+                streams.writeRow();
+            }
+            Image img = streams.getImage(w, h, 1, bits, transparent < 0 ? null : new int[]{transparent, transparent});
+            PdfArray colorspace = new PdfArray();
+            colorspace.add(PdfName.INDEXED);
+            colorspace.add(PdfName.DEVICERGB);
+            colorspace.add(new PdfNumber(size - 1));
+            colorspace.add(new PdfString(palette));
+            PdfDictionary additional = new PdfDictionary();
+            additional.put(PdfName.COLORSPACE, colorspace);
+            img.setAdditional(additional);
+            return img;
+        }
+        finally {
+            streams.end();
+        }
+    }
+
+    /**
+     * Converts a 1 bit image to black and white, as the pixels grabbed from it
+     * would be: a pixel is white if its color is light, or if it is transparent
+     * and <CODE>color</CODE> is light. The image is encoded with CCITT G4.
+     */
+    private static Image getBWImage(byte data[], int offset, int scanlineStride, int rowBytes, int w, int h, int rgb[], Color color) throws BadElementException {
+        int transColor = 1;
+        if (color != null)
+            transColor = (color.getRed() + color.getGreen() + color.getBlue() < 384) ? 0 : 1;
+        int white[] = new int[2];
+        int transparency[] = null;
+        for (int k = 0; k < 2; ++k) {
+            int alpha = rgb[k] >>> 24;
+            if (color != null && alpha < 250)
+                white[k] = transColor;
+            else
+                white[k] = (rgb[k] & 0x888) != 0 ? 1 : 0;
+            if (color == null && alpha == 0 && transparency == null)
+                transparency = new int[]{white[k], white[k]};
+        }
+        byte pixels[] = new byte[rowBytes * h];
+        for (int y = 0; y < h; ++y) {
+            int src = offset + y * scanlineStride;
+            int dest = y * rowBytes;
+            if (white[0] == 0 && white[1] == 1)
+                System.arraycopy(data, src, pixels, dest, rowBytes);
+            else if (white[0] == 1 && white[1] == 0) {
+                for (int k = 0; k < rowBytes; ++k)
+                    pixels[dest + k] = (byte)~data[src + k];
+            }
+            else if (white[0] == 1) {
+                for (int k = 0; k < rowBytes; ++k)
+                    pixels[dest + k] = (byte)0xff;
+            }
+        }
+        return Image.getInstance(w, h, 1, 1, pixels, transparency);
+    }
+
+    /**
+     * Gets the gray values of the samples of a gray image, as the pixels
+     * grabbed from it would have.
+     * @return the table or <CODE>null</CODE> if the samples are used as they are
+     */
+    private static byte[] getGrayTable(ColorModel cm) {
+        byte table[] = new byte[256];
+        byte pixel[] = new byte[cm.getNumComponents()];
+        if (cm.hasAlpha())
+            pixel[pixel.length - 1] = (byte)0xff;
+        boolean identity = true;
+        for (int k = 0; k < 256; ++k) {
+            pixel[0] = (byte)k;
+            table[k] = (byte)cm.getRGB(pixel);
+            if ((table[k] & 0xff) != k)
+                identity = false;
+        }
+        return identity ? null : table;
+    }
+
+    private static int getShift(int mask) {
+        int shift = 0;
+        while (mask != 0 && (mask & 1) == 0) {
+            mask >>>= 1;
+            ++shift;
+        }
+        return shift;
+    }
+}
@@ -56,13 +56,14 @@ import com.lowagie.text.pdf.ByteBuffer;
 public class CCITTG4Encoder {
     private int rowbytes;
     private int rowpixels;
-    private int bit = 8;
-    private int data;
-    private byte[] refline;
+    /** The bits not yet written, in the low bits of <CODE>bitBuffer</CODE>. */
+    private int bitBuffer;
+    private int bitCount;
     private ByteBuffer outBuf = new ByteBuffer(1024);
-    private byte[] dataBp;
-    private int offsetData;
-    private int sizeData;
+    /** The changing elements of the line being coded, followed by sentinels. */
+    private int[] codingLine;
+    /** The changing elements of the reference line, followed by sentinels. */
+    private int[] refLine;
     
     /**
      * Creates a new encoder.
@@ -71,7 +72,10 @@ public class CCITTG4Encoder {
     public CCITTG4Encoder(int width) {
         rowpixels = width;
         rowbytes = (rowpixels + 7) / 8;
-        refline = new byte[rowbytes];
+        codingLine = new int[rowpixels + 3];
+        refLine = new int[rowpixels + 3];
+        // the reference line of the first line is all white
+        refLine[0] = refLine[1] = refLine[2] = rowpixels;
     }
     
     /**
@@ -81,14 +85,14 @@ public class CCITTG4Encoder {
      * @param size the size of the data to be encoded
      */    
     public void fax4Encode(byte[] data, int offset, int size) {
-        dataBp = data;
-        offsetData = offset;
-        sizeData = size;
-        while (sizeData > 0) {
+        while (size > 0) {
+            findChanges(data, offset, codingLine);
             Fax3Encode2DRow();
-            System.arraycopy(dataBp, offsetData, refline, 0, rowbytes);
-            offsetData += rowbytes;
-            sizeData -= rowbytes;
+            int[] t = refLine;
+            refLine = codingLine;
+            codingLine = t;
+            offset += rowbytes;
+            size -= rowbytes;
         }
     }
     
@@ -142,36 +146,64 @@ public class CCITTG4Encoder {
     }
     
     private void putBits(int bits, int length) {
-        while (length > bit) {
-            data |= bits >> (length - bit);
-            length -= bit;
-            outBuf.append((byte)data);
-            data = 0;
-            bit = 8;
+        bitBuffer = (bitBuffer << length) | bits;
+        bitCount += length;
+        while (bitCount >= 8) {
+            bitCount -= 8;
+            outBuf.append((byte)(bitBuffer >>> bitCount));
         }
-        data |= (bits & msbmask[length]) << (bit - length);
-        bit -= length;
-        if (bit == 0) {
-            outBuf.append((byte)data);
-            data = 0;
-            bit = 8;
+    }
+    
+    /**
+     * Finds the changing elements of a line, the pixels with a color different
+     * from the pixel on their left. The line starts with an imaginary white
+     * pixel. The runs are scanned a byte at a time with the run length tables.
+     * The positions are followed by three sentinels equal to the line width.
+     */
+    private void findChanges(byte[] bp, int offset, int[] changes) {
+        int n = 0;
+        int x = 0;
+        int color = 0;
+        for (;;) {
+            x = finddiff(bp, offset, x, rowpixels, color);
+            if (x >= rowpixels)
+                break;
+            changes[n++] = x;
+            color ^= 1;
         }
+        changes[n] = changes[n + 1] = changes[n + 2] = rowpixels;
     }
     
+    /**
+     * Codes a line from its changing elements and the ones of the reference
+     * line. As <CODE>a0</CODE> only moves right the changing elements are
+     * looked for from where the previous step left them.
+     */
     private void Fax3Encode2DRow() {
-        int a0 = 0;
-        int a1 = (pixel(dataBp, offsetData, 0) != 0 ? 0 : finddiff(dataBp, offsetData, 0, rowpixels, 0));
-        int b1 = (pixel(refline, 0, 0) != 0 ? 0 : finddiff(refline, 0, 0, rowpixels, 0));
-        int a2, b2;
-        
+        int[] cur = codingLine;
+        int[] ref = refLine;
+        int a0 = -1;
+        int color = 0;
+        int i = 0;
+        int j = 0;
         for (;;) {
-            b2 = finddiff2(refline, 0, b1, rowpixels, pixel(refline, 0,b1));
+            while (cur[i] <= a0)
+                ++i;
+            while (ref[j] <= a0)
+                ++j;
+            int a1 = cur[i];
+            // the changing elements to black have an even index
+            int k = ((j & 1) == color ? j : j + 1);
+            int b1 = ref[k];
+            int b2 = ref[k + 1];
             if (b2 >= a1) {
                 int d = b1 - a1;
                 if (!(-3 <= d && d <= 3)) {	/* horizontal mode */
-                    a2 = finddiff2(dataBp, offsetData, a1, rowpixels, pixel(dataBp, offsetData,a1));
+                    int a2 = cur[i + 1];
                     putcode(horizcode);
-                    if (a0+a1 == 0 || pixel(dataBp, offsetData, a0) == 0) {
+                    if (a0 < 0)
+                        a0 = 0;
+                    if (color == 0) {
                         putspan(a1-a0, TIFFFaxWhiteCodes);
                         putspan(a2-a1, TIFFFaxBlackCodes);
                     } else {
@@ -182,6 +214,7 @@ public class CCITTG4Encoder {
                 } else {			/* vertical mode */
                     putcode(vcodes[d+3]);
                     a0 = a1;
+                    color ^= 1;
                 }
             } else {				/* pass mode */
                 putcode(passcode);
@@ -189,19 +222,15 @@ public class CCITTG4Encoder {
             }
             if (a0 >= rowpixels)
                 break;
-            a1 = finddiff(dataBp, offsetData, a0, rowpixels, pixel(dataBp, offsetData,a0));
-            b1 = finddiff(refline, 0, a0, rowpixels, pixel(dataBp, offsetData,a0) ^ 1);
-            b1 = finddiff(refline, 0, b1, rowpixels, pixel(dataBp, offsetData,a0));
         }
     }
     
     private void Fax4PostEncode() {
         putBits(EOL, 12);
         putBits(EOL, 12);
-        if (bit != 8) {
-            outBuf.append((byte)data);
-            data = 0;
-            bit = 8;
+        if (bitCount != 0) {
+            outBuf.append((byte)(bitBuffer << (8 - bitCount)));
+            bitCount = 0;
         }
     }
     
@@ -214,12 +243,6 @@ public class CCITTG4Encoder {
         return outBuf.toByteArray();
     }
     
-    private int pixel(byte[] data, int offset, int bit) {
-        if (bit >= rowpixels)
-            return 0;
-        return ((data[offset + (bit >> 3)] & 0xff) >> (7-((bit)&7))) & 1;
-    }
-    
     private static int find1span(byte[] bp, int offset, int bs, int be) {
         int bits = be - bs;
         int n, span;
@@ -304,10 +327,6 @@ public class CCITTG4Encoder {
         return bs + (color != 0 ? find1span(bp, offset, bs, be) : find0span(bp, offset, bs, be));
     }
     
-    private static int finddiff2(byte[] bp, int offset, int bs, int be, int color) {
-        return bs < be ? finddiff(bp, offset, bs, be, color) : be;
-    }
-    
     private static byte zeroruns[] = {
         8, 7, 6, 6, 5, 5, 5, 5, 4, 4, 4, 4, 4, 4, 4, 4,	/* 0x00 - 0x0f */
         3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3,	/* 0x10 - 0x1f */
@@ -358,7 +377,7 @@ public class CCITTG4Encoder {
     private static final int G3CODE_EOF = -3;     /* end of input data */
     private static final int G3CODE_INCOMP = -4;  /* incomplete run code */
 
-    private int[][] TIFFFaxWhiteCodes = {
+    private static final int[][] TIFFFaxWhiteCodes = {
         { 8, 0x35, 0 },	/* 0011 0101 */
         { 6, 0x7, 1 },	/* 0001 11 */
         { 4, 0x7, 2 },	/* 0111 */
@@ -470,7 +489,7 @@ public class CCITTG4Encoder {
         { 12, 0x0, G3CODE_INVALID }	/* 0000 0000 0000 */
     };
 
-    private int[][] TIFFFaxBlackCodes = {
+    private static final int[][] TIFFFaxBlackCodes = {
         { 10, 0x37, 0 },	/* 0000 1101 11 */
         { 3, 0x2, 1 },	/* 010 */
         { 2, 0x3, 2 },	/* 11 */
@@ -582,11 +601,11 @@ public class CCITTG4Encoder {
         { 12, 0x0, G3CODE_INVALID }	/* 0000 0000 0000 */
     };
     
-    private int[] horizcode =
+    private static final int[] horizcode =
         { 3, 0x1, 0 };		/* 001 */
-    private int[] passcode =
+    private static final int[] passcode =
         { 4, 0x1, 0 };		/* 0001 */
-    private int[][] vcodes = {
+    private static final int[][] vcodes = {
         { 7, 0x03, 0 },	/* 0000 011 */
         { 6, 0x03, 0 },	/* 0000 11 */
         { 3, 0x03, 0 },	/* 011 */
@@ -595,6 +614,4 @@ public class CCITTG4Encoder {
         { 6, 0x02, 0 },	/* 0000 10 */
         { 7, 0x02, 0 }		/* 0000 010 */
     };
-    private int[] msbmask =
-    { 0x00, 0x01, 0x03, 0x07, 0x0f, 0x1f, 0x3f, 0x7f, 0xff };
 }
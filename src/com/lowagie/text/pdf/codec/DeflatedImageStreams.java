@@ -0,0 +1,236 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Image;
+import com.lowagie.text.ImgRaw;
+
+/**
+ * The deflated streams of the colors and of the alpha of an image, written a
+ * row at a time by the decoders. Only a row of each is kept uncompressed. The
+ * alpha is dropped if all the pixels are opaque. With a color key the alpha
+ * is also dropped, for a color key mask, if it is only 0 or 255 and the
+ * pixels from the first transparent one on all have its color, as with the
+ * grabbed pixels of <CODE>Image.getInstance(java.awt.Image, Color, boolean)</CODE>.
+ */
+class DeflatedImageStreams {
+
+    /** The row of colors to fill before <CODE>writeRow</CODE>. */
+    final byte row[];
+    /** The row of alpha values to fill before <CODE>writeRow</CODE>, <CODE>null</CODE> if there is no alpha. */
+    final byte alphaRow[];
+    private final Deflater deflater = new Deflater();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DeflaterOutputStream zip = new DeflaterOutputStream(bytes, deflater, 8192);
+    private Deflater alphaDeflater;
+    private ByteArrayOutputStream alphaBytes;
+    private DeflaterOutputStream alphaZip;
+    private boolean translucent;
+    /** The number of color components of a pixel if a color key can replace the alpha, else 0. */
+    private int keyComponents;
+    /** The color of the first transparent pixel. */
+    private byte key[];
+    /** <CODE>true</CODE> if the alpha can't be replaced by a color key. */
+    private boolean shades;
+
+    /**
+     * Creates the streams.
+     * @param rowLength the length of a row of colors in bytes
+     * @param alphaLength the length of a row of alpha values, 0 if there is no alpha
+     */
+    DeflatedImageStreams(int rowLength, int alphaLength) {
+        this(rowLength, alphaLength, false);
+    }
+
+    /**
+     * Creates the streams.
+     * @param rowLength the length of a row of colors in bytes
+     * @param alphaLength the length of a row of alpha values, 0 if there is no alpha
+     * @param colorKey <CODE>true</CODE> to replace the alpha by a color key
+     * mask when possible, the row must then have 8 bit components
+     */
+    DeflatedImageStreams(int rowLength, int alphaLength, boolean colorKey) {
+        row = new byte[rowLength];
+        if (colorKey && alphaLength > 0)
+            keyComponents = rowLength / alphaLength;
+        if (alphaLength > 0) {
+            alphaRow = new byte[alphaLength];
+            alphaDeflater = new Deflater();
+            alphaBytes = new ByteArrayOutputStream();
+            alphaZip = new DeflaterOutputStream(alphaBytes, alphaDeflater, 8192);
+        }
+        else
+            alphaRow = null;
+    }
+
+    /**
+     * Deflates the current rows.
+     * @throws IOException on error
+     */
+    void writeRow() throws IOException {
+        zip.write(row);
+        if (alphaRow != null) {
+            if (!translucent) {
+                for (int k = 0; k < alphaRow.length; ++k) {
+                    if (alphaRow[k] != (byte)0xff) {
+                        translucent = true;
+                        break;
+                    }
+                }
+            }
+            if (keyComponents > 0 && !shades)
+                findColorKey();
+            alphaZip.write(alphaRow);
+        }
+    }
+
+    /**
+     * Checks if the alpha of the current row can still be replaced by a color key.
+     */
+    private void findColorKey() {
+        for (int x = 0; x < alphaRow.length; ++x) {
+            byte alpha = alphaRow[x];
+            int p = x * keyComponents;
+            if (alpha != 0 && alpha != -1) {
+                shades = true;
+                return;
+            }
+            else if (key == null) {
+                if (alpha == 0) {
+                    key = new byte[keyComponents];
+                    System.arraycopy(row, p, key, 0, keyComponents);
+                }
+            }
+            else {
+                for (int c = 0; c < keyComponents; ++c) {
+                    if (row[p + c] != key[c]) {
+                        shades = true;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the image of the colors, with the alpha as its SMask or as a color
+     * key mask.
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param components the number of color components
+     * @param bpc the bits per component
+     * @param transparency the color key mask, may be <CODE>null</CODE>
+     * @return the image
+     * @throws BadElementException on error
+     * @throws IOException on error
+     */
+    Image getImage(int width, int height, int components, int bpc, int transparency[]) throws BadElementException, IOException {
+        zip.finish();
+        Image img = new ImgRaw(width, height, components, bpc, bytes.toByteArray());
+        img.setDeflated(true);
+        if (keyComponents > 0 && translucent && !shades) {
+            transparency = new int[keyComponents * 2];
+            for (int c = 0; c < keyComponents; ++c)
+                transparency[c * 2] = transparency[c * 2 + 1] = key[c] & 0xff;
+            img.setTransparency(transparency);
+            return img;
+        }
+        img.setTransparency(transparency);
+        Image sm = getMask(width, height);
+        if (sm != null) {
+            try {
+                img.setImageMask(sm);
+            }
+            catch (DocumentException de) {
+                throw new ExceptionConverter(de);
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Gets the alpha as an image mask.
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return the mask or <CODE>null</CODE> if all the pixels are opaque
+     * @throws BadElementException on error
+     * @throws IOException on error
+     */
+    Image getMask(int width, int height) throws BadElementException, IOException {
+        if (!translucent)
+            return null;
+        alphaZip.finish();
+        Image sm = new ImgRaw(width, height, 1, 8, alphaBytes.toByteArray());
+        sm.setDeflated(true);
+        try {
+            sm.makeMask();
+        }
+        catch (DocumentException de) {
+            throw new ExceptionConverter(de);
+        }
+        return sm;
+    }
+
+    /**
+     * Releases the deflaters.
+     */
+    void end() {
+        deflater.end();
+        if (alphaDeflater != null)
+            alphaDeflater.end();
+    }
+}
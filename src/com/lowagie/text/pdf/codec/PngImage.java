@@ -184,6 +184,12 @@ public class PngImage {
     float xW, yW, xR, yR, xG, yG, xB, yB;
     PdfName intent;
     ICC_Profile icc_profile;
+    boolean prepared;
+    boolean needDecode;
+    /** true if the rows are decoded as the IDAT chunks are read */
+    boolean streaming;
+    /** the deflated rows of the image and of its SMask when streaming */
+    DeflatedImageStreams streams;
 
     
     
@@ -261,12 +267,36 @@ public class PngImage {
             }
         }
         byte buffer[] = new byte[TRANSFERSIZE];
+        int pendingLength = 0;
+        String pendingMarker = null;
         while (true) {
-            int len = getInt(is);
-            String marker = getString(is);
+            int len;
+            String marker;
+            if (pendingMarker != null) {
+                len = pendingLength;
+                marker = pendingMarker;
+                pendingMarker = null;
+            }
+            else {
+                len = getInt(is);
+                marker = getString(is);
+            }
             if (len < 0 || !checkMarker(marker))
                 throw new IOException("Corrupted PNG file.");
             if (IDAT.equals(marker)) {
+                if (!prepared && prepare() && interlaceMethod != 1) {
+                    IdatInputStream idatStream = new IdatInputStream(len);
+                    // the palette indices are kept as they are
+                    if (colorType == 3)
+                        idatStream.copy = idat;
+                    decodeRows(idatStream);
+                    idatStream.skipRest();
+                    if (idatStream.nextMarker == null)
+                        return;
+                    pendingLength = idatStream.nextLength;
+                    pendingMarker = idatStream.nextMarker;
+                    continue;
+                }
                 int size;
                 while (len != 0) {
                     size = is.read(buffer, 0, Math.min(len, TRANSFERSIZE));
@@ -503,50 +533,72 @@ public class PngImage {
         }
     }
     
-    Image getImage() throws IOException {
-        readPng();
-        try {
-            int pal0 = 0;
-            int palIdx = 0;
-            palShades = false;
-            if (trans != null) {
-                for (int k = 0; k < trans.length; ++k) {
-                    int n = trans[k] & 0xff;
-                    if (n == 0) {
-                        ++pal0;
-                        palIdx = k;
-                    }
-                    if (n != 0 && n != 255) {
-                        palShades = true;
-                        break;
-                    }
+    /**
+     * Finds out how the transparency is masked and if the image data must
+     * be decoded. It is done when the first IDAT chunk is read.
+     * @return true if the image data must be decoded
+     */
+    boolean prepare() {
+        prepared = true;
+        int pal0 = 0;
+        int palIdx = 0;
+        palShades = false;
+        if (trans != null) {
+            for (int k = 0; k < trans.length; ++k) {
+                int n = trans[k] & 0xff;
+                if (n == 0) {
+                    ++pal0;
+                    palIdx = k;
                 }
-            }
-            if ((colorType & 4) != 0)
-                palShades = true;
-            genBWMask = (!palShades && (pal0 > 1 || transRedGray >= 0));
-            if (!palShades && !genBWMask && pal0 == 1) {
-                additional.put(PdfName.MASK, new PdfLiteral("["+palIdx+" "+palIdx+"]"));
-            }
-            boolean needDecode = (interlaceMethod == 1) || (bitDepth == 16) || ((colorType & 4) != 0) || palShades || genBWMask;
-            switch (colorType) {
-                case 0:
-                    inputBands = 1;
-                    break;
-                case 2:
-                    inputBands = 3;
-                    break;
-                case 3:
-                    inputBands = 1;
-                    break;
-                case 4:
-                    inputBands = 2;
-                    break;
-                case 6:
-                    inputBands = 4;
+                if (n != 0 && n != 255) {
+                    palShades = true;
                     break;
+                }
             }
-            if (needDecode)
+        }
+        if ((colorType & 4) != 0)
+            palShades = true;
+        genBWMask = (!palShades && (pal0 > 1 || transRedGray >= 0));
+        if (!palShades && !genBWMask && pal0 == 1) {
+            additional.put(PdfName.MASK, new PdfLiteral("["+palIdx+" "+palIdx+"]"));
+        }
+        needDecode = (interlaceMethod == 1) || (bitDepth == 16) || ((colorType & 4) != 0) || palShades || genBWMask;
+        switch (colorType) {
+            case 0:
+                inputBands = 1;
+                break;
+            case 2:
+                inputBands = 3;
+                break;
+            case 3:
+                inputBands = 1;
+                break;
+            case 4:
+                inputBands = 2;
+                break;
+            case 6:
+                inputBands = 4;
+                break;
+        }
+        return needDecode;
+    }
+    
+    Image getImage() throws IOException {
+        try {
+            readPng();
+            if (!prepared)
+                prepare();
+            return buildImage();
+        }
+        finally {
+            if (streams != null)
+                streams.end();
+        }
+    }
+    
+    Image buildImage() {
+        try {
+            if (needDecode && !streaming)
                 decodeIdat();
             int components = inputBands;
             if ((colorType & 4) != 0)
@@ -555,7 +607,9 @@ public class PngImage {
             if (bpc == 16)
                 bpc = 8;
             Image img;
-            if (image != null)
+            if (streaming && colorType != 3)
+                img = streams.getImage(width, height, components, bpc, null);
+            else if (image != null)
                 img = Image.getInstance(width, height, components, bpc, image);
             else {
                 img = new ImgRaw(width, height, components, bpc, idat.toByteArray());
@@ -575,11 +629,16 @@ public class PngImage {
                 img.setAdditional(additional);
             if (icc_profile != null)
                 img.tagICC(icc_profile);
-            if (palShades) {
+            if (palShades && !streaming) {
                 Image im2 = Image.getInstance(width, height, 1, 8, smask);
                 im2.makeMask();
                 img.setImageMask(im2);
             }
+            if (palShades && streaming && colorType == 3) {
+                Image im2 = streams.getMask(width, height);
+                if (im2 != null)
+                    img.setImageMask(im2);
+            }
             if (genBWMask) {
                 Image im2 = Image.getInstance(width, height, 1, 1, smask);
                 im2.makeMask();
@@ -595,7 +654,12 @@ public class PngImage {
         }
     }
     
-    void decodeIdat() {
+    /**
+     * Gets the length of a row of the decoded image, or of the image if
+     * <CODE>height</CODE> is its height.
+     * @return the length in bytes, -1 if the image is not decoded
+     */
+    int getDecodedSize(int height) {
         int nbitDepth = bitDepth;
         if (nbitDepth == 16)
             nbitDepth = 8;
@@ -623,6 +687,11 @@ public class PngImage {
                 bytesPerPixel *= 4;
                 break;
         }
+        return size;
+    }
+    
+    void decodeIdat() {
+        int size = getDecodedSize(height);
         if (size >= 0)
             image = new byte[size];
         if (palShades)
@@ -694,6 +763,8 @@ public class PngImage {
             }
             
             processPixels(curr, xOffset, xStep, dstY, passWidth);
+            if (streaming)
+                writeRow();
             
             // Swap curr and prior
             byte[] tmp = prior;
@@ -702,6 +773,112 @@ public class PngImage {
         }
     }
     
+    /**
+     * Decodes a non interlaced image row by row as its IDAT chunks are read.
+     * The rows of the image and of the SMask are deflated at once, only the
+     * 1 bit mask of a color key is kept whole. The SMask is dropped if all
+     * the pixels are opaque.
+     * @param idatStream the data of the IDAT chunks
+     */
+    void decodeRows(InputStream idatStream) {
+        streaming = true;
+        int rowLength = getDecodedSize(1);
+        if (colorType == 3)
+            rowLength = 0;
+        streams = new DeflatedImageStreams(rowLength, palShades ? width : 0);
+        if (colorType != 3)
+            image = streams.row;
+        if (palShades)
+            smask = streams.alphaRow;
+        else if (genBWMask)
+            smask = new byte[(width + 7) / 8 * height];
+        dataStream = new DataInputStream(new InflaterInputStream(idatStream, new Inflater()));
+        decodePass(0, 0, 1, 1, width, height);
+    }
+    
+    /**
+     * Deflates the decoded row of the image and of the SMask.
+     */
+    void writeRow() {
+        try {
+            streams.writeRow();
+        }
+        catch (IOException ioe) {
+            throw new ExceptionConverter(ioe);
+        }
+        // the pixels of less than 8 bits are or'ed in the row
+        if (image != null && bitDepth < 8)
+            java.util.Arrays.fill(image, (byte)0);
+    }
+    
+    /**
+     * Reads the data of consecutive IDAT chunks as one stream. The header of
+     * the chunk that follows them is kept in <CODE>nextLength</CODE> and
+     * <CODE>nextMarker</CODE>.
+     */
+    class IdatInputStream extends InputStream {
+        int remaining;
+        boolean ended;
+        int nextLength;
+        String nextMarker;
+        /** where the data read is copied, if not <CODE>null</CODE> */
+        ByteArrayOutputStream copy;
+        
+        IdatInputStream(int length) {
+            remaining = length;
+        }
+        
+        private boolean nextChunk() throws IOException {
+            while (remaining == 0) {
+                if (ended)
+                    return false;
+                Utilities.skip(is, 4);
+                int len = getInt(is);
+                String marker = getString(is);
+                if (!IDAT.equals(marker) || len < 0) {
+                    ended = true;
+                    nextLength = len;
+                    nextMarker = marker;
+                    return false;
+                }
+                remaining = len;
+            }
+            return true;
+        }
+        
+        public int read() throws IOException {
+            byte b[] = new byte[1];
+            return read(b, 0, 1) <= 0 ? -1 : b[0] & 0xff;
+        }
+        
+        public int read(byte b[], int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!nextChunk())
+                return -1;
+            int n = is.read(b, off, Math.min(len, remaining));
+            if (n < 0) {
+                ended = true;
+                remaining = 0;
+                return -1;
+            }
+            remaining -= n;
+            if (copy != null)
+                copy.write(b, off, n);
+            return n;
+        }
+        
+        /**
+         * Reads the rest of the IDAT chunks, with the CRC of the last one.
+         */
+        void skipRest() throws IOException {
+            byte buffer[] = new byte[TRANSFERSIZE];
+            while (read(buffer, 0, buffer.length) > 0) {
+                // skips the data
+            }
+        }
+    }
+    
     void processPixels(byte curr[], int xOffset, int step, int y, int width) {
         int srcX, dstX;
 
@@ -718,11 +895,13 @@ public class PngImage {
                 sizes = 3;
                 break;
         }
+        // when streaming the image and the SMask only hold the current row
+        int rowY = streaming ? 0 : y;
         if (image != null) {
             dstX = xOffset;
             int yStride = (sizes*this.width*(bitDepth == 16 ? 8 : bitDepth)+ 7)/8;
             for (srcX = 0; srcX < width; srcX++) {
-                setPixel(image, out, inputBands * srcX, sizes, dstX, y, bitDepth, yStride);
+                setPixel(image, out, inputBands * srcX, sizes, dstX, rowY, bitDepth, yStride);
                 dstX += step;
             }
         }
@@ -735,7 +914,7 @@ public class PngImage {
                 int yStride = this.width;
                 dstX = xOffset;
                 for (srcX = 0; srcX < width; srcX++) {
-                    setPixel(smask, out, inputBands * srcX + sizes, 1, dstX, y, 8, yStride);
+                    setPixel(smask, out, inputBands * srcX + sizes, 1, dstX, rowY, 8, yStride);
                     dstX += step;
                 }
             }
@@ -747,7 +926,7 @@ public class PngImage {
                     int idx = out[srcX];
                     if (idx < trans.length)
                         v[0] = trans[idx];
-                    setPixel(smask, v, 0, 1, dstX, y, 8, yStride);
+                    setPixel(smask, v, 0, 1, dstX, rowY, 8, yStride);
                     dstX += step;
                 }
             }
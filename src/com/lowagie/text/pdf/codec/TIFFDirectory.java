@@ -638,6 +638,59 @@ public class TIFFDirectory extends Object implements Serializable {
         return numDirectories;
     }
     
+    /**
+     * Returns the offsets of all the image directories stored in a given
+     * TIFF file, walking the chain of IFDs once. Each offset can be given
+     * to <code>TIFFDirectory(stream, offset, 0)</code> to read the directory
+     * without walking the chain again.
+     */
+    public static long[] getDirectoryOffsets(RandomAccessFileOrArray stream)
+    throws IOException{
+        long pointer = stream.getFilePointer(); // Save stream pointer
+        
+        stream.seek(0L);
+        int endian = stream.readUnsignedShort();
+        if (!isValidEndianTag(endian)) {
+            throw new
+            IllegalArgumentException("Bad endianness tag (not 0x4949 or 0x4d4d).");
+        }
+        boolean isBigEndian = (endian == 0x4d4d);
+        int magic = readUnsignedShort(stream, isBigEndian);
+        if (magic != 42) {
+            throw new
+            IllegalArgumentException("Bad magic number, should be 42.");
+        }
+        
+        stream.seek(4L);
+        long offset = readUnsignedInt(stream, isBigEndian);
+        
+        long offsets[] = new long[8];
+        int numDirectories = 0;
+        while (offset != 0L) {
+            if (numDirectories == offsets.length) {
+                long bigger[] = new long[offsets.length * 2];
+                System.arraycopy(offsets, 0, bigger, 0, numDirectories);
+                offsets = bigger;
+            }
+            offsets[numDirectories++] = offset;
+            
+            // EOFException means IFD was probably not properly terminated.
+            try {
+                stream.seek(offset);
+                int entries = readUnsignedShort(stream, isBigEndian);
+                stream.skip(12*entries);
+                offset = readUnsignedInt(stream, isBigEndian);
+            } catch(EOFException eof) {
+                break;
+            }
+        }
+        
+        stream.seek(pointer); // Reset stream pointer
+        long result[] = new long[numDirectories];
+        System.arraycopy(offsets, 0, result, 0, numDirectories);
+        return result;
+    }
+    
     /**
      * Returns a boolean indicating whether the byte order used in the
      * the TIFF file is big-endian (i.e. whether the byte order is from
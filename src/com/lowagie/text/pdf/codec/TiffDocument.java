@@ -0,0 +1,279 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+
+/**
+ * Reads the pages of a multi-page TIFF document.
+ * <P>
+ * The chain of image directories is walked once when the document is
+ * created; <CODE>TiffImage.getTiffImage(s, page)</CODE> walks it again from
+ * the start for every page. The directory of a page is only parsed when the
+ * page is first asked for and the strips or tiles of the page are read and
+ * decoded one at a time while the page is converted.
+ * <P>
+ * Each page is read through its own copy of the file source, so independent
+ * pages can be converted in parallel by the threads of an <CODE>Executor</CODE>.
+ * The images come back in page order and only a few pages are converted
+ * ahead of the one being added to the document:
+ * <pre>
+ * TiffDocument tiff = new TiffDocument(new RandomAccessFileOrArray("scan.tif"));
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * for (Iterator it = tiff.getImages(executor); it.hasNext();) {
+ *     Image img = (Image)it.next();
+ *     document.setPageSize(new Rectangle(img.getScaledWidth(), img.getScaledHeight()));
+ *     document.newPage();
+ *     img.setAbsolutePosition(0, 0);
+ *     document.add(img);
+ * }
+ * </pre>
+ */
+public class TiffDocument {
+
+    /** The default number of pages converted ahead by <CODE>getImages</CODE>. */
+    public static final int DEFAULT_READ_AHEAD = 4;
+
+    private RandomAccessFileOrArray file;
+
+    /** The offsets of the image directories, by page. */
+    private long ifdOffsets[];
+
+    /** The directories already parsed, by page. */
+    private TIFFDirectory directories[];
+
+    private boolean direct;
+
+    /**
+     * Reads the chain of image directories of a TIFF document.
+     * @param file the file source, it is not read again except through copies
+     * @throws IOException on error
+     */
+    public TiffDocument(RandomAccessFileOrArray file) throws IOException {
+        this.file = file;
+        ifdOffsets = TIFFDirectory.getDirectoryOffsets(file);
+        directories = new TIFFDirectory[ifdOffsets.length];
+    }
+
+    /**
+     * Gets the number of pages of the document.
+     * @return the number of pages
+     */
+    public int getNumberOfPages() {
+        return ifdOffsets.length;
+    }
+
+    /**
+     * Gets whether single strip CCITT pages are copied directly.
+     * @return <CODE>true</CODE> if single strip CCITT pages are copied directly
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * Sets whether single strip CCITT pages are copied directly, without being
+     * decoded and encoded again. It's faster but may not work every time.
+     * @param direct <CODE>true</CODE> to copy single strip CCITT pages directly
+     */
+    public void setDirect(boolean direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * Gets the directory of a page, parsing it the first time it is asked for.
+     * @param page the page, the first page is 1
+     * @return the directory of the page
+     * @throws IOException on error
+     */
+    public TIFFDirectory getDirectory(int page) throws IOException {
+        RandomAccessFileOrArray s = new RandomAccessFileOrArray(file);
+        try {
+            return getDirectory(page, s);
+        }
+        finally {
+            s.close();
+        }
+    }
+
+    private TIFFDirectory getDirectory(int page, RandomAccessFileOrArray s) throws IOException {
+        if (page < 1 || page > ifdOffsets.length)
+            throw new IllegalArgumentException("Invalid page number: " + page);
+        synchronized (directories) {
+            if (directories[page - 1] != null)
+                return directories[page - 1];
+        }
+        TIFFDirectory dir = new TIFFDirectory(s, ifdOffsets[page - 1], 0);
+        synchronized (directories) {
+            directories[page - 1] = dir;
+        }
+        return dir;
+    }
+
+    /**
+     * Reads the image of a page. It can be called by several threads at the
+     * same time.
+     * @param page the page, the first page is 1
+     * @return the <CODE>Image</CODE>
+     */
+    public Image getImage(int page) {
+        RandomAccessFileOrArray s = new RandomAccessFileOrArray(file);
+        try {
+            return TiffImage.getTiffImage(getDirectory(page, s), s, direct);
+        }
+        catch (IOException e) {
+            throw new ExceptionConverter(e);
+        }
+        finally {
+            try {s.close();}catch(IOException ioe){}
+        }
+    }
+
+    /**
+     * Gets the images of all the pages, converted in parallel.
+     * @param executor the executor that runs the conversion of the pages
+     * @return an <CODE>Iterator</CODE> of the images, in page order
+     * @see #getImages(int, int, Executor, int)
+     */
+    public Iterator getImages(Executor executor) {
+        return getImages(1, ifdOffsets.length, executor, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Gets the images of a range of pages, converted in parallel. Each page is
+     * a task given to the executor. No more than <CODE>readAhead</CODE> pages
+     * are converted or waiting to be taken from the iterator, which keeps the
+     * memory bounded for documents with many pages. An error converting a
+     * page is thrown by <CODE>next()</CODE> when that page is reached. If the
+     * thread is interrupted while waiting for a page the pages read ahead are
+     * cancelled and the iterator has no more pages.
+     * @param fromPage the first page, starting at 1
+     * @param toPage the last page, included
+     * @param executor the executor that runs the conversion of the pages
+     * @param readAhead the maximum number of pages converted ahead
+     * @return an <CODE>Iterator</CODE> of the images, in page order
+     */
+    public Iterator getImages(final int fromPage, final int toPage, final Executor executor, final int readAhead) {
+        if (fromPage < 1 || toPage > ifdOffsets.length || fromPage > toPage)
+            throw new IllegalArgumentException("Invalid page range: " + fromPage + " to " + toPage);
+        if (readAhead < 1)
+            throw new IllegalArgumentException("The read ahead must be >= 1.");
+        return new Iterator() {
+            private LinkedList tasks = new LinkedList();
+            private int nextPage = fromPage;
+
+            private void submit() {
+                while (nextPage <= toPage && tasks.size() < readAhead) {
+                    final int page = nextPage++;
+                    FutureTask task = new FutureTask(new Callable() {
+                        public Object call() throws Exception {
+                            return getImage(page);
+                        }
+                    });
+                    tasks.addLast(task);
+                    executor.execute(task);
+                }
+            }
+
+            public boolean hasNext() {
+                submit();
+                return !tasks.isEmpty();
+            }
+
+            public Object next() {
+                submit();
+                if (tasks.isEmpty())
+                    throw new NoSuchElementException();
+                FutureTask task = (FutureTask)tasks.removeFirst();
+                submit();
+                try {
+                    return task.get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    task.cancel(true);
+                    cancel();
+                    throw new ExceptionConverter(e);
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                        throw (RuntimeException)cause;
+                    if (cause instanceof Error)
+                        throw (Error)cause;
+                    throw new ExceptionConverter((Exception)cause);
+                }
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            /**
+             * Cancels the pages read ahead and stops reading ahead.
+             */
+            private void cancel() {
+                while (!tasks.isEmpty())
+                    ((FutureTask)tasks.removeFirst()).cancel(true);
+                nextPage = toPage + 1;
+            }
+        };
+    }
+}
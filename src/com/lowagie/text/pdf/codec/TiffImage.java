@@ -118,10 +118,25 @@ public class TiffImage {
     public static Image getTiffImage(RandomAccessFileOrArray s, int page, boolean direct) {
         if (page < 1)
             throw new IllegalArgumentException("The page number must be >= 1.");
+        TIFFDirectory dir;
+        try {
+            dir = new TIFFDirectory(s, page - 1);
+        }
+        catch (Exception e) {
+            throw new ExceptionConverter(e);
+        }
+        return getTiffImage(dir, s, direct);
+    }
+    
+    /** Reads the image of an already parsed TIFF directory.
+     * @param dir the directory of the page
+     * @param s the file source
+     * @param direct for single strip, CCITT images, generate the image
+     * by direct byte copying
+     * @return the <CODE>Image</CODE>
+     */    
+    static Image getTiffImage(TIFFDirectory dir, RandomAccessFileOrArray s, boolean direct) {
         try {
-            TIFFDirectory dir = new TIFFDirectory(s, page - 1);
-            if (dir.isTagPresent(TIFFConstants.TIFFTAG_TILEWIDTH))
-                throw new IllegalArgumentException("Tiles are not supported.");
             int compression = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_COMPRESSION);
             switch (compression) {
                 case TIFFConstants.COMPRESSION_CCITTRLEW:
@@ -132,6 +147,8 @@ public class TiffImage {
                 default:
                     return getTiffImageColor(dir, s);
             }
+            if (dir.isTagPresent(TIFFConstants.TIFFTAG_TILEWIDTH))
+                throw new IllegalArgumentException("Tiles are not supported with CCITT compression.");
             float rotation = 0;
             if (dir.isTagPresent(TIFFConstants.TIFFTAG_ORIENTATION)) {
                 int rot = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_ORIENTATION);
@@ -216,6 +233,21 @@ public class TiffImage {
                 img = Image.getInstance(w, h, reverse, imagecomp, params, im);
                 img.setInverted(true);
             }
+            else if (isPassThrough(compression, tiffT6Options, h, rowsStrip, offset, size)) {
+                // the strips are embedded as they are, without being decoded and encoded again
+                int length = 0;
+                for (int k = 0; k < size.length; ++k)
+                    length += (int)size[k];
+                byte im[] = new byte[length];
+                int pos = 0;
+                for (int k = 0; k < offset.length; ++k) {
+                    s.seek(offset[k]);
+                    s.readFully(im, pos, (int)size[k]);
+                    pos += (int)size[k];
+                }
+                img = Image.getInstance(w, h, reverse, imagecomp, params, im);
+                img.setInverted(true);
+            }
             else {
                 int rowsLeft = h;
                 CCITTG4Encoder g4 = new CCITTG4Encoder(w);
@@ -281,6 +313,36 @@ public class TiffImage {
         }
     }
     
+    /**
+     * Checks if the CCITT strips of a page can be given to the
+     * <CODE>/CCITTFaxDecode</CODE> filter as they are. A G4 page must be
+     * a single strip, as each strip starts again from a white reference line,
+     * and must not use uncompressed mode. The strips of modified Huffman
+     * compression have byte aligned lines, they can be joined whatever their
+     * number.
+     */
+    static boolean isPassThrough(int compression, long tiffT6Options, int h, int rowsStrip, long offset[], long size[]) {
+        if (offset == null || size == null || size.length != offset.length)
+            return false;
+        long length = 0;
+        for (int k = 0; k < size.length; ++k) {
+            if (size[k] <= 0)
+                return false;
+            length += size[k];
+        }
+        if (length > Integer.MAX_VALUE)
+            return false;
+        switch (compression) {
+            case TIFFConstants.COMPRESSION_CCITTFAX4:
+                return offset.length == 1 && rowsStrip == h
+                    && (tiffT6Options & TIFFConstants.GROUP4OPT_UNCOMPRESSED) == 0;
+            case TIFFConstants.COMPRESSION_CCITTRLE:
+                return (long)offset.length * rowsStrip >= h;
+            default:
+                return false;
+        }
+    }
+    
     protected static Image getTiffImageColor(TIFFDirectory dir, RandomAccessFileOrArray s) {
         try {
             int compression = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_COMPRESSION);
@@ -353,10 +415,30 @@ public class TiffImage {
             int rowsStrip = h;
             if (dir.isTagPresent(TIFFConstants.TIFFTAG_ROWSPERSTRIP)) //another hack for broken tiffs
                 rowsStrip = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_ROWSPERSTRIP);
-            long offset[] = getArrayLongShort(dir, TIFFConstants.TIFFTAG_STRIPOFFSETS);
-            long size[] = getArrayLongShort(dir, TIFFConstants.TIFFTAG_STRIPBYTECOUNTS);
-            if ((size == null || (size.length == 1 && size[0] == 0)) && h == rowsStrip) { // some TIFF producers are really lousy, so...
-                size = new long[]{s.length() - (int)offset[0]};
+            // tiles are decoded a row of tiles at a time, a row of tiles is handled like a strip
+            boolean tiled = dir.isTagPresent(TIFFConstants.TIFFTAG_TILEWIDTH);
+            int tileWidth = w;
+            long offset[];
+            long size[];
+            if (tiled) {
+                if (compression == TIFFConstants.COMPRESSION_OJPEG || compression == TIFFConstants.COMPRESSION_JPEG)
+                    throw new IllegalArgumentException("Tiles are not supported with JPEG compression.");
+                tileWidth = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_TILEWIDTH);
+                rowsStrip = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_TILELENGTH);
+                if (tileWidth <= 0 || rowsStrip <= 0 || tileWidth * bitsPerSample * samplePerPixel % 8 != 0)
+                    throw new IllegalArgumentException("Invalid tile size " + tileWidth + "x" + rowsStrip + ".");
+                offset = getArrayLongShort(dir, TIFFConstants.TIFFTAG_TILEOFFSETS);
+                size = getArrayLongShort(dir, TIFFConstants.TIFFTAG_TILEBYTECOUNTS);
+                int tiles = (w + tileWidth - 1) / tileWidth * ((h + rowsStrip - 1) / rowsStrip);
+                if (offset == null || size == null || offset.length < tiles || size.length < tiles)
+                    throw new IOException("Missing tile offsets or byte counts.");
+            }
+            else {
+                offset = getArrayLongShort(dir, TIFFConstants.TIFFTAG_STRIPOFFSETS);
+                size = getArrayLongShort(dir, TIFFConstants.TIFFTAG_STRIPBYTECOUNTS);
+                if ((size == null || (size.length == 1 && size[0] == 0)) && h == rowsStrip) { // some TIFF producers are really lousy, so...
+                    size = new long[]{s.length() - (int)offset[0]};
+                }
             }
             if (compression == TIFFConstants.COMPRESSION_LZW) {
                 TIFFField predictorField = dir.getField(TIFFConstants.TIFFTAG_PREDICTOR);
@@ -369,7 +451,7 @@ public class TiffImage {
                         throw new RuntimeException(bitsPerSample + "-bit samples are not supported for Horizontal differencing Predictor.");
                     }
                 }
-                lzwDecoder = new TIFFLZWDecoder(w, predictor, 
+                lzwDecoder = new TIFFLZWDecoder(tileWidth, predictor, 
                                                 samplePerPixel); 
             }
             int rowsLeft = h;
@@ -393,16 +475,16 @@ public class TiffImage {
                     throw new IOException("Missing tag(s) for OJPEG compression.");
                 }
                 int jpegOffset = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_JPEGIFOFFSET);
-                int jpegLength = s.length() - jpegOffset;
+                int jpegLength = (int)s.length() - jpegOffset;
 
                 if (dir.isTagPresent(TIFFConstants.TIFFTAG_JPEGIFBYTECOUNT)) {
                     jpegLength = (int)dir.getFieldAsLong(TIFFConstants.TIFFTAG_JPEGIFBYTECOUNT) +
                         (int)size[0];
                 }
                 
-                byte[] jpeg = new byte[Math.min(jpegLength, s.length() - jpegOffset)];
+                byte[] jpeg = new byte[Math.min(jpegLength, (int)s.length() - jpegOffset)];
 
-                int posFilePointer = s.getFilePointer();
+                int posFilePointer = (int)s.getFilePointer();
                 posFilePointer += jpegOffset;
                 s.seek(posFilePointer);
                 s.readFully(jpeg);
@@ -416,6 +498,53 @@ public class TiffImage {
                 s.readFully(jpeg);
                 img = new Jpeg(jpeg);
             } 
+            else if (tiled) {
+                int tilesAcross = (w + tileWidth - 1) / tileWidth;
+                int tileRowBytes = tileWidth * bitsPerSample * samplePerPixel / 8;
+                int rowBytes = (w * bitsPerSample * samplePerPixel + 7) / 8;
+                byte tile[] = new byte[tileRowBytes * rowsStrip];
+                byte band[] = new byte[rowBytes * rowsStrip];
+                for (int k = 0; rowsLeft > 0; k += tilesAcross) {
+                    int height = Math.min(rowsStrip, rowsLeft);
+                    for (int x = 0; x < tilesAcross; ++x) {
+                        byte im[] = new byte[(int)size[k + x]];
+                        s.seek(offset[k + x]);
+                        s.readFully(im);
+                        switch (compression) {
+                            case TIFFConstants.COMPRESSION_DEFLATE:
+                                inflate(im, tile);
+                                break;
+                            case TIFFConstants.COMPRESSION_NONE:
+                                System.arraycopy(im, 0, tile, 0, Math.min(im.length, tile.length));
+                                break;
+                            case TIFFConstants.COMPRESSION_PACKBITS:
+                                decodePackbits(im,  tile);
+                                break;
+                            case TIFFConstants.COMPRESSION_LZW:
+                                lzwDecoder.decode(im, tile, rowsStrip);
+                                break;
+                        }
+                        int start = x * tileRowBytes;
+                        int n = Math.min(tileRowBytes, rowBytes - start);
+                        for (int r = 0; r < height; ++r)
+                            System.arraycopy(tile, r * tileRowBytes, band, r * rowBytes + start, n);
+                    }
+                    if (bitsPerSample == 1 && samplePerPixel == 1)
+                        g4.fax4Encode(band, height);
+                    else
+                        zip.write(band, 0, rowBytes * height);
+                    rowsLeft -= rowsStrip;
+                }
+                if (bitsPerSample == 1 && samplePerPixel == 1) {
+                    img = Image.getInstance(w, h, false, Image.CCITTG4, 
+                        photometric == TIFFConstants.PHOTOMETRIC_MINISBLACK ? Image.CCITT_BLACKIS1 : 0, g4.close());
+                }
+                else {
+                    zip.close();
+                    img = Image.getInstance(w, h, samplePerPixel, bitsPerSample, stream.toByteArray());
+                    img.setDeflated(true);
+                }
+            }
             else {
                 for (int k = 0; k < offset.length; ++k) {
                     byte im[] = new byte[(int)size[k]];
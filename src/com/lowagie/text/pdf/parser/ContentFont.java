@@ -0,0 +1,630 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.GlyphList;
+import com.lowagie.text.pdf.IntHashtable;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PRTokeniser;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfContentParser;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfEncodings;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfString;
+
+/**
+ * A font used by a content stream, as seen by the <CODE>PdfContentStreamProcessor</CODE>.
+ * It splits the strings shown in character codes and gives their widths.
+ * <P>
+ * The codes of a Type 0 font are split and mapped to CIDs with the cmap of its
+ * encoding, a CJK cmap or an embedded one, and their widths are looked up by CID.
+ * The Identity-H and Identity-V encodings, and the cmaps that can't be read, have
+ * two byte codes that are the CIDs. The codes of the other fonts are single
+ * bytes. A simple font without widths is measured with the built-in metrics of
+ * the standard 14 fonts, through its encoding, when its name is one of them.
+ * <P>
+ * The codes are decoded to Unicode with the ToUnicode cmap of the font when
+ * there is one. Otherwise the codes of a simple font are decoded with its
+ * encoding and differences, and the codes of a Type 0 font with a UCS-2 cmap
+ * are Unicode already. The font is read once and can then be used by several
+ * threads.
+ */
+public class ContentFont {
+
+    /** The width of a glyph when the font gives none at all. */
+    private static final int UNKNOWN_WIDTH = 500;
+
+    private static final PdfName MISSINGWIDTH = new PdfName("MissingWidth");
+
+    private static final int STANDARD_ENCODING[] = {
+        0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        32,33,34,35,36,37,38,8217,40,41,42,43,44,45,46,47,
+        48,49,50,51,52,53,54,55,56,57,58,59,60,61,62,63,
+        64,65,66,67,68,69,70,71,72,73,74,75,76,77,78,79,
+        80,81,82,83,84,85,86,87,88,89,90,91,92,93,94,95,
+        8216,97,98,99,100,101,102,103,104,105,106,107,108,109,110,111,
+        112,113,114,115,116,117,118,119,120,121,122,123,124,125,126,0,
+        0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        0,161,162,163,8260,165,402,167,164,39,8220,171,8249,8250,64257,64258,
+        0,8211,8224,8225,183,0,182,8226,8218,8222,8221,187,8230,8240,0,191,
+        0,96,180,710,732,175,728,729,168,0,730,184,0,733,731,711,
+        8212,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,
+        0,198,0,170,0,0,0,0,321,216,338,186,0,0,0,0,
+        0,230,0,0,0,305,0,0,322,248,339,223,0,0,0,0};
+
+    /** The font dictionary. */
+    protected PdfDictionary font;
+    /** The subtype of the font. */
+    protected PdfName subtype;
+    /** The name of the font, without a subset prefix. */
+    protected String fontName;
+    /** <CODE>true</CODE> for a Type 0 font, the codes have one byte or more. */
+    protected boolean twoByte;
+    /** The cmap from the codes of a Type 0 font to the CIDs, <CODE>null</CODE> for Identity-H. */
+    private char cmap[][];
+    /** The length of the shortest code of the cmap. */
+    private int minCodeLength = 2;
+    /** The widths of the codes of a simple font, in glyph space. */
+    private int widths[];
+    /** The widths of the CIDs of a Type 0 font, in glyph space. */
+    private IntHashtable cidWidths;
+    /** The width of the codes without a width of their own. */
+    private int defaultWidth;
+    /** The factor from glyph space to text space. */
+    private float scale = 0.001f;
+    /** The Unicode character of the codes of a simple font, 0 if unknown. */
+    private char chars[];
+    /** The Unicode character of the codes of a Type 0 font. */
+    private IntHashtable cidChars;
+    /** The codes mapped to more than one character, ligatures for example. */
+    private HashMap strings;
+    /** <CODE>true</CODE> if the codes of a Type 0 font are UCS-2. */
+    private boolean ucs2;
+
+    /**
+     * Creates the font from its dictionary.
+     * @param font the font dictionary
+     */
+    public ContentFont(PdfDictionary font) {
+        this.font = font;
+        subtype = (PdfName)PdfReader.getPdfObjectRelease(font.get(PdfName.SUBTYPE));
+        PdfObject base = PdfReader.getPdfObjectRelease(font.get(PdfName.BASEFONT));
+        fontName = base != null && base.isName() ? PdfName.decodeName(base.toString()) : "";
+        if (fontName.length() > 7 && fontName.charAt(6) == '+')
+            fontName = fontName.substring(7);
+        if (PdfName.TYPE0.equals(subtype)) {
+            readType0Widths();
+            readCmap();
+            cidChars = new IntHashtable();
+        }
+        else {
+            String names[] = readEncoding();
+            readSimpleWidths(names);
+        }
+        PdfObject toUnicode = PdfReader.getPdfObjectRelease(font.get(PdfName.TOUNICODE));
+        if (toUnicode != null && toUnicode.isStream()) {
+            try {
+                readToUnicode(PdfReader.getStreamBytes((PRStream)toUnicode));
+            }
+            catch (Exception e) {
+                throw new ExceptionConverter(e);
+            }
+        }
+    }
+
+    private void readType0Widths() {
+        twoByte = true;
+        defaultWidth = 1000;
+        cidWidths = new IntHashtable();
+        PdfArray df = (PdfArray)PdfReader.getPdfObjectRelease(font.get(PdfName.DESCENDANTFONTS));
+        if (df == null || df.size() == 0)
+            return;
+        PdfDictionary cidFont = (PdfDictionary)PdfReader.getPdfObjectRelease((PdfObject)df.getArrayList().get(0));
+        PdfNumber dw = (PdfNumber)PdfReader.getPdfObjectRelease(cidFont.get(PdfName.DW));
+        if (dw != null)
+            defaultWidth = dw.intValue();
+        PdfArray w = (PdfArray)PdfReader.getPdfObjectRelease(cidFont.get(PdfName.W));
+        if (w == null)
+            return;
+        ArrayList ar = w.getArrayList();
+        for (int k = 0; k + 1 < ar.size(); ++k) {
+            int c1 = ((PdfNumber)PdfReader.getPdfObjectRelease((PdfObject)ar.get(k))).intValue();
+            PdfObject obj = PdfReader.getPdfObjectRelease((PdfObject)ar.get(++k));
+            if (obj.isArray()) {
+                ArrayList ar2 = ((PdfArray)obj).getArrayList();
+                for (int j = 0; j < ar2.size(); ++j)
+                    cidWidths.put(c1++, ((PdfNumber)PdfReader.getPdfObjectRelease((PdfObject)ar2.get(j))).intValue());
+            }
+            else if (k + 1 < ar.size()) {
+                int c2 = ((PdfNumber)obj).intValue();
+                int cw = ((PdfNumber)PdfReader.getPdfObjectRelease((PdfObject)ar.get(++k))).intValue();
+                for (; c1 <= c2; ++c1)
+                    cidWidths.put(c1, cw);
+            }
+        }
+    }
+
+    private void readCmap() {
+        PdfObject enc = PdfReader.getPdfObjectRelease(font.get(PdfName.ENCODING));
+        try {
+            if (enc != null && enc.isName()) {
+                String name = PdfName.decodeName(enc.toString());
+                ucs2 = name.indexOf("-UCS2-") >= 0 || name.indexOf("-UTF16-") >= 0;
+                if (!name.equals(BaseFont.IDENTITY_H) && !name.equals(BaseFont.IDENTITY_V))
+                    cmap = PdfEncodings.getCmapPlanes(name);
+            }
+            else if (enc != null && enc.isStream())
+                cmap = PdfEncodings.readCmapPlanes(PdfReader.getStreamBytes((PRStream)enc));
+        }
+        catch (Exception e) {
+            // the cmap is not available, read the codes as Identity-H
+            cmap = null;
+        }
+        if (cmap != null)
+            minCodeLength = getMinCodeLength(cmap);
+    }
+
+    /**
+     * Gets the length of the shortest code mapped by a cmap, the length of the
+     * codes that aren't mapped.
+     */
+    private static int getMinCodeLength(char planes[][]) {
+        ArrayList level = new ArrayList();
+        level.add(planes[0]);
+        for (int len = 1; len <= 4 && !level.isEmpty(); ++len) {
+            ArrayList next = new ArrayList();
+            for (int k = 0; k < level.size(); ++k) {
+                char plane[] = (char[])level.get(k);
+                for (int j = 0; j < plane.length; ++j) {
+                    char c = plane[j];
+                    if ((c & 0x8000) != 0)
+                        next.add(planes[c & 0x7fff]);
+                    else if (c != 0)
+                        return len;
+                }
+            }
+            level = next;
+        }
+        return 2;
+    }
+
+    private void readSimpleWidths(String names[]) {
+        widths = new int[256];
+        if (PdfName.TYPE3.equals(subtype)) {
+            PdfArray matrix = (PdfArray)PdfReader.getPdfObjectRelease(font.get(PdfName.FONTMATRIX));
+            if (matrix != null && matrix.size() > 0)
+                scale = ((PdfNumber)PdfReader.getPdfObjectRelease((PdfObject)matrix.getArrayList().get(0))).floatValue();
+        }
+        PdfDictionary fontDesc = (PdfDictionary)PdfReader.getPdfObjectRelease(font.get(PdfName.FONTDESCRIPTOR));
+        if (fontDesc != null) {
+            PdfNumber missing = (PdfNumber)PdfReader.getPdfObjectRelease(fontDesc.get(MISSINGWIDTH));
+            if (missing != null)
+                defaultWidth = missing.intValue();
+        }
+        PdfArray w = (PdfArray)PdfReader.getPdfObjectRelease(font.get(PdfName.WIDTHS));
+        PdfNumber first = (PdfNumber)PdfReader.getPdfObjectRelease(font.get(PdfName.FIRSTCHAR));
+        if (w == null) {
+            int builtin[] = getBuiltinWidths(fontName, names);
+            if (builtin != null) {
+                System.arraycopy(builtin, 0, widths, 0, Math.min(builtin.length, widths.length));
+                return;
+            }
+            if (defaultWidth == 0)
+                defaultWidth = UNKNOWN_WIDTH;
+        }
+        for (int k = 0; k < widths.length; ++k)
+            widths[k] = defaultWidth;
+        if (w == null)
+            return;
+        int f = first == null ? 0 : first.intValue();
+        ArrayList ar = w.getArrayList();
+        for (int k = 0; k < ar.size() && f + k < widths.length; ++k) {
+            if (f + k < 0)
+                continue;
+            PdfObject obj = PdfReader.getPdfObjectRelease((PdfObject)ar.get(k));
+            if (obj != null && obj.isNumber())
+                widths[f + k] = ((PdfNumber)obj).intValue();
+        }
+    }
+
+    /**
+     * Reads the Unicode characters of the codes of a simple font.
+     * @return the glyph names of the codes, <CODE>null</CODE> if the font
+     * uses its built-in encoding
+     */
+    private String[] readEncoding() {
+        chars = new char[256];
+        PdfObject enc = PdfReader.getPdfObjectRelease(font.get(PdfName.ENCODING));
+        PdfArray differences = null;
+        if (enc != null && enc.isDictionary()) {
+            PdfDictionary encDic = (PdfDictionary)enc;
+            differences = (PdfArray)PdfReader.getPdfObjectRelease(encDic.get(PdfName.DIFFERENCES));
+            enc = PdfReader.getPdfObjectRelease(encDic.get(PdfName.BASEENCODING));
+        }
+        String base = null;
+        if (PdfName.WIN_ANSI_ENCODING.equals(enc))
+            base = BaseFont.WINANSI;
+        else if (PdfName.MAC_ROMAN_ENCODING.equals(enc))
+            base = BaseFont.MACROMAN;
+        else if (enc == null && PdfName.TRUETYPE.equals(subtype))
+            base = BaseFont.WINANSI;
+        if (base != null) {
+            byte b[] = new byte[256];
+            for (int k = 0; k < 256; ++k)
+                b[k] = (byte)k;
+            String cv = PdfEncodings.convertToString(b, base);
+            for (int k = 0; k < 256 && k < cv.length(); ++k)
+                chars[k] = cv.charAt(k);
+        }
+        else {
+            for (int k = 0; k < 256; ++k)
+                chars[k] = (char)STANDARD_ENCODING[k];
+        }
+        if (base == null && differences == null)
+            return null;
+        String names[] = new String[256];
+        for (int k = 0; k < 256; ++k) {
+            if (chars[k] != 0)
+                names[k] = GlyphList.unicodeToName(chars[k]);
+        }
+        if (differences == null)
+            return names;
+        ArrayList dif = differences.getArrayList();
+        int currentNumber = 0;
+        for (int k = 0; k < dif.size(); ++k) {
+            PdfObject obj = (PdfObject)dif.get(k);
+            if (obj.isNumber())
+                currentNumber = ((PdfNumber)obj).intValue();
+            else if (obj.isName()) {
+                if (currentNumber >= 0 && currentNumber < 256) {
+                    String name = PdfName.decodeName(obj.toString());
+                    names[currentNumber] = name;
+                    chars[currentNumber] = glyphToUnicode(name);
+                }
+                ++currentNumber;
+            }
+        }
+        return names;
+    }
+
+    private static char glyphToUnicode(String name) {
+        int c[] = GlyphList.nameToUnicode(name);
+        if (c != null && c.length > 0)
+            return (char)c[0];
+        try {
+            if (name.startsWith("uni") && name.length() == 7)
+                return (char)Integer.parseInt(name.substring(3), 16);
+            if (name.startsWith("u") && name.length() >= 5 && name.length() <= 7)
+                return (char)Integer.parseInt(name.substring(1), 16);
+        }
+        catch (NumberFormatException e) {
+            // not a Unicode value
+        }
+        return 0;
+    }
+
+    /**
+     * Reads the <CODE>bfchar</CODE> and <CODE>bfrange</CODE> mappings of a
+     * ToUnicode cmap.
+     */
+    private void readToUnicode(byte cmap[]) throws java.io.IOException {
+        PdfContentParser ps = new PdfContentParser(new PRTokeniser(cmap));
+        PdfObject ob;
+        while ((ob = ps.readPRObject()) != null) {
+            if (ob.type() != PdfContentParser.COMMAND_TYPE)
+                continue;
+            String op = ob.toString();
+            if (op.equals("beginbfchar")) {
+                while (true) {
+                    PdfObject code = ps.readPRObject();
+                    if (code == null || !code.isString())
+                        break;
+                    PdfObject uni = ps.readPRObject();
+                    if (uni == null)
+                        break;
+                    if (uni.isString())
+                        putUnicode(toCode((PdfString)code), toUnicode((PdfString)uni));
+                }
+            }
+            else if (op.equals("beginbfrange")) {
+                while (true) {
+                    PdfObject code1 = ps.readPRObject();
+                    if (code1 == null || !code1.isString())
+                        break;
+                    PdfObject code2 = ps.readPRObject();
+                    PdfObject uni = ps.readPRObject();
+                    if (code2 == null || uni == null || !code2.isString())
+                        break;
+                    int c1 = toCode((PdfString)code1);
+                    int c2 = Math.min(toCode((PdfString)code2), c1 + 0xffff);
+                    if (uni.isString()) {
+                        String s = toUnicode((PdfString)uni);
+                        if (s.length() == 0)
+                            continue;
+                        char last = s.charAt(s.length() - 1);
+                        String prefix = s.substring(0, s.length() - 1);
+                        for (int c = c1; c <= c2; ++c, ++last)
+                            putUnicode(c, prefix.length() == 0 ? String.valueOf(last) : prefix + last);
+                    }
+                    else if (uni.isArray()) {
+                        ArrayList ar = ((PdfArray)uni).getArrayList();
+                        for (int j = 0; j < ar.size() && c1 <= c2; ++j, ++c1) {
+                            PdfObject s = (PdfObject)ar.get(j);
+                            if (s.isString())
+                                putUnicode(c1, toUnicode((PdfString)s));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int toCode(PdfString s) {
+        byte b[] = s.getBytes();
+        int code = 0;
+        for (int k = 0; k < b.length; ++k)
+            code = (code << 8) | (b[k] & 0xff);
+        return code;
+    }
+
+    private static String toUnicode(PdfString s) {
+        return PdfEncodings.convertToString(s.getBytes(), "UnicodeBigUnmarked");
+    }
+
+    private void putUnicode(int code, String uni) {
+        if (uni.length() == 1) {
+            if (twoByte)
+                cidChars.put(code, uni.charAt(0));
+            else if (code >= 0 && code < 256)
+                chars[code] = uni.charAt(0);
+            if (strings != null)
+                strings.remove(Integer.valueOf(code));
+        }
+        else if (uni.length() > 1) {
+            if (strings == null)
+                strings = new HashMap();
+            strings.put(Integer.valueOf(code), uni);
+        }
+    }
+
+    /**
+     * Gets the widths of the codes from the metrics of a standard 14 font.
+     * @param name the name of the font
+     * @param names the glyph names of the codes, <CODE>null</CODE> for the
+     * built-in encoding of the font
+     * @return the widths or <CODE>null</CODE> if the font isn't a standard one
+     */
+    private int[] getBuiltinWidths(String name, String names[]) {
+        try {
+            BaseFont bf = BaseFont.createFont(name, BaseFont.WINANSI, false);
+            if (names == null) {
+                if (bf.isFontSpecific())
+                    return bf.getWidths();
+                names = new String[256];
+                for (int k = 0; k < 256; ++k) {
+                    if (chars[k] != 0)
+                        names[k] = GlyphList.unicodeToName(chars[k]);
+                }
+            }
+            StringBuffer enc = new StringBuffer("# full");
+            for (int k = 0; k < 256; ++k) {
+                if (names[k] != null)
+                    enc.append(' ').append(k).append(' ').append(names[k]).append(' ').append(Integer.toHexString(chars[k]));
+            }
+            return BaseFont.createFont(name, enc.toString(), false, false, null, null).getWidths();
+        }
+        catch (Exception e) {
+            // not one of the standard 14 fonts
+            return null;
+        }
+    }
+
+    /**
+     * Gets the font dictionary.
+     * @return the font dictionary
+     */
+    public PdfDictionary getFontDictionary() {
+        return font;
+    }
+
+    /**
+     * Gets the name of the font, without the subset prefix.
+     * @return the name of the font
+     */
+    public String getFontName() {
+        return fontName;
+    }
+
+    /**
+     * Checks if the character codes can have more than one byte.
+     * @return <CODE>true</CODE> for a Type 0 font
+     */
+    public boolean isTwoByte() {
+        return twoByte;
+    }
+
+    /**
+     * Reads the character code at a position of a string.
+     * @param bytes the bytes of the string
+     * @param offset the position of the code
+     * @return the code
+     */
+    public int getCode(byte bytes[], int offset) {
+        return getCode(bytes, offset, getCodeLength(bytes, offset));
+    }
+
+    private static int getCode(byte bytes[], int offset, int length) {
+        int end = Math.min(offset + length, bytes.length);
+        int code = 0;
+        for (int k = offset; k < end; ++k)
+            code = (code << 8) | (bytes[k] & 0xff);
+        return code;
+    }
+
+    /**
+     * Gets the number of bytes of the character code at a position of a string.
+     * A code cut by the end of the string is longer than the bytes left.
+     * @param bytes the bytes of the string
+     * @param offset the position of the code
+     * @return 1 for a simple font, 2 for a Type 0 font with the Identity-H
+     * encoding, the length given by the cmap for the other Type 0 fonts
+     */
+    public int getCodeLength(byte bytes[], int offset) {
+        if (!twoByte)
+            return 1;
+        if (cmap == null)
+            return 2;
+        int plane = 0;
+        for (int k = offset; k < bytes.length;) {
+            char c = cmap[plane][bytes[k++] & 0xff];
+            if ((c & 0x8000) == 0)
+                return c == 0 ? Math.max(k - offset, minCodeLength) : k - offset;
+            plane = c & 0x7fff;
+        }
+        return bytes.length - offset + 1;
+    }
+
+    /**
+     * Maps a character code of a Type 0 font to its CID.
+     * @param code the character code
+     * @return the CID, 0 if the code isn't mapped
+     */
+    private int getCid(int code) {
+        if (cmap == null)
+            return code;
+        for (int len = 1; len <= 4; ++len) {
+            if (len < 4 && (code >>> (len * 8)) != 0)
+                continue;
+            int plane = 0;
+            for (int k = len - 1; k >= 0; --k) {
+                char c = cmap[plane][(code >>> (k * 8)) & 0xff];
+                if ((c & 0x8000) == 0) {
+                    if (k == 0)
+                        return c;
+                    break;
+                }
+                plane = c & 0x7fff;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the width of a character code.
+     * @param code the character code
+     * @return the width in text space for a font size of 1
+     */
+    public float getWidth(int code) {
+        if (twoByte) {
+            int cid = getCid(code);
+            if (cidWidths.containsKey(cid))
+                return cidWidths.get(cid) * scale;
+            return defaultWidth * scale;
+        }
+        if (code < 0 || code >= widths.length)
+            return defaultWidth * scale;
+        return widths[code] * scale;
+    }
+
+    /**
+     * Decodes the character codes of a string to Unicode. The codes without a
+     * Unicode value are skipped.
+     * @param bytes the bytes of the string
+     * @param offset the position of the first code
+     * @param length the number of bytes to decode
+     * @param buf the buffer the text is appended to
+     */
+    public void decode(byte bytes[], int offset, int length, StringBuffer buf) {
+        int end = offset + length;
+        for (int k = offset; k < end;) {
+            int len = getCodeLength(bytes, k);
+            if (k + len > end)
+                break;
+            int code = getCode(bytes, k, len);
+            k += len;
+            char c = 0;
+            if (twoByte) {
+                c = (char)cidChars.get(code);
+                if (c == 0 && ucs2 && !cidChars.containsKey(code))
+                    c = (char)code;
+            }
+            else
+                c = chars[code];
+            if (c != 0)
+                buf.append(c);
+            else if (strings != null) {
+                String s = (String)strings.get(Integer.valueOf(code));
+                if (s != null)
+                    buf.append(s);
+            }
+        }
+    }
+
+    /**
+     * Decodes the character codes of a string to Unicode.
+     * @param bytes the bytes of the string
+     * @return the text
+     */
+    public String decode(byte bytes[]) {
+        StringBuffer buf = new StringBuffer(bytes.length);
+        decode(bytes, 0, bytes.length, buf);
+        return buf.toString();
+    }
+}
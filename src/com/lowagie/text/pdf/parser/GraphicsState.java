@@ -0,0 +1,194 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+/**
+ * The part of the graphics state of a content stream that is tracked by the
+ * <CODE>PdfContentStreamProcessor</CODE>: the current transformation matrix,
+ * the text state and the line width. The <CODE>q</CODE> operator saves a copy
+ * of it and the <CODE>Q</CODE> operator restores it.
+ */
+public class GraphicsState {
+
+    /** The current transformation matrix. */
+    Matrix ctm;
+    /** The character spacing, <CODE>Tc</CODE>. */
+    float characterSpacing;
+    /** The word spacing, <CODE>Tw</CODE>. */
+    float wordSpacing;
+    /** The horizontal scaling, <CODE>Tz</CODE>, 1 meaning 100 percent. */
+    float horizontalScaling = 1;
+    /** The leading, <CODE>TL</CODE>. */
+    float leading;
+    /** The font, <CODE>Tf</CODE>. */
+    ContentFont font;
+    /** The font size, <CODE>Tf</CODE>. */
+    float fontSize;
+    /** The text rendering mode, <CODE>Tr</CODE>. */
+    int renderMode;
+    /** The text rise, <CODE>Ts</CODE>. */
+    float rise;
+    /** The line width, <CODE>w</CODE>. */
+    float lineWidth = 1;
+
+    /**
+     * Creates the initial graphics state of a page.
+     */
+    public GraphicsState() {
+        ctm = new Matrix();
+    }
+
+    /**
+     * Creates a copy of a graphics state.
+     * @param source the graphics state to copy
+     */
+    public GraphicsState(GraphicsState source) {
+        set(source);
+    }
+
+    /**
+     * Sets this graphics state to the values of another one.
+     * @param source the graphics state to copy
+     */
+    void set(GraphicsState source) {
+        if (ctm == null)
+            ctm = new Matrix(source.ctm);
+        else
+            ctm.set(source.ctm);
+        characterSpacing = source.characterSpacing;
+        wordSpacing = source.wordSpacing;
+        horizontalScaling = source.horizontalScaling;
+        leading = source.leading;
+        font = source.font;
+        fontSize = source.fontSize;
+        renderMode = source.renderMode;
+        rise = source.rise;
+        lineWidth = source.lineWidth;
+    }
+
+    /**
+     * Gets the current transformation matrix.
+     * @return the current transformation matrix
+     */
+    public Matrix getCtm() {
+        return ctm;
+    }
+
+    /**
+     * Gets the character spacing.
+     * @return the character spacing in unscaled text space units
+     */
+    public float getCharacterSpacing() {
+        return characterSpacing;
+    }
+
+    /**
+     * Gets the word spacing.
+     * @return the word spacing in unscaled text space units
+     */
+    public float getWordSpacing() {
+        return wordSpacing;
+    }
+
+    /**
+     * Gets the horizontal scaling.
+     * @return the horizontal scaling, 1 meaning 100 percent
+     */
+    public float getHorizontalScaling() {
+        return horizontalScaling;
+    }
+
+    /**
+     * Gets the leading.
+     * @return the leading in unscaled text space units
+     */
+    public float getLeading() {
+        return leading;
+    }
+
+    /**
+     * Gets the font.
+     * @return the font or <CODE>null</CODE> if no font was set
+     */
+    public ContentFont getFont() {
+        return font;
+    }
+
+    /**
+     * Gets the font size.
+     * @return the font size
+     */
+    public float getFontSize() {
+        return fontSize;
+    }
+
+    /**
+     * Gets the text rendering mode.
+     * @return the text rendering mode, from 0 to 7
+     */
+    public int getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Gets the text rise.
+     * @return the text rise in unscaled text space units
+     */
+    public float getRise() {
+        return rise;
+    }
+
+    /**
+     * Gets the line width.
+     * @return the line width in user space units
+     */
+    public float getLineWidth() {
+        return lineWidth;
+    }
+}
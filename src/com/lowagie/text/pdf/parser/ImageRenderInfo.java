@@ -0,0 +1,138 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfIndirectReference;
+import com.lowagie.text.pdf.PdfName;
+
+/**
+ * An image painted in a content stream. It is given to
+ * <CODE>RenderListener.renderImage</CODE> and reused for the next image.
+ * <P>
+ * The image is painted in the unit square of the current transformation matrix.
+ */
+public class ImageRenderInfo {
+
+    private PdfName name;
+    private PdfIndirectReference reference;
+    private PdfDictionary dictionary;
+    private byte data[];
+    private GraphicsState gs;
+
+    ImageRenderInfo() {
+    }
+
+    void set(PdfName name, PdfIndirectReference reference, PdfDictionary dictionary, byte data[], GraphicsState gs) {
+        this.name = name;
+        this.reference = reference;
+        this.dictionary = dictionary;
+        this.data = data;
+        this.gs = gs;
+    }
+
+    /**
+     * Checks if the image is an inline image.
+     * @return <CODE>true</CODE> for an inline image
+     */
+    public boolean isInline() {
+        return data != null;
+    }
+
+    /**
+     * Gets the name of the image XObject in the resources.
+     * @return the name or <CODE>null</CODE> for an inline image
+     */
+    public PdfName getName() {
+        return name;
+    }
+
+    /**
+     * Gets the reference of the image XObject.
+     * @return the reference or <CODE>null</CODE> for an inline image or a
+     * direct object
+     */
+    public PdfIndirectReference getReference() {
+        return reference;
+    }
+
+    /**
+     * Gets the dictionary of the image. For an image XObject it is the stream,
+     * its data isn't read until it is asked for. The keys of an inline image
+     * are the abbreviations allowed in content streams.
+     * @return the dictionary of the image
+     */
+    public PdfDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Gets the data of an inline image, as it is in the content stream.
+     * @return the data or <CODE>null</CODE> for an image XObject
+     */
+    public byte[] getInlineData() {
+        return data;
+    }
+
+    /**
+     * Gets the current transformation matrix the image is painted with.
+     * @return the current transformation matrix
+     */
+    public Matrix getCtm() {
+        return gs.ctm;
+    }
+
+    /**
+     * Gets the graphics state the image is painted with.
+     * @return the graphics state
+     */
+    public GraphicsState getGraphicsState() {
+        return gs;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+
+/**
+ * Puts together the text of a page in reading order, whatever the order it
+ * is written in the content stream. The strings are kept as <CODE>TextChunk</CODE>
+ * objects with their location and sorted by line and along the line when the
+ * text is asked for. A space is inserted where there is a gap between two
+ * chunks of a line.
+ */
+public class LocationTextExtractionStrategy implements TextExtractionStrategy {
+
+    private ArrayList chunks = new ArrayList();
+    private boolean sorted = true;
+
+    /**
+     * Creates a strategy.
+     */
+    public LocationTextExtractionStrategy() {
+    }
+
+    public void beginTextBlock() {
+    }
+
+    public void endTextBlock() {
+    }
+
+    public void renderText(TextRenderInfo info) {
+        String text = info.getText();
+        if (text.length() == 0)
+            return;
+        chunks.add(new TextChunk(text, info.getStartX(), info.getStartY(), info.getEndX(), info.getEndY(),
+            info.getSpaceWidth(), info.getUserFontSize()));
+        sorted = false;
+    }
+
+    public void renderImage(ImageRenderInfo info) {
+    }
+
+    public void beginMarkedContent(PdfName tag, PdfDictionary properties) {
+    }
+
+    public void endMarkedContent() {
+    }
+
+    /**
+     * Gets the pieces of text of the page with their location, in reading order.
+     * @return a list of <CODE>TextChunk</CODE>
+     */
+    public List getChunks() {
+        if (!sorted) {
+            Collections.sort(chunks);
+            sorted = true;
+        }
+        return chunks;
+    }
+
+    public String getResultantText() {
+        List list = getChunks();
+        StringBuffer sb = new StringBuffer();
+        TextChunk last = null;
+        for (int k = 0; k < list.size(); ++k) {
+            TextChunk chunk = (TextChunk)list.get(k);
+            if (last != null) {
+                if (chunk.sameLine(last)) {
+                    if (chunk.distanceFromEndOf(last) > chunk.getSpaceWidth() / 2
+                        && !chunk.getText().startsWith(" ") && sb.charAt(sb.length() - 1) != ' ')
+                        sb.append(' ');
+                }
+                else
+                    sb.append('\n');
+            }
+            sb.append(chunk.getText());
+            last = chunk;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+/**
+ * A transformation matrix of the PDF coordinate system, [a b c d e f]. It maps
+ * the point (x, y) to (a * x + c * y + e, b * x + d * y + f).
+ * <P>
+ * The matrix can be changed, the <CODE>PdfContentStreamProcessor</CODE> updates
+ * its matrices in place as it runs through the content.
+ */
+public class Matrix {
+
+    private float a;
+    private float b;
+    private float c;
+    private float d;
+    private float e;
+    private float f;
+
+    /**
+     * Creates the identity matrix.
+     */
+    public Matrix() {
+        a = 1;
+        d = 1;
+    }
+
+    /**
+     * Creates a matrix.
+     * @param a the a element
+     * @param b the b element
+     * @param c the c element
+     * @param d the d element
+     * @param e the e element, the horizontal translation
+     * @param f the f element, the vertical translation
+     */
+    public Matrix(float a, float b, float c, float d, float e, float f) {
+        set(a, b, c, d, e, f);
+    }
+
+    /**
+     * Creates a copy of a matrix.
+     * @param m the matrix to copy
+     */
+    public Matrix(Matrix m) {
+        set(m);
+    }
+
+    /**
+     * Sets all the elements of the matrix.
+     * @param a the a element
+     * @param b the b element
+     * @param c the c element
+     * @param d the d element
+     * @param e the e element, the horizontal translation
+     * @param f the f element, the vertical translation
+     */
+    public void set(float a, float b, float c, float d, float e, float f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+    }
+
+    /**
+     * Sets this matrix to the values of another one.
+     * @param m the matrix to copy
+     */
+    public void set(Matrix m) {
+        set(m.a, m.b, m.c, m.d, m.e, m.f);
+    }
+
+    /**
+     * Applies a transformation before this one, as the <CODE>cm</CODE> operator
+     * does with the current transformation matrix: this = m &times; this.
+     * @param m the transformation to apply first
+     */
+    public void concatenate(Matrix m) {
+        concatenate(m.a, m.b, m.c, m.d, m.e, m.f);
+    }
+
+    /**
+     * Applies a transformation before this one: this = [a b c d e f] &times; this.
+     * @param a the a element
+     * @param b the b element
+     * @param c the c element
+     * @param d the d element
+     * @param e the e element
+     * @param f the f element
+     */
+    public void concatenate(float a, float b, float c, float d, float e, float f) {
+        float na = a * this.a + b * this.c;
+        float nb = a * this.b + b * this.d;
+        float nc = c * this.a + d * this.c;
+        float nd = c * this.b + d * this.d;
+        float ne = e * this.a + f * this.c + this.e;
+        float nf = e * this.b + f * this.d + this.f;
+        set(na, nb, nc, nd, ne, nf);
+    }
+
+    /**
+     * Applies a translation before this transformation, as the <CODE>Td</CODE>
+     * operator does with the text line matrix.
+     * @param tx the horizontal translation
+     * @param ty the vertical translation
+     */
+    public void translate(float tx, float ty) {
+        e += tx * a + ty * c;
+        f += tx * b + ty * d;
+    }
+
+    /**
+     * Gets the product of this matrix by another one, this &times; m.
+     * @param m the matrix to apply after this one
+     * @return a new matrix
+     */
+    public Matrix multiply(Matrix m) {
+        Matrix r = new Matrix(m);
+        r.concatenate(this);
+        return r;
+    }
+
+    /**
+     * Transforms the horizontal coordinate of a point.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the transformed x coordinate
+     */
+    public float transformX(float x, float y) {
+        return a * x + c * y + e;
+    }
+
+    /**
+     * Transforms the vertical coordinate of a point.
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @return the transformed y coordinate
+     */
+    public float transformY(float x, float y) {
+        return b * x + d * y + f;
+    }
+
+    /**
+     * Gets the a element.
+     * @return the a element
+     */
+    public float getA() {
+        return a;
+    }
+
+    /**
+     * Gets the b element.
+     * @return the b element
+     */
+    public float getB() {
+        return b;
+    }
+
+    /**
+     * Gets the c element.
+     * @return the c element
+     */
+    public float getC() {
+        return c;
+    }
+
+    /**
+     * Gets the d element.
+     * @return the d element
+     */
+    public float getD() {
+        return d;
+    }
+
+    /**
+     * Gets the e element, the horizontal translation.
+     * @return the e element
+     */
+    public float getE() {
+        return e;
+    }
+
+    /**
+     * Gets the f element, the vertical translation.
+     * @return the f element
+     */
+    public float getF() {
+        return f;
+    }
+
+    /**
+     * Checks if two matrices have the same elements.
+     * @param obj the other matrix
+     * @return <CODE>true</CODE> if the elements are the same
+     */
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Matrix))
+            return false;
+        Matrix m = (Matrix)obj;
+        return a == m.a && b == m.b && c == m.c && d == m.d && e == m.e && f == m.f;
+    }
+
+    /**
+     * Gets a hash code consistent with <CODE>equals</CODE>.
+     * @return the hash code
+     */
+    public int hashCode() {
+        int h = Float.floatToIntBits(a);
+        h = h * 31 + Float.floatToIntBits(b);
+        h = h * 31 + Float.floatToIntBits(c);
+        h = h * 31 + Float.floatToIntBits(d);
+        h = h * 31 + Float.floatToIntBits(e);
+        return h * 31 + Float.floatToIntBits(f);
+    }
+
+    /**
+     * Gets the matrix as the operands of a <CODE>cm</CODE> operator.
+     * @return the elements separated by spaces
+     */
+    public String toString() {
+        return a + " " + b + " " + c + " " + d + " " + e + " " + f;
+    }
+}
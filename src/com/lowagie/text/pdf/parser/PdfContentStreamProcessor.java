@@ -0,0 +1,700 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.IntHashtable;
+import com.lowagie.text.pdf.PRIndirectReference;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PRTokeniser;
+import com.lowagie.text.pdf.PdfArray;
+import com.lowagie.text.pdf.PdfContentParser;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfIndirectReference;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfNumber;
+import com.lowagie.text.pdf.PdfObject;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfString;
+
+/**
+ * Runs through a content stream and tells a <CODE>RenderListener</CODE> what
+ * is painted, with the state it is painted with.
+ * <P>
+ * The content is tokenized and interpreted in a single pass: the operands
+ * are kept in two arrays reused from one operator to the next and no list of
+ * operations is built. The graphics state stack, the current transformation
+ * matrix, the text state and the resources are tracked, form XObjects are
+ * processed in place with their own resources. The objects given to the
+ * listener are reused, they are only valid during the call.
+ * <P>
+ * Only the operators needed to place text and images are interpreted, the
+ * others can be handled by a subclass in <CODE>invokeOperator</CODE>.
+ * For example:
+ * <pre>
+ * PdfContentStreamProcessor processor = new PdfContentStreamProcessor(listener);
+ * for (int page = 1; page &lt;= reader.getNumberOfPages(); ++page) {
+ *     processor.processPage(reader, page);
+ * }
+ * </pre>
+ */
+public class PdfContentStreamProcessor {
+
+    private static final int OP_q = 1;
+    private static final int OP_Q = 2;
+    private static final int OP_cm = 3;
+    private static final int OP_gs = 4;
+    private static final int OP_w = 5;
+    private static final int OP_BT = 6;
+    private static final int OP_ET = 7;
+    private static final int OP_Tc = 8;
+    private static final int OP_Tw = 9;
+    private static final int OP_Tz = 10;
+    private static final int OP_TL = 11;
+    private static final int OP_Tf = 12;
+    private static final int OP_Tr = 13;
+    private static final int OP_Ts = 14;
+    private static final int OP_Td = 15;
+    private static final int OP_TD = 16;
+    private static final int OP_Tm = 17;
+    private static final int OP_Tstar = 18;
+    private static final int OP_Tj = 19;
+    private static final int OP_TJ = 20;
+    private static final int OP_quote = 21;
+    private static final int OP_dquote = 22;
+    private static final int OP_Do = 23;
+    private static final int OP_BI = 24;
+    private static final int OP_BMC = 25;
+    private static final int OP_BDC = 26;
+    private static final int OP_EMC = 27;
+
+    /**
+     * The operators of the content streams. The index of the interpreted
+     * ones is their <CODE>OP_</CODE> code, the others follow.
+     */
+    private static final String OPERATOR_NAMES[] = {null,
+        "q", "Q", "cm", "gs", "w", "BT", "ET", "Tc", "Tw", "Tz", "TL", "Tf", "Tr", "Ts",
+        "Td", "TD", "Tm", "T*", "Tj", "TJ", "'", "\"", "Do", "BI", "BMC", "BDC", "EMC",
+        "b", "B", "b*", "B*", "BX", "c", "CS", "cs", "d", "d0", "d1", "DP", "EI", "EX",
+        "f", "F", "f*", "G", "g", "h", "i", "ID", "j", "J", "K", "k", "l", "m", "M", "MP",
+        "n", "re", "RG", "rg", "ri", "s", "S", "SC", "sc", "SCN", "scn", "sh", "v", "W",
+        "W*", "y"};
+
+    /** The index of the operators in <CODE>OPERATOR_NAMES</CODE>, by their bytes. */
+    private static final IntHashtable operators = new IntHashtable();
+
+    static {
+        for (int k = 1; k < OPERATOR_NAMES.length; ++k) {
+            String op = OPERATOR_NAMES[k];
+            int key = op.length();
+            for (int j = 0; j < op.length(); ++j)
+                key = (key << 8) | op.charAt(j);
+            operators.put(key, k);
+        }
+    }
+
+    private static final PdfName LW = new PdfName("LW");
+
+    /** The maximum nesting of form XObjects. */
+    private static final int MAX_FORM_DEPTH = 32;
+
+    private RenderListener listener;
+
+    /** The operands of the current operator. */
+    private float numbers[] = new float[8];
+    private PdfObject objects[] = new PdfObject[8];
+    private int operandCount;
+
+    /** The current graphics state and the states saved by <CODE>q</CODE>. */
+    private GraphicsState gs = new GraphicsState();
+    private ArrayList stack = new ArrayList();
+    private int stackDepth;
+
+    private Matrix textMatrix = new Matrix();
+    private Matrix textLineMatrix = new Matrix();
+
+    private TextRenderInfo textInfo = new TextRenderInfo();
+    private ImageRenderInfo imageInfo = new ImageRenderInfo();
+
+    /** The fonts already read, by object number. */
+    private Map fonts;
+    private PdfReader fontReader;
+    /** <CODE>true</CODE> if the fonts are shared with other processors. */
+    private boolean sharedFonts;
+
+    /** The object numbers of the forms being processed. */
+    private int formStack[] = new int[MAX_FORM_DEPTH];
+    private int formDepth;
+
+    /**
+     * Creates a processor.
+     * @param listener the listener of the events
+     */
+    public PdfContentStreamProcessor(RenderListener listener) {
+        this.listener = listener;
+        fonts = new HashMap();
+    }
+
+    /**
+     * Creates a processor that shares the fonts read with other processors
+     * working on the same document.
+     * @param listener the listener of the events
+     * @param fonts the fonts by object number, a thread-safe map if the
+     * processors run in different threads
+     */
+    PdfContentStreamProcessor(RenderListener listener, Map fonts) {
+        this.listener = listener;
+        this.fonts = fonts;
+        sharedFonts = true;
+    }
+
+    /**
+     * Processes the content of a page with the page resources.
+     * @param reader the document
+     * @param pageNum the page number, starting at 1
+     * @throws IOException on error
+     */
+    public void processPage(PdfReader reader, int pageNum) throws IOException {
+        if (reader != fontReader && !sharedFonts) {
+            fonts.clear();
+            fontReader = reader;
+        }
+        PdfDictionary page = reader.getPageN(pageNum);
+        PdfDictionary resources = (PdfDictionary)PdfReader.getPdfObject(page.get(PdfName.RESOURCES));
+        processContent(reader.getPageContent(pageNum), resources);
+    }
+
+    /**
+     * Processes a content stream starting from the initial graphics state.
+     * @param content the content stream
+     * @param resources the resources of the content, may be <CODE>null</CODE>
+     * @throws IOException on error
+     */
+    public void processContent(byte content[], PdfDictionary resources) throws IOException {
+        gs = new GraphicsState();
+        stackDepth = 0;
+        formDepth = 0;
+        textMatrix.set(1, 0, 0, 1, 0, 0);
+        textLineMatrix.set(1, 0, 0, 1, 0, 0);
+        process(content, resources);
+    }
+
+    /**
+     * Forgets the fonts read so far. They are kept from one call to the next
+     * while the pages come from the same document.
+     */
+    public void reset() {
+        if (!sharedFonts)
+            fonts.clear();
+        fontReader = null;
+    }
+
+    /**
+     * Gets the current graphics state.
+     * @return the current graphics state
+     */
+    public GraphicsState getGraphicsState() {
+        return gs;
+    }
+
+    private void process(byte content[], PdfDictionary resources) throws IOException {
+        PRTokeniser tokeniser = new PRTokeniser(content);
+        PdfContentParser parser = new PdfContentParser(tokeniser);
+        operandCount = 0;
+        while (tokeniser.nextToken()) {
+            switch (tokeniser.getTokenType()) {
+                case PRTokeniser.TK_COMMENT:
+                    break;
+                case PRTokeniser.TK_NUMBER: {
+                    float n;
+                    try {
+                        n = tokeniser.floatValue();
+                    }
+                    catch (NumberFormatException e) {
+                        n = 0;
+                    }
+                    pushOperand(n, null);
+                    break;
+                }
+                case PRTokeniser.TK_NAME:
+                    pushOperand(0, PdfName.intern(tokeniser));
+                    break;
+                case PRTokeniser.TK_STRING: {
+                    byte b[] = new byte[tokeniser.getTokenLength()];
+                    tokeniser.getTokenBytes(b, 0);
+                    pushOperand(0, new PdfString(b).setHexWriting(tokeniser.isHexString()));
+                    break;
+                }
+                case PRTokeniser.TK_START_ARRAY:
+                    pushOperand(0, parser.readArray());
+                    break;
+                case PRTokeniser.TK_START_DIC:
+                    pushOperand(0, parser.readDictionary());
+                    break;
+                case PRTokeniser.TK_OTHER:
+                    invoke(getOperator(tokeniser), tokeniser, parser, resources);
+                    operandCount = 0;
+                    break;
+                default:
+                    operandCount = 0;
+                    break;
+            }
+        }
+    }
+
+    private void pushOperand(float n, PdfObject obj) {
+        if (operandCount == numbers.length) {
+            float nn[] = new float[operandCount * 2];
+            System.arraycopy(numbers, 0, nn, 0, operandCount);
+            numbers = nn;
+            PdfObject no[] = new PdfObject[operandCount * 2];
+            System.arraycopy(objects, 0, no, 0, operandCount);
+            objects = no;
+        }
+        numbers[operandCount] = n;
+        objects[operandCount] = obj;
+        ++operandCount;
+    }
+
+    /**
+     * Gets the index of the operator that is the current token in
+     * <CODE>OPERATOR_NAMES</CODE>, from the bytes of the token.
+     * @return the index, 0 if the operator is unknown
+     */
+    private static int getOperator(PRTokeniser tokeniser) {
+        int len = tokeniser.getTokenLength();
+        if (len > 3)
+            return 0;
+        int key = len;
+        for (int k = 0; k < len; ++k)
+            key = (key << 8) | (tokeniser.getTokenByte(k) & 0xff);
+        return operators.get(key);
+    }
+
+    private void invoke(int code, PRTokeniser tokeniser, PdfContentParser parser, PdfDictionary resources) throws IOException {
+        switch (code) {
+            case OP_q:
+                if (stackDepth == stack.size())
+                    stack.add(new GraphicsState(gs));
+                else
+                    ((GraphicsState)stack.get(stackDepth)).set(gs);
+                ++stackDepth;
+                break;
+            case OP_Q:
+                if (stackDepth > 0)
+                    gs.set((GraphicsState)stack.get(--stackDepth));
+                break;
+            case OP_cm:
+                if (operandCount >= 6)
+                    gs.ctm.concatenate(numbers[0], numbers[1], numbers[2], numbers[3], numbers[4], numbers[5]);
+                break;
+            case OP_gs:
+                if (operandCount >= 1)
+                    setExtGState(getResource(resources, PdfName.EXTGSTATE, objects[0]));
+                break;
+            case OP_w:
+                if (operandCount >= 1)
+                    gs.lineWidth = numbers[0];
+                break;
+            case OP_BT:
+                textMatrix.set(1, 0, 0, 1, 0, 0);
+                textLineMatrix.set(1, 0, 0, 1, 0, 0);
+                listener.beginTextBlock();
+                break;
+            case OP_ET:
+                listener.endTextBlock();
+                break;
+            case OP_Tc:
+                if (operandCount >= 1)
+                    gs.characterSpacing = numbers[0];
+                break;
+            case OP_Tw:
+                if (operandCount >= 1)
+                    gs.wordSpacing = numbers[0];
+                break;
+            case OP_Tz:
+                if (operandCount >= 1)
+                    gs.horizontalScaling = numbers[0] / 100f;
+                break;
+            case OP_TL:
+                if (operandCount >= 1)
+                    gs.leading = numbers[0];
+                break;
+            case OP_Tf:
+                if (operandCount >= 2) {
+                    gs.font = getFont(resources, objects[0]);
+                    gs.fontSize = numbers[1];
+                }
+                break;
+            case OP_Tr:
+                if (operandCount >= 1)
+                    gs.renderMode = (int)numbers[0];
+                break;
+            case OP_Ts:
+                if (operandCount >= 1)
+                    gs.rise = numbers[0];
+                break;
+            case OP_Td:
+                if (operandCount >= 2)
+                    moveTextLine(numbers[0], numbers[1]);
+                break;
+            case OP_TD:
+                if (operandCount >= 2) {
+                    gs.leading = -numbers[1];
+                    moveTextLine(numbers[0], numbers[1]);
+                }
+                break;
+            case OP_Tm:
+                if (operandCount >= 6) {
+                    textLineMatrix.set(numbers[0], numbers[1], numbers[2], numbers[3], numbers[4], numbers[5]);
+                    textMatrix.set(textLineMatrix);
+                }
+                break;
+            case OP_Tstar:
+                moveTextLine(0, -gs.leading);
+                break;
+            case OP_Tj:
+                if (operandCount >= 1 && objects[0] instanceof PdfString)
+                    showText((PdfString)objects[0]);
+                break;
+            case OP_TJ:
+                if (operandCount >= 1 && objects[0] instanceof PdfArray)
+                    showText((PdfArray)objects[0]);
+                break;
+            case OP_quote:
+                moveTextLine(0, -gs.leading);
+                if (operandCount >= 1 && objects[0] instanceof PdfString)
+                    showText((PdfString)objects[0]);
+                break;
+            case OP_dquote:
+                if (operandCount >= 3) {
+                    gs.wordSpacing = numbers[0];
+                    gs.characterSpacing = numbers[1];
+                    moveTextLine(0, -gs.leading);
+                    if (objects[2] instanceof PdfString)
+                        showText((PdfString)objects[2]);
+                }
+                break;
+            case OP_Do:
+                if (operandCount >= 1 && objects[0] instanceof PdfName)
+                    doXObject(resources, (PdfName)objects[0]);
+                break;
+            case OP_BI:
+                inlineImage(parser);
+                break;
+            case OP_BMC:
+                if (operandCount >= 1 && objects[0] instanceof PdfName)
+                    listener.beginMarkedContent((PdfName)objects[0], null);
+                break;
+            case OP_BDC:
+                if (operandCount >= 2 && objects[0] instanceof PdfName) {
+                    PdfDictionary properties;
+                    if (objects[1] instanceof PdfDictionary)
+                        properties = (PdfDictionary)objects[1];
+                    else
+                        properties = getResource(resources, PdfName.PROPERTIES, objects[1]);
+                    listener.beginMarkedContent((PdfName)objects[0], properties);
+                }
+                break;
+            case OP_EMC:
+                listener.endMarkedContent();
+                break;
+            default:
+                invokeOperator(code == 0 ? tokeniser.getStringValue() : OPERATOR_NAMES[code]);
+                break;
+        }
+    }
+
+    /**
+     * Called for the operators that are not interpreted by the processor,
+     * the path construction and painting operators for example. The operands
+     * are available with <CODE>getOperandCount</CODE>, <CODE>getNumberOperand</CODE>
+     * and <CODE>getObjectOperand</CODE>. The default implementation does nothing.
+     * @param operator the operator
+     */
+    protected void invokeOperator(String operator) {
+    }
+
+    /**
+     * Gets the number of operands of the current operator.
+     * @return the number of operands
+     */
+    protected int getOperandCount() {
+        return operandCount;
+    }
+
+    /**
+     * Gets a numeric operand of the current operator.
+     * @param idx the index of the operand
+     * @return the value of the operand or 0 if it isn't a number
+     */
+    protected float getNumberOperand(int idx) {
+        return numbers[idx];
+    }
+
+    /**
+     * Gets an operand of the current operator that isn't a number.
+     * @param idx the index of the operand
+     * @return the operand or <CODE>null</CODE> if it is a number
+     */
+    protected PdfObject getObjectOperand(int idx) {
+        return objects[idx];
+    }
+
+    private void moveTextLine(float tx, float ty) {
+        textLineMatrix.translate(tx, ty);
+        textMatrix.set(textLineMatrix);
+    }
+
+    private void showText(PdfArray array) {
+        ArrayList list = array.getArrayList();
+        for (int k = 0; k < list.size(); ++k) {
+            PdfObject obj = (PdfObject)list.get(k);
+            if (obj.isString())
+                showText((PdfString)obj);
+            else if (obj.isNumber())
+                textMatrix.translate(-((PdfNumber)obj).floatValue() / 1000f * gs.fontSize * gs.horizontalScaling, 0);
+        }
+    }
+
+    private void showText(PdfString string) {
+        float width = 0;
+        ContentFont font = gs.font;
+        if (font != null) {
+            byte bytes[] = string.getBytes();
+            for (int k = 0; k < bytes.length;) {
+                int len = font.getCodeLength(bytes, k);
+                if (k + len > bytes.length)
+                    break;
+                int code = font.getCode(bytes, k);
+                k += len;
+                float w = font.getWidth(code) * gs.fontSize + gs.characterSpacing;
+                if (len == 1 && code == ' ')
+                    w += gs.wordSpacing;
+                width += w * gs.horizontalScaling;
+            }
+        }
+        textInfo.set(string, gs, textMatrix, width);
+        listener.renderText(textInfo);
+        textMatrix.translate(width, 0);
+    }
+
+    private static PdfDictionary getResource(PdfDictionary resources, PdfName type, PdfObject name) {
+        if (resources == null || !(name instanceof PdfName))
+            return null;
+        PdfDictionary dic = (PdfDictionary)PdfReader.getPdfObject(resources.get(type));
+        if (dic == null)
+            return null;
+        PdfObject obj = PdfReader.getPdfObject(dic.get((PdfName)name));
+        return obj != null && obj.isDictionary() ? (PdfDictionary)obj : null;
+    }
+
+    private ContentFont getFont(PdfDictionary resources, PdfObject name) {
+        if (resources == null || !(name instanceof PdfName))
+            return null;
+        PdfDictionary dic = (PdfDictionary)PdfReader.getPdfObject(resources.get(PdfName.FONT));
+        if (dic == null)
+            return null;
+        return getFont(dic.get((PdfName)name));
+    }
+
+    private ContentFont getFont(PdfObject ref) {
+        Integer key = null;
+        if (ref instanceof PRIndirectReference) {
+            key = Integer.valueOf(((PRIndirectReference)ref).getNumber());
+            ContentFont font = (ContentFont)fonts.get(key);
+            if (font != null)
+                return font;
+        }
+        PdfObject obj = PdfReader.getPdfObject(ref);
+        if (obj == null || !obj.isDictionary())
+            return null;
+        ContentFont font = new ContentFont((PdfDictionary)obj);
+        if (key != null)
+            fonts.put(key, font);
+        return font;
+    }
+
+    private void setExtGState(PdfDictionary extGState) {
+        if (extGState == null)
+            return;
+        PdfArray fontArray = (PdfArray)PdfReader.getPdfObject(extGState.get(PdfName.FONT));
+        if (fontArray != null && fontArray.size() >= 2) {
+            gs.font = getFont(fontArray.getPdfObject(0));
+            PdfObject size = PdfReader.getPdfObject(fontArray.getPdfObject(1));
+            if (size != null && size.isNumber())
+                gs.fontSize = ((PdfNumber)size).floatValue();
+        }
+        PdfObject lw = PdfReader.getPdfObject(extGState.get(LW));
+        if (lw != null && lw.isNumber())
+            gs.lineWidth = ((PdfNumber)lw).floatValue();
+    }
+
+    private void doXObject(PdfDictionary resources, PdfName name) throws IOException {
+        if (resources == null)
+            return;
+        PdfDictionary xobjects = (PdfDictionary)PdfReader.getPdfObject(resources.get(PdfName.XOBJECT));
+        if (xobjects == null)
+            return;
+        PdfObject ref = xobjects.get(name);
+        PdfObject obj = PdfReader.getPdfObject(ref);
+        if (obj == null || !obj.isStream())
+            return;
+        PRStream stream = (PRStream)obj;
+        PdfName subtype = stream.getAsName(PdfName.SUBTYPE);
+        if (PdfName.IMAGE.equals(subtype)) {
+            imageInfo.set(name, ref instanceof PdfIndirectReference ? (PdfIndirectReference)ref : null, stream, null, gs);
+            listener.renderImage(imageInfo);
+        }
+        else if (PdfName.FORM.equals(subtype)) {
+            int number = ref instanceof PRIndirectReference ? ((PRIndirectReference)ref).getNumber() : 0;
+            if (formDepth == MAX_FORM_DEPTH)
+                return;
+            for (int k = 0; k < formDepth; ++k) {
+                if (number != 0 && formStack[k] == number)
+                    return;
+            }
+            PdfDictionary formResources = (PdfDictionary)PdfReader.getPdfObject(stream.get(PdfName.RESOURCES));
+            if (formResources == null)
+                formResources = resources;
+            byte content[] = PdfReader.getStreamBytes(stream);
+            formStack[formDepth++] = number;
+            // the form is painted with the state of the Do operator, as if it
+            // were enclosed in q and Q
+            int depth = stackDepth;
+            invoke(OP_q, null, null, resources);
+            PdfArray matrix = stream.getAsArray(PdfName.MATRIX);
+            if (matrix != null && matrix.size() == 6) {
+                float m[] = new float[6];
+                for (int k = 0; k < 6; ++k) {
+                    PdfObject n = PdfReader.getPdfObject(matrix.getPdfObject(k));
+                    m[k] = n != null && n.isNumber() ? ((PdfNumber)n).floatValue() : 0;
+                }
+                gs.ctm.concatenate(m[0], m[1], m[2], m[3], m[4], m[5]);
+            }
+            float savedNumbers[] = numbers;
+            PdfObject savedObjects[] = objects;
+            numbers = new float[8];
+            objects = new PdfObject[8];
+            try {
+                process(content, formResources);
+            }
+            finally {
+                numbers = savedNumbers;
+                objects = savedObjects;
+                // unbalanced q in the form are discarded
+                stackDepth = depth + 1;
+                gs.set((GraphicsState)stack.get(--stackDepth));
+                --formDepth;
+            }
+        }
+    }
+
+    /**
+     * Reads an inline image, from <CODE>BI</CODE> to <CODE>EI</CODE>.
+     */
+    private void inlineImage(PdfContentParser parser) throws IOException {
+        PdfDictionary dic = new PdfDictionary();
+        PRTokeniser tokeniser = parser.getTokeniser();
+        while (true) {
+            PdfObject key = parser.readPRObject();
+            if (key == null)
+                return;
+            if (key.type() == PdfContentParser.COMMAND_TYPE) {
+                if (key.toString().equals("ID"))
+                    break;
+                continue;
+            }
+            if (!key.isName())
+                continue;
+            PdfObject value = parser.readPRObject();
+            if (value == null)
+                return;
+            dic.put((PdfName)key, value);
+        }
+        // a single white-space character follows ID, the data ends at the first
+        // EI between white-space characters
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int ch = tokeniser.read();
+        if (ch != -1 && !PRTokeniser.isWhitespace(ch))
+            data.write(ch);
+        int p1 = -1;
+        int p2 = -1;
+        boolean found = false;
+        while ((ch = tokeniser.read()) != -1) {
+            if (ch == 'I' && p1 == 'E' && PRTokeniser.isWhitespace(p2)) {
+                int next = tokeniser.read();
+                if (next == -1 || PRTokeniser.isDelimiterWhitespace(next)) {
+                    found = true;
+                    break;
+                }
+                tokeniser.backOnePosition(next);
+            }
+            if (p2 != -1)
+                data.write(p2);
+            p2 = p1;
+            p1 = ch;
+        }
+        if (!found) {
+            if (p2 != -1)
+                data.write(p2);
+            if (p1 != -1)
+                data.write(p1);
+        }
+        byte bytes[] = data.toByteArray();
+        imageInfo.set(null, null, dic, bytes, gs);
+        listener.renderImage(imageInfo);
+    }
+}
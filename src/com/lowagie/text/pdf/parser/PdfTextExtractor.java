@@ -0,0 +1,243 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.PdfReader;
+
+/**
+ * Extracts the text of the pages of a document.
+ * <P>
+ * The content of each page is run through a <CODE>PdfContentStreamProcessor</CODE>
+ * and the strings are decoded with the fonts of the page. The fonts are read
+ * once for the whole document. By default the text is put together in reading
+ * order by a <CODE>LocationTextExtractionStrategy</CODE>; a subclass can
+ * override <CODE>createStrategy</CODE> to use another one, for example the
+ * faster <CODE>SimpleTextExtractionStrategy</CODE>.
+ * <P>
+ * The pages can be extracted in parallel by the threads of an <CODE>Executor</CODE>:
+ * <pre>
+ * PdfReader reader = new PdfReader("statements.pdf");
+ * PdfTextExtractor extractor = new PdfTextExtractor(reader);
+ * ExecutorService executor = Executors.newFixedThreadPool(4);
+ * String text[] = extractor.getTextFromPages(executor);
+ * </pre>
+ */
+public class PdfTextExtractor {
+
+    /** The default number of pages extracted ahead of the one being waited for. */
+    public static final int DEFAULT_READ_AHEAD = 16;
+
+    private PdfReader reader;
+
+    /** The fonts read, by object number, shared by all the pages. */
+    private Map fonts = new ConcurrentHashMap();
+
+    /**
+     * Creates an extractor for a document.
+     * @param reader the document
+     */
+    public PdfTextExtractor(PdfReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Gets the document the text is extracted from.
+     * @return the document
+     */
+    public PdfReader getReader() {
+        return reader;
+    }
+
+    /**
+     * Creates the strategy used to put together the text of a page. A new
+     * strategy is created for each page.
+     * @return a <CODE>LocationTextExtractionStrategy</CODE>
+     */
+    protected TextExtractionStrategy createStrategy() {
+        return new LocationTextExtractionStrategy();
+    }
+
+    /**
+     * Gets the text of a page.
+     * @param pageNum the page number, starting at 1
+     * @return the text of the page
+     * @throws IOException on error
+     */
+    public String getTextFromPage(int pageNum) throws IOException {
+        return getTextFromPage(pageNum, createStrategy());
+    }
+
+    /**
+     * Gets the text of a page with a given strategy.
+     * @param pageNum the page number, starting at 1
+     * @param strategy the strategy, it is given the strings of the page
+     * @return the text of the page
+     * @throws IOException on error
+     */
+    public String getTextFromPage(int pageNum, TextExtractionStrategy strategy) throws IOException {
+        processPage(pageNum, strategy);
+        return strategy.getResultantText();
+    }
+
+    /**
+     * Runs the content of a page through a listener, for example to get the
+     * text with its location with a <CODE>LocationTextExtractionStrategy</CODE>.
+     * @param pageNum the page number, starting at 1
+     * @param listener the listener
+     * @throws IOException on error
+     */
+    public void processPage(int pageNum, RenderListener listener) throws IOException {
+        PdfContentStreamProcessor processor = new PdfContentStreamProcessor(listener, fonts);
+        processor.processPage(reader, pageNum);
+    }
+
+    /**
+     * Gets the text of all the pages, extracted in parallel.
+     * @param executor the executor that runs the extraction of the pages
+     * @return the text of the pages, the text of page 1 at index 0
+     * @throws IOException on error
+     * @see #getTextFromPages(int, int, Executor)
+     */
+    public String[] getTextFromPages(Executor executor) throws IOException {
+        return getTextFromPages(1, reader.getNumberOfPages(), executor, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Gets the text of a range of pages, extracted in parallel.
+     * @param fromPage the first page, starting at 1
+     * @param toPage the last page, included
+     * @param executor the executor that runs the extraction of the pages
+     * @return the text of the pages, the text of <CODE>fromPage</CODE> at index 0
+     * @throws IOException on error
+     * @see #getTextFromPages(int, int, Executor, int)
+     */
+    public String[] getTextFromPages(int fromPage, int toPage, Executor executor) throws IOException {
+        return getTextFromPages(fromPage, toPage, executor, DEFAULT_READ_AHEAD);
+    }
+
+    /**
+     * Gets the text of a range of pages, extracted in parallel. Each page is
+     * a task given to the executor. No more than <CODE>readAhead</CODE> pages
+     * are extracted at the same time, which keeps the memory bounded for
+     * documents with many pages. The reader is made shared, as with
+     * <CODE>PdfReader.makeShared()</CODE>, to be read by several threads; it
+     * can't have been opened in partial mode. If a page fails, or the thread
+     * is interrupted while waiting for a page, the pages still being extracted
+     * are cancelled.
+     * @param fromPage the first page, starting at 1
+     * @param toPage the last page, included
+     * @param executor the executor that runs the extraction of the pages
+     * @param readAhead the maximum number of pages extracted at the same time
+     * @return the text of the pages, the text of <CODE>fromPage</CODE> at index 0
+     * @throws IOException on error
+     */
+    public String[] getTextFromPages(int fromPage, int toPage, Executor executor, int readAhead) throws IOException {
+        if (fromPage < 1 || toPage > reader.getNumberOfPages() || fromPage > toPage)
+            throw new IllegalArgumentException("Invalid page range: " + fromPage + " to " + toPage);
+        if (readAhead < 1)
+            throw new IllegalArgumentException("The read ahead must be >= 1.");
+        reader.makeShared();
+        LinkedList tasks = new LinkedList();
+        String text[] = new String[toPage - fromPage + 1];
+        int next = 0;
+        for (int k = 0; k < text.length; ++k) {
+            while (next < text.length && tasks.size() < readAhead) {
+                final int pageNum = fromPage + next++;
+                FutureTask task = new FutureTask(new Callable() {
+                    public Object call() throws Exception {
+                        return getTextFromPage(pageNum);
+                    }
+                });
+                tasks.addLast(task);
+                executor.execute(task);
+            }
+            FutureTask task = (FutureTask)tasks.removeFirst();
+            try {
+                text[k] = (String)task.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                task.cancel(true);
+                cancel(tasks);
+                throw new ExceptionConverter(e);
+            }
+            catch (ExecutionException e) {
+                cancel(tasks);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException)
+                    throw (IOException)cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                if (cause instanceof Error)
+                    throw (Error)cause;
+                throw new ExceptionConverter((Exception)cause);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Cancels the pages still being extracted. Those running are interrupted.
+     * @param tasks the tasks of the pages
+     */
+    private static void cancel(LinkedList tasks) {
+        while (!tasks.isEmpty())
+            ((FutureTask)tasks.removeFirst()).cancel(true);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+
+/**
+ * Receives the events of a <CODE>PdfContentStreamProcessor</CODE> as it runs
+ * through a content stream. The objects passed to the methods are reused by the
+ * processor and are only valid during the call: what must be kept has to be
+ * copied.
+ */
+public interface RenderListener {
+
+    /**
+     * Called at the beginning of a text object, the <CODE>BT</CODE> operator.
+     */
+    public void beginTextBlock();
+
+    /**
+     * Called for each string shown by the <CODE>Tj</CODE>, <CODE>TJ</CODE>,
+     * <CODE>'</CODE> and <CODE>"</CODE> operators. The strings of a
+     * <CODE>TJ</CODE> array are given one at a time.
+     * @param info the string, its position and the graphics state
+     */
+    public void renderText(TextRenderInfo info);
+
+    /**
+     * Called at the end of a text object, the <CODE>ET</CODE> operator.
+     */
+    public void endTextBlock();
+
+    /**
+     * Called for each image painted, an image XObject or an inline image.
+     * @param info the image and its transformation matrix
+     */
+    public void renderImage(ImageRenderInfo info);
+
+    /**
+     * Called at the beginning of a marked-content sequence, the <CODE>BMC</CODE>
+     * and <CODE>BDC</CODE> operators.
+     * @param tag the tag of the sequence
+     * @param properties the properties of the sequence or <CODE>null</CODE>
+     */
+    public void beginMarkedContent(PdfName tag, PdfDictionary properties);
+
+    /**
+     * Called at the end of a marked-content sequence, the <CODE>EMC</CODE> operator.
+     */
+    public void endMarkedContent();
+}
@@ -0,0 +1,141 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+
+/**
+ * Puts together the text of a page in the order it is in the content stream.
+ * A new line is started when a string isn't on the baseline of the previous
+ * one and a space is inserted when there is a gap between them.
+ * <P>
+ * The text is built as the content is processed, nothing is kept in between,
+ * which makes it the fastest strategy. It gives the reading order for the
+ * documents written from top to bottom, as most generated documents are; the
+ * <CODE>LocationTextExtractionStrategy</CODE> should be used for the others.
+ */
+public class SimpleTextExtractionStrategy implements TextExtractionStrategy {
+
+    private StringBuffer result = new StringBuffer();
+    private StringBuffer chunk = new StringBuffer();
+    private boolean first = true;
+    private float lastStartX;
+    private float lastStartY;
+    private float lastEndX;
+    private float lastEndY;
+
+    /**
+     * Creates a strategy.
+     */
+    public SimpleTextExtractionStrategy() {
+    }
+
+    public void beginTextBlock() {
+    }
+
+    public void endTextBlock() {
+    }
+
+    public void renderText(TextRenderInfo info) {
+        chunk.setLength(0);
+        info.appendText(chunk);
+        if (chunk.length() == 0)
+            return;
+        float startX = info.getStartX();
+        float startY = info.getStartY();
+        float endX = info.getEndX();
+        float endY = info.getEndY();
+        if (!first) {
+            float dx = lastEndX - lastStartX;
+            float dy = lastEndY - lastStartY;
+            float len = (float)Math.sqrt(dx * dx + dy * dy);
+            if (len == 0) {
+                dx = 1;
+                dy = 0;
+            }
+            else {
+                dx /= len;
+                dy /= len;
+            }
+            float perpendicular = (startX - lastStartX) * dy - (startY - lastStartY) * dx;
+            // a string along another direction is on a line of its own
+            float along = (endX - startX) * dx + (endY - startY) * dy;
+            float across = (endX - startX) * dy - (endY - startY) * dx;
+            if (Math.abs(perpendicular) > info.getUserFontSize() / 2 || Math.abs(across) > Math.abs(along))
+                result.append('\n');
+            else {
+                // a jump back along the line also separates words
+                float gap = (startX - lastEndX) * dx + (startY - lastEndY) * dy;
+                if ((gap > info.getSpaceWidth() / 2 || gap < -info.getUserFontSize()) && chunk.charAt(0) != ' '
+                    && result.length() > 0 && result.charAt(result.length() - 1) != ' ')
+                    result.append(' ');
+            }
+        }
+        result.append(chunk);
+        first = false;
+        lastStartX = startX;
+        lastStartY = startY;
+        lastEndX = endX;
+        lastEndY = endY;
+    }
+
+    public void renderImage(ImageRenderInfo info) {
+    }
+
+    public void beginMarkedContent(PdfName tag, PdfDictionary properties) {
+    }
+
+    public void endMarkedContent() {
+    }
+
+    public String getResultantText() {
+        return result.toString();
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+/**
+ * A piece of text with its location on the page, as collected by the
+ * <CODE>LocationTextExtractionStrategy</CODE>. The coordinates are in the
+ * default user space of the page.
+ */
+public class TextChunk implements Comparable {
+
+    private String text;
+    private float startX;
+    private float startY;
+    private float endX;
+    private float endY;
+    private float spaceWidth;
+    private float fontSize;
+
+    /** The unit vector of the baseline. */
+    private float orientationX;
+    private float orientationY;
+    /** The angle of the baseline, rounded to compare the chunks. */
+    private int orientationMagnitude;
+    /** The distance of the baseline to the origin, rounded to compare the chunks. */
+    private int distPerpendicular;
+    /** The position of the start and of the end along the baseline. */
+    private float distParallelStart;
+    private float distParallelEnd;
+
+    /**
+     * Creates a chunk.
+     * @param text the text
+     * @param startX the horizontal coordinate of the start of the baseline
+     * @param startY the vertical coordinate of the start of the baseline
+     * @param endX the horizontal coordinate of the end of the baseline
+     * @param endY the vertical coordinate of the end of the baseline
+     * @param spaceWidth the width of a space
+     * @param fontSize the font size in user space
+     */
+    public TextChunk(String text, float startX, float startY, float endX, float endY, float spaceWidth, float fontSize) {
+        this.text = text;
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.spaceWidth = spaceWidth;
+        this.fontSize = fontSize;
+        float dx = endX - startX;
+        float dy = endY - startY;
+        float len = (float)Math.sqrt(dx * dx + dy * dy);
+        if (len == 0) {
+            dx = 1;
+            dy = 0;
+        }
+        else {
+            dx /= len;
+            dy /= len;
+        }
+        orientationX = dx;
+        orientationY = dy;
+        orientationMagnitude = (int)(Math.atan2(dy, dx) * 1000);
+        distPerpendicular = Math.round(startX * dy - startY * dx);
+        distParallelStart = startX * dx + startY * dy;
+        distParallelEnd = endX * dx + endY * dy;
+    }
+
+    /**
+     * Gets the text of the chunk.
+     * @return the text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the horizontal coordinate of the start of the baseline.
+     * @return the x coordinate
+     */
+    public float getStartX() {
+        return startX;
+    }
+
+    /**
+     * Gets the vertical coordinate of the start of the baseline.
+     * @return the y coordinate
+     */
+    public float getStartY() {
+        return startY;
+    }
+
+    /**
+     * Gets the horizontal coordinate of the end of the baseline.
+     * @return the x coordinate
+     */
+    public float getEndX() {
+        return endX;
+    }
+
+    /**
+     * Gets the vertical coordinate of the end of the baseline.
+     * @return the y coordinate
+     */
+    public float getEndY() {
+        return endY;
+    }
+
+    /**
+     * Gets the width of a space in the font of the chunk.
+     * @return the width of a space
+     */
+    public float getSpaceWidth() {
+        return spaceWidth;
+    }
+
+    /**
+     * Gets the font size of the chunk in user space.
+     * @return the font size
+     */
+    public float getFontSize() {
+        return fontSize;
+    }
+
+    /**
+     * Checks if another chunk is on the same line as this one.
+     * @param other the other chunk
+     * @return <CODE>true</CODE> if the chunks have the same baseline
+     */
+    public boolean sameLine(TextChunk other) {
+        return orientationMagnitude == other.orientationMagnitude && distPerpendicular == other.distPerpendicular;
+    }
+
+    /**
+     * Gets the distance from the end of a chunk to the start of this one,
+     * along the baseline. It is only meaningful if the chunks are on the same
+     * line.
+     * @param previous the chunk before this one
+     * @return the gap between the chunks, negative if they overlap
+     */
+    public float distanceFromEndOf(TextChunk previous) {
+        return distParallelStart - previous.distParallelEnd;
+    }
+
+    /**
+     * Compares the chunks in reading order: by the orientation of the
+     * baseline, then by line from top to bottom, then from left to right
+     * along the line.
+     * @param obj the other chunk
+     * @return a negative number, zero or a positive number as this chunk comes
+     * before, with or after the other one
+     */
+    public int compareTo(Object obj) {
+        TextChunk other = (TextChunk)obj;
+        if (orientationMagnitude != other.orientationMagnitude)
+            return orientationMagnitude < other.orientationMagnitude ? -1 : 1;
+        if (distPerpendicular != other.distPerpendicular)
+            return distPerpendicular < other.distPerpendicular ? -1 : 1;
+        if (distParallelStart != other.distParallelStart)
+            return distParallelStart < other.distParallelStart ? -1 : 1;
+        return 0;
+    }
+
+    /**
+     * Gets the text of the chunk with its start position.
+     * @return a description of the chunk
+     */
+    public String toString() {
+        return text + " [" + startX + ", " + startY + "]";
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import com.lowagie.text.pdf.PdfString;
+
+/**
+ * A string shown in a content stream, with the state it is shown with. It is
+ * given to <CODE>RenderListener.renderText</CODE> and reused for the next string.
+ */
+public class TextRenderInfo {
+
+    private PdfString string;
+    private GraphicsState gs;
+    private Matrix textMatrix = new Matrix();
+    private float width;
+
+    TextRenderInfo() {
+    }
+
+    void set(PdfString string, GraphicsState gs, Matrix textMatrix, float width) {
+        this.string = string;
+        this.gs = gs;
+        this.textMatrix.set(textMatrix);
+        this.width = width;
+    }
+
+    /**
+     * Gets the string as it is in the content stream.
+     * @return the string
+     */
+    public PdfString getPdfString() {
+        return string;
+    }
+
+    /**
+     * Gets the bytes of the string, the character codes of the font.
+     * @return the bytes of the string
+     */
+    public byte[] getBytes() {
+        return string.getBytes();
+    }
+
+    /**
+     * Gets the text of the string, decoded with its font. The codes without a
+     * Unicode value are skipped.
+     * @return the text or the empty string if no font was set
+     */
+    public String getText() {
+        if (gs.font == null)
+            return "";
+        return gs.font.decode(string.getBytes());
+    }
+
+    /**
+     * Appends the text of the string, decoded with its font, to a buffer.
+     * @param buf the buffer
+     */
+    public void appendText(StringBuffer buf) {
+        if (gs.font == null)
+            return;
+        byte b[] = string.getBytes();
+        gs.font.decode(b, 0, b.length, buf);
+    }
+
+    /**
+     * Gets the graphics state the string is shown with.
+     * @return the graphics state
+     */
+    public GraphicsState getGraphicsState() {
+        return gs;
+    }
+
+    /**
+     * Gets the font of the string.
+     * @return the font or <CODE>null</CODE> if no font was set
+     */
+    public ContentFont getFont() {
+        return gs.font;
+    }
+
+    /**
+     * Gets the text matrix at the start of the string.
+     * @return the text matrix
+     */
+    public Matrix getTextMatrix() {
+        return textMatrix;
+    }
+
+    /**
+     * Gets the horizontal displacement of the string, including the character
+     * and word spacing and the horizontal scaling.
+     * @return the width in unscaled text space units
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the horizontal coordinate of the start of the baseline in user space.
+     * @return the x coordinate
+     */
+    public float getStartX() {
+        return userX(0);
+    }
+
+    /**
+     * Gets the vertical coordinate of the start of the baseline in user space.
+     * @return the y coordinate
+     */
+    public float getStartY() {
+        return userY(0);
+    }
+
+    /**
+     * Gets the horizontal coordinate of the end of the baseline in user space.
+     * @return the x coordinate
+     */
+    public float getEndX() {
+        return userX(width);
+    }
+
+    /**
+     * Gets the vertical coordinate of the end of the baseline in user space.
+     * @return the y coordinate
+     */
+    public float getEndY() {
+        return userY(width);
+    }
+
+    /**
+     * Gets the height of a unit of text space in user space, that is the font
+     * size as it appears on the page.
+     * @return the font size in user space units
+     */
+    public float getUserFontSize() {
+        float x = textMatrix.getC() * gs.ctm.getA() + textMatrix.getD() * gs.ctm.getC();
+        float y = textMatrix.getC() * gs.ctm.getB() + textMatrix.getD() * gs.ctm.getD();
+        return (float)Math.sqrt(x * x + y * y) * gs.fontSize;
+    }
+
+    /**
+     * Gets the width of a space in user space, an estimate of the gap that
+     * separates two words. Half the font size is used for the fonts that
+     * don't have a space width.
+     * @return the width of a space in user space units
+     */
+    public float getSpaceWidth() {
+        float w = 0;
+        if (gs.font != null && !gs.font.isTwoByte())
+            w = gs.font.getWidth(' ');
+        if (w <= 0)
+            w = 0.5f;
+        return w * getUserFontSize() * gs.horizontalScaling;
+    }
+
+    private float userX(float tx) {
+        Matrix ctm = gs.ctm;
+        float x = textMatrix.transformX(tx, gs.rise);
+        float y = textMatrix.transformY(tx, gs.rise);
+        return ctm.transformX(x, y);
+    }
+
+    private float userY(float tx) {
+        Matrix ctm = gs.ctm;
+        float x = textMatrix.transformX(tx, gs.rise);
+        float y = textMatrix.transformY(tx, gs.rise);
+        return ctm.transformY(x, y);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Paragraph;
+
+/**
+ * Tests the compression settings of a <CODE>PdfWriter</CODE>.
+ */
+public class PdfCompressionTest extends TestCase {
+
+    private static byte[] data() {
+        StringBuffer buf = new StringBuffer();
+        for (int k = 0; k < 5000; ++k)
+            buf.append("line ").append(k).append(' ').append(k * 7919 % 1000).append('\n');
+        return PdfEncodings.convertToBytes(buf.toString(), null);
+    }
+
+    private static byte[] deflate(byte data[], int level) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(level);
+        DeflaterOutputStream zip = new DeflaterOutputStream(out, deflater);
+        zip.write(data);
+        zip.close();
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a document with a file embedded from an <CODE>InputStream</CODE>.
+     * @return the raw data of the embedded file stream
+     */
+    private static byte[] embed(File file, PdfCompression compression) throws Exception {
+        Document document = new Document();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        if (compression != null)
+            writer.setCompression(compression);
+        document.open();
+        document.add(new Paragraph("attachment"));
+        writer.addFileAttachment("data", null, file.getPath(), "data.txt");
+        document.close();
+        PdfReader reader = new PdfReader(out.toByteArray());
+        try {
+            for (int k = 1; k < reader.getXrefSize(); ++k) {
+                PdfObject obj = reader.getPdfObject(k);
+                if (obj != null && obj.isStream() && PdfName.EMBEDDEDFILE.equals(((PdfDictionary)obj).get(PdfName.TYPE)))
+                    return PdfReader.getStreamBytesRaw((PRStream)obj);
+            }
+        }
+        finally {
+            reader.close();
+        }
+        fail("no embedded file");
+        return null;
+    }
+
+    /**
+     * The streams read from an <CODE>InputStream</CODE> are deflated with
+     * the best compression unless the level of their class is set.
+     */
+    public void testInputStreamLevel() throws Exception {
+        byte data[] = data();
+        File file = File.createTempFile("itext", ".txt");
+        try {
+            FileOutputStream fos = new FileOutputStream(file);
+            fos.write(data);
+            fos.close();
+            byte best[] = deflate(data, Deflater.BEST_COMPRESSION);
+            assertTrue(java.util.Arrays.equals(best, embed(file, null)));
+            assertTrue(java.util.Arrays.equals(best, embed(file, new PdfCompression(Deflater.BEST_SPEED))));
+            PdfCompression compression = new PdfCompression();
+            compression.setLevel(PdfCompression.INPUT_STREAM, Deflater.BEST_SPEED);
+            assertTrue(java.util.Arrays.equals(deflate(data, Deflater.BEST_SPEED), embed(file, compression)));
+        }
+        finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.Image;
+
+/**
+ * Tests the masks of the images reused from a <CODE>PdfImageCache</CODE>.
+ */
+public class PdfImageCacheTest extends TestCase {
+
+    private static final int TRANSPARENCY[] = {0, 0, 0, 0, 0, 0};
+
+    private Image createImage(boolean softMask) throws Exception {
+        byte data[] = new byte[16 * 16 * 3];
+        for (int k = 0; k < data.length; ++k)
+            data[k] = (byte)(k * 7);
+        Image img = Image.getInstance(16, 16, 3, 8, data, TRANSPARENCY);
+        if (softMask) {
+            Image mask = Image.getInstance(16, 16, 1, 8, new byte[16 * 16]);
+            mask.makeMask();
+            img.setImageMask(mask);
+        }
+        return img;
+    }
+
+    /**
+     * Writes an image with a writer using the cache and reads back the
+     * dictionary of the image.
+     */
+    private PdfDictionary writeImage(PdfImageCache cache, Image img) throws Exception {
+        Document document = new Document();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setImageCache(cache);
+        document.open();
+        img.setAbsolutePosition(0, 0);
+        document.add(img);
+        document.close();
+        PdfReader reader = new PdfReader(out.toByteArray());
+        PdfDictionary resources = reader.getPageN(1).getAsDict(PdfName.RESOURCES);
+        PdfDictionary xobjects = resources.getAsDict(PdfName.XOBJECT);
+        PdfDictionary image = null;
+        for (Iterator it = xobjects.getKeys().iterator(); it.hasNext();) {
+            PdfDictionary dic = (PdfDictionary)PdfReader.getPdfObject(xobjects.get((PdfName)it.next()));
+            if (PdfName.DEVICERGB.equals(dic.get(PdfName.COLORSPACE)))
+                image = dic;
+        }
+        reader.close();
+        assertNotNull(image);
+        return image;
+    }
+
+    /**
+     * An image first written with a soft mask keeps its color key mask when
+     * it is reused without one.
+     */
+    public void testColorKeyAfterSoftMask() throws Exception {
+        PdfImageCache cache = new PdfImageCache();
+        PdfDictionary first = writeImage(cache, createImage(true));
+        assertNotNull(first.get(PdfName.SMASK));
+        assertNull(first.get(PdfName.MASK));
+        PdfDictionary second = writeImage(cache, createImage(false));
+        assertEquals(1, cache.getHitCount());
+        assertNull(second.get(PdfName.SMASK));
+        assertNotNull(second.getAsArray(PdfName.MASK));
+    }
+
+    /**
+     * An image first written with a color key mask doesn't keep it when it is
+     * reused with a soft mask.
+     */
+    public void testSoftMaskAfterColorKey() throws Exception {
+        PdfImageCache cache = new PdfImageCache();
+        PdfDictionary first = writeImage(cache, createImage(false));
+        assertNotNull(first.getAsArray(PdfName.MASK));
+        PdfDictionary second = writeImage(cache, createImage(true));
+        assertEquals(1, cache.getHitCount());
+        assertNotNull(second.get(PdfName.SMASK));
+        assertNull(second.get(PdfName.MASK));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.parser.ImageRenderInfo;
+import com.lowagie.text.pdf.parser.PdfTextExtractor;
+import com.lowagie.text.pdf.parser.TextExtractionStrategy;
+import com.lowagie.text.pdf.parser.TextRenderInfo;
+
+/**
+ * Tests the layout of an incomplete <CODE>PdfPTable</CODE> added to the
+ * document in parts.
+ */
+public class PdfPTableTest extends TestCase {
+
+    /** Lists the strings of a page with their positions. */
+    private static class PositionStrategy implements TextExtractionStrategy {
+        private StringBuffer buf = new StringBuffer();
+
+        public void beginTextBlock() {
+        }
+
+        public void renderText(TextRenderInfo info) {
+            buf.append(info.getText()).append(" @ ").append(Math.round(info.getStartX()))
+                .append(',').append(Math.round(info.getStartY())).append('\n');
+        }
+
+        public void endTextBlock() {
+        }
+
+        public void renderImage(ImageRenderInfo info) {
+        }
+
+        public void beginMarkedContent(PdfName tag, PdfDictionary properties) {
+        }
+
+        public void endMarkedContent() {
+        }
+
+        public String getResultantText() {
+            return buf.toString();
+        }
+    }
+
+    private static PdfPCell cell(String text) {
+        PdfPCell cell = new PdfPCell(new Phrase(text));
+        cell.setFixedHeight(20);
+        return cell;
+    }
+
+    /**
+     * Writes a title and a table of 40 rows with 2 header rows and a footer row.
+     * @param chunk the number of rows added between two calls to
+     * <CODE>Document.add</CODE>, 0 to add the table in one go
+     * @param skipFirstHeader the value of the property of the table
+     * @return the text of each page with its positions
+     */
+    private static String[] layout(int chunk, boolean skipFirstHeader) throws Exception {
+        Document document = new Document(PageSize.A6);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter.getInstance(document, out);
+        document.open();
+        document.add(new Paragraph("Title"));
+        PdfPTable table = new PdfPTable(1);
+        table.setHeaderRows(3);
+        table.setFooterRows(1);
+        table.setSkipFirstHeader(skipFirstHeader);
+        table.addCell(cell("H1"));
+        table.addCell(cell("H2"));
+        table.addCell(cell("F1"));
+        table.setComplete(chunk == 0);
+        for (int k = 1; k <= 40; ++k) {
+            table.addCell(cell("R" + k));
+            if (chunk > 0 && k % chunk == 0)
+                document.add(table);
+        }
+        table.setComplete(true);
+        document.add(table);
+        document.close();
+        PdfTextExtractor extractor = new PdfTextExtractor(new PdfReader(out.toByteArray()));
+        String pages[] = new String[extractor.getReader().getNumberOfPages()];
+        for (int k = 0; k < pages.length; ++k)
+            pages[k] = extractor.getTextFromPage(k + 1, new PositionStrategy());
+        return pages;
+    }
+
+    private static void assertSameLayout(String expected[], String actual[], String message) {
+        assertEquals(message + ": number of pages", expected.length, actual.length);
+        for (int k = 0; k < expected.length; ++k)
+            assertEquals(message + ": page " + (k + 1), expected[k], actual[k]);
+    }
+
+    /**
+     * A table added in parts has the same pages as the table added in one
+     * go, also when a part ends with the last row of a page.
+     */
+    public void testFlushedLayout() throws Exception {
+        String expected[] = layout(0, false);
+        assertTrue(expected.length > 2);
+        int chunks[] = {1, 2, 3, 5, 6, 7, 10, 14, 15, 20};
+        for (int k = 0; k < chunks.length; ++k)
+            assertSameLayout(expected, layout(chunks[k], false), "rows added by " + chunks[k]);
+    }
+
+    /**
+     * The height of the footer of a complete table that skips its first
+     * header isn't reserved on the first page.
+     */
+    public void testSkipFirstHeader() throws Exception {
+        String pages[] = layout(0, true);
+        assertTrue(pages[0].indexOf("H1 @") < 0);
+        assertTrue(pages[0].indexOf("R16 @") >= 0);
+        assertTrue(pages[1].indexOf("H1 @") >= 0);
+        assertTrue(pages[1].indexOf("R17 @") >= 0);
+    }
+}
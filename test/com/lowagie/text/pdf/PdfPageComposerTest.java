@@ -0,0 +1,202 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.ExceptionConverter;
+
+/**
+ * Tests the pages written by a <CODE>PdfPageComposer</CODE>.
+ */
+public class PdfPageComposerTest extends TestCase {
+
+    private static PdfPageComposer.PageContent text(final String s) {
+        return new PdfPageComposer.PageContent() {
+            public void compose(PdfContentByte canvas) throws DocumentException {
+                canvas.beginText();
+                try {
+                    canvas.setFontAndSize(BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, false), 12);
+                }
+                catch (java.io.IOException e) {
+                    throw new ExceptionConverter(e);
+                }
+                canvas.showText(s);
+                canvas.endText();
+            }
+        };
+    }
+
+    /**
+     * A page whose content draws nothing is still written.
+     */
+    public void testEmptyPage() throws Exception {
+        Document document = new Document();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        document.open();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            PdfPageComposer composer = new PdfPageComposer(document, writer, executor);
+            composer.addPage(text("first"));
+            composer.addPage(new PdfPageComposer.PageContent() {
+                public void compose(PdfContentByte canvas) {
+                }
+            });
+            composer.addPage(text("third"));
+            composer.flush();
+        }
+        finally {
+            executor.shutdown();
+        }
+        document.close();
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertEquals(3, reader.getNumberOfPages());
+        assertTrue(new String(reader.getPageContent(3), "ISO-8859-1").indexOf("(third)") >= 0);
+        reader.close();
+    }
+
+    /**
+     * The marked content sequences of structure elements get the marked
+     * content ids of the page they are written on.
+     */
+    public void testMarkedContent() throws Exception {
+        Document document = new Document();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PdfWriter writer = PdfWriter.getInstance(document, out);
+        writer.setTagged();
+        document.open();
+        final PdfStructureTreeRoot root = writer.getStructureTreeRoot();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            PdfPageComposer composer = new PdfPageComposer(document, writer, executor);
+            for (int k = 0; k < 2; ++k) {
+                composer.addPage(new PdfPageComposer.PageContent() {
+                    public void compose(PdfContentByte canvas) throws DocumentException {
+                        canvas.beginMarkedContentSequence(new PdfStructureElement(root, PdfName.P));
+                        text("one").compose(canvas);
+                        canvas.endMarkedContentSequence();
+                        canvas.beginMarkedContentSequence(new PdfStructureElement(root, PdfName.P));
+                        text("two").compose(canvas);
+                        canvas.endMarkedContentSequence();
+                    }
+                });
+            }
+            composer.flush();
+        }
+        finally {
+            executor.shutdown();
+        }
+        document.close();
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertEquals(2, reader.getNumberOfPages());
+        for (int page = 1; page <= 2; ++page) {
+            String content = new String(reader.getPageContent(page), "ISO-8859-1");
+            int first = content.indexOf("/P <</MCID 0>> BDC");
+            int second = content.indexOf("/P <</MCID 1>> BDC");
+            assertTrue(first >= 0);
+            assertTrue(second > content.indexOf("(one)"));
+            assertTrue(content.indexOf("(one)") > first);
+        }
+        reader.close();
+    }
+
+    /**
+     * An interrupted writing thread keeps its interrupt status and the pages
+     * not written are cancelled.
+     */
+    public void testInterrupt() throws Exception {
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, new ByteArrayOutputStream());
+        document.open();
+        final CountDownLatch release = new CountDownLatch(1);
+        final boolean composed[] = new boolean[1];
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            PdfPageComposer composer = new PdfPageComposer(document, writer, executor);
+            composer.setQueueSize(1);
+            composer.addPage(new PdfPageComposer.PageContent() {
+                public void compose(PdfContentByte canvas) {
+                    try {
+                        release.await();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            Thread.currentThread().interrupt();
+            try {
+                composer.addPage(new PdfPageComposer.PageContent() {
+                    public void compose(PdfContentByte canvas) {
+                        composed[0] = true;
+                    }
+                });
+                fail("The interrupt was ignored.");
+            }
+            catch (ExceptionConverter e) {
+                assertTrue(e.getException() instanceof InterruptedException);
+            }
+            assertTrue(Thread.interrupted());
+        }
+        finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        executor.awaitTermination(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertFalse(composed[0]);
+    }
+}
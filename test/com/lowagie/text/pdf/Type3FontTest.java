@@ -0,0 +1,85 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Document;
+
+/**
+ * Tests the widths of the texts measured with a <CODE>Type3Font</CODE>.
+ */
+public class Type3FontTest extends TestCase {
+
+    private Type3Font createFont() throws Exception {
+        Document document = new Document();
+        PdfWriter writer = PdfWriter.getInstance(document, new ByteArrayOutputStream());
+        document.open();
+        return new Type3Font(writer, false);
+    }
+
+    /**
+     * The widths measured before and after a glyph is defined must take the
+     * glyphs defined at the time into account.
+     */
+    public void testWidthAfterDefineGlyph() throws Exception {
+        Type3Font t3 = createFont();
+        t3.defineGlyph('a', 500, 0, 0, 500, 700);
+        assertEquals(12f, t3.getWidthPoint("aa", 12), 0.001f);
+        assertEquals(12f, t3.getWidthPointKerned("aa", 12), 0.001f);
+        t3.defineGlyph('b', 1000, 0, 0, 1000, 700);
+        assertEquals(24f, t3.getWidthPoint("aab", 12), 0.001f);
+        assertEquals(24f, t3.getWidthPointKerned("aab", 12), 0.001f);
+        assertEquals(12f, t3.getWidthPoint("aa", 12), 0.001f);
+        t3.defineGlyph('c', 250, 0, 0, 250, 700);
+        assertEquals(0, t3.getWidthCache().getSize());
+    }
+}
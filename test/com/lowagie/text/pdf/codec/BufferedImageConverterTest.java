@@ -0,0 +1,155 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.MemoryImageSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.InflaterInputStream;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Image;
+
+/**
+ * Tests that a <CODE>BufferedImage</CODE> converted by
+ * <CODE>BufferedImageConverter</CODE> has the pixels and the mask of its
+ * grabbed pixels.
+ */
+public class BufferedImageConverterTest extends TestCase {
+
+    private static final int W = 7;
+    private static final int H = 5;
+
+    private static byte[] getData(Image img) throws Exception {
+        if (!img.isDeflated())
+            return img.getRawData();
+        InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(img.getRawData()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte b[] = new byte[1024];
+        int n;
+        while ((n = in.read(b)) > 0)
+            out.write(b, 0, n);
+        return out.toByteArray();
+    }
+
+    /**
+     * Converts the pixels as a <CODE>BufferedImage</CODE> and as grabbed
+     * pixels and checks that the images are the same.
+     * @return the converted <CODE>BufferedImage</CODE>
+     */
+    private static Image convert(int argb[]) throws Exception {
+        BufferedImage bi = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        bi.setRGB(0, 0, W, H, argb, 0, W);
+        Image converted = BufferedImageConverter.getImage(bi, null, false);
+        java.awt.Image awt = Toolkit.getDefaultToolkit().createImage(
+            new MemoryImageSource(W, H, ColorModel.getRGBdefault(), argb, 0, W));
+        Image grabbed = Image.getInstance(awt, null, false);
+        assertTrue(Arrays.equals(getData(grabbed), getData(converted)));
+        assertTrue(Arrays.equals(grabbed.getTransparency(), converted.getTransparency()));
+        assertEquals(grabbed.getImageMask() == null, converted.getImageMask() == null);
+        if (grabbed.getImageMask() != null)
+            assertTrue(Arrays.equals(getData(grabbed.getImageMask()), getData(converted.getImageMask())));
+        return converted;
+    }
+
+    /**
+     * Opaque pixels followed by transparent pixels of a single color get a
+     * color key mask.
+     */
+    public void testColorKey() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = k < W * 2 ? 0xffff0000 + k : 0x00123456;
+        Image img = convert(argb);
+        assertNull(img.getImageMask());
+        assertTrue(Arrays.equals(new int[]{0x12, 0x12, 0x34, 0x34, 0x56, 0x56}, img.getTransparency()));
+    }
+
+    /**
+     * A binary alpha with other colors after the first transparent pixel
+     * gets an SMask.
+     */
+    public void testBinaryAlphaSoftMask() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = k % 3 == 0 ? 0x00123456 : 0xff000000 + k;
+        Image img = convert(argb);
+        assertNotNull(img.getImageMask());
+        assertNull(img.getTransparency());
+    }
+
+    /**
+     * A partial alpha gets an SMask.
+     */
+    public void testPartialAlpha() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = (k * 7 << 24) | 0x00808080;
+        Image img = convert(argb);
+        assertNotNull(img.getImageMask());
+        assertTrue(img.getImageMask().isMask());
+    }
+
+    /**
+     * An opaque image has no mask.
+     */
+    public void testOpaque() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = 0xff000000 | k * 0x010203;
+        Image img = convert(argb);
+        assertNull(img.getImageMask());
+        assertNull(img.getTransparency());
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Image;
+
+/**
+ * Tests the SMask of the PNG images with an alpha channel, decoded a row at
+ * a time.
+ */
+public class PngImageTest extends TestCase {
+
+    private static final int W = 9;
+    private static final int H = 6;
+
+    private static byte[] getData(Image img) throws Exception {
+        if (!img.isDeflated())
+            return img.getRawData();
+        InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(img.getRawData()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte b[] = new byte[1024];
+        int n;
+        while ((n = in.read(b)) > 0)
+            out.write(b, 0, n);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes the pixels as an RGBA PNG and reads it back.
+     */
+    private static Image readRgba(int argb[]) throws Exception {
+        BufferedImage bi = new BufferedImage(W, H, BufferedImage.TYPE_INT_ARGB);
+        bi.setRGB(0, 0, W, H, argb, 0, W);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(bi, "png", out));
+        return PngImage.getImage(out.toByteArray());
+    }
+
+    /**
+     * An RGBA image with only opaque pixels gets no SMask, the alpha channel
+     * is dropped.
+     */
+    public void testOpaqueRgba() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = 0xff000000 | k * 0x010203;
+        Image img = readRgba(argb);
+        assertNull(img.getImageMask());
+        assertNull(img.getTransparency());
+        byte data[] = getData(img);
+        assertEquals(W * H * 3, data.length);
+        assertEquals(5 * 2, data[5 * 3 + 1]);
+    }
+
+    /**
+     * An RGBA image with a translucent pixel gets the alpha as its SMask.
+     */
+    public void testTranslucentRgba() throws Exception {
+        int argb[] = new int[W * H];
+        for (int k = 0; k < argb.length; ++k)
+            argb[k] = 0xff000000 | k * 0x010203;
+        argb[W * H - 1] = 0x80000000;
+        Image img = readRgba(argb);
+        Image mask = img.getImageMask();
+        assertNotNull(mask);
+        assertTrue(mask.isMask());
+        byte alpha[] = getData(mask);
+        assertEquals(W * H, alpha.length);
+        assertEquals((byte)0xff, alpha[0]);
+        assertEquals((byte)0x80, alpha[W * H - 1]);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.zip.InflaterInputStream;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.RandomAccessFileOrArray;
+
+/**
+ * Tests the pages read by a <CODE>TiffDocument</CODE>.
+ */
+public class TiffDocumentTest extends TestCase {
+
+    private static void writeShort(ByteArrayOutputStream out, int v) {
+        out.write(v);
+        out.write(v >> 8);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        writeShort(out, v);
+        writeShort(out, v >> 16);
+    }
+
+    private static void writeEntry(ByteArrayOutputStream out, int tag, int type, int value) {
+        writeShort(out, tag);
+        writeShort(out, type);
+        writeInt(out, 1);
+        writeInt(out, value);
+    }
+
+    /**
+     * Makes a little endian TIFF with uncompressed 8 bit gray pages, each
+     * page filled with its number.
+     */
+    private static byte[] createTiff(int pages, int width, int height) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('I');
+        out.write('I');
+        writeShort(out, 42);
+        writeInt(out, 8);
+        int entries = 7;
+        int ifdSize = 2 + 12 * entries + 4;
+        int pageSize = ifdSize + width * height;
+        for (int page = 0; page < pages; ++page) {
+            int ifd = 8 + page * pageSize;
+            writeShort(out, entries);
+            writeEntry(out, TIFFConstants.TIFFTAG_IMAGEWIDTH, 3, width);
+            writeEntry(out, TIFFConstants.TIFFTAG_IMAGELENGTH, 3, height);
+            writeEntry(out, TIFFConstants.TIFFTAG_BITSPERSAMPLE, 3, 8);
+            writeEntry(out, TIFFConstants.TIFFTAG_COMPRESSION, 3, TIFFConstants.COMPRESSION_NONE);
+            writeEntry(out, TIFFConstants.TIFFTAG_PHOTOMETRIC, 3, TIFFConstants.PHOTOMETRIC_MINISBLACK);
+            writeEntry(out, TIFFConstants.TIFFTAG_STRIPOFFSETS, 4, ifd + ifdSize);
+            writeEntry(out, TIFFConstants.TIFFTAG_STRIPBYTECOUNTS, 4, width * height);
+            writeInt(out, page == pages - 1 ? 0 : ifd + pageSize);
+            for (int k = 0; k < width * height; ++k)
+                out.write(page + 1);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The pages come back in order when they are converted on an executor.
+     */
+    public void testPageOrder() throws Exception {
+        TiffDocument tiff = new TiffDocument(new RandomAccessFileOrArray(createTiff(5, 4, 3)));
+        assertEquals(5, tiff.getNumberOfPages());
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                new Thread(command).start();
+            }
+        };
+        int page = 0;
+        for (Iterator it = tiff.getImages(1, 5, executor, 2); it.hasNext();) {
+            Image img = (Image)it.next();
+            ++page;
+            assertEquals(4f, img.getWidth(), 0);
+            assertTrue(img.isDeflated());
+            InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(img.getRawData()));
+            assertEquals(page, in.read());
+        }
+        assertEquals(5, page);
+    }
+
+    /**
+     * An interrupted thread keeps its interrupt status and the pages read
+     * ahead are cancelled.
+     */
+    public void testInterrupt() throws Exception {
+        TiffDocument tiff = new TiffDocument(new RandomAccessFileOrArray(createTiff(3, 4, 3)));
+        // the pages are never converted
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+            }
+        };
+        Iterator it = tiff.getImages(1, 3, executor, 2);
+        assertTrue(it.hasNext());
+        Thread.currentThread().interrupt();
+        try {
+            it.next();
+            fail("The interrupt was ignored.");
+        }
+        catch (ExceptionConverter e) {
+            assertTrue(e.getException() instanceof InterruptedException);
+        }
+        assertTrue(Thread.interrupted());
+        assertFalse(it.hasNext());
+    }
+}
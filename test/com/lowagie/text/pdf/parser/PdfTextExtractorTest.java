@@ -0,0 +1,247 @@
+/*
+ * $Id$
+ * $Name$
+ *
+ * The contents of this file are subject to the Mozilla Public License Version 1.1
+ * (the "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the License.
+ *
+ * The Original Code is 'iText, a free JAVA-PDF library'.
+ *
+ * The Initial Developer of the Original Code is Bruno Lowagie. Portions created by
+ * the Initial Developer are Copyright (C) 1999, 2000, 2001, 2002 by Bruno Lowagie.
+ * All Rights Reserved.
+ * Co-Developer of the code is Paulo Soares. Portions created by the Co-Developer
+ * are Copyright (C) 2000, 2001, 2002 by Paulo Soares. All Rights Reserved.
+ *
+ * Contributor(s): all the names of the contributors are added in the source code
+ * where applicable.
+ *
+ * Alternatively, the contents of this file may be used under the terms of the
+ * LGPL license (the "GNU LIBRARY GENERAL PUBLIC LICENSE"), in which case the
+ * provisions of LGPL are applicable instead of those above.  If you wish to
+ * allow use of your version of this file only under the terms of the LGPL
+ * License and not to allow others to use your version of this file under
+ * the MPL, indicate your decision by deleting the provisions above and
+ * replace them with the notice and other provisions required by the LGPL.
+ * If you do not delete the provisions above, a recipient may use your version
+ * of this file under either the MPL or the GNU LIBRARY GENERAL PUBLIC LICENSE.
+ *
+ * This library is free software; you can redistribute it and/or modify it
+ * under the terms of the MPL as stated above or under the terms of the GNU
+ * Library General Public License as published by the Free Software Foundation;
+ * either version 2 of the License, or any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Library general Public License for more
+ * details.
+ *
+ * If you didn't download this code from the following link, you should check if
+ * you aren't using an obsolete version:
+ * http://www.lowagie.com/iText/
+ */
+
+package com.lowagie.text.pdf.parser;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.ExceptionConverter;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfEncodings;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+
+/**
+ * Tests the decoding of the strings and the extraction of the pages in parallel.
+ */
+public class PdfTextExtractorTest extends TestCase {
+
+    private static final String CMAP =
+        "/CIDInit /ProcSet findresource begin\n12 dict begin\nbegincmap\n" +
+        "2 begincodespacerange\n<00> <7f>\n<8140> <fefe>\nendcodespacerange\n" +
+        "1 begincidrange\n<20> <7e> 1\nendcidrange\n" +
+        "1 begincidrange\n<8140> <817e> 633\nendcidrange\n" +
+        "endcmap\nend\nend\n";
+
+    private static final String TO_UNICODE =
+        "/CIDInit /ProcSet findresource begin\n12 dict begin\nbegincmap\n" +
+        "1 begincodespacerange\n<00> <ff>\nendcodespacerange\n" +
+        "3 beginbfchar\n<20> <0020>\n<41> <0041>\n<8141> <4E00>\nendbfchar\n" +
+        "endcmap\nend\nend\n";
+
+    /**
+     * Writes a PDF file with a page for each content stream and the fonts as
+     * the objects from 3 on, named /F1, /F2...
+     */
+    private static PdfReader createPdf(String contents[], String fonts[], String others[]) throws Exception {
+        ArrayList objects = new ArrayList();
+        int firstPage = 3 + fonts.length + others.length;
+        StringBuffer kids = new StringBuffer();
+        StringBuffer fontRes = new StringBuffer();
+        for (int k = 0; k < contents.length; ++k)
+            kids.append(firstPage + 2 * k).append(" 0 R ");
+        for (int k = 0; k < fonts.length; ++k)
+            fontRes.append("/F").append(k + 1).append(' ').append(3 + k).append(" 0 R ");
+        objects.add("<< /Type /Catalog /Pages 2 0 R >>");
+        objects.add("<< /Type /Pages /Count " + contents.length + " /Kids [" + kids + "] >>");
+        for (int k = 0; k < fonts.length; ++k)
+            objects.add(fonts[k]);
+        for (int k = 0; k < others.length; ++k)
+            objects.add(others[k]);
+        for (int k = 0; k < contents.length; ++k) {
+            objects.add("<< /Type /Page /Parent 2 0 R /MediaBox [0 0 200 200] /Resources << /Font << "
+                + fontRes + ">> >> /Contents " + (firstPage + 2 * k + 1) + " 0 R >>");
+            objects.add(stream(contents[k]));
+        }
+        StringBuffer pdf = new StringBuffer("%PDF-1.4\n");
+        int offsets[] = new int[objects.size()];
+        for (int k = 0; k < objects.size(); ++k) {
+            offsets[k] = pdf.length();
+            pdf.append(k + 1).append(" 0 obj\n").append(objects.get(k)).append("\nendobj\n");
+        }
+        int xref = pdf.length();
+        pdf.append("xref\n0 ").append(objects.size() + 1).append("\n0000000000 65535 f \n");
+        for (int k = 0; k < offsets.length; ++k) {
+            String n = String.valueOf(offsets[k]);
+            pdf.append("0000000000".substring(n.length())).append(n).append(" 00000 n \n");
+        }
+        pdf.append("trailer\n<< /Size ").append(objects.size() + 1).append(" /Root 1 0 R >>\nstartxref\n")
+            .append(xref).append("\n%%EOF\n");
+        return new PdfReader(PdfEncodings.convertToBytes(pdf.toString(), null));
+    }
+
+    private static String stream(String data) {
+        return "<< /Length " + data.length() + " >>\nstream\n" + data + "\nendstream";
+    }
+
+    private static PdfReader createPdf(String content, String font) throws Exception {
+        return createPdf(new String[]{content}, new String[]{font}, new String[0]);
+    }
+
+    /**
+     * Gets the text and the width, in hundredths, of the strings of the first page.
+     */
+    private static String[] render(PdfReader reader) throws Exception {
+        final ArrayList strings = new ArrayList();
+        new PdfTextExtractor(reader).processPage(1, new RenderListener() {
+            public void beginTextBlock() {
+            }
+            public void renderText(TextRenderInfo info) {
+                strings.add(info.getText() + " " + Math.round(info.getWidth() * 100));
+            }
+            public void endTextBlock() {
+            }
+            public void renderImage(ImageRenderInfo info) {
+            }
+            public void beginMarkedContent(PdfName tag, PdfDictionary properties) {
+            }
+            public void endMarkedContent() {
+            }
+        });
+        return (String[])strings.toArray(new String[strings.size()]);
+    }
+
+    public void testType0EncodingCmap() throws Exception {
+        String font = "<< /Type /Font /Subtype /Type0 /BaseFont /Test /Encoding 4 0 R"
+            + " /ToUnicode 5 0 R /DescendantFonts [6 0 R] >>";
+        String cidFont = "<< /Type /Font /Subtype /CIDFontType0 /BaseFont /Test /DW 500"
+            + " /W [1 [250] 34 [600] 633 [1000 900]] >>";
+        PdfReader reader = createPdf(new String[]{"BT /F1 10 Tf 0 0 Td 2 Tw <41814120> Tj ET"},
+            new String[]{font}, new String[]{stream(CMAP), stream(TO_UNICODE), cidFont});
+        String strings[] = render(reader);
+        assertEquals(1, strings.length);
+        assertEquals("A一  1950", strings[0]);
+    }
+
+    public void testType0IdentityH() throws Exception {
+        String font = "<< /Type /Font /Subtype /Type0 /BaseFont /Test /Encoding /Identity-H"
+            + " /DescendantFonts [4 0 R] >>";
+        String cidFont = "<< /Type /Font /Subtype /CIDFontType2 /BaseFont /Test /DW 1000"
+            + " /W [16706 [400]] >>";
+        PdfReader reader = createPdf(new String[]{"BT /F1 10 Tf 0 0 Td <41424142> Tj ET"},
+            new String[]{font}, new String[]{cidFont});
+        assertEquals(" 800", render(reader)[0]);
+    }
+
+    public void testBuiltinWidthsWithEncoding() throws Exception {
+        assertEquals("A 667", render(createPdf("BT /F1 10 Tf (A) Tj ET",
+            "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>"))[0]);
+        assertEquals("Õ 778", render(createPdf("BT /F1 10 Tf <D5> Tj ET",
+            "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>"))[0]);
+        assertEquals("’ 222", render(createPdf("BT /F1 10 Tf <D5> Tj ET",
+            "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /MacRomanEncoding >>"))[0]);
+        assertEquals("  278", render(createPdf("BT /F1 10 Tf (A) Tj ET",
+            "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding << /Differences [65 /space] >> >>"))[0]);
+    }
+
+    private static PdfReader createPages(int pages) throws Exception {
+        String contents[] = new String[pages];
+        for (int k = 0; k < pages; ++k)
+            contents[k] = "BT /F1 10 Tf 10 10 Td (page " + (k + 1) + ") Tj ET";
+        return createPdf(contents, new String[]{"<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>"}, new String[0]);
+    }
+
+    public void testReadAhead() throws Exception {
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        final ArrayList tasks = new ArrayList();
+        final int maxPending[] = new int[1];
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                synchronized (tasks) {
+                    tasks.add(command);
+                    int pending = 0;
+                    for (int k = 0; k < tasks.size(); ++k) {
+                        if (!((FutureTask)tasks.get(k)).isDone())
+                            ++pending;
+                    }
+                    maxPending[0] = Math.max(maxPending[0], pending);
+                }
+                pool.execute(command);
+            }
+        };
+        try {
+            String text[] = new PdfTextExtractor(createPages(20)).getTextFromPages(2, 19, executor, 3);
+            assertEquals(18, text.length);
+            for (int k = 0; k < text.length; ++k)
+                assertEquals("page " + (k + 2), text[k].trim());
+            assertEquals(18, tasks.size());
+            assertTrue(maxPending[0] <= 3);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testInterrupt() throws Exception {
+        final ArrayList tasks = new ArrayList();
+        Executor executor = new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        PdfTextExtractor extractor = new PdfTextExtractor(createPages(10));
+        Thread.currentThread().interrupt();
+        try {
+            extractor.getTextFromPages(1, 10, executor, 4);
+            fail("The extraction wasn't interrupted.");
+        }
+        catch (ExceptionConverter e) {
+            assertTrue(e.getException() instanceof InterruptedException);
+        }
+        assertTrue(Thread.interrupted());
+        assertEquals(4, tasks.size());
+        for (int k = 0; k < tasks.size(); ++k)
+            assertTrue(((FutureTask)tasks.get(k)).isCancelled());
+    }
+}